@@ -0,0 +1,139 @@
+package com.maersk.kafkautility.benchmark;
+
+import com.maersk.kafkautility.annotations.CounterMetric;
+import com.maersk.kafkautility.annotations.LogEvent;
+import com.maersk.kafkautility.annotations.RetryHandler;
+import com.maersk.kafkautility.aspect.EventLogAspect;
+import com.maersk.kafkautility.aspect.MetricAspect;
+import com.maersk.kafkautility.aspect.RetryAspect;
+import com.maersk.kafkautility.service.AuditService;
+import com.maersk.kafkautility.service.MessagePublishHandler;
+import com.maersk.kafkautility.service.RetryTopicRouter;
+import com.maersk.kafkautility.support.SamplePayload;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.EnableAspectJAutoProxy;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-call overhead the library aspects add to an annotated method, compared with the same
+ * call through the proxy without an annotation. Audit events go to a temporary file sink.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AspectOverheadBenchmark {
+
+    private AnnotationConfigApplicationContext context;
+    private AnnotatedTarget target;
+    private SamplePayload payload;
+
+    @Setup
+    public void setUp() throws IOException {
+        var auditFile = Files.createTempFile("audit-benchmark", ".log");
+        context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("benchmark", Map.of(
+                "kafka.retry.topic", "benchmark-retry",
+                "audit.file.enabled", "true",
+                "audit.file.path", auditFile.toString())));
+        context.register(AspectConfiguration.class);
+        context.refresh();
+        target = context.getBean(AnnotatedTarget.class);
+        payload = SamplePayload.ofSize(256, 1);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void baseline() {
+        target.plain(payload, "correlation-id");
+    }
+
+    @Benchmark
+    public void counterMetric() {
+        target.counted(payload, "correlation-id");
+    }
+
+    @Benchmark
+    public void logEvent() {
+        target.logged(payload, "correlation-id");
+    }
+
+    @Benchmark
+    public void retryHandler() {
+        target.retried(payload, "correlation-id");
+    }
+
+    public static class AnnotatedTarget {
+
+        private volatile Object last;
+
+        public void plain(Object message, Object correlationId) {
+            last = message;
+        }
+
+        @CounterMetric
+        public void counted(Object message, Object correlationId) {
+            last = message;
+        }
+
+        @LogEvent
+        public void logged(Object message, Object correlationId) {
+            last = message;
+        }
+
+        @RetryHandler
+        public void retried(Object message, Object correlationId) {
+            last = message;
+        }
+    }
+
+    @Configuration
+    @EnableAspectJAutoProxy(proxyTargetClass = true)
+    @Import({MetricAspect.class, EventLogAspect.class, RetryAspect.class, AuditService.class, MessagePublishHandler.class, RetryTopicRouter.class})
+    static class AspectConfiguration {
+
+        @Bean
+        public SimpleMeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        public KafkaTemplate<String, Object> kafkaTemplate() {
+            return new KafkaTemplate<>(() -> new MockProducer<>(true, new StringSerializer(), (topic, value) -> new byte[0]));
+        }
+
+        @Bean
+        public AnnotatedTarget annotatedTarget() {
+            return new AnnotatedTarget();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.maersk.kafkautility.benchmark;
+
+import com.maersk.kafkautility.support.InMemoryAzureBlobService;
+import com.maersk.kafkautility.support.SamplePayload;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * storePayloadToBlob record construction for payloads on both sides of the offload threshold,
+ * against the in-memory store so only the client-side work is measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClaimCheckRecordBenchmark {
+
+    private static final long MAX_PAYLOAD_BYTES = 1_000_000;
+
+    @Param({"java", "smile"})
+    private String codec;
+
+    @Param({"1024", "65536", "2097152"})
+    private int payloadSize;
+
+    private InMemoryAzureBlobService<SamplePayload> blobService;
+    private SamplePayload payload;
+
+    @Setup
+    public void setUp() {
+        blobService = new InMemoryAzureBlobService<>(codec, MAX_PAYLOAD_BYTES, 0);
+        payload = SamplePayload.ofSize(payloadSize, 7);
+    }
+
+    @Benchmark
+    public ProducerRecord<String, SamplePayload> storePayloadToBlob() throws IOException {
+        var producerRecord = blobService.storePayloadToBlob("benchmark-topic", payload);
+        Object value = producerRecord.value();
+        if (value instanceof String) {
+            blobService.deletePayloadFromBlob((String) value);
+        }
+        return producerRecord;
+    }
+}
@@ -0,0 +1,63 @@
+package com.maersk.kafkautility.benchmark;
+
+import com.maersk.kafkautility.utils.PayloadHeaders;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of writing the claim-check headers of an offloaded record and of reading them back
+ * on the consumer side.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HeaderBenchmark {
+
+    private Headers offloadedHeaders;
+
+    @Setup
+    public void setUp() {
+        offloadedHeaders = writeOffloadedHeaders();
+        PayloadHeaders.add(offloadedHeaders, PayloadHeaders.RETRY_ATTEMPT, "2");
+    }
+
+    @Benchmark
+    public Headers writeOffloadedHeaders() {
+        var headers = new RecordHeaders();
+        PayloadHeaders.add(headers, PayloadHeaders.IS_LARGE_PAYLOAD, "YES");
+        PayloadHeaders.add(headers, PayloadHeaders.PAYLOAD_TYPE, "com.maersk.kafkautility.support.SamplePayload");
+        PayloadHeaders.add(headers, PayloadHeaders.PAYLOAD_CODEC, "java");
+        PayloadHeaders.add(headers, PayloadHeaders.PAYLOAD_COMPRESSION, "none");
+        PayloadHeaders.add(headers, PayloadHeaders.PAYLOAD_ORIGINAL_SIZE, "1048576");
+        PayloadHeaders.add(headers, PayloadHeaders.CORRELATION_ID, "4f1c2a9e-6f0b-4f43-9d55-0d3c1b8f7a21");
+        return headers;
+    }
+
+    @Benchmark
+    public boolean readOffloadedHeaders() {
+        boolean large = "YES".equals(PayloadHeaders.lastValue(offloadedHeaders, PayloadHeaders.IS_LARGE_PAYLOAD));
+        var type = PayloadHeaders.lastValue(offloadedHeaders, PayloadHeaders.PAYLOAD_TYPE);
+        var codec = PayloadHeaders.lastValue(offloadedHeaders, PayloadHeaders.PAYLOAD_CODEC);
+        return large && type.length() + codec.length() > 0;
+    }
+
+    @Benchmark
+    public long readRetryAttempt() {
+        return PayloadHeaders.lastLongValue(offloadedHeaders, PayloadHeaders.RETRY_ATTEMPT, 0);
+    }
+}
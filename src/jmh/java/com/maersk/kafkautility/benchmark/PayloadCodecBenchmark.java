@@ -0,0 +1,92 @@
+package com.maersk.kafkautility.benchmark;
+
+import com.maersk.kafkautility.codec.PayloadCodec;
+import com.maersk.kafkautility.codec.PayloadCodecs;
+import com.maersk.kafkautility.compression.PayloadCompressor;
+import com.maersk.kafkautility.compression.PayloadCompressors;
+import com.maersk.kafkautility.support.SamplePayload;
+import com.maersk.kafkautility.utils.PayloadBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encode (which is also how the inline/offload size decision is made), decode and compression
+ * cost per codec and payload size.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PayloadCodecBenchmark {
+
+    @Param({"java", "json", "smile"})
+    private String codec;
+
+    @Param({"gzip", "deflate"})
+    private String compression;
+
+    @Param({"1024", "65536", "1048576"})
+    private int payloadSize;
+
+    private PayloadCodec payloadCodec;
+    private PayloadCompressor payloadCompressor;
+    private SamplePayload payload;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() throws IOException {
+        payloadCodec = PayloadCodecs.forName(codec);
+        payloadCompressor = PayloadCompressors.forName(compression);
+        payload = SamplePayload.ofSize(payloadSize, 42);
+        var buffer = PayloadBuffer.acquire();
+        payloadCodec.encode(payload, buffer);
+        encoded = Arrays.copyOf(buffer.array(), buffer.size());
+        buffer.release();
+    }
+
+    @Benchmark
+    public int encodedSize() throws IOException {
+        var buffer = PayloadBuffer.acquire();
+        try {
+            payloadCodec.encode(payload, buffer);
+            return buffer.size();
+        } finally {
+            buffer.release();
+        }
+    }
+
+    @Benchmark
+    public Object decode() throws IOException {
+        return payloadCodec.decode(new ByteArrayInputStream(encoded), SamplePayload.class);
+    }
+
+    @Benchmark
+    public int compress() throws IOException {
+        var buffer = PayloadBuffer.acquire();
+        try {
+            try (OutputStream os = payloadCompressor.compress(buffer)) {
+                os.write(encoded);
+            }
+            return buffer.size();
+        } finally {
+            buffer.release();
+        }
+    }
+}
@@ -5,6 +5,11 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
+/**
+ * Audits calls to the annotated method with its first argument as payload. The argument is
+ * rendered asynchronously, after the method has returned, so it must be immutable or not be
+ * modified afterwards, or the audit line may show a later state.
+ */
 @Retention(RetentionPolicy.RUNTIME)
 @Target(ElementType.METHOD)
 public @interface LogEvent {
@@ -0,0 +1,27 @@
+package com.maersk.kafkautility.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Records the latency of the annotated method in a timer tagged with its class and method.
+ * The timer publishes a percentile histogram unless {@link #histogram()} is false.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface TimedMetric {
+
+    /**
+     * Timer name, defaults to method.timed.
+     */
+    String value() default "";
+
+    boolean histogram() default true;
+
+    /**
+     * Client-side percentiles to publish in addition to the histogram, e.g. {0.5, 0.99}.
+     */
+    double[] percentiles() default {};
+}
@@ -25,15 +25,15 @@ public class EventLogAspect {
 
     @Around(value = "annotatedMethod()")
     public void eventAdvice(ProceedingJoinPoint joinPoint) {
-        log.info("Inside eventAdvice");
+        log.debug("Inside eventAdvice");
         try{
-            var className = joinPoint.getSignature().getDeclaringType().getName();
-            var methodName = joinPoint.getSignature().getName();
-            var args = joinPoint.getArgs();
-            var payload = args[0];
-           // auditService.logEvent(className, methodName, payload.toString());
+            if (auditService.isEnabled()) {
+                var signature = joinPoint.getSignature();
+                var args = joinPoint.getArgs();
+                auditService.logEvent(signature.getDeclaringTypeName(), signature.getName(), args.length > 0 ? args[0] : null);
+            }
             joinPoint.proceed();
-            log.info("After proceed");
+            log.debug("After proceed");
         }
         catch (Throwable throwable) {
             log.error("Exception thrown by the intercepted method", throwable);
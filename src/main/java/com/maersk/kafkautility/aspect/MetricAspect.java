@@ -1,7 +1,9 @@
 package com.maersk.kafkautility.aspect;
 
+import com.maersk.kafkautility.annotations.TimedMetric;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.aspectj.lang.JoinPoint;
 import org.aspectj.lang.ProceedingJoinPoint;
@@ -9,9 +11,19 @@ import org.aspectj.lang.annotation.After;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Pointcut;
+import org.aspectj.lang.reflect.MethodSignature;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
 
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Meters are resolved once per intercepted method and cached, so an intercepted call only
+ * costs a map lookup and the meter update itself.
+ */
 @Aspect
 @Slf4j
 @Configuration
@@ -20,19 +32,24 @@ public class MetricAspect {
     @Autowired
     private MeterRegistry meterRegistry;
 
+    private final Map<Method, Counter> methodCounters = new ConcurrentHashMap<>();
+    private final Map<Method, Timer> methodTimers = new ConcurrentHashMap<>();
+    private final Map<Class<?>, Counter> exceptionCounters = new ConcurrentHashMap<>();
+
     @Pointcut("@annotation(com.maersk.kafkautility.annotations.CounterMetric)")
     public void annotatedMethod(){
     }
 
+    @Pointcut(value = "@annotation(timedMetric)", argNames = "timedMetric")
+    public void timedMethod(TimedMetric timedMetric){
+    }
+
     @After(value = "annotatedMethod()")
     public void metricAdvice(JoinPoint joinPoint)
     {
         try {
-            var className = joinPoint.getSignature().getDeclaringType().getName();
-            log.info("Class name: {}", className);
-            var methodName = joinPoint.getSignature().getName();
-            Counter counter = initializeMethodMetric(className, methodName);
-            counter.increment();
+            var method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+            methodCounters.computeIfAbsent(method, this::initializeMethodMetric).increment();
         } catch (Exception t)
         {
             log.error("Exception thrown by intercepted method", t);
@@ -40,22 +57,49 @@ public class MetricAspect {
         }
     }
 
-    private Counter initializeMethodMetric(String className, String methodName)
+    @Around(value = "timedMethod(timedMetric)", argNames = "joinPoint,timedMetric")
+    public Object timedAdvice(ProceedingJoinPoint joinPoint, TimedMetric timedMetric) throws Throwable
+    {
+        var method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        var timer = methodTimers.computeIfAbsent(method, key -> initializeMethodTimer(key, timedMetric));
+        long start = System.nanoTime();
+        try {
+            return joinPoint.proceed();
+        } finally {
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Counter initializeMethodMetric(Method method)
     {
-        log.info("Inside initializeMethodMetric");
-        return Counter.builder(className.concat(".").concat(methodName))
-                .tag("Method", className.concat(".").concat(methodName))
+        var methodName = method.getDeclaringClass().getName().concat(".").concat(method.getName());
+        log.info("Registering counter for {}", methodName);
+        return Counter.builder(methodName)
+                .tag("Method", methodName)
                 .description("Number of times consumer method is invoked")
                 .register(meterRegistry);
     }
 
+    private Timer initializeMethodTimer(Method method, TimedMetric timedMetric)
+    {
+        var name = timedMetric.value().isEmpty() ? "method.timed" : timedMetric.value();
+        log.info("Registering timer {} for {}.{}", name, method.getDeclaringClass().getName(), method.getName());
+        var builder = Timer.builder(name)
+                .tag("class", method.getDeclaringClass().getName())
+                .tag("method", method.getName())
+                .description("Latency of the annotated method")
+                .publishPercentileHistogram(timedMetric.histogram());
+        if (timedMetric.percentiles().length > 0) {
+            builder.publishPercentiles(timedMetric.percentiles());
+        }
+        return builder.register(meterRegistry);
+    }
+
     private void exceptionCounterMetric(Exception exception)
     {
-        log.info("Inside exceptionCounterMetric");
-        Counter counter = Counter.builder(exception.getClass().getName())
-                .tag("Exception", exception.getClass().getName())
+        exceptionCounters.computeIfAbsent(exception.getClass(), type -> Counter.builder(type.getName())
+                .tag("Exception", type.getName())
                 .description("Exception counter")
-                .register(meterRegistry);
-        counter.increment();
+                .register(meterRegistry)).increment();
     }
 }
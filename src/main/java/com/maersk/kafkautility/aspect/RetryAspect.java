@@ -1,8 +1,12 @@
 package com.maersk.kafkautility.aspect;
 
 import com.maersk.kafkautility.service.MessagePublishHandler;
+import com.maersk.kafkautility.service.RetryTopicRouter;
+import com.maersk.kafkautility.utils.PayloadHeaders;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Headers;
 import org.aspectj.lang.JoinPoint;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.*;
@@ -12,7 +16,6 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.core.annotation.Order;
 import org.springframework.kafka.core.KafkaTemplate;
 
-import java.nio.charset.StandardCharsets;
 import java.util.Objects;
 
 @Slf4j
@@ -30,7 +33,8 @@ public class RetryAspect<T> {
 	@Autowired
 	private MessagePublishHandler<T> messagePublishHandler;
 
-	private static final String RETRY_TOPIC_PLACEHOLDER = "${kafka.retry.topic}";
+	@Autowired
+	private RetryTopicRouter retryTopicRouter;
 
 	@Pointcut("@annotation(com.maersk.kafkautility.annotations.RetryHandler)")
 	public void annotatedMethod(){
@@ -39,21 +43,45 @@ public class RetryAspect<T> {
 	@AfterThrowing(value = "annotatedMethod()")
 	public void retryAdvice(JoinPoint joinPoint) {
 		log.info("Retry threshold reached - inside retryAdvice");
-		var retryTopic = context.getEnvironment().resolvePlaceholders(RETRY_TOPIC_PLACEHOLDER);
-		log.info("retry topic name: {}", retryTopic);
 		var args = joinPoint.getArgs();
 		if (Objects.nonNull(args[0])) {
 			var message = (T) args[0];
 			log.info("message to publish on retry topic: {}", message);
-			ProducerRecord<String, T> producerRecord = new ProducerRecord<>(retryTopic, message);
+			ProducerRecord<String, T> producerRecord = retryTopicRouter.nextAttempt(message, findOriginalTopic(args), findHeaders(args));
 			var kafkaHeaders = producerRecord.headers();
-			if (Objects.nonNull(args[1])) {
-				kafkaHeaders.add("X-DOCBROKER-Correlation-ID", args[1].toString().getBytes(StandardCharsets.UTF_8));
+			PayloadHeaders.add(kafkaHeaders, PayloadHeaders.IS_LARGE_PAYLOAD, "NO");
+			if (Objects.nonNull(args[1]) && Objects.isNull(kafkaHeaders.lastHeader(PayloadHeaders.CORRELATION_ID))) {
+				PayloadHeaders.add(kafkaHeaders, PayloadHeaders.CORRELATION_ID, args[1].toString());
 			}
 			messagePublishHandler.publishOnTopic(producerRecord);
 		}
 	}
 
+	/**
+	 * Attempt counting needs the headers of the record being retried; they are taken from a
+	 * {@link ConsumerRecord} or {@link Headers} argument of the annotated method when present.
+	 */
+	private Headers findHeaders(Object[] args) {
+		for (Object arg : args) {
+			if (arg instanceof Headers) {
+				return (Headers) arg;
+			}
+			if (arg instanceof ConsumerRecord) {
+				return ((ConsumerRecord<?, ?>) arg).headers();
+			}
+		}
+		return null;
+	}
+
+	private String findOriginalTopic(Object[] args) {
+		for (Object arg : args) {
+			if (arg instanceof ConsumerRecord) {
+				return ((ConsumerRecord<?, ?>) arg).topic();
+			}
+		}
+		return null;
+	}
+
 	@Around(value = "annotatedMethod()")
 	public void exceptionHandlerAdvice(ProceedingJoinPoint joinPoint) {
 		log.info("Inside exceptionHandlerAdvice");
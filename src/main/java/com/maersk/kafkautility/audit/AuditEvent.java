@@ -0,0 +1,23 @@
+package com.maersk.kafkautility.audit;
+
+import lombok.Getter;
+
+/**
+ * An audit record as captured on the caller thread. The payload is kept by reference and only
+ * rendered to text on the drain thread, so callers must not mutate it after it is logged.
+ */
+@Getter
+public class AuditEvent {
+
+    private final long timestamp;
+    private final String className;
+    private final String methodName;
+    private final Object payload;
+
+    public AuditEvent(long timestamp, String className, String methodName, Object payload) {
+        this.timestamp = timestamp;
+        this.className = className;
+        this.methodName = methodName;
+        this.payload = payload;
+    }
+}
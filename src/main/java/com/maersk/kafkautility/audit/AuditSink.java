@@ -0,0 +1,18 @@
+package com.maersk.kafkautility.audit;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Destination for drained audit events. Sinks are only called from the audit drain thread and
+ * receive events as pre-rendered JSON lines, one batch per call.
+ */
+public interface AuditSink {
+
+    String getName();
+
+    void write(List<String> batch) throws IOException;
+
+    default void close() throws IOException {
+    }
+}
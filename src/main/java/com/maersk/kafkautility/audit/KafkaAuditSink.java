@@ -0,0 +1,47 @@
+package com.maersk.kafkautility.audit;
+
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
+
+import java.util.List;
+
+/**
+ * Publishes audit lines to a Kafka topic. Sends are fire-and-forget batched by the producer;
+ * the template is flushed once per drained batch. The sink has its own string producer, built
+ * from the application's producer configuration, as the application's value serializer need
+ * not accept text.
+ */
+public class KafkaAuditSink implements AuditSink {
+
+    private final DefaultKafkaProducerFactory<String, String> producerFactory;
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final String topic;
+
+    public KafkaAuditSink(ProducerFactory<?, ?> applicationProducerFactory, String topic) {
+        this.producerFactory = new DefaultKafkaProducerFactory<>(applicationProducerFactory.getConfigurationProperties(),
+                new StringSerializer(), new StringSerializer());
+        this.kafkaTemplate = new KafkaTemplate<>(producerFactory);
+        this.topic = topic;
+    }
+
+    @Override
+    public String getName() {
+        return "kafka";
+    }
+
+    @Override
+    public void write(List<String> batch) {
+        for (String line : batch) {
+            kafkaTemplate.send(new ProducerRecord<>(topic, line));
+        }
+        kafkaTemplate.flush();
+    }
+
+    @Override
+    public void close() {
+        producerFactory.destroy();
+    }
+}
@@ -0,0 +1,93 @@
+package com.maersk.kafkautility.audit;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Appends audit lines to a local file, rolling it to file.1 .. file.N once it exceeds the
+ * configured size in UTF-8 bytes. Each batch is flushed once.
+ */
+@Slf4j
+public class RollingFileAuditSink implements AuditSink {
+
+    private final Path path;
+    private final long maxFileBytes;
+    private final int maxFiles;
+    private OutputStream output;
+    private long fileBytes;
+
+    public RollingFileAuditSink(Path path, long maxFileBytes, int maxFiles) {
+        this.path = path;
+        this.maxFileBytes = maxFileBytes;
+        this.maxFiles = maxFiles;
+    }
+
+    @Override
+    public String getName() {
+        return "file";
+    }
+
+    @Override
+    public void write(List<String> batch) throws IOException {
+        if (Objects.isNull(output)) {
+            open();
+        }
+        for (String line : batch) {
+            byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+            output.write(bytes);
+            output.write('\n');
+            fileBytes += bytes.length + 1L;
+        }
+        output.flush();
+        if (fileBytes >= maxFileBytes) {
+            roll();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (Objects.nonNull(output)) {
+            output.close();
+            output = null;
+        }
+    }
+
+    private void open() throws IOException {
+        var parent = path.toAbsolutePath().getParent();
+        if (Objects.nonNull(parent)) {
+            Files.createDirectories(parent);
+        }
+        fileBytes = Files.exists(path) ? Files.size(path) : 0;
+        output = new BufferedOutputStream(Files.newOutputStream(path, StandardOpenOption.CREATE, StandardOpenOption.APPEND), 64 * 1024);
+    }
+
+    private void roll() throws IOException {
+        close();
+        for (int i = maxFiles - 1; i >= 1; i--) {
+            var source = rolledPath(i);
+            if (Files.exists(source)) {
+                Files.move(source, rolledPath(i + 1), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        if (maxFiles > 0) {
+            Files.move(path, rolledPath(1), StandardCopyOption.REPLACE_EXISTING);
+        } else {
+            Files.delete(path);
+        }
+        log.info("Audit file rolled: {}", path);
+    }
+
+    private Path rolledPath(int index) {
+        return path.resolveSibling(path.getFileName() + "." + index);
+    }
+}
@@ -0,0 +1,86 @@
+package com.maersk.kafkautility.codec;
+
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bytes a payload was already encoded into while it was sized against the inline limit, handed to
+ * {@link PayloadCodecSerializer} out of band so the record value keeps its payload type. The record
+ * only carries a {@value #HEADER} header; the serializer takes the entry, removes the header and
+ * sends the stored bytes instead of encoding the payload again. Entries of records that are never
+ * sent are evicted oldest first past {@link #MAX_RETAINED_BYTES}, and a record whose entry is gone
+ * is simply encoded again.
+ */
+public final class EncodedPayloads {
+
+    public static final String HEADER = "payloadEncodedId";
+
+    private static final long MAX_RETAINED_BYTES = 64L * 1024 * 1024;
+    private static final AtomicLong IDS = new AtomicLong();
+    private static final Map<Long, Entry> ENTRIES = new LinkedHashMap<>();
+    private static long retainedBytes;
+
+    private EncodedPayloads()
+    {
+        //private constructor
+    }
+
+    /**
+     * Registers the encoded bytes of the payload a record is about to carry.
+     */
+    public static void attach(Headers headers, Object payload, byte[] bytes, String codec)
+    {
+        long id = IDS.incrementAndGet();
+        synchronized (ENTRIES) {
+            ENTRIES.put(id, new Entry(payload, bytes, codec));
+            retainedBytes += bytes.length;
+            Iterator<Entry> eldest = ENTRIES.values().iterator();
+            while (retainedBytes > MAX_RETAINED_BYTES && eldest.hasNext()) {
+                retainedBytes -= eldest.next().bytes.length;
+                eldest.remove();
+            }
+        }
+        headers.add(HEADER, ByteBuffer.allocate(Long.BYTES).putLong(id).array());
+    }
+
+    /**
+     * @return the bytes registered for this exact payload and codec, or null when the record has
+     * none or they were evicted; the header is removed either way
+     */
+    static byte[] take(Headers headers, Object payload, String codec)
+    {
+        Header header = headers.lastHeader(HEADER);
+        if (Objects.isNull(header)) {
+            return null;
+        }
+        headers.remove(HEADER);
+        Entry entry;
+        synchronized (ENTRIES) {
+            entry = ENTRIES.remove(ByteBuffer.wrap(header.value()).getLong());
+            if (Objects.nonNull(entry)) {
+                retainedBytes -= entry.bytes.length;
+            }
+        }
+        return Objects.nonNull(entry) && entry.payload == payload && entry.codec.equals(codec) ? entry.bytes : null;
+    }
+
+    private static final class Entry {
+        private final Object payload;
+        private final byte[] bytes;
+        private final String codec;
+
+        private Entry(Object payload, byte[] bytes, String codec)
+        {
+            this.payload = payload;
+            this.bytes = bytes;
+            this.codec = codec;
+        }
+    }
+}
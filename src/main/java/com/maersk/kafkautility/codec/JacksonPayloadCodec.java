@@ -0,0 +1,43 @@
+package com.maersk.kafkautility.codec;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Objects;
+
+/**
+ * Base for the Jackson codecs. Modules are registered explicitly rather than discovered, so a
+ * module that happens to be on the classpath (such as the Scala one Kafka brings in) cannot change
+ * what untyped payloads decode to.
+ */
+public abstract class JacksonPayloadCodec implements PayloadCodec {
+
+    private final ObjectMapper objectMapper;
+
+    protected JacksonPayloadCodec(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper
+                .registerModule(new Jdk8Module())
+                .registerModule(new JavaTimeModule())
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .disable(JsonParser.Feature.AUTO_CLOSE_SOURCE)
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    }
+
+    @Override
+    public void encode(Object payload, OutputStream outputStream) throws IOException {
+        objectMapper.writeValue(outputStream, payload);
+    }
+
+    @Override
+    public Object decode(InputStream inputStream, Class<?> type) throws IOException {
+        Class<?> target = Objects.isNull(type) ? Object.class : type;
+        return objectMapper.readValue(inputStream, target);
+    }
+}
@@ -0,0 +1,33 @@
+package com.maersk.kafkautility.codec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+
+public class JavaSerializationCodec implements PayloadCodec {
+
+    public static final String NAME = "java";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public void encode(Object payload, OutputStream outputStream) throws IOException {
+        ObjectOutputStream oos = new ObjectOutputStream(outputStream);
+        oos.writeObject(payload);
+        oos.flush();
+    }
+
+    @Override
+    public Object decode(InputStream inputStream, Class<?> type) throws IOException {
+        try {
+            return new ObjectInputStream(inputStream).readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Payload class not found", e);
+        }
+    }
+}
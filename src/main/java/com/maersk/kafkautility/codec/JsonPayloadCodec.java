@@ -0,0 +1,17 @@
+package com.maersk.kafkautility.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class JsonPayloadCodec extends JacksonPayloadCodec {
+
+    public static final String NAME = "json";
+
+    public JsonPayloadCodec() {
+        super(new ObjectMapper());
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+}
@@ -0,0 +1,26 @@
+package com.maersk.kafkautility.codec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Encodes claim-check payloads to bytes and back. Implementations are looked up by
+ * {@link #getName()} through {@link PayloadCodecs}; additional codecs can be plugged in
+ * with a META-INF/services/com.maersk.kafkautility.codec.PayloadCodec entry.
+ * The name is written next to the bytes so readers always pick the matching decoder.
+ */
+public interface PayloadCodec {
+
+    String getName();
+
+    /**
+     * Writes the payload to the stream. The stream is owned by the caller and must not be closed.
+     */
+    void encode(Object payload, OutputStream outputStream) throws IOException;
+
+    /**
+     * Reads one payload from the stream. Self-describing codecs may ignore the type.
+     */
+    Object decode(InputStream inputStream, Class<?> type) throws IOException;
+}
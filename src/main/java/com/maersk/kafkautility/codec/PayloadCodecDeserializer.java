@@ -0,0 +1,72 @@
+package com.maersk.kafkautility.codec;
+
+import com.maersk.kafkautility.utils.PayloadHeaders;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Kafka value deserializer that picks the {@link PayloadCodec} and target class from the
+ * record headers written by {@link PayloadCodecSerializer}, falling back to the
+ * {@value #CODEC_CONFIG} and {@value #TYPE_CONFIG} properties for records without them.
+ */
+public class PayloadCodecDeserializer<T> implements Deserializer<T> {
+
+    public static final String CODEC_CONFIG = "payload.codec";
+    public static final String TYPE_CONFIG = "payload.type";
+
+    private PayloadCodec defaultCodec = PayloadCodecs.forName(JavaSerializationCodec.NAME);
+    private Class<?> defaultType;
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        Object codecName = configs.get(CODEC_CONFIG);
+        if (Objects.nonNull(codecName)) {
+            defaultCodec = PayloadCodecs.forName(codecName.toString());
+        }
+        Object type = configs.get(TYPE_CONFIG);
+        if (type instanceof Class) {
+            defaultType = (Class<?>) type;
+        } else if (Objects.nonNull(type)) {
+            defaultType = PayloadCodecs.resolveType(type.toString());
+        }
+    }
+
+    @Override
+    public T deserialize(String topic, byte[] data) {
+        return decode(data, defaultCodec, defaultType);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T deserialize(String topic, Headers headers, byte[] data) {
+        if (PayloadCodecSerializer.isChunk(headers)) {
+            return (T) data;
+        }
+        if (PayloadCodecSerializer.isPayloadReference(headers)) {
+            return decode(data, defaultCodec, String.class);
+        }
+        String codecName = PayloadHeaders.lastValue(headers, PayloadHeaders.PAYLOAD_CODEC);
+        String typeName = PayloadHeaders.lastValue(headers, PayloadHeaders.PAYLOAD_TYPE);
+        PayloadCodec codec = Objects.isNull(codecName) ? defaultCodec : PayloadCodecs.forName(codecName);
+        Class<?> type = Objects.isNull(typeName) ? defaultType : PayloadCodecs.resolveType(typeName);
+        return decode(data, codec, type);
+    }
+
+    @SuppressWarnings("unchecked")
+    private T decode(byte[] data, PayloadCodec codec, Class<?> type) {
+        if (Objects.isNull(data)) {
+            return null;
+        }
+        try {
+            return (T) codec.decode(new ByteArrayInputStream(data), type);
+        } catch (IOException e) {
+            throw new SerializationException("Exception while decoding payload with codec " + codec.getName(), e);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.maersk.kafkautility.codec;
+
+import com.maersk.kafkautility.utils.PayloadBuffer;
+import com.maersk.kafkautility.utils.PayloadHeaders;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Kafka value serializer backed by a {@link PayloadCodec}. The codec is chosen with the
+ * {@value #CODEC_CONFIG} property and written, with the payload class, to the record headers.
+ * Payloads already encoded while they were sized are sent as those bytes, see {@link EncodedPayloads}.
+ */
+public class PayloadCodecSerializer<T> implements Serializer<T> {
+
+    public static final String CODEC_CONFIG = "payload.codec";
+
+    private PayloadCodec codec = PayloadCodecs.forName(JavaSerializationCodec.NAME);
+
+    public PayloadCodecSerializer() {
+    }
+
+    public PayloadCodecSerializer(PayloadCodec codec) {
+        this.codec = codec;
+    }
+
+    public PayloadCodec getCodec() {
+        return codec;
+    }
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        Object codecName = configs.get(CODEC_CONFIG);
+        if (Objects.nonNull(codecName)) {
+            codec = PayloadCodecs.forName(codecName.toString());
+        }
+    }
+
+    @Override
+    public byte[] serialize(String topic, T data) {
+        if (Objects.isNull(data)) {
+            return null;
+        }
+        var buffer = PayloadBuffer.acquire();
+        try {
+            codec.encode(data, buffer);
+            return Arrays.copyOf(buffer.array(), buffer.size());
+        } catch (IOException e) {
+            throw new SerializationException("Exception while encoding payload with codec " + codec.getName(), e);
+        } finally {
+            buffer.release();
+        }
+    }
+
+    /**
+     * Claim-check reference and chunk records already carry the codec and type of the payload they
+     * stand for, so those headers are left alone. Chunk fragments are slices of the encoded payload
+     * and are sent as they are; the deserializer reads references as a String and fragments as raw
+     * bytes.
+     */
+    @Override
+    public byte[] serialize(String topic, Headers headers, T data) {
+        if (isChunk(headers)) {
+            return fragmentBytes(topic, data);
+        }
+        byte[] encoded = EncodedPayloads.take(headers, data, codec.getName());
+        if (Objects.nonNull(data) && !isPayloadReference(headers)) {
+            PayloadHeaders.add(headers, PayloadHeaders.PAYLOAD_CODEC, codec.getName());
+            PayloadHeaders.add(headers, PayloadHeaders.PAYLOAD_TYPE, data.getClass().getName());
+        }
+        return Objects.nonNull(encoded) ? encoded : serialize(topic, data);
+    }
+
+    static boolean isPayloadReference(Headers headers) {
+        return "YES".equals(PayloadHeaders.lastValue(headers, PayloadHeaders.IS_LARGE_PAYLOAD));
+    }
+
+    static boolean isChunk(Headers headers) {
+        return PayloadHeaders.CHUNKED.equals(PayloadHeaders.lastValue(headers, PayloadHeaders.IS_LARGE_PAYLOAD));
+    }
+
+    private static byte[] fragmentBytes(String topic, Object data) {
+        if (Objects.isNull(data) || data instanceof byte[]) {
+            return (byte[]) data;
+        }
+        throw new SerializationException("Chunk record for topic " + topic + " must carry a byte[] fragment, got " + data.getClass().getName());
+    }
+}
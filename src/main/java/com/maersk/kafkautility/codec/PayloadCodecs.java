@@ -0,0 +1,58 @@
+package com.maersk.kafkautility.codec;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Slf4j
+public final class PayloadCodecs {
+
+    private static final Map<String, PayloadCodec> CODECS = new ConcurrentHashMap<>();
+
+    static {
+        register(new JavaSerializationCodec());
+        register(new JsonPayloadCodec());
+        register(new SmilePayloadCodec());
+        for (PayloadCodec codec : ServiceLoader.load(PayloadCodec.class)) {
+            register(codec);
+        }
+    }
+
+    private PayloadCodecs()
+    {
+        //private constructor
+    }
+
+    public static void register(PayloadCodec codec)
+    {
+        CODECS.put(codec.getName(), codec);
+        log.info("Payload codec registered: {}", codec.getName());
+    }
+
+    public static PayloadCodec forName(String name)
+    {
+        if (Objects.isNull(name) || name.isEmpty()) {
+            return CODECS.get(JavaSerializationCodec.NAME);
+        }
+        PayloadCodec codec = CODECS.get(name);
+        if (Objects.isNull(codec)) {
+            throw new IllegalArgumentException("Unknown payload codec: " + name);
+        }
+        return codec;
+    }
+
+    public static Class<?> resolveType(String typeName)
+    {
+        if (Objects.isNull(typeName) || typeName.isEmpty()) {
+            return null;
+        }
+        try {
+            return Class.forName(typeName, false, Thread.currentThread().getContextClassLoader());
+        } catch (ClassNotFoundException e) {
+            throw new IllegalArgumentException("Unknown payload type: " + typeName, e);
+        }
+    }
+}
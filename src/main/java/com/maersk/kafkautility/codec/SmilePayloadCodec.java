@@ -0,0 +1,21 @@
+package com.maersk.kafkautility.codec;
+
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+
+/**
+ * Binary JSON (Smile) codec: same data model as {@link JsonPayloadCodec} with shared
+ * property names and values, so it is both smaller and faster to parse than text JSON.
+ */
+public class SmilePayloadCodec extends JacksonPayloadCodec {
+
+    public static final String NAME = "smile";
+
+    public SmilePayloadCodec() {
+        super(new SmileMapper());
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+}
@@ -0,0 +1,26 @@
+package com.maersk.kafkautility.compression;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+public class DeflateCompressor implements PayloadCompressor {
+
+    public static final String NAME = "deflate";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public OutputStream compress(OutputStream outputStream) {
+        return new DeflaterOutputStream(outputStream);
+    }
+
+    @Override
+    public InputStream decompress(InputStream inputStream) {
+        return new InflaterInputStream(inputStream);
+    }
+}
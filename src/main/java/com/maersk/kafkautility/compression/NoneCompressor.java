@@ -0,0 +1,24 @@
+package com.maersk.kafkautility.compression;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+
+public class NoneCompressor implements PayloadCompressor {
+
+    public static final String NAME = "none";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public OutputStream compress(OutputStream outputStream) {
+        return outputStream;
+    }
+
+    @Override
+    public InputStream decompress(InputStream inputStream) {
+        return inputStream;
+    }
+}
@@ -0,0 +1,22 @@
+package com.maersk.kafkautility.compression;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Compression applied to offloaded claim-check bytes. Implementations are looked up by
+ * {@link #getName()} through {@link PayloadCompressors}; faster codecs can be plugged in
+ * with a META-INF/services/com.maersk.kafkautility.compression.PayloadCompressor entry.
+ */
+public interface PayloadCompressor {
+
+    String getName();
+
+    /**
+     * Wraps the target stream. Closing the returned stream finishes the compressed data and closes the target.
+     */
+    OutputStream compress(OutputStream outputStream) throws IOException;
+
+    InputStream decompress(InputStream inputStream) throws IOException;
+}
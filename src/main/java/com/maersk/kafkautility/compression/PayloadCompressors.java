@@ -0,0 +1,46 @@
+package com.maersk.kafkautility.compression;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Slf4j
+public final class PayloadCompressors {
+
+    private static final Map<String, PayloadCompressor> COMPRESSORS = new ConcurrentHashMap<>();
+
+    static {
+        register(new NoneCompressor());
+        register(new GzipCompressor());
+        register(new DeflateCompressor());
+        for (PayloadCompressor compressor : ServiceLoader.load(PayloadCompressor.class)) {
+            register(compressor);
+        }
+    }
+
+    private PayloadCompressors()
+    {
+        //private constructor
+    }
+
+    public static void register(PayloadCompressor compressor)
+    {
+        COMPRESSORS.put(compressor.getName(), compressor);
+        log.info("Payload compressor registered: {}", compressor.getName());
+    }
+
+    public static PayloadCompressor forName(String name)
+    {
+        if (Objects.isNull(name) || name.isEmpty()) {
+            return COMPRESSORS.get(NoneCompressor.NAME);
+        }
+        PayloadCompressor compressor = COMPRESSORS.get(name);
+        if (Objects.isNull(compressor)) {
+            throw new IllegalArgumentException("Unknown payload compression: " + name);
+        }
+        return compressor;
+    }
+}
@@ -0,0 +1,22 @@
+package com.maersk.kafkautility.exception;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Signals that a payload could not be offloaded right now and was written to the local spool
+ * instead. The caller must not publish a record for it; the spool drainer uploads and publishes
+ * it once blob storage recovers and then completes {@link #getPublished()} with the send result.
+ */
+public class ClaimCheckSpooledException extends RuntimeException {
+
+    private final transient CompletableFuture<Object> published;
+
+    public ClaimCheckSpooledException(String message, CompletableFuture<Object> published) {
+        super(message, null, false, false);
+        this.published = published;
+    }
+
+    public CompletableFuture<Object> getPublished() {
+        return published;
+    }
+}
@@ -0,0 +1,15 @@
+package com.maersk.kafkautility.exception;
+
+/**
+ * Thrown without calling blob storage while the claim-check circuit breaker is open.
+ */
+public class ClaimCheckUnavailableException extends RuntimeException {
+
+    public ClaimCheckUnavailableException(String message) {
+        super(message);
+    }
+
+    public ClaimCheckUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,226 @@
+package com.maersk.kafkautility.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.maersk.kafkautility.audit.AuditEvent;
+import com.maersk.kafkautility.audit.AuditRingBuffer;
+import com.maersk.kafkautility.audit.AuditSink;
+import com.maersk.kafkautility.audit.KafkaAuditSink;
+import com.maersk.kafkautility.audit.RollingFileAuditSink;
+import com.maersk.kafkautility.utils.DaemonThreadFactory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationContext;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Collects audit events from {@code @LogEvent} methods. Callers only enqueue a reference on a
+ * lock-free ring buffer; a background thread renders the events and writes them in batches to
+ * the configured sinks. When the buffer is full events are dropped, or with the block policy the
+ * caller waits up to {@code audit.block-timeout-ms} for space before dropping. Payloads are
+ * rendered with {@link String#valueOf(Object)} on the drain thread, after the audited method has
+ * returned, so they must be immutable or at least not modified once passed in.
+ */
+@Slf4j
+@Service
+public class AuditService {
+
+    @Autowired
+    private ApplicationContext context;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired(required = false)
+    private ProducerFactory<?, ?> producerFactory;
+
+    private static final String AUDIT_ENABLED = "${audit.enabled:true}";
+    private static final String AUDIT_BUFFER_SIZE = "${audit.buffer-size:8192}";
+    private static final String AUDIT_OVERFLOW_POLICY = "${audit.overflow-policy:drop}";
+    private static final String AUDIT_BLOCK_TIMEOUT = "${audit.block-timeout-ms:10}";
+    private static final String AUDIT_BATCH_SIZE = "${audit.batch-size:512}";
+    private static final String AUDIT_FLUSH_INTERVAL = "${audit.flush-interval-ms:200}";
+    private static final String AUDIT_FILE_ENABLED = "${audit.file.enabled:false}";
+    private static final String AUDIT_FILE_PATH = "${audit.file.path:audit/audit.log}";
+    private static final String AUDIT_FILE_MAX_BYTES = "${audit.file.max-bytes:104857600}";
+    private static final String AUDIT_FILE_MAX_FILES = "${audit.file.max-files:5}";
+    private static final String AUDIT_KAFKA_TOPIC = "${audit.kafka.topic:}";
+    private static final String BLOCK_POLICY = "block";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<AuditSink> sinks = new ArrayList<>();
+
+    private boolean enabled;
+    private boolean blockWhenFull;
+    private long blockTimeoutNanos;
+    private int batchSize;
+    private long flushIntervalNanos;
+    private AuditRingBuffer<AuditEvent> buffer;
+    private Thread drainThread;
+    private volatile boolean running;
+
+    private Counter published;
+    private Counter dropped;
+    private Counter sinkFailures;
+
+    @PostConstruct
+    public void init() {
+        var environment = context.getEnvironment();
+        enabled = Boolean.parseBoolean(environment.resolvePlaceholders(AUDIT_ENABLED));
+        if (Boolean.parseBoolean(environment.resolvePlaceholders(AUDIT_FILE_ENABLED))) {
+            sinks.add(new RollingFileAuditSink(Path.of(environment.resolvePlaceholders(AUDIT_FILE_PATH)),
+                    Long.parseLong(environment.resolvePlaceholders(AUDIT_FILE_MAX_BYTES)),
+                    Integer.parseInt(environment.resolvePlaceholders(AUDIT_FILE_MAX_FILES))));
+        }
+        String auditTopic = environment.resolvePlaceholders(AUDIT_KAFKA_TOPIC);
+        if (!auditTopic.isEmpty() && Objects.nonNull(producerFactory)) {
+            sinks.add(new KafkaAuditSink(producerFactory, auditTopic));
+        }
+        if (!enabled || sinks.isEmpty()) {
+            enabled = false;
+            log.info("Audit disabled or no audit sink configured");
+            return;
+        }
+        buffer = new AuditRingBuffer<>(Integer.parseInt(environment.resolvePlaceholders(AUDIT_BUFFER_SIZE)));
+        blockWhenFull = BLOCK_POLICY.equalsIgnoreCase(environment.resolvePlaceholders(AUDIT_OVERFLOW_POLICY));
+        blockTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(Long.parseLong(environment.resolvePlaceholders(AUDIT_BLOCK_TIMEOUT)));
+        batchSize = Integer.parseInt(environment.resolvePlaceholders(AUDIT_BATCH_SIZE));
+        flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Long.parseLong(environment.resolvePlaceholders(AUDIT_FLUSH_INTERVAL)));
+
+        published = Counter.builder("audit.events.published").description("Audit events written to all sinks").register(meterRegistry);
+        dropped = Counter.builder("audit.events.dropped").description("Audit events dropped because the buffer was full").register(meterRegistry);
+        sinkFailures = Counter.builder("audit.sink.failures").description("Audit batches a sink failed to write").register(meterRegistry);
+        Gauge.builder("audit.buffer.size", buffer, AuditRingBuffer::size).description("Audit events waiting to be drained").register(meterRegistry);
+
+        running = true;
+        drainThread = new DaemonThreadFactory("audit-drain").newThread(this::drain);
+        drainThread.start();
+        log.info("Audit enabled, buffer: {}, policy: {}, sinks: {}", buffer.capacity(), blockWhenFull ? BLOCK_POLICY : "drop", sinks.stream().map(AuditSink::getName).toArray());
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (Objects.isNull(drainThread)) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(drainThread);
+        drainThread.join(TimeUnit.NANOSECONDS.toMillis(flushIntervalNanos) + 5000);
+        for (AuditSink sink : sinks) {
+            try {
+                sink.close();
+            } catch (Exception e) {
+                log.error("Exception while closing audit sink {}", sink.getName(), e);
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Enqueues an audit event without rendering the payload; the payload is read later on the
+     * drain thread and must not change in the meantime.
+     *
+     * @return false if the event was dropped
+     */
+    public boolean logEvent(String className, String methodName, Object payload) {
+        if (!enabled) {
+            return false;
+        }
+        var event = new AuditEvent(System.currentTimeMillis(), className, methodName, payload);
+        if (buffer.offer(event)) {
+            return true;
+        }
+        if (blockWhenFull && offerWithin(event, blockTimeoutNanos)) {
+            return true;
+        }
+        dropped.increment();
+        return false;
+    }
+
+    private boolean offerWithin(AuditEvent event, long timeoutNanos) {
+        long deadline = System.nanoTime() + timeoutNanos;
+        while (System.nanoTime() < deadline) {
+            LockSupport.parkNanos(10_000);
+            if (buffer.offer(event)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void drain() {
+        List<AuditEvent> events = new ArrayList<>(batchSize);
+        List<String> lines = new ArrayList<>(batchSize);
+        while (running || buffer.size() > 0) {
+            if (buffer.drainTo(events, batchSize) == 0) {
+                if (running) {
+                    LockSupport.parkNanos(flushIntervalNanos);
+                }
+                continue;
+            }
+            for (AuditEvent event : events) {
+                lines.add(render(event));
+            }
+            write(lines);
+            published.increment(events.size());
+            events.clear();
+            lines.clear();
+        }
+    }
+
+    private void write(List<String> lines) {
+        for (AuditSink sink : sinks) {
+            try {
+                sink.write(lines);
+            } catch (Exception e) {
+                sinkFailures.increment();
+                log.error("Exception while writing {} audit events to sink {}", lines.size(), sink.getName(), e);
+            }
+        }
+    }
+
+    private String render(AuditEvent event) {
+        var line = new LinkedHashMap<String, Object>();
+        line.put("timestamp", event.getTimestamp());
+        line.put("class", event.getClassName());
+        line.put("method", event.getMethodName());
+        try {
+            line.put("payload", String.valueOf(event.getPayload()));
+            return objectMapper.writeValueAsString(line);
+        } catch (JsonProcessingException | RuntimeException e) {
+            log.error("Exception while rendering audit event for {}.{}", event.getClassName(), event.getMethodName(), e);
+            line.put("payload", "<unrenderable>");
+            return renderFallback(line);
+        }
+    }
+
+    /**
+     * Renders a line whose payload could not be rendered; it only holds strings and a timestamp,
+     * so it is still written as JSON.
+     */
+    private String renderFallback(Map<String, Object> line) {
+        try {
+            return objectMapper.writeValueAsString(line);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Audit line without payload could not be rendered", e);
+        }
+    }
+}
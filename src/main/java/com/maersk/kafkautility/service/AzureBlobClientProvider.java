@@ -0,0 +1,318 @@
+package com.maersk.kafkautility.service;
+
+import com.maersk.kafkautility.utils.AzureUtil;
+import com.maersk.kafkautility.utils.DaemonThreadFactory;
+import com.microsoft.azure.storage.CloudStorageAccount;
+import com.microsoft.azure.storage.StorageException;
+import com.microsoft.azure.storage.blob.CloudBlobClient;
+import com.microsoft.azure.storage.blob.CloudBlobContainer;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.utils.Utils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidKeyException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Builds the Azure storage account, blob client and container handle once and shares them
+ * across threads. Credentials are re-read on {@link #refresh()}, either on demand or on the
+ * optional refresh interval, and the handles are only rebuilt when they actually changed.
+ * <p>
+ * With {@code azure.storage.shards} set, each listed shard is its own account/container, configured
+ * under {@code azure.storage.shard.<name>.*} with the plain {@code azure.storage.*} values as
+ * defaults. New blobs are spread over the shards by a stable hash of the blob name, optionally over
+ * a per-topic subset from {@code azure.storage.topic-shards.<topic>}. A blob URI names its account
+ * and container, so references resolve to their shard without any extra lookup. References to the
+ * plain {@code azure.storage.*} account/container, written before sharding was configured, still
+ * resolve when it is no longer one of the shards; any other reference is rejected.
+ */
+@Slf4j
+@Component
+public class AzureBlobClientProvider {
+
+    @Autowired
+    private ApplicationContext context;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private static final String AZURE_STORAGE_ACCOUNT_NAME = "${azure.storage.account-name}";
+    private static final String AZURE_STORAGE_ACCOUNT_KEY = "${azure.storage.account-key}";
+    private static final String AZURE_STORAGE_CONTAINER_NAME = "${azure.storage.container-name}";
+    private static final String AZURE_STORAGE_ENDPOINT_SUFFIX = "${azure.storage.endpoint-suffix}";
+    private static final String AZURE_STORAGE_REFRESH_INTERVAL = "${azure.storage.credential-refresh-interval-ms:0}";
+    private static final String AZURE_STORAGE_SHARDS = "${azure.storage.shards:}";
+    private static final String AZURE_STORAGE_SHARD_PROPERTY = "${azure.storage.shard.%s.%s:%s}";
+    private static final String AZURE_STORAGE_TOPIC_SHARDS = "${azure.storage.topic-shards.%s:}";
+    private static final String DEFAULT_SHARD = "default";
+
+    private volatile Map<String, StorageClients> shards;
+    private volatile StorageClients legacy;
+    private final Map<String, List<String>> topicShards = new ConcurrentHashMap<>();
+    private ScheduledExecutorService refreshScheduler;
+
+    private final AtomicLong clientBuilds = new AtomicLong();
+    private final AtomicLong refreshFailures = new AtomicLong();
+    private final AtomicLong containerLookups = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        registerMetrics();
+        try {
+            refresh();
+        } catch (Exception e) {
+            log.warn("Azure storage client could not be created at startup, will retry on first use", e);
+        }
+        long refreshInterval = Long.parseLong(context.getEnvironment().resolvePlaceholders(AZURE_STORAGE_REFRESH_INTERVAL));
+        if (refreshInterval > 0) {
+            refreshScheduler = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("azure-storage-credential-refresh"));
+            refreshScheduler.scheduleWithFixedDelay(this::scheduledRefresh, refreshInterval, refreshInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (Objects.nonNull(refreshScheduler)) {
+            refreshScheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * @return the container of the first shard, the only one unless sharding is configured
+     */
+    public CloudBlobContainer getContainer() throws StorageException, URISyntaxException, InvalidKeyException {
+        containerLookups.incrementAndGet();
+        return firstShard(getShards()).container;
+    }
+
+    public CloudBlobClient getBlobClient() throws StorageException, URISyntaxException, InvalidKeyException {
+        return firstShard(getShards()).blobClient;
+    }
+
+    /**
+     * Picks the container a new blob goes to from the topic's shard set, all shards if the topic
+     * has none configured or is null. The same blob name always maps to the same shard.
+     */
+    public CloudBlobContainer getContainer(String topic, String blobName) throws StorageException, URISyntaxException, InvalidKeyException {
+        containerLookups.incrementAndGet();
+        var current = getShards();
+        var names = Objects.isNull(topic) ? List.<String>of() : topicShards.computeIfAbsent(topic, this::resolveTopicShards);
+        if (names.isEmpty()) {
+            names = new ArrayList<>(current.keySet());
+        }
+        String name = names.get(Utils.toPositive(Utils.murmur2(blobName.getBytes(StandardCharsets.UTF_8))) % names.size());
+        var shard = current.get(name);
+        if (Objects.isNull(shard)) {
+            throw new IllegalStateException("Topic " + topic + " refers to unknown storage shard " + name);
+        }
+        return shard.container;
+    }
+
+    /**
+     * @return the container the referenced blob was written to
+     */
+    public CloudBlobContainer getContainer(URI blobUri) throws StorageException, URISyntaxException, InvalidKeyException {
+        containerLookups.incrementAndGet();
+        var current = getShards();
+        String reference = blobUri.toString();
+        for (StorageClients shard : current.values()) {
+            if (reference.startsWith(shard.containerUri)) {
+                return shard.container;
+            }
+        }
+        var unsharded = legacy;
+        if (Objects.nonNull(unsharded) && reference.startsWith(unsharded.containerUri)) {
+            return unsharded.container;
+        }
+        throw new IllegalArgumentException("Blob " + blobUri + " is not in any configured storage shard");
+    }
+
+    /**
+     * @return the containers of all shards, plus the unsharded one while references to it may remain
+     */
+    public List<CloudBlobContainer> getContainers() throws StorageException, URISyntaxException, InvalidKeyException {
+        List<CloudBlobContainer> containers = new ArrayList<>();
+        for (StorageClients shard : getShards().values()) {
+            containers.add(shard.container);
+        }
+        var unsharded = legacy;
+        if (Objects.nonNull(unsharded)) {
+            containers.add(unsharded.container);
+        }
+        return containers;
+    }
+
+    /**
+     * Re-reads the storage settings and swaps in new handles if they differ from the current ones.
+     *
+     * @return true if the clients were rebuilt
+     */
+    public synchronized boolean refresh() throws StorageException, URISyntaxException, InvalidKeyException {
+        var environment = context.getEnvironment();
+        var names = Arrays.stream(environment.resolvePlaceholders(AZURE_STORAGE_SHARDS).split(","))
+                .map(String::trim)
+                .filter(name -> !name.isEmpty())
+                .distinct()
+                .toArray(String[]::new);
+        if (names.length == 0) {
+            names = new String[] {DEFAULT_SHARD};
+        }
+        var current = shards;
+        Map<String, StorageClients> refreshed = new LinkedHashMap<>();
+        boolean rebuilt = Objects.isNull(current) || !current.keySet().equals(Set.of(names));
+        for (String name : names) {
+            String containerName = environment.resolvePlaceholders(shardPlaceholder(name, "container-name", AZURE_STORAGE_CONTAINER_NAME));
+            String connectionString = AzureUtil.getConnectionString(
+                    environment.resolvePlaceholders(shardPlaceholder(name, "account-name", AZURE_STORAGE_ACCOUNT_NAME)),
+                    environment.resolvePlaceholders(shardPlaceholder(name, "account-key", AZURE_STORAGE_ACCOUNT_KEY)),
+                    environment.resolvePlaceholders(shardPlaceholder(name, "endpoint-suffix", AZURE_STORAGE_ENDPOINT_SUFFIX)));
+            var existing = Objects.isNull(current) ? null : current.get(name);
+            if (Objects.nonNull(existing) && existing.matches(connectionString, containerName)) {
+                refreshed.put(name, existing);
+                continue;
+            }
+            refreshed.put(name, buildClients(name, connectionString, containerName));
+            rebuilt = true;
+        }
+        var unsharded = refreshLegacy(refreshed);
+        if (!rebuilt && unsharded == legacy) {
+            return false;
+        }
+        shards = Collections.unmodifiableMap(refreshed);
+        legacy = unsharded;
+        topicShards.clear();
+        return true;
+    }
+
+    /**
+     * Keeps a handle on the plain {@code azure.storage.*} account/container while it is not one of
+     * the configured shards, so blobs referenced from before sharding can still be read and deleted.
+     */
+    private StorageClients refreshLegacy(Map<String, StorageClients> refreshed) throws StorageException, URISyntaxException, InvalidKeyException {
+        var environment = context.getEnvironment();
+        String containerName = environment.resolvePlaceholders(AZURE_STORAGE_CONTAINER_NAME);
+        String connectionString = AzureUtil.getConnectionString(
+                environment.resolvePlaceholders(AZURE_STORAGE_ACCOUNT_NAME),
+                environment.resolvePlaceholders(AZURE_STORAGE_ACCOUNT_KEY),
+                environment.resolvePlaceholders(AZURE_STORAGE_ENDPOINT_SUFFIX));
+        for (StorageClients shard : refreshed.values()) {
+            if (shard.matches(connectionString, containerName)) {
+                return null;
+            }
+        }
+        var existing = legacy;
+        if (Objects.nonNull(existing) && existing.matches(connectionString, containerName)) {
+            return existing;
+        }
+        try {
+            return buildClients("unsharded", connectionString, containerName);
+        } catch (IllegalArgumentException | URISyntaxException | InvalidKeyException e) {
+            log.warn("Unsharded Azure storage account is not usable, references to it will not resolve", e);
+            return null;
+        }
+    }
+
+    private StorageClients buildClients(String name, String connectionString, String containerName) throws StorageException, URISyntaxException, InvalidKeyException {
+        CloudStorageAccount storageAccount = CloudStorageAccount.parse(connectionString);
+        CloudBlobClient blobClient = storageAccount.createCloudBlobClient();
+        CloudBlobContainer container = blobClient.getContainerReference(containerName);
+        clientBuilds.incrementAndGet();
+        log.info("Azure storage client created for shard: {}, account: {}, container: {}", name, storageAccount.getCredentials().getAccountName(), container.getName());
+        return new StorageClients(connectionString, containerName, blobClient, container);
+    }
+
+    private Map<String, StorageClients> getShards() throws StorageException, URISyntaxException, InvalidKeyException {
+        var current = shards;
+        if (Objects.isNull(current)) {
+            synchronized (this) {
+                if (Objects.isNull(shards)) {
+                    refresh();
+                }
+                current = shards;
+            }
+        }
+        return current;
+    }
+
+    private static StorageClients firstShard(Map<String, StorageClients> current) {
+        return current.values().iterator().next();
+    }
+
+    private static String shardPlaceholder(String shard, String property, String defaultPlaceholder) {
+        return DEFAULT_SHARD.equals(shard) ? defaultPlaceholder : String.format(AZURE_STORAGE_SHARD_PROPERTY, shard, property, defaultPlaceholder);
+    }
+
+    private List<String> resolveTopicShards(String topic) {
+        return Arrays.stream(context.getEnvironment().resolvePlaceholders(String.format(AZURE_STORAGE_TOPIC_SHARDS, topic)).split(","))
+                .map(String::trim)
+                .filter(name -> !name.isEmpty())
+                .collect(Collectors.toUnmodifiableList());
+    }
+
+    private void scheduledRefresh() {
+        try {
+            refresh();
+        } catch (Exception e) {
+            refreshFailures.incrementAndGet();
+            log.error("Exception while refreshing Azure storage client", e);
+        }
+    }
+
+    private void registerMetrics() {
+        FunctionCounter.builder("azure.storage.client.builds", clientBuilds, AtomicLong::doubleValue)
+                .description("Number of times the Azure storage client was (re)built")
+                .register(meterRegistry);
+        FunctionCounter.builder("azure.storage.client.refresh.failures", refreshFailures, AtomicLong::doubleValue)
+                .description("Number of failed Azure storage credential refreshes")
+                .register(meterRegistry);
+        FunctionCounter.builder("azure.storage.container.lookups", containerLookups, AtomicLong::doubleValue)
+                .description("Number of times the shared container handle was handed out")
+                .register(meterRegistry);
+        Gauge.builder("azure.storage.shards", this, provider -> Objects.isNull(provider.shards) ? 0 : provider.shards.size())
+                .description("Storage account/container targets claim-check blobs are spread over")
+                .register(meterRegistry);
+    }
+
+    private static final class StorageClients {
+        private final String connectionString;
+        private final String containerName;
+        private final CloudBlobClient blobClient;
+        private final CloudBlobContainer container;
+        private final String containerUri;
+
+        private StorageClients(String connectionString, String containerName, CloudBlobClient blobClient, CloudBlobContainer container) {
+            this.connectionString = connectionString;
+            this.containerName = containerName;
+            this.blobClient = blobClient;
+            this.container = container;
+            this.containerUri = container.getUri() + "/";
+        }
+
+        private boolean matches(String connectionString, String containerName) {
+            return this.connectionString.equals(connectionString) && this.containerName.equals(containerName);
+        }
+    }
+}
@@ -3,21 +3,67 @@ package com.maersk.kafkautility.service;
 import com.microsoft.azure.storage.StorageException;
 import com.microsoft.azure.storage.blob.CloudBlobContainer;
 import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Headers;
 
 import java.io.IOException;
-import java.io.Serializable;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.security.InvalidKeyException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
-public interface AzureBlobService <T extends Serializable> {
+public interface AzureBlobService <T> {
 
     String writePayloadToBlob(T payload) throws URISyntaxException, InvalidKeyException, StorageException, IOException;
 
     ProducerRecord<String, T> storePayloadToBlob(String topic, T payload) throws URISyntaxException, InvalidKeyException, StorageException, IOException;
 
+    CompletableFuture<ProducerRecord<String, T>> storePayloadToBlobAsync(String topic, T payload);
+
+    /**
+     * Offloads the payload whatever its size and returns the claim-check record for it, carrying the
+     * given headers plus the claim-check headers.
+     */
+    ProducerRecord<String, T> offloadPayloadToBlob(String topic, Headers headers, T payload) throws URISyntaxException, InvalidKeyException, StorageException, IOException;
+
+    /**
+     * Like {@link #storePayloadToBlob(String, Object)}, but with chunking enabled a large payload up to the
+     * chunking limit is returned as ordered fragment records instead of being offloaded. Fragments are
+     * raw byte[] values, so chunking needs {@code PayloadCodecSerializer} as the value serializer.
+     */
+    List<ProducerRecord<String, T>> storePayloadRecords(String topic, T payload) throws URISyntaxException, InvalidKeyException, StorageException, IOException;
+
+    /**
+     * Same as {@link #storePayloadRecords(String, Object)}, also setting the correlation id header
+     * and recording it in the claim-check metadata header.
+     */
+    List<ProducerRecord<String, T>> storePayloadRecords(String topic, T payload, String correlationId) throws URISyntaxException, InvalidKeyException, StorageException, IOException;
+
+    CompletableFuture<List<ProducerRecord<String, T>>> storePayloadRecordsAsync(String topic, T payload);
+
+    CompletableFuture<List<ProducerRecord<String, T>>> storePayloadRecordsAsync(String topic, T payload, String correlationId);
+
+    /**
+     * Writes the payload to the local spool, to be offloaded and published to the topic with the
+     * given headers once blob storage is available again.
+     *
+     * @return completed with the send result once the spool drainer published the record
+     */
+    CompletableFuture<Object> spoolPayload(String topic, Headers headers, T payload) throws IOException;
+
+    /**
+     * Uploads a spooled payload and returns the claim-check record to publish for it.
+     *
+     * @throws com.maersk.kafkautility.exception.ClaimCheckUnavailableException while the circuit
+     * breaker rejects storage calls
+     */
+    ProducerRecord<String, T> storeSpooledPayload(SpooledPayload spooledPayload) throws URISyntaxException, InvalidKeyException, StorageException, IOException;
+
     T readPayloadFromBlob(String blobReference) throws URISyntaxException, InvalidKeyException, StorageException;
 
+    InputStream openPayloadStream(String blobReference) throws URISyntaxException, InvalidKeyException, StorageException, IOException;
+
     T getPayloadFromBlob(T payloadReference, String isLargePayload) throws URISyntaxException, InvalidKeyException, StorageException;
 
     void deletePayloadFromBlob(String blobReference) throws URISyntaxException, InvalidKeyException, StorageException;
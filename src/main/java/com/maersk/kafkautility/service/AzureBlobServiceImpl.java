@@ -1,74 +1,555 @@
 package com.maersk.kafkautility.service;
 
+import com.maersk.kafkautility.codec.EncodedPayloads;
+import com.maersk.kafkautility.codec.PayloadCodec;
+import com.maersk.kafkautility.codec.PayloadCodecs;
+import com.maersk.kafkautility.compression.NoneCompressor;
+import com.maersk.kafkautility.compression.PayloadCompressor;
+import com.maersk.kafkautility.compression.PayloadCompressors;
+import com.maersk.kafkautility.exception.ClaimCheckSpooledException;
+import com.maersk.kafkautility.exception.ClaimCheckUnavailableException;
 import com.maersk.kafkautility.utils.AzureUtil;
-import com.microsoft.azure.storage.CloudStorageAccount;
+import com.maersk.kafkautility.utils.ByteBufferInputStream;
+import com.maersk.kafkautility.utils.DaemonThreadFactory;
+import com.maersk.kafkautility.utils.PayloadBuffer;
+import com.maersk.kafkautility.utils.PayloadHeaders;
+import com.microsoft.azure.storage.AccessCondition;
 import com.microsoft.azure.storage.StorageException;
 import com.microsoft.azure.storage.blob.*;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.lang3.SerializationUtils;
 import org.apache.kafka.clients.producer.ProducerRecord;
-import org.openjdk.jol.vm.VM;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.ApplicationContext;
+import org.springframework.kafka.core.ProducerFactory;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.io.IOException;
-import java.io.Serializable;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.nio.charset.StandardCharsets;
 import java.security.InvalidKeyException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
-public class AzureBlobServiceImpl<T extends Serializable> implements AzureBlobService<T> {
+@ConditionalOnProperty(name = "events-payload.store", havingValue = "azure", matchIfMissing = true)
+public class AzureBlobServiceImpl<T> implements AzureBlobService<T> {
 
     @Autowired
     private ApplicationContext context;
 
-    private static final String PAYLOAD_SIZE = "${events-payload.max-bytes}";
+    @Autowired
+    private AzureBlobClientProvider azureBlobClientProvider;
+
+    @Autowired(required = false)
+    private ProducerFactory<?, ?> producerFactory;
+    @Autowired
+    private ClaimCheckPayloadCache payloadCache;
+
+    @Autowired
+    private ClaimCheckIoExecutor claimCheckIoExecutor;
+
+    @Autowired
+    private ClaimCheckCircuitBreaker circuitBreaker;
+
+    @Autowired
+    private ClaimCheckSpool claimCheckSpool;
+
+    @Autowired
+    private ClaimCheckLocalTier localTier;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private static final String PAYLOAD_SIZE = "${events-payload.max-bytes:1000000}";
     private static final String PAYLOAD_FILE_NAME = "${events-payload.file-name}";
-    private static final String AZURE_STORAGE_ACCOUNT_NAME = "${azure.storage.account-name}";
-    private static final String AZURE_STORAGE_ACCOUNT_KEY = "${azure.storage.account-key}";
-    private static final String AZURE_STORAGE_CONTAINER_NAME = "${azure.storage.container-name}";
-    private static final String AZURE_STORAGE_ENDPOINT_SUFFIX = "${azure.storage.endpoint-suffix}";
-    private static final String CONNECTION_STRING = "DefaultEndpointsProtocol=https;AccountName=%s;AccountKey=%s;EndpointSuffix=%s";
+    private static final String PAYLOAD_CODEC = "${events-payload.codec:java}";
+    private static final String PAYLOAD_COMPRESSION = "${events-payload.compression:none}";
+    private static final String CONTENT_ADDRESSED = "${events-payload.content-addressed:false}";
+    private static final String CONTENT_HASH = "${events-payload.metadata.content-hash:false}";
+    private static final String KEY_BY_CORRELATION_ID = "${kafka.producer.key-by-correlation-id:false}";
+    private static final String CHUNKING_ENABLED = "${events-payload.chunking.enabled:false}";
+    private static final String CHUNKING_MAX_BYTES = "${events-payload.chunking.max-bytes:20971520}";
+    private static final String CHUNK_SIZE = "${events-payload.chunking.chunk-size:524288}";
+    private static final String STREAMING_UPLOAD = "${azure.storage.upload.streaming:false}";
+    private static final String UPLOAD_BLOCK_SIZE = "${azure.storage.upload.block-size:4194304}";
+    private static final String UPLOAD_MAX_IN_FLIGHT_BLOCKS = "${azure.storage.upload.max-in-flight-blocks:4}";
+    private static final String UPLOAD_THREADS = "${azure.storage.upload.threads:8}";
+    private static final String PARALLEL_DOWNLOAD = "${azure.storage.download.parallel:false}";
+    private static final String DOWNLOAD_RANGE_SIZE = "${azure.storage.download.range-size:4194304}";
+    private static final String DOWNLOAD_MAX_IN_FLIGHT_RANGES = "${azure.storage.download.max-in-flight-ranges:4}";
+    private static final String DOWNLOAD_THREADS = "${azure.storage.download.threads:8}";
+    private static final String CODEC_METADATA = "payloadcodec";
+    private static final String TYPE_METADATA = "payloadtype";
+    private static final String COMPRESSION_METADATA = "payloadcompression";
+    private static final String ORIGINAL_SIZE_METADATA = "payloadoriginalsize";
+
+    private long maxPayloadBytes;
+    private PayloadCodec payloadCodec;
+    private PayloadCompressor payloadCompressor;
+    private ClaimCheckRecords<T> records;
+    private boolean contentAddressed;
+    private boolean contentHashEnabled;
+    private boolean chunkingEnabled;
+    private long chunkingMaxBytes;
+    private int chunkSize;
+    private boolean streamingUpload;
+    private int uploadBlockSize;
+    private long spillThreshold;
+    private int uploadMaxInFlightBlocks;
+    private ExecutorService uploadExecutor;
+    private boolean parallelDownload;
+    private int downloadRangeSize;
+    private int downloadMaxInFlightRanges;
+    private ExecutorService downloadExecutor;
+    private Timer uploadLatency;
+    private Timer downloadLatency;
+    private DistributionSummary offloadedPayloadBytes;
+    private DistributionSummary chunkedPayloadBytes;
+
+    @PostConstruct
+    public void init() {
+        var environment = context.getEnvironment();
+        maxPayloadBytes = Long.parseLong(environment.resolvePlaceholders(PAYLOAD_SIZE));
+        payloadCodec = PayloadCodecs.forName(environment.resolvePlaceholders(PAYLOAD_CODEC));
+        payloadCompressor = PayloadCompressors.forName(environment.resolvePlaceholders(PAYLOAD_COMPRESSION));
+        contentAddressed = Boolean.parseBoolean(environment.resolvePlaceholders(CONTENT_ADDRESSED));
+        log.info("Payload codec: {}, compression: {}, content addressed: {}", payloadCodec.getName(), payloadCompressor.getName(), contentAddressed);
+        contentHashEnabled = contentAddressed || Boolean.parseBoolean(environment.resolvePlaceholders(CONTENT_HASH));
+        boolean keyByCorrelationId = Boolean.parseBoolean(environment.resolvePlaceholders(KEY_BY_CORRELATION_ID));
+        records = new ClaimCheckRecords<>(payloadCodec, payloadCompressor, keyByCorrelationId, producerFactory, meterRegistry);
+        chunkingEnabled = Boolean.parseBoolean(environment.resolvePlaceholders(CHUNKING_ENABLED));
+        if (chunkingEnabled) {
+            chunkingMaxBytes = Long.parseLong(environment.resolvePlaceholders(CHUNKING_MAX_BYTES));
+            chunkSize = Integer.parseInt(environment.resolvePlaceholders(CHUNK_SIZE));
+            log.info("Chunked transport enabled up to {} bytes, chunk size: {} bytes", chunkingMaxBytes, chunkSize);
+            if (records.hasForeignSerializer()) {
+                log.warn("Chunked transport needs PayloadCodecSerializer to send raw fragments, large payloads are offloaded instead");
+            }
+        }
+        streamingUpload = Boolean.parseBoolean(environment.resolvePlaceholders(STREAMING_UPLOAD));
+        if (streamingUpload) {
+            uploadBlockSize = Integer.parseInt(environment.resolvePlaceholders(UPLOAD_BLOCK_SIZE));
+            spillThreshold = Math.max(maxPayloadBytes, uploadBlockSize);
+            uploadMaxInFlightBlocks = Integer.parseInt(environment.resolvePlaceholders(UPLOAD_MAX_IN_FLIGHT_BLOCKS));
+            int uploadThreads = Integer.parseInt(environment.resolvePlaceholders(UPLOAD_THREADS));
+            uploadExecutor = Executors.newFixedThreadPool(uploadThreads, new DaemonThreadFactory("azure-blob-upload"));
+            log.info("Streaming upload enabled above {} bytes, block size: {} bytes, blocks in flight: {}",
+                    spillThreshold, uploadBlockSize, uploadMaxInFlightBlocks);
+        }
+        parallelDownload = Boolean.parseBoolean(environment.resolvePlaceholders(PARALLEL_DOWNLOAD));
+        if (parallelDownload) {
+            downloadRangeSize = Integer.parseInt(environment.resolvePlaceholders(DOWNLOAD_RANGE_SIZE));
+            downloadMaxInFlightRanges = Integer.parseInt(environment.resolvePlaceholders(DOWNLOAD_MAX_IN_FLIGHT_RANGES));
+            int downloadThreads = Integer.parseInt(environment.resolvePlaceholders(DOWNLOAD_THREADS));
+            downloadExecutor = Executors.newFixedThreadPool(downloadThreads, new DaemonThreadFactory("azure-blob-download"));
+            log.info("Parallel download enabled, range size: {} bytes, ranges in flight: {}", downloadRangeSize, downloadMaxInFlightRanges);
+        }
+        registerMetrics();
+    }
 
+    /**
+     * Histograms rather than client-side percentiles keep the per-record cost to a bucket
+     * increment; percentiles are computed by Prometheus. The inline-vs-offloaded ratio is the
+     * ratio of the two payload size summaries' counts.
+     */
+    private void registerMetrics() {
+        uploadLatency = Timer.builder("claimcheck.upload.latency")
+                .description("Time to upload a claim-check payload to blob storage")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        downloadLatency = Timer.builder("claimcheck.download.latency")
+                .description("Time to download and decode a claim-check payload from blob storage")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        offloadedPayloadBytes = records.payloadBytesSummary("offloaded");
+        chunkedPayloadBytes = records.payloadBytesSummary("chunked");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (Objects.nonNull(uploadExecutor)) {
+            uploadExecutor.shutdown();
+        }
+        if (Objects.nonNull(downloadExecutor)) {
+            downloadExecutor.shutdownNow();
+        }
+    }
 
     @Override
     public String writePayloadToBlob(T payload) throws URISyntaxException, InvalidKeyException, StorageException, IOException {
-        var containerDest = getCloudBlobContainer();
-        var blobUri = writePayloadFileToBlob(payload, containerDest);
-        return blobUri.toString();
+        return writePayload(payload, shardFor(null)).toString();
     }
 
+    /**
+     * The payload is encoded at most once. Offloaded payloads upload the encoded bytes, and inline
+     * payloads either send them through {@link EncodedPayloads} or, with a value serializer that is
+     * not the codec's, are sized by that serializer without being encoded for the blob at all.
+     */
     @Override
     public ProducerRecord<String, T> storePayloadToBlob(String topic, T payload) throws URISyntaxException, InvalidKeyException, StorageException, IOException {
-        ProducerRecord<String, T> producerRecord = null;
-        if (isLargePayload(payload))
+        return storePayloadRecord(topic, payload, null);
+    }
+
+    private ProducerRecord<String, T> storePayloadRecord(String topic, T payload, String correlationId) throws URISyntaxException, InvalidKeyException, StorageException, IOException {
+        if (records.hasForeignSerializer())
         {
-            log.info("Payload exceeds max configured size");
-            var containerDest = getCloudBlobContainer();
-            var blobUri = writePayloadFileToBlob(payload, containerDest);
-            producerRecord = new ProducerRecord<>(topic, (T)blobUri.toString());
-            producerRecord.headers().add("isLargePayload", "YES".getBytes(StandardCharsets.UTF_8));
+            long serializedSize = records.serializedSize(topic, payload);
+            if (!isLargePayload(serializedSize))
+            {
+                return records.inlineRecord(topic, payload, null, serializedSize, correlationId);
+            }
         }
-        else
+        if (streamingUpload)
         {
-            producerRecord = new ProducerRecord<>(topic, payload);
-            producerRecord.headers().add("isLargePayload", "NO".getBytes(StandardCharsets.UTF_8));
+            var permit = circuitBreaker.tryAcquirePermission();
+            if (Objects.nonNull(permit))
+            {
+                return storeStreamingPayload(topic, payload, correlationId, permit);
+            }
+        }
+        var buffer = records.encode(payload);
+        try {
+            if (records.hasForeignSerializer() || isLargePayload(buffer.size()))
+            {
+                log.info("Payload exceeds max configured size");
+                return offloadOrSpool(topic, payload, buffer, correlationId);
+            }
+            return records.inlineRecord(topic, payload, buffer, buffer.size(), correlationId);
+        } finally {
+            buffer.release();
+        }
+    }
+
+    @Override
+    public CompletableFuture<ProducerRecord<String, T>> storePayloadToBlobAsync(String topic, T payload) {
+        return claimCheckIoExecutor.submit(() -> storePayloadToBlob(topic, payload));
+    }
+
+    @Override
+    public ProducerRecord<String, T> offloadPayloadToBlob(String topic, Headers headers, T payload) throws URISyntaxException, InvalidKeyException, StorageException, IOException {
+        var buffer = records.encode(payload);
+        try {
+            var permit = acquirePermission();
+            var blobUri = recordUpload(permit, () -> storePayloadBytes(buffer, payload.getClass().getName(), shardFor(topic), permit));
+            offloadedPayloadBytes.record(buffer.size());
+            return records.offloadedRecord(topic, null, headers, blobUri, payload.getClass().getName(), buffer.size(), contentHash(buffer));
+        } finally {
+            buffer.release();
         }
-        return producerRecord;
+    }
+
+    @Override
+    public List<ProducerRecord<String, T>> storePayloadRecords(String topic, T payload) throws URISyntaxException, InvalidKeyException, StorageException, IOException {
+        return storePayloadRecords(topic, payload, null);
+    }
+
+    @Override
+    public List<ProducerRecord<String, T>> storePayloadRecords(String topic, T payload, String correlationId) throws URISyntaxException, InvalidKeyException, StorageException, IOException {
+        if (!chunkingEnabled || records.hasForeignSerializer())
+        {
+            return List.of(storePayloadRecord(topic, payload, correlationId));
+        }
+        var buffer = records.encode(payload);
+        try {
+            if (!isLargePayload(buffer.size()))
+            {
+                return List.of(records.inlineRecord(topic, payload, buffer, buffer.size(), correlationId));
+            }
+            if (buffer.size() <= chunkingMaxBytes)
+            {
+                return chunkedRecords(topic, payload, buffer, correlationId);
+            }
+            log.info("Payload exceeds max chunked size");
+            return List.of(offloadOrSpool(topic, payload, buffer, correlationId));
+        } finally {
+            buffer.release();
+        }
+    }
+
+    @Override
+    public CompletableFuture<List<ProducerRecord<String, T>>> storePayloadRecordsAsync(String topic, T payload) {
+        return storePayloadRecordsAsync(topic, payload, null);
+    }
+
+    @Override
+    public CompletableFuture<List<ProducerRecord<String, T>>> storePayloadRecordsAsync(String topic, T payload, String correlationId) {
+        return claimCheckIoExecutor.submit(() -> storePayloadRecords(topic, payload, correlationId));
+    }
+
+    @Override
+    public CompletableFuture<Object> spoolPayload(String topic, Headers headers, T payload) throws IOException {
+        var buffer = records.encode(payload);
+        try {
+            return spoolBytes(topic, headers, payload.getClass().getName(), buffer);
+        } finally {
+            buffer.release();
+        }
+    }
+
+    @Override
+    public ProducerRecord<String, T> storeSpooledPayload(SpooledPayload spooledPayload) throws URISyntaxException, InvalidKeyException, StorageException, IOException {
+        var buffer = records.encode(spooledPayload);
+        try {
+            var permit = acquirePermission();
+            var blobUri = recordUpload(permit, () -> storePayloadBytes(buffer, spooledPayload.getPayloadType(), shardFor(spooledPayload.getTopic()), permit));
+            offloadedPayloadBytes.record(buffer.size());
+            log.info("Spooled payload {} uploaded for topic {}", spooledPayload.getId(), spooledPayload.getTopic());
+            return records.offloadedRecord(spooledPayload.getTopic(), spooledPayload.getKey(), spooledPayload.getHeaders(),
+                    blobUri, spooledPayload.getPayloadType(), buffer.size(), contentHash(buffer));
+        } finally {
+            buffer.release();
+        }
+    }
+
+    /**
+     * Offloads the encoded payload. While the circuit breaker is open, or if the upload fails, the
+     * payload goes to the local spool instead when it is enabled, and the caller gets a
+     * {@link ClaimCheckSpooledException} rather than a record to publish.
+     */
+    private ProducerRecord<String, T> offloadOrSpool(String topic, T payload, PayloadBuffer buffer, String correlationId) throws URISyntaxException, InvalidKeyException, StorageException, IOException
+    {
+        return offloadOrSpool(topic, payload, buffer, correlationId, circuitBreaker.tryAcquirePermission());
+    }
+
+    private ProducerRecord<String, T> offloadOrSpool(String topic, T payload, PayloadBuffer buffer, String correlationId, ClaimCheckCircuitBreaker.Permit permit) throws URISyntaxException, InvalidKeyException, StorageException, IOException
+    {
+        if (Objects.isNull(permit))
+        {
+            throw spoolOrReject(topic, payload, buffer, correlationId, null);
+        }
+        URI blobUri;
+        try {
+            blobUri = recordUpload(permit, () -> storePayloadBytes(buffer, payload.getClass().getName(), shardFor(topic), permit));
+        } catch (StorageException | IOException e) {
+            if (!claimCheckSpool.isEnabled())
+            {
+                throw e;
+            }
+            log.warn("Payload upload failed, spooling locally", e);
+            throw spoolOrReject(topic, payload, buffer, correlationId, e);
+        }
+        return offloadedRecord(topic, payload, blobUri, buffer.size(), correlationId, contentHash(buffer));
+    }
+
+    private RuntimeException spoolOrReject(String topic, T payload, PayloadBuffer buffer, String correlationId, Exception cause)
+    {
+        if (!claimCheckSpool.isEnabled())
+        {
+            return new ClaimCheckUnavailableException("Blob storage unavailable, circuit breaker open");
+        }
+        var headers = new RecordHeaders();
+        ClaimCheckRecords.addCorrelationId(headers, correlationId);
+        try {
+            var published = spoolBytes(topic, headers, payload.getClass().getName(), buffer);
+            return new ClaimCheckSpooledException("Payload spooled until blob storage is available", published);
+        } catch (IOException e) {
+            var rejected = new ClaimCheckUnavailableException("Blob storage unavailable and payload could not be spooled", e);
+            if (Objects.nonNull(cause)) {
+                rejected.addSuppressed(cause);
+            }
+            return rejected;
+        }
+    }
+
+    /**
+     * Spools a payload whose encoded bytes were streamed out and are no longer at hand.
+     */
+    private RuntimeException spoolEncoded(String topic, T payload, String correlationId, Exception cause) throws IOException
+    {
+        if (!claimCheckSpool.isEnabled())
+        {
+            return spoolOrReject(topic, payload, null, correlationId, cause);
+        }
+        var buffer = records.encode(payload);
+        try {
+            return spoolOrReject(topic, payload, buffer, correlationId, cause);
+        } finally {
+            buffer.release();
+        }
+    }
+
+    private CompletableFuture<Object> spoolBytes(String topic, Headers headers, String payloadType, PayloadBuffer buffer) throws IOException
+    {
+        if (!claimCheckSpool.isEnabled())
+        {
+            throw new ClaimCheckUnavailableException("Blob storage unavailable and the local spool is disabled");
+        }
+        log.info("Spooling payload of {} bytes for topic {}", buffer.size(), topic);
+        return claimCheckSpool.append(new SpooledPayload(0, topic, null, headers, payloadCodec.getName(), payloadType,
+                Arrays.copyOf(buffer.array(), buffer.size())));
+    }
+
+    private ClaimCheckCircuitBreaker.Permit acquirePermission()
+    {
+        var permit = circuitBreaker.tryAcquirePermission();
+        if (Objects.isNull(permit))
+        {
+            throw new ClaimCheckUnavailableException("Blob storage unavailable, circuit breaker open");
+        }
+        return permit;
+    }
+
+    /**
+     * Runs an upload and reports its outcome and duration through the circuit breaker permit.
+     */
+    private URI recordUpload(ClaimCheckCircuitBreaker.Permit permit, Upload upload) throws URISyntaxException, InvalidKeyException, StorageException, IOException
+    {
+        long start = System.nanoTime();
+        try {
+            var blobUri = upload.run();
+            permit.onSuccess(System.nanoTime() - start);
+            return blobUri;
+        } catch (URISyntaxException | InvalidKeyException | StorageException | IOException | RuntimeException e) {
+            permit.onError(System.nanoTime() - start);
+            throw e;
+        } finally {
+            permit.release();
+        }
+    }
+
+    private interface Upload {
+        URI run() throws URISyntaxException, InvalidKeyException, StorageException, IOException;
+    }
+
+    /**
+     * Chooses the container a blob is written to once its name is known.
+     */
+    private interface ContainerSelector {
+        CloudBlobContainer select(String blobName) throws URISyntaxException, InvalidKeyException, StorageException;
+    }
+
+    private ContainerSelector shardFor(String topic)
+    {
+        return blobName -> azureBlobClientProvider.getContainer(topic, blobName);
+    }
+
+    /**
+     * Splits the (compressed) encoded payload into fragments keyed by a shared message id, so they
+     * land on one partition in order and can be put back together by {@link ChunkReassembler}.
+     */
+    private List<ProducerRecord<String, T>> chunkedRecords(String topic, T payload, PayloadBuffer buffer, String correlationId) throws IOException
+    {
+        var metadata = records.newMetadata(payload.getClass().getName(), buffer.size(), correlationId, contentHash(buffer));
+        boolean compress = !NoneCompressor.NAME.equals(payloadCompressor.getName());
+        var stored = compress ? compressPayload(buffer) : buffer;
+        try {
+            String messageId = UUID.randomUUID().toString();
+            int count = (int) ((stored.size() + (long) chunkSize - 1) / chunkSize);
+            List<ProducerRecord<String, T>> records = new ArrayList<>(count);
+            for (int index = 0; index < count; index++) {
+                int from = index * chunkSize;
+                byte[] fragment = Arrays.copyOfRange(stored.array(), from, Math.min(stored.size(), from + chunkSize));
+                ProducerRecord<String, T> producerRecord = new ProducerRecord<>(topic, messageId, (T) fragment);
+                var headers = producerRecord.headers();
+                PayloadHeaders.add(headers, PayloadHeaders.IS_LARGE_PAYLOAD, PayloadHeaders.CHUNKED);
+                PayloadHeaders.add(headers, PayloadHeaders.CHUNK_MESSAGE_ID, messageId);
+                PayloadHeaders.add(headers, PayloadHeaders.CHUNK_INDEX, String.valueOf(index));
+                PayloadHeaders.add(headers, PayloadHeaders.CHUNK_COUNT, String.valueOf(count));
+                PayloadHeaders.add(headers, PayloadHeaders.PAYLOAD_TYPE, payload.getClass().getName());
+                PayloadHeaders.add(headers, PayloadHeaders.PAYLOAD_CODEC, payloadCodec.getName());
+                PayloadHeaders.add(headers, PayloadHeaders.PAYLOAD_COMPRESSION, payloadCompressor.getName());
+                PayloadHeaders.add(headers, PayloadHeaders.PAYLOAD_ORIGINAL_SIZE, String.valueOf(buffer.size()));
+                ClaimCheckRecords.addCorrelationId(headers, correlationId);
+                metadata.addTo(headers);
+                records.add(producerRecord);
+            }
+            chunkedPayloadBytes.record(buffer.size());
+            log.info("Payload split into {} chunks of up to {} bytes", count, chunkSize);
+            return records;
+        } finally {
+            if (compress) {
+                stored.release();
+            }
+        }
+    }
+
+    /**
+     * Buffers the encoding up to the spill threshold, which is never below the inline limit, so a
+     * payload that spilled is known to be offloaded and one that did not is decided on its buffered
+     * bytes like on the buffered path. A spilled payload is uploaded while it is encoded, before its
+     * hash is known, so it always gets a random blob name even in content-addressed mode, its
+     * claim-check metadata carries no content hash, and it bypasses the local tier.
+     * <p>
+     * The circuit breaker permit is taken before any block is staged and given back unused when the
+     * payload goes inline. When the upload fails the staged blocks are abandoned and the payload is
+     * encoded again for the local spool, as on the buffered path.
+     */
+    private ProducerRecord<String, T> storeStreamingPayload(String topic, T payload, String correlationId, ClaimCheckCircuitBreaker.Permit permit) throws URISyntaxException, InvalidKeyException, StorageException, IOException {
+        SpillingPayloadStream stream = null;
+        try {
+            var cloudBlockBlob = newPayloadBlob(payload.getClass().getName(), shardFor(topic));
+            stream = newSpillingStream(cloudBlockBlob);
+            payloadCodec.encode(payload, stream);
+            if (!stream.isSpilled())
+            {
+                var buffer = stream.getBuffer();
+                if (!records.hasForeignSerializer() && !isLargePayload(buffer.size()))
+                {
+                    return records.inlineRecord(topic, payload, buffer, buffer.size(), correlationId);
+                }
+                log.info("Payload exceeds max configured size");
+                return offloadOrSpool(topic, payload, buffer, correlationId, permit);
+            }
+            log.info("Payload exceeds max configured size");
+            var spilled = stream;
+            try {
+                recordUpload(permit, () -> {
+                    finishStreamingUpload(spilled, cloudBlockBlob);
+                    return cloudBlockBlob.getUri();
+                });
+            } catch (StorageException | IOException e) {
+                if (!claimCheckSpool.isEnabled())
+                {
+                    throw e;
+                }
+                log.warn("Payload upload failed, spooling locally", e);
+                throw spoolEncoded(topic, payload, correlationId, e);
+            }
+            return offloadedRecord(topic, payload, cloudBlockBlob.getUri(), stream.getCount(), correlationId, null);
+        } catch (IOException | RuntimeException e) {
+            if (Objects.nonNull(stream)) {
+                stream.abort();
+            }
+            throw e;
+        } finally {
+            permit.release();
+            if (Objects.nonNull(stream)) {
+                stream.getBuffer().release();
+            }
+        }
+    }
+
+    private ProducerRecord<String, T> offloadedRecord(String topic, T payload, URI blobUri, long originalSize, String correlationId, byte[] contentHash)
+    {
+        offloadedPayloadBytes.record(originalSize);
+        return records.offloadedRecord(topic, blobUri, payload.getClass().getName(), originalSize, correlationId, contentHash);
     }
 
     @Override
     public T readPayloadFromBlob(String blobReference) throws URISyntaxException, InvalidKeyException, StorageException {
-        var containerDest = getCloudBlobContainer();
-        T payload = readPayloadFileFromBlob(new URI(blobReference), containerDest);
+        var blobUri = new URI(blobReference);
+        T payload = readPayloadFileFromBlob(blobUri, azureBlobClientProvider.getContainer(blobUri));
         if (Objects.nonNull(payload))
         {
             Class<?> clazz = payload.getClass();
@@ -77,49 +558,242 @@ public class AzureBlobServiceImpl<T extends Serializable> implements AzureBlobSe
         return payload;
     }
 
+    @Override
+    public InputStream openPayloadStream(String blobReference) throws URISyntaxException, InvalidKeyException, StorageException, IOException {
+        CloudBlockBlob cloudBlockBlob = getPayloadBlob(blobReference);
+        var localCopy = localTier.isEnabled() ? localTier.open(cloudBlockBlob.getUri()) : null;
+        if (Objects.nonNull(localCopy))
+        {
+            return PayloadCompressors.forName(localCopy.getMetadata().get(COMPRESSION_METADATA)).decompress(new ByteBufferInputStream(localCopy.getBytes()));
+        }
+        InputStream blobStream = openBlobStream(cloudBlockBlob);
+        try {
+            return PayloadCompressors.forName(cloudBlockBlob.getMetadata().get(COMPRESSION_METADATA)).decompress(blobStream);
+        } catch (IOException | RuntimeException e) {
+            blobStream.close();
+            throw e;
+        }
+    }
+
     @Override
     public T getPayloadFromBlob(T payloadReference, String isLargePayload) throws URISyntaxException, InvalidKeyException, StorageException {
         if (isLargePayload.equals("NO"))
         {
             return payloadReference;
         }
-        var containerDest = getCloudBlobContainer();
-        return readPayloadFileFromBlob(new URI(payloadReference.toString()), containerDest);
+        if (PayloadHeaders.CHUNKED.equals(isLargePayload))
+        {
+            throw new IllegalArgumentException("Chunked payloads are reassembled from their fragment records, feed them to ChunkReassembler");
+        }
+        var blobUri = new URI(payloadReference.toString());
+        return readPayloadFileFromBlob(blobUri, azureBlobClientProvider.getContainer(blobUri));
     }
 
     @Override
     public void deletePayloadFromBlob(String blobReference) throws URISyntaxException, InvalidKeyException, StorageException {
-        var containerDest = getCloudBlobContainer();
-        CloudBlockBlob cloudBlockBlob = containerDest.getBlockBlobReference(new CloudBlockBlob(new URI(blobReference)).getName());
-        boolean deleted = cloudBlockBlob.deleteIfExists();
+        CloudBlockBlob cloudBlockBlob = getPayloadBlob(blobReference);
+        payloadCache.invalidate(cloudBlockBlob.getUri().toString());
+        if (localTier.isEnabled())
+        {
+            localTier.remove(cloudBlockBlob.getUri());
+        }
+        boolean deleted = BlobReferenceCounts.release(cloudBlockBlob);
         log.info("Payload file deleted: {}", deleted);
     }
 
-    private boolean isLargePayload(T payload)
+    private boolean isLargePayload(long payloadSize)
     {
-        var maxSize = context.getEnvironment().resolvePlaceholders(PAYLOAD_SIZE);
-        var payloadSize = VM.current().sizeOf(payload);
         log.info("Payload size: {} bytes", payloadSize);
-        return payloadSize > Long.parseLong(maxSize);
+        return payloadSize > maxPayloadBytes;
     }
 
     @Override
     public URI writePayloadFileToBlob(T payload, CloudBlobContainer containerDest) throws URISyntaxException, StorageException, IOException {
-        CloudBlockBlob cloudBlockBlob = containerDest.getBlockBlobReference(getPayloadFilename());
-        try (BlobOutputStream bos = cloudBlockBlob.openOutputStream()) {
-            byte[] byteArray = SerializationUtils.serialize(payload);
-            bos.write(byteArray);
+        return writePayload(payload, blobName -> containerDest);
+    }
+
+    private URI writePayload(T payload, ContainerSelector containers) throws URISyntaxException, StorageException, IOException {
+        try {
+            var permit = acquirePermission();
+            return recordUpload(permit, () -> streamingUpload ? writeStreamingPayload(payload, containers, permit) : writeBufferedPayload(payload, containers, permit));
+        } catch (InvalidKeyException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private URI writeBufferedPayload(T payload, ContainerSelector containers, ClaimCheckCircuitBreaker.Permit permit) throws URISyntaxException, InvalidKeyException, StorageException, IOException {
+        var buffer = records.encode(payload);
+        try {
+            return storePayloadBytes(buffer, payload.getClass().getName(), containers, permit);
+        } finally {
+            buffer.release();
+        }
+    }
+
+    private URI writeStreamingPayload(T payload, ContainerSelector containers, ClaimCheckCircuitBreaker.Permit permit) throws URISyntaxException, InvalidKeyException, StorageException, IOException {
+        var cloudBlockBlob = newPayloadBlob(payload.getClass().getName(), containers);
+        var stream = newSpillingStream(cloudBlockBlob);
+        try {
+            payloadCodec.encode(payload, stream);
+            if (stream.isSpilled())
+            {
+                finishStreamingUpload(stream, cloudBlockBlob);
+                return cloudBlockBlob.getUri();
+            }
+            return storePayloadBytes(stream.getBuffer(), payload.getClass().getName(), containers, permit);
+        } catch (IOException | RuntimeException e) {
+            stream.abort();
+            throw e;
+        } finally {
+            stream.getBuffer().release();
+        }
+    }
+
+    /**
+     * Both streaming paths spill at {@code max(events-payload.max-bytes, azure.storage.upload.block-size)};
+     * anything below that is uploaded with a single PUT from the buffer.
+     */
+    private SpillingPayloadStream newSpillingStream(CloudBlockBlob cloudBlockBlob)
+    {
+        var uploadStream = new BlockBlobUploadStream(cloudBlockBlob, uploadBlockSize, uploadMaxInFlightBlocks, uploadExecutor);
+        return new SpillingPayloadStream(PayloadBuffer.acquire(), spillThreshold, uploadStream, payloadCompressor);
+    }
+
+    private void finishStreamingUpload(SpillingPayloadStream stream, CloudBlockBlob cloudBlockBlob) throws IOException
+    {
+        cloudBlockBlob.getMetadata().put(ORIGINAL_SIZE_METADATA, String.valueOf(stream.getCount()));
+        long start = System.nanoTime();
+        stream.finish();
+        uploadLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private CloudBlockBlob newPayloadBlob(String payloadType, ContainerSelector containers) throws URISyntaxException, InvalidKeyException, StorageException
+    {
+        String blobName = getPayloadFilename();
+        CloudBlockBlob cloudBlockBlob = containers.select(blobName).getBlockBlobReference(blobName);
+        putPayloadMetadata(cloudBlockBlob, payloadType);
+        return cloudBlockBlob;
+    }
+
+    private void putPayloadMetadata(CloudBlockBlob cloudBlockBlob, String payloadType)
+    {
+        var metadata = cloudBlockBlob.getMetadata();
+        metadata.put(CODEC_METADATA, payloadCodec.getName());
+        metadata.put(TYPE_METADATA, payloadType);
+        metadata.put(COMPRESSION_METADATA, payloadCompressor.getName());
+    }
+
+    /**
+     * Uploads fully encoded bytes. In content-addressed mode the blob is named after a hash of the
+     * bytes, and an existing blob with that name only gets its reference count raised.
+     */
+    private URI storePayloadBytes(PayloadBuffer buffer, String payloadType, ContainerSelector containers, ClaimCheckCircuitBreaker.Permit permit) throws URISyntaxException, InvalidKeyException, StorageException, IOException
+    {
+        if (!contentAddressed)
+        {
+            return uploadPayloadBytes(buffer, newPayloadBlob(payloadType, containers), null, permit);
+        }
+        String blobName = getContentAddressedFilename(buffer, payloadType);
+        CloudBlockBlob cloudBlockBlob = containers.select(blobName).getBlockBlobReference(blobName);
+        if (BlobReferenceCounts.retainIfExists(cloudBlockBlob))
+        {
+            log.info("Payload already stored, upload skipped: {}", cloudBlockBlob.getName());
+            return cloudBlockBlob.getUri();
+        }
+        putPayloadMetadata(cloudBlockBlob, payloadType);
+        cloudBlockBlob.getMetadata().put(BlobReferenceCounts.REF_COUNT_METADATA, "1");
+        try {
+            return uploadPayloadBytes(buffer, cloudBlockBlob, AccessCondition.generateIfNotExistsCondition(), permit);
+        } catch (StorageException e) {
+            if (BlobReferenceCounts.isConflict(e) && BlobReferenceCounts.retainIfExists(cloudBlockBlob))
+            {
+                log.info("Payload stored concurrently, upload skipped: {}", cloudBlockBlob.getName());
+                return cloudBlockBlob.getUri();
+            }
+            throw e;
+        }
+    }
+
+    private URI uploadPayloadBytes(PayloadBuffer buffer, CloudBlockBlob cloudBlockBlob, AccessCondition accessCondition, ClaimCheckCircuitBreaker.Permit permit) throws StorageException, IOException {
+        cloudBlockBlob.getMetadata().put(ORIGINAL_SIZE_METADATA, String.valueOf(buffer.size()));
+        if (NoneCompressor.NAME.equals(payloadCompressor.getName())) {
+            uploadBytes(cloudBlockBlob, buffer, accessCondition, permit);
+            return cloudBlockBlob.getUri();
+        }
+        var compressed = compressPayload(buffer);
+        try {
+            log.info("Payload compressed from {} to {} bytes", buffer.size(), compressed.size());
+            uploadBytes(cloudBlockBlob, compressed, accessCondition, permit);
+        } finally {
+            compressed.release();
         }
         return cloudBlockBlob.getUri();
     }
 
+    /**
+     * With the local tier in write-back mode the bytes are only written to local disk here and
+     * uploaded in the background; otherwise they are uploaded and then kept locally for reads.
+     * Conditional (content-addressed) uploads always go straight to storage. A write taken by the
+     * write-back tier releases the permit unreported, since storage was not called; the
+     * background upload reports on its own permit.
+     */
+    private void uploadBytes(CloudBlockBlob cloudBlockBlob, PayloadBuffer buffer, AccessCondition accessCondition, ClaimCheckCircuitBreaker.Permit permit) throws StorageException, IOException {
+        boolean tiered = localTier.isEnabled() && Objects.isNull(accessCondition);
+        if (tiered && localTier.isWriteBack()
+                && localTier.store(cloudBlockBlob.getUri(), cloudBlockBlob.getMetadata(), buffer.array(), 0, buffer.size(), false))
+        {
+            permit.release();
+            return;
+        }
+        long start = System.nanoTime();
+        cloudBlockBlob.uploadFromByteArray(buffer.array(), 0, buffer.size(), accessCondition, null, null);
+        uploadLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        if (tiered && !localTier.isWriteBack())
+        {
+            localTier.store(cloudBlockBlob.getUri(), cloudBlockBlob.getMetadata(), buffer.array(), 0, buffer.size(), true);
+        }
+    }
+
+    private PayloadBuffer compressPayload(PayloadBuffer buffer) throws IOException
+    {
+        var compressed = PayloadBuffer.acquire();
+        try (OutputStream os = payloadCompressor.compress(compressed)) {
+            os.write(buffer.array(), 0, buffer.size());
+        } catch (IOException | RuntimeException e) {
+            compressed.release();
+            throw e;
+        }
+        return compressed;
+    }
+
     private T readPayloadFileFromBlob(URI uri, CloudBlobContainer containerDest) throws StorageException, URISyntaxException {
         T payload = null;
         CloudBlockBlob cloudBlockBlob = containerDest.getBlockBlobReference(new CloudBlockBlob(uri).getName());
-        try (BlobInputStream bis = cloudBlockBlob.openInputStream())
+        try
         {
-            byte[] byteArray = bis.readAllBytes();
-            payload = SerializationUtils.deserialize(byteArray);
+            var localCopy = localTier.isEnabled() ? localTier.open(cloudBlockBlob.getUri()) : null;
+            if (Objects.nonNull(localCopy))
+            {
+                payload = decodePayload(new ByteBufferInputStream(localCopy.getBytes()), localCopy.getMetadata());
+                log.info("Payload after deserialization: {}", payload);
+                return payload;
+            }
+            var cached = payloadCache.isEnabled()
+                    ? payloadCache.get(cloudBlockBlob.getUri().toString(), () -> downloadPayload(cloudBlockBlob))
+                    : null;
+            if (Objects.nonNull(cached))
+            {
+                payload = decodePayload(cached.openStream(), cached.getMetadata());
+            }
+            else
+            {
+                long start = System.nanoTime();
+                try (InputStream bis = openBlobStream(cloudBlockBlob))
+                {
+                    payload = decodePayload(bis, cloudBlockBlob.getMetadata());
+                }
+                downloadLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
             log.info("Payload after deserialization: {}", payload);
         } catch (IOException io) {
             log.error("Exception while reading payload from blob", io);
@@ -127,33 +801,72 @@ public class AzureBlobServiceImpl<T extends Serializable> implements AzureBlobSe
         return payload;
     }
 
+    private T decodePayload(InputStream inputStream, Map<String, String> metadata) throws IOException
+    {
+        var codec = PayloadCodecs.forName(metadata.get(CODEC_METADATA));
+        var compressor = PayloadCompressors.forName(metadata.get(COMPRESSION_METADATA));
+        return (T) codec.decode(compressor.decompress(inputStream), PayloadCodecs.resolveType(metadata.get(TYPE_METADATA)));
+    }
 
-    public CloudBlobContainer getCloudBlobContainer() throws StorageException, URISyntaxException, InvalidKeyException {
-        String containerName = context.getEnvironment().resolvePlaceholders(AZURE_STORAGE_CONTAINER_NAME);
-        log.info("containerName: {}", containerName);
-        CloudStorageAccount storageAccountDest = CloudStorageAccount.parse(getConnectionString());
-        CloudBlobClient blobClientDest = storageAccountDest.createCloudBlobClient();
-        CloudBlobContainer containerDest = blobClientDest.getContainerReference(containerName);
-        log.info("Container: {}", containerDest.getName());
-        return containerDest;
+    /**
+     * Downloads the whole blob in one pass; blobs above the cache entry limit are returned to the
+     * waiting readers without being kept.
+     */
+    private ClaimCheckPayloadCache.CachedPayload downloadPayload(CloudBlockBlob cloudBlockBlob) throws StorageException, IOException
+    {
+        long start = System.nanoTime();
+        try (InputStream bis = openBlobStream(cloudBlockBlob))
+        {
+            long length = cloudBlockBlob.getProperties().getLength();
+            byte[] bytes = bis.readNBytes((int) length);
+            downloadLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return payloadCache.newEntry(bytes, bytes.length, cloudBlockBlob.getMetadata());
+        }
     }
 
-    private String getConnectionString()
+    private InputStream openBlobStream(CloudBlockBlob cloudBlockBlob) throws StorageException
     {
-        String storageAccountName = context.getEnvironment().resolvePlaceholders(AZURE_STORAGE_ACCOUNT_NAME);
-        String storageAccountKey = context.getEnvironment().resolvePlaceholders(AZURE_STORAGE_ACCOUNT_KEY);
-        String endpointSuffix = context.getEnvironment().resolvePlaceholders(AZURE_STORAGE_ENDPOINT_SUFFIX);
-        String connectionString = String.format(CONNECTION_STRING,storageAccountName,storageAccountKey,endpointSuffix);
-        log.info("Azure storage connection string: {}", connectionString);
-        return connectionString;
+        if (parallelDownload)
+        {
+            cloudBlockBlob.downloadAttributes();
+            return new RangedBlobInputStream(cloudBlockBlob, downloadRangeSize, downloadMaxInFlightRanges, downloadExecutor);
+        }
+        return cloudBlockBlob.openInputStream();
+    }
+
+    public CloudBlobContainer getCloudBlobContainer() throws StorageException, URISyntaxException, InvalidKeyException {
+        return azureBlobClientProvider.getContainer();
+    }
+
+    private CloudBlockBlob getPayloadBlob(String blobReference) throws URISyntaxException, InvalidKeyException, StorageException {
+        var blobUri = new URI(blobReference);
+        return azureBlobClientProvider.getContainer(blobUri).getBlockBlobReference(new CloudBlockBlob(blobUri).getName());
     }
 
     public String getPayloadFilename()
     {
-        String fileName = context.getEnvironment().resolvePlaceholders(PAYLOAD_FILE_NAME);
-        fileName = fileName.concat("_").concat(UUID.randomUUID().toString()).concat(".dat");
-        log.info("Payload file name: {}", fileName);
-        return fileName;
+        return AzureUtil.getPayloadFilename(context.getEnvironment().resolvePlaceholders(PAYLOAD_FILE_NAME));
+    }
+
+    private String getContentAddressedFilename(PayloadBuffer buffer, String payloadType)
+    {
+        byte[] address = AzureUtil.contentAddress(payloadCodec.getName(), payloadCompressor.getName(), payloadType, buffer.array(), 0, buffer.size());
+        return AzureUtil.getContentAddressedFilename(context.getEnvironment().resolvePlaceholders(PAYLOAD_FILE_NAME), address);
+    }
+
+    /**
+     * SHA-256 of the encoded payload for the metadata header, or null when hashing is disabled.
+     * Payloads spilled by the streaming upload are never fully buffered and are not hashed either.
+     */
+    private byte[] contentHash(PayloadBuffer buffer)
+    {
+        if (!contentHashEnabled)
+        {
+            return null;
+        }
+        var digest = AzureUtil.newSha256();
+        digest.update(buffer.array(), 0, buffer.size());
+        return digest.digest();
     }
 
 
@@ -0,0 +1,29 @@
+package com.maersk.kafkautility.service;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.env.EnvironmentPostProcessor;
+import org.springframework.core.env.ConfigurableEnvironment;
+
+import java.util.Objects;
+
+/**
+ * Applies {@code azure.storage.max-connections} to the http.maxConnections system property. The
+ * storage SDK talks HTTP through {@link java.net.HttpURLConnection}, whose keep-alive cache reads
+ * that property once, on the first connection made in the JVM, so it is set here while the
+ * environment is prepared rather than when the storage beans are created. Anything that opens an
+ * HTTP connection before Spring starts fixes the pool size first; applications doing that must
+ * pass -Dhttp.maxConnections instead. A value already set on the command line always wins.
+ */
+public class AzureStorageConnectionPoolConfigurer implements EnvironmentPostProcessor {
+
+    private static final String AZURE_STORAGE_MAX_CONNECTIONS = "azure.storage.max-connections";
+    private static final String HTTP_MAX_CONNECTIONS_PROPERTY = "http.maxConnections";
+
+    @Override
+    public void postProcessEnvironment(ConfigurableEnvironment environment, SpringApplication application) {
+        int maxConnections = environment.getProperty(AZURE_STORAGE_MAX_CONNECTIONS, Integer.class, 0);
+        if (maxConnections > 0 && Objects.isNull(System.getProperty(HTTP_MAX_CONNECTIONS_PROPERTY))) {
+            System.setProperty(HTTP_MAX_CONNECTIONS_PROPERTY, String.valueOf(maxConnections));
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.maersk.kafkautility.service;
+
+import lombok.Getter;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.kafka.support.SendResult;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+public class BatchPublishResult<T> {
+
+    private final List<SendResult<String, T>> succeeded = new ArrayList<>();
+    private final List<Failure<T>> failed = new ArrayList<>();
+
+    public boolean isSuccess() {
+        return failed.isEmpty();
+    }
+
+    public int size() {
+        return succeeded.size() + failed.size();
+    }
+
+    void addSuccess(SendResult<String, T> result) {
+        succeeded.add(result);
+    }
+
+    void addFailure(ProducerRecord<String, T> producerRecord, Throwable exception) {
+        failed.add(new Failure<>(producerRecord, exception));
+    }
+
+    @Getter
+    public static class Failure<T> {
+        private final ProducerRecord<String, T> producerRecord;
+        private final Throwable exception;
+
+        Failure(ProducerRecord<String, T> producerRecord, Throwable exception) {
+            this.producerRecord = producerRecord;
+            this.exception = exception;
+        }
+    }
+}
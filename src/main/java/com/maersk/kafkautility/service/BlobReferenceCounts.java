@@ -0,0 +1,138 @@
+package com.maersk.kafkautility.service;
+
+import com.microsoft.azure.storage.AccessCondition;
+import com.microsoft.azure.storage.StorageException;
+import com.microsoft.azure.storage.blob.CloudBlockBlob;
+import com.microsoft.azure.storage.blob.DeleteSnapshotsOption;
+import lombok.extern.slf4j.Slf4j;
+
+import java.net.HttpURLConnection;
+import java.util.Objects;
+
+/**
+ * Reference counting for shared (content-addressed) blobs, kept in the blob metadata and
+ * updated with ETag conditions so concurrent producers and deleters never lose an update.
+ * Blobs without a count are treated as having a single reference.
+ */
+@Slf4j
+public final class BlobReferenceCounts {
+
+    public static final String REF_COUNT_METADATA = "refcount";
+    private static final int MAX_ATTEMPTS = 10;
+
+    private BlobReferenceCounts()
+    {
+        //private constructor
+    }
+
+    /**
+     * Adds a reference to the blob if it exists.
+     *
+     * @return false if the blob does not exist
+     */
+    public static boolean retainIfExists(CloudBlockBlob cloudBlockBlob) throws StorageException
+    {
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            if (!downloadAttributesIfExists(cloudBlockBlob)) {
+                return false;
+            }
+            long refCount = getRefCount(cloudBlockBlob);
+            cloudBlockBlob.getMetadata().put(REF_COUNT_METADATA, String.valueOf(refCount + 1));
+            try {
+                cloudBlockBlob.uploadMetadata(AccessCondition.generateIfMatchCondition(cloudBlockBlob.getProperties().getEtag()), null, null);
+                log.info("Reference count of {} raised to {}", cloudBlockBlob.getName(), refCount + 1);
+                return true;
+            } catch (StorageException e) {
+                if (isNotFound(e)) {
+                    return false;
+                }
+                if (!isConflict(e)) {
+                    throw e;
+                }
+            }
+        }
+        throw new StorageException("ReferenceCountConflict", "Could not update reference count of " + cloudBlockBlob.getName(), null);
+    }
+
+    /**
+     * Drops a reference and deletes the blob once no references are left.
+     *
+     * @return true if the blob was deleted
+     */
+    public static boolean release(CloudBlockBlob cloudBlockBlob) throws StorageException
+    {
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            if (!downloadAttributesIfExists(cloudBlockBlob)) {
+                return false;
+            }
+            long refCount = getRefCount(cloudBlockBlob);
+            var condition = AccessCondition.generateIfMatchCondition(cloudBlockBlob.getProperties().getEtag());
+            try {
+                if (refCount > 1) {
+                    cloudBlockBlob.getMetadata().put(REF_COUNT_METADATA, String.valueOf(refCount - 1));
+                    cloudBlockBlob.uploadMetadata(condition, null, null);
+                    log.info("Reference count of {} lowered to {}", cloudBlockBlob.getName(), refCount - 1);
+                    return false;
+                }
+                cloudBlockBlob.delete(DeleteSnapshotsOption.NONE, condition, null, null);
+                return true;
+            } catch (StorageException e) {
+                if (isNotFound(e)) {
+                    return false;
+                }
+                if (!isConflict(e)) {
+                    throw e;
+                }
+            }
+        }
+        throw new StorageException("ReferenceCountConflict", "Could not update reference count of " + cloudBlockBlob.getName(), null);
+    }
+
+    /**
+     * Deletes the blob whatever its reference count, provided it has not changed since the given
+     * ETag was read.
+     *
+     * @return false if the blob changed in the meantime or no longer exists
+     */
+    public static boolean deleteIfUnchanged(CloudBlockBlob cloudBlockBlob, String etag) throws StorageException
+    {
+        try {
+            cloudBlockBlob.delete(DeleteSnapshotsOption.NONE, AccessCondition.generateIfMatchCondition(etag), null, null);
+            return true;
+        } catch (StorageException e) {
+            if (isNotFound(e) || e.getHttpStatusCode() == HttpURLConnection.HTTP_PRECON_FAILED) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    public static boolean isConflict(StorageException e)
+    {
+        return e.getHttpStatusCode() == HttpURLConnection.HTTP_PRECON_FAILED || e.getHttpStatusCode() == HttpURLConnection.HTTP_CONFLICT;
+    }
+
+    public static boolean isNotFound(StorageException e)
+    {
+        return e.getHttpStatusCode() == HttpURLConnection.HTTP_NOT_FOUND;
+    }
+
+    private static boolean downloadAttributesIfExists(CloudBlockBlob cloudBlockBlob) throws StorageException
+    {
+        try {
+            cloudBlockBlob.downloadAttributes();
+            return true;
+        } catch (StorageException e) {
+            if (isNotFound(e)) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    private static long getRefCount(CloudBlockBlob cloudBlockBlob)
+    {
+        String refCount = cloudBlockBlob.getMetadata().get(REF_COUNT_METADATA);
+        return Objects.isNull(refCount) ? 1 : Long.parseLong(refCount);
+    }
+}
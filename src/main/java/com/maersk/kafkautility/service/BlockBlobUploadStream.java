@@ -0,0 +1,153 @@
+package com.maersk.kafkautility.service;
+
+import com.microsoft.azure.storage.StorageException;
+import com.microsoft.azure.storage.blob.BlockEntry;
+import com.microsoft.azure.storage.blob.CloudBlockBlob;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Writes a block blob in fixed-size blocks that are staged on a shared executor while the
+ * caller keeps writing. At most {@code maxInFlight} blocks of one stream are buffered or
+ * uploading at a time, so heap use per upload is bounded by {@code blockSize * (maxInFlight + 1)}.
+ * The block list is committed on {@link #close()}; {@link #abort()} drops the staged blocks.
+ */
+@Slf4j
+public class BlockBlobUploadStream extends OutputStream {
+
+    private final CloudBlockBlob cloudBlockBlob;
+    private final int blockSize;
+    private final Executor executor;
+    private final Semaphore inFlight;
+    private final List<BlockEntry> blockList = new ArrayList<>();
+    private final List<CompletableFuture<Void>> stagedBlocks = new ArrayList<>();
+
+    private byte[] block;
+    private int position;
+    private boolean closed;
+
+    public BlockBlobUploadStream(CloudBlockBlob cloudBlockBlob, int blockSize, int maxInFlight, Executor executor) {
+        this.cloudBlockBlob = cloudBlockBlob;
+        this.blockSize = blockSize;
+        this.executor = executor;
+        this.inFlight = new Semaphore(maxInFlight);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureBlock();
+        block[position++] = (byte) b;
+        if (position == blockSize) {
+            stageBlock();
+        }
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        while (length > 0) {
+            ensureBlock();
+            int chunk = Math.min(length, blockSize - position);
+            System.arraycopy(bytes, offset, block, position, chunk);
+            position += chunk;
+            offset += chunk;
+            length -= chunk;
+            if (position == blockSize) {
+                stageBlock();
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        if (position > 0) {
+            stageBlock();
+        }
+        closed = true;
+        awaitStagedBlocks();
+        try {
+            cloudBlockBlob.commitBlockList(blockList);
+            log.info("Committed {} blocks to blob: {}", blockList.size(), cloudBlockBlob.getName());
+        } catch (StorageException e) {
+            throw new IOException("Exception while committing block list", e);
+        }
+    }
+
+    public void abort() {
+        closed = true;
+        block = null;
+        stagedBlocks.forEach(future -> future.cancel(false));
+        log.info("Aborted upload of blob: {}", cloudBlockBlob.getName());
+    }
+
+    private void ensureBlock() throws IOException {
+        if (closed) {
+            throw new IOException("Upload stream already closed");
+        }
+        if (Objects.isNull(block)) {
+            block = new byte[blockSize];
+            position = 0;
+        }
+    }
+
+    private void stageBlock() throws IOException {
+        failOnStagingError();
+        try {
+            inFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a block upload slot");
+        }
+        String blockId = Base64.getEncoder().encodeToString(String.format("%010d", blockList.size()).getBytes(StandardCharsets.UTF_8));
+        blockList.add(new BlockEntry(blockId));
+        byte[] data = block;
+        int length = position;
+        block = null;
+        stagedBlocks.add(CompletableFuture.runAsync(() -> uploadBlock(blockId, data, length), executor)
+                .whenComplete((result, throwable) -> inFlight.release()));
+    }
+
+    private void uploadBlock(String blockId, byte[] data, int length) {
+        try {
+            cloudBlockBlob.uploadBlock(blockId, new ByteArrayInputStream(data, 0, length), length);
+        } catch (StorageException | IOException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    private void failOnStagingError() throws IOException {
+        for (CompletableFuture<Void> future : stagedBlocks) {
+            if (future.isCompletedExceptionally()) {
+                awaitStagedBlocks();
+            }
+        }
+    }
+
+    private void awaitStagedBlocks() throws IOException {
+        try {
+            CompletableFuture.allOf(stagedBlocks.toArray(new CompletableFuture[0])).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while staging blocks");
+        } catch (ExecutionException e) {
+            abort();
+            throw new IOException("Exception while staging block", e.getCause());
+        }
+    }
+}
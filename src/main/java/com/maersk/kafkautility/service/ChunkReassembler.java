@@ -0,0 +1,198 @@
+package com.maersk.kafkautility.service;
+
+import com.maersk.kafkautility.codec.PayloadCodecs;
+import com.maersk.kafkautility.compression.PayloadCompressors;
+import com.maersk.kafkautility.utils.PayloadHeaders;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.header.Headers;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Consumer-side counterpart of chunked transport. Fragments are buffered per message id until
+ * the group is complete and then decoded into the payload. Buffered bytes are capped by
+ * {@code events-payload.chunking.reassembly.max-bytes}, evicting the oldest incomplete groups,
+ * and groups not completed within {@code events-payload.chunking.reassembly.timeout-ms} are dropped.
+ * Partial groups are not persisted, and listener containers commit the offsets of every polled
+ * fragment, so a consumer restart or rebalance in the middle of a group loses that message. Fragments
+ * of a group are sent in order to one partition, so a group whose first fragment seen is not the first
+ * one is reported with an IOException; the remaining fragments of a lost or dropped group are discarded.
+ */
+@Slf4j
+@Component
+public class ChunkReassembler {
+
+    @Autowired
+    private ApplicationContext context;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private static final String REASSEMBLY_MAX_BYTES = "${events-payload.chunking.reassembly.max-bytes:268435456}";
+    private static final String REASSEMBLY_TIMEOUT = "${events-payload.chunking.reassembly.timeout-ms:60000}";
+
+    private final LinkedHashMap<String, ChunkGroup> groups = new LinkedHashMap<>();
+    private final LinkedHashMap<String, Long> droppedGroups = new LinkedHashMap<>();
+    private long maxBytes;
+    private long timeoutMillis;
+    private long bufferedBytes;
+
+    private Counter completed;
+    private Counter expired;
+    private Counter evicted;
+    private Counter lost;
+
+    @PostConstruct
+    public void init() {
+        var environment = context.getEnvironment();
+        maxBytes = Long.parseLong(environment.resolvePlaceholders(REASSEMBLY_MAX_BYTES));
+        timeoutMillis = Long.parseLong(environment.resolvePlaceholders(REASSEMBLY_TIMEOUT));
+        completed = Counter.builder("claimcheck.chunks.completed").description("Chunked payloads reassembled").register(meterRegistry);
+        expired = Counter.builder("claimcheck.chunks.expired").description("Incomplete chunk groups dropped after the timeout").register(meterRegistry);
+        evicted = Counter.builder("claimcheck.chunks.evicted").description("Incomplete chunk groups dropped to stay within the memory bound").register(meterRegistry);
+        lost = Counter.builder("claimcheck.chunks.lost").description("Chunk groups whose leading fragments were never received").register(meterRegistry);
+        Gauge.builder("claimcheck.chunks.buffered.bytes", this, ChunkReassembler::getBufferedBytes).description("Bytes held by incomplete chunk groups").register(meterRegistry);
+    }
+
+    public static boolean isChunk(Headers headers) {
+        return PayloadHeaders.CHUNKED.equals(PayloadHeaders.lastValue(headers, PayloadHeaders.IS_LARGE_PAYLOAD));
+    }
+
+    /**
+     * Adds one fragment.
+     *
+     * @return the decoded payload if this fragment completed its group, otherwise null
+     */
+    public Object accept(Headers headers, byte[] fragment) throws IOException {
+        String messageId = PayloadHeaders.lastValue(headers, PayloadHeaders.CHUNK_MESSAGE_ID);
+        int index = (int) PayloadHeaders.lastLongValue(headers, PayloadHeaders.CHUNK_INDEX, -1);
+        int count = (int) PayloadHeaders.lastLongValue(headers, PayloadHeaders.CHUNK_COUNT, -1);
+        if (Objects.isNull(messageId) || index < 0 || index >= count) {
+            throw new IOException("Invalid chunk headers, message id: " + messageId + ", index: " + index + ", count: " + count);
+        }
+        byte[][] fragments;
+        synchronized (groups) {
+            long now = System.currentTimeMillis();
+            expire(now);
+            var group = groups.get(messageId);
+            if (Objects.isNull(group)) {
+                if (droppedGroups.containsKey(messageId)) {
+                    return null;
+                }
+                if (index > 0) {
+                    droppedGroups.put(messageId, now);
+                    lost.increment();
+                    throw new IOException("Chunk group " + messageId + " starts at fragment " + index + " of " + count
+                            + ", the earlier fragments were consumed before the group was complete");
+                }
+                group = new ChunkGroup(count, now);
+                groups.put(messageId, group);
+            }
+            if (group.fragments.length != count) {
+                throw new IOException("Invalid chunk headers, message id: " + messageId + ", index: " + index + ", count: " + count
+                        + ", expected count: " + group.fragments.length);
+            }
+            if (Objects.nonNull(group.fragments[index])) {
+                return null;
+            }
+            group.fragments[index] = fragment;
+            group.received++;
+            group.bytes += fragment.length;
+            bufferedBytes += fragment.length;
+            if (group.received < count) {
+                evictOverflow(messageId);
+                return null;
+            }
+            groups.remove(messageId);
+            bufferedBytes -= group.bytes;
+            fragments = group.fragments;
+        }
+        completed.increment();
+        return decode(fragments, headers);
+    }
+
+    public void expire() {
+        synchronized (groups) {
+            expire(System.currentTimeMillis());
+        }
+    }
+
+    public long getBufferedBytes() {
+        synchronized (groups) {
+            return bufferedBytes;
+        }
+    }
+
+    private void expire(long now) {
+        droppedGroups.values().removeIf(droppedAt -> now - droppedAt > timeoutMillis);
+        Iterator<Map.Entry<String, ChunkGroup>> iterator = groups.entrySet().iterator();
+        while (iterator.hasNext()) {
+            var oldest = iterator.next();
+            if (now - oldest.getValue().firstSeen <= timeoutMillis) {
+                break;
+            }
+            log.warn("Chunk group {} expired with {}/{} fragments", oldest.getKey(), oldest.getValue().received, oldest.getValue().fragments.length);
+            bufferedBytes -= oldest.getValue().bytes;
+            droppedGroups.put(oldest.getKey(), now);
+            iterator.remove();
+            expired.increment();
+        }
+    }
+
+    private void evictOverflow(String current) {
+        Iterator<Map.Entry<String, ChunkGroup>> iterator = groups.entrySet().iterator();
+        while (bufferedBytes > maxBytes && iterator.hasNext()) {
+            var oldest = iterator.next();
+            if (oldest.getKey().equals(current) && groups.size() > 1) {
+                continue;
+            }
+            log.warn("Chunk group {} evicted to stay within {} buffered bytes", oldest.getKey(), maxBytes);
+            bufferedBytes -= oldest.getValue().bytes;
+            droppedGroups.put(oldest.getKey(), System.currentTimeMillis());
+            iterator.remove();
+            evicted.increment();
+        }
+    }
+
+    private static Object decode(byte[][] fragments, Headers headers) throws IOException {
+        var codec = PayloadCodecs.forName(PayloadHeaders.lastValue(headers, PayloadHeaders.PAYLOAD_CODEC));
+        var compressor = PayloadCompressors.forName(PayloadHeaders.lastValue(headers, PayloadHeaders.PAYLOAD_COMPRESSION));
+        var type = PayloadCodecs.resolveType(PayloadHeaders.lastValue(headers, PayloadHeaders.PAYLOAD_TYPE));
+        List<InputStream> streams = new ArrayList<>(fragments.length);
+        for (byte[] fragment : fragments) {
+            streams.add(new ByteArrayInputStream(fragment));
+        }
+        try (var inputStream = compressor.decompress(new SequenceInputStream(Collections.enumeration(streams)))) {
+            return codec.decode(inputStream, type);
+        }
+    }
+
+    private static final class ChunkGroup {
+        private final byte[][] fragments;
+        private final long firstSeen;
+        private int received;
+        private long bytes;
+
+        private ChunkGroup(int count, long firstSeen) {
+            this.fragments = new byte[count][];
+            this.firstSeen = firstSeen;
+        }
+    }
+}
@@ -0,0 +1,309 @@
+package com.maersk.kafkautility.service;
+
+import com.maersk.kafkautility.utils.DaemonThreadFactory;
+import com.microsoft.azure.storage.StorageException;
+import com.microsoft.azure.storage.blob.CloudBlob;
+import com.microsoft.azure.storage.blob.CloudBlobContainer;
+import com.microsoft.azure.storage.blob.CloudBlockBlob;
+import com.microsoft.azure.storage.blob.ListBlobItem;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.security.InvalidKeyException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deletes consumed claim-check blobs in the background. References are queued without blocking,
+ * drained in batches of {@code events-payload.cleanup.batch-size} and deleted on a small pool,
+ * at most {@code events-payload.cleanup.max-concurrent-batches} batches at a time. Transient
+ * storage failures are retried with a linear backoff. With a retention set, blobs older than it
+ * are swept periodically so references lost to a full queue or a crash do not leak storage. The
+ * sweep only runs against blob storage; with {@code events-payload.store=local} the local store's
+ * own retention drops old segments.
+ */
+@Slf4j
+@Component
+public class ClaimCheckBlobCleaner {
+
+    @Autowired
+    private ApplicationContext context;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private AzureBlobService<?> azureBlobService;
+
+    @Autowired
+    private AzureBlobClientProvider azureBlobClientProvider;
+
+    @Autowired
+    private ClaimCheckPayloadCache payloadCache;
+
+    @Autowired
+    private ClaimCheckLocalTier localTier;
+
+    private static final String CLEANUP_QUEUE_CAPACITY = "${events-payload.cleanup.queue-capacity:10000}";
+    private static final String CLEANUP_BATCH_SIZE = "${events-payload.cleanup.batch-size:256}";
+    private static final String CLEANUP_BATCH_INTERVAL = "${events-payload.cleanup.batch-interval-ms:1000}";
+    private static final String CLEANUP_MAX_CONCURRENT_BATCHES = "${events-payload.cleanup.max-concurrent-batches:4}";
+    private static final String CLEANUP_MAX_ATTEMPTS = "${events-payload.cleanup.max-attempts:3}";
+    private static final String CLEANUP_RETRY_BACKOFF = "${events-payload.cleanup.retry-backoff-ms:1000}";
+    private static final String CLEANUP_ORPHAN_RETENTION = "${events-payload.cleanup.orphan-retention-ms:0}";
+    private static final String CLEANUP_ORPHAN_SWEEP_INTERVAL = "${events-payload.cleanup.orphan-sweep-interval-ms:3600000}";
+    private static final String PAYLOAD_FILE_NAME = "${events-payload.file-name}";
+    private static final String PAYLOAD_STORE = "${events-payload.store:azure}";
+    private static final String LOCAL_STORE = "local";
+
+    private BlockingQueue<DeleteRequest> queue;
+    private ExecutorService dispatcher;
+    private ExecutorService deletePool;
+    private ScheduledExecutorService scheduler;
+    private Semaphore batchPermits;
+    private volatile boolean running;
+
+    private int batchSize;
+    private long batchIntervalMillis;
+    private int maxAttempts;
+    private long retryBackoffMillis;
+    private long orphanRetentionMillis;
+
+    private Counter deleted;
+    private Counter failed;
+    private Counter dropped;
+    private Counter retried;
+
+    @PostConstruct
+    public void init() {
+        var environment = context.getEnvironment();
+        queue = new ArrayBlockingQueue<>(Integer.parseInt(environment.resolvePlaceholders(CLEANUP_QUEUE_CAPACITY)));
+        batchSize = Integer.parseInt(environment.resolvePlaceholders(CLEANUP_BATCH_SIZE));
+        batchIntervalMillis = Long.parseLong(environment.resolvePlaceholders(CLEANUP_BATCH_INTERVAL));
+        int maxConcurrentBatches = Integer.parseInt(environment.resolvePlaceholders(CLEANUP_MAX_CONCURRENT_BATCHES));
+        maxAttempts = Integer.parseInt(environment.resolvePlaceholders(CLEANUP_MAX_ATTEMPTS));
+        retryBackoffMillis = Long.parseLong(environment.resolvePlaceholders(CLEANUP_RETRY_BACKOFF));
+        orphanRetentionMillis = Long.parseLong(environment.resolvePlaceholders(CLEANUP_ORPHAN_RETENTION));
+        long sweepInterval = Long.parseLong(environment.resolvePlaceholders(CLEANUP_ORPHAN_SWEEP_INTERVAL));
+
+        deleted = Counter.builder("claimcheck.cleanup.deleted").description("Claim-check blobs deleted by the cleaner").register(meterRegistry);
+        failed = Counter.builder("claimcheck.cleanup.failed").description("Claim-check deletes given up after retries").register(meterRegistry);
+        dropped = Counter.builder("claimcheck.cleanup.dropped").description("Delete requests rejected by a full cleanup queue").register(meterRegistry);
+        retried = Counter.builder("claimcheck.cleanup.retried").description("Claim-check deletes retried after a transient failure").register(meterRegistry);
+        Gauge.builder("claimcheck.cleanup.queued", queue, BlockingQueue::size).description("Delete requests waiting in the cleanup queue").register(meterRegistry);
+
+        batchPermits = new Semaphore(maxConcurrentBatches);
+        deletePool = Executors.newFixedThreadPool(maxConcurrentBatches, new DaemonThreadFactory("claimcheck-cleanup"));
+        scheduler = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("claimcheck-cleanup-scheduler"));
+        dispatcher = Executors.newSingleThreadExecutor(new DaemonThreadFactory("claimcheck-cleanup-dispatcher"));
+        running = true;
+        dispatcher.execute(this::dispatch);
+        if (orphanRetentionMillis > 0 && LOCAL_STORE.equals(environment.resolvePlaceholders(PAYLOAD_STORE))) {
+            log.info("Claim-check orphan sweep skipped, the local store drops payloads past its own retention");
+        } else if (orphanRetentionMillis > 0) {
+            scheduler.scheduleWithFixedDelay(this::sweepOrphans, sweepInterval, sweepInterval, TimeUnit.MILLISECONDS);
+            log.info("Claim-check orphan sweep enabled, retention: {} ms, interval: {} ms", orphanRetentionMillis, sweepInterval);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        dispatcher.shutdownNow();
+        scheduler.shutdownNow();
+        deletePool.shutdown();
+        deletePool.awaitTermination(batchIntervalMillis, TimeUnit.MILLISECONDS);
+        if (!queue.isEmpty()) {
+            log.warn("{} claim-check deletes still queued at shutdown, left for the orphan sweep", queue.size());
+        }
+    }
+
+    /**
+     * Queues a blob for deletion without blocking.
+     *
+     * @return false if the queue is full and the blob is left for the orphan sweep
+     */
+    public boolean scheduleDelete(String blobReference) {
+        if (Objects.isNull(blobReference)) {
+            return true;
+        }
+        return enqueue(new DeleteRequest(blobReference, 1, null));
+    }
+
+    private boolean enqueue(DeleteRequest request) {
+        if (queue.offer(request)) {
+            return true;
+        }
+        dropped.increment();
+        log.warn("Claim-check cleanup queue full, not deleting: {}", request.blobReference);
+        return false;
+    }
+
+    public int getQueuedCount() {
+        return queue.size();
+    }
+
+    private void dispatch() {
+        while (running) {
+            try {
+                var first = queue.poll(batchIntervalMillis, TimeUnit.MILLISECONDS);
+                if (Objects.isNull(first)) {
+                    continue;
+                }
+                List<DeleteRequest> batch = new ArrayList<>(batchSize);
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                batchPermits.acquire();
+                try {
+                    deletePool.execute(() -> deleteBatch(batch));
+                } catch (RuntimeException e) {
+                    batchPermits.release();
+                    throw e;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Exception while dispatching claim-check deletes", e);
+            }
+        }
+    }
+
+    private void deleteBatch(List<DeleteRequest> batch) {
+        try {
+            log.info("Deleting batch of {} claim-check blobs", batch.size());
+            for (DeleteRequest request : batch) {
+                delete(request);
+            }
+        } finally {
+            batchPermits.release();
+        }
+    }
+
+    private void delete(DeleteRequest request) {
+        try {
+            if (Objects.isNull(request.etag)) {
+                azureBlobService.deletePayloadFromBlob(request.blobReference);
+            } else if (!deleteOrphan(request)) {
+                return;
+            }
+            deleted.increment();
+        } catch (StorageException e) {
+            if (BlobReferenceCounts.isNotFound(e)) {
+                return;
+            }
+            if (isTransient(e) && request.attempt < maxAttempts) {
+                retry(request);
+            } else {
+                failed.increment();
+                log.error("Giving up deleting claim-check blob {} after {} attempts", request.blobReference, request.attempt, e);
+            }
+        } catch (Exception e) {
+            failed.increment();
+            log.error("Exception while deleting claim-check blob {}", request.blobReference, e);
+        }
+    }
+
+    /**
+     * Deletes a swept blob outright: all of its references are older than the retention, so
+     * releasing one per sweep would only keep a shared blob alive for several more sweeps. The
+     * delete is conditional on the ETag seen when the blob was listed, so a blob that was
+     * retained again since then is left alone.
+     *
+     * @return false if the blob changed or was already gone
+     */
+    private boolean deleteOrphan(DeleteRequest request) throws URISyntaxException, InvalidKeyException, StorageException {
+        var blobUri = new URI(request.blobReference);
+        var cloudBlockBlob = azureBlobClientProvider.getContainer(blobUri).getBlockBlobReference(new CloudBlockBlob(blobUri).getName());
+        if (!BlobReferenceCounts.deleteIfUnchanged(cloudBlockBlob, request.etag)) {
+            log.info("Orphaned claim-check blob changed since the sweep, kept: {}", request.blobReference);
+            return false;
+        }
+        payloadCache.invalidate(cloudBlockBlob.getUri().toString());
+        if (localTier.isEnabled()) {
+            localTier.remove(cloudBlockBlob.getUri());
+        }
+        return true;
+    }
+
+    private void retry(DeleteRequest request) {
+        retried.increment();
+        var next = new DeleteRequest(request.blobReference, request.attempt + 1, request.etag);
+        scheduler.schedule(() -> {
+            if (!queue.offer(next)) {
+                dropped.increment();
+                log.warn("Claim-check cleanup queue full, not retrying: {}", next.blobReference);
+            }
+        }, retryBackoffMillis * request.attempt, TimeUnit.MILLISECONDS);
+    }
+
+    private static boolean isTransient(StorageException e) {
+        int status = e.getHttpStatusCode();
+        return status < 100 || status >= 500 || status == HttpURLConnection.HTTP_CLIENT_TIMEOUT || status == 429;
+    }
+
+    /**
+     * Queues every payload blob, in every storage shard, last modified before the retention window,
+     * for deletion regardless of its reference count. Content-addressed blobs get their
+     * last-modified time bumped whenever a reference is added, so live ones stay younger.
+     */
+    private void sweepOrphans() {
+        try {
+            String prefix = context.getEnvironment().resolvePlaceholders(PAYLOAD_FILE_NAME);
+            long cutoff = System.currentTimeMillis() - orphanRetentionMillis;
+            int queued = 0;
+            sweep:
+            for (CloudBlobContainer container : azureBlobClientProvider.getContainers()) {
+                for (ListBlobItem item : container.listBlobs(prefix, true)) {
+                    if (!(item instanceof CloudBlob)) {
+                        continue;
+                    }
+                    var properties = ((CloudBlob) item).getProperties();
+                    var lastModified = properties.getLastModified();
+                    if (Objects.nonNull(lastModified) && lastModified.getTime() < cutoff) {
+                        if (!enqueue(new DeleteRequest(item.getUri().toString(), 1, properties.getEtag()))) {
+                            break sweep;
+                        }
+                        queued++;
+                    }
+                }
+            }
+            log.info("Claim-check orphan sweep queued {} blobs", queued);
+        } catch (Exception e) {
+            log.error("Exception while sweeping orphaned claim-check blobs", e);
+        }
+    }
+
+    /**
+     * A blob to delete; swept orphans carry the ETag they were listed with.
+     */
+    private static final class DeleteRequest {
+        private final String blobReference;
+        private final int attempt;
+        private final String etag;
+
+        private DeleteRequest(String blobReference, int attempt, String etag) {
+            this.blobReference = blobReference;
+            this.attempt = attempt;
+            this.etag = etag;
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package com.maersk.kafkautility.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Count-based circuit breaker around blob storage calls. It opens when, over the last
+ * window-size calls, the share of failed or slow calls reaches its threshold; while open, callers
+ * are rejected without touching storage. After open-duration it lets a few probe calls through
+ * and closes again only if all of them succeed in time; probes that have not reported back within
+ * another open-duration open it again.
+ * <p>
+ * Outcomes are reported through the {@link Permit} a call was given, so a permit reports at most
+ * once and outcomes of permits issued before the last state change are ignored.
+ */
+@Slf4j
+@Component
+public class ClaimCheckCircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    @Autowired
+    private ApplicationContext context;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private static final String ENABLED = "${events-payload.circuit-breaker.enabled:false}";
+    private static final String WINDOW_SIZE = "${events-payload.circuit-breaker.window-size:20}";
+    private static final String MINIMUM_CALLS = "${events-payload.circuit-breaker.minimum-calls:10}";
+    private static final String FAILURE_RATE_THRESHOLD = "${events-payload.circuit-breaker.failure-rate-threshold:50}";
+    private static final String SLOW_CALL_THRESHOLD = "${events-payload.circuit-breaker.slow-call-threshold-ms:2000}";
+    private static final String SLOW_CALL_RATE_THRESHOLD = "${events-payload.circuit-breaker.slow-call-rate-threshold:80}";
+    private static final String OPEN_DURATION = "${events-payload.circuit-breaker.open-duration-ms:30000}";
+    private static final String HALF_OPEN_CALLS = "${events-payload.circuit-breaker.half-open-calls:3}";
+
+    private static final byte OUTCOME_SLOW = 1;
+    private static final byte OUTCOME_FAILED = 2;
+
+    private boolean enabled;
+    private byte[] window;
+    private int minimumCalls;
+    private int failureRateThreshold;
+    private long slowCallThresholdNanos;
+    private int slowCallRateThreshold;
+    private long openDurationMillis;
+    private int halfOpenCalls;
+
+    private volatile State state = State.CLOSED;
+    private int calls;
+    private int next;
+    private int failures;
+    private int slowCalls;
+    private long openedAt;
+    private long halfOpenedAt;
+    private int generation;
+    private int probesStarted;
+    private int probesSucceeded;
+    private Counter rejected;
+
+    @PostConstruct
+    public void init() {
+        var environment = context.getEnvironment();
+        enabled = Boolean.parseBoolean(environment.resolvePlaceholders(ENABLED));
+        if (!enabled) {
+            return;
+        }
+        window = new byte[Integer.parseInt(environment.resolvePlaceholders(WINDOW_SIZE))];
+        minimumCalls = Math.min(window.length, Integer.parseInt(environment.resolvePlaceholders(MINIMUM_CALLS)));
+        failureRateThreshold = Integer.parseInt(environment.resolvePlaceholders(FAILURE_RATE_THRESHOLD));
+        slowCallThresholdNanos = TimeUnit.MILLISECONDS.toNanos(Long.parseLong(environment.resolvePlaceholders(SLOW_CALL_THRESHOLD)));
+        slowCallRateThreshold = Integer.parseInt(environment.resolvePlaceholders(SLOW_CALL_RATE_THRESHOLD));
+        openDurationMillis = Long.parseLong(environment.resolvePlaceholders(OPEN_DURATION));
+        halfOpenCalls = Integer.parseInt(environment.resolvePlaceholders(HALF_OPEN_CALLS));
+        rejected = Counter.builder("claimcheck.circuit.rejected").description("Blob storage calls rejected by the open circuit breaker").register(meterRegistry);
+        Gauge.builder("claimcheck.circuit.state", this, breaker -> breaker.state.ordinal()).description("Circuit breaker state: 0 closed, 1 open, 2 half-open").register(meterRegistry);
+        log.info("Claim-check circuit breaker enabled, window: {} calls, failure rate: {}%, slow calls: {}% over {} ms",
+                window.length, failureRateThreshold, slowCallRateThreshold, TimeUnit.NANOSECONDS.toMillis(slowCallThresholdNanos));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * @return the permit for a storage call made now, or null when the call is rejected; the
+     * permit must be given the call's outcome, or be released if no call was made
+     */
+    public synchronized Permit tryAcquirePermission() {
+        if (!enabled || state == State.CLOSED) {
+            return new Permit(generation, false);
+        }
+        long now = System.currentTimeMillis();
+        if (state == State.OPEN && now - openedAt >= openDurationMillis) {
+            halfOpen(now);
+        }
+        if (state == State.HALF_OPEN) {
+            if (probesStarted < halfOpenCalls) {
+                probesStarted++;
+                return new Permit(generation, true);
+            }
+            if (now - halfOpenedAt >= openDurationMillis) {
+                open((halfOpenCalls - probesSucceeded) + " probe calls did not complete");
+            }
+        }
+        rejected.increment();
+        return null;
+    }
+
+    private synchronized void complete(Permit permit, long durationNanos, boolean failed) {
+        if (!enabled || permit.done) {
+            return;
+        }
+        permit.done = true;
+        if (permit.generation != generation) {
+            return;
+        }
+        boolean slow = durationNanos > slowCallThresholdNanos;
+        if (permit.probe) {
+            if (failed) {
+                open("failed probe call");
+            } else if (slow) {
+                open("slow probe call");
+            } else if (++probesSucceeded >= halfOpenCalls) {
+                close();
+            }
+            return;
+        }
+        record((byte) ((failed ? OUTCOME_FAILED : 0) | (slow ? OUTCOME_SLOW : 0)));
+    }
+
+    private synchronized void release(Permit permit) {
+        if (permit.done) {
+            return;
+        }
+        permit.done = true;
+        if (permit.probe && permit.generation == generation) {
+            probesStarted--;
+        }
+    }
+
+    private void record(byte outcome) {
+        if (state != State.CLOSED) {
+            return;
+        }
+        if (calls == window.length) {
+            byte evicted = window[next];
+            failures -= (evicted & OUTCOME_FAILED) != 0 ? 1 : 0;
+            slowCalls -= (evicted & OUTCOME_SLOW) != 0 ? 1 : 0;
+        } else {
+            calls++;
+        }
+        window[next] = outcome;
+        next = (next + 1) % window.length;
+        failures += (outcome & OUTCOME_FAILED) != 0 ? 1 : 0;
+        slowCalls += (outcome & OUTCOME_SLOW) != 0 ? 1 : 0;
+        if (calls < minimumCalls) {
+            return;
+        }
+        if (failures * 100 >= failureRateThreshold * calls) {
+            open(failures + " of " + calls + " calls failed");
+        } else if (slowCalls * 100 >= slowCallRateThreshold * calls) {
+            open(slowCalls + " of " + calls + " calls were slow");
+        }
+    }
+
+    private void open(String reason) {
+        log.warn("Claim-check circuit breaker opened: {}", reason);
+        state = State.OPEN;
+        openedAt = System.currentTimeMillis();
+        generation++;
+    }
+
+    private void halfOpen(long now) {
+        log.info("Claim-check circuit breaker half-open, probing blob storage");
+        state = State.HALF_OPEN;
+        halfOpenedAt = now;
+        generation++;
+        probesStarted = 0;
+        probesSucceeded = 0;
+    }
+
+    private void close() {
+        log.info("Claim-check circuit breaker closed, blob storage recovered");
+        state = State.CLOSED;
+        calls = 0;
+        next = 0;
+        failures = 0;
+        slowCalls = 0;
+        generation++;
+    }
+
+    /**
+     * Permission for one storage call. Only the first of {@link #onSuccess(long)},
+     * {@link #onError(long)} and {@link #release()} counts.
+     */
+    public final class Permit {
+        private final int generation;
+        private final boolean probe;
+        private boolean done;
+
+        private Permit(int generation, boolean probe) {
+            this.generation = generation;
+            this.probe = probe;
+        }
+
+        public void onSuccess(long durationNanos) {
+            complete(this, durationNanos, false);
+        }
+
+        public void onError(long durationNanos) {
+            complete(this, durationNanos, true);
+        }
+
+        /**
+         * Gives the permit back without an outcome, for when the call was not made.
+         */
+        public void release() {
+            ClaimCheckCircuitBreaker.this.release(this);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.maersk.kafkautility.service;
+
+import com.maersk.kafkautility.exception.MessagePublishException;
+import com.maersk.kafkautility.utils.DaemonThreadFactory;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dedicated pool for blocking claim-check I/O (encode and upload) behind the async produce API.
+ * At most {@code events-payload.async.max-in-flight} tasks are queued or running; callers
+ * submitting beyond that block for up to {@code events-payload.async.acquire-timeout-ms}.
+ */
+@Slf4j
+@Component
+public class ClaimCheckIoExecutor {
+
+    @Autowired
+    private ApplicationContext context;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private static final String ASYNC_THREADS = "${events-payload.async.threads:4}";
+    private static final String ASYNC_MAX_IN_FLIGHT = "${events-payload.async.max-in-flight:64}";
+    private static final String ASYNC_ACQUIRE_TIMEOUT = "${events-payload.async.acquire-timeout-ms:30000}";
+
+    private ExecutorService executor;
+    private Semaphore inFlight;
+    private int maxInFlight;
+    private long acquireTimeoutMillis;
+
+    @PostConstruct
+    public void init() {
+        var environment = context.getEnvironment();
+        int threads = Integer.parseInt(environment.resolvePlaceholders(ASYNC_THREADS));
+        maxInFlight = Integer.parseInt(environment.resolvePlaceholders(ASYNC_MAX_IN_FLIGHT));
+        acquireTimeoutMillis = Long.parseLong(environment.resolvePlaceholders(ASYNC_ACQUIRE_TIMEOUT));
+        inFlight = new Semaphore(maxInFlight);
+        executor = Executors.newFixedThreadPool(threads, new DaemonThreadFactory("claimcheck-io"));
+        Gauge.builder("claimcheck.async.in-flight", inFlight, semaphore -> maxInFlight - semaphore.availablePermits())
+                .description("Claim-check uploads queued or running on the I/O pool")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    public <R> CompletableFuture<R> submit(Callable<R> task) {
+        try {
+            if (!inFlight.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                return CompletableFuture.failedFuture(new MessagePublishException("Too many claim-check uploads in flight"));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(e);
+        }
+        try {
+            return CompletableFuture.supplyAsync(() -> call(task), executor)
+                    .whenComplete((result, throwable) -> inFlight.release());
+        } catch (RuntimeException e) {
+            inFlight.release();
+            throw e;
+        }
+    }
+
+    private static <R> R call(Callable<R> task) {
+        try {
+            return task.call();
+        } catch (CompletionException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+    }
+}
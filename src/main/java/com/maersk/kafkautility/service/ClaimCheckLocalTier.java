@@ -0,0 +1,403 @@
+package com.maersk.kafkautility.service;
+
+import com.maersk.kafkautility.utils.DaemonThreadFactory;
+import com.microsoft.azure.storage.StorageException;
+import com.microsoft.azure.storage.blob.CloudBlockBlob;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Bounded local disk tier in front of blob storage. In write-through mode, the default, a payload
+ * is uploaded first and then kept as a {@code .cached} file. In write-back mode it is acknowledged
+ * once it is synced to local disk as a {@code .pending} file and uploaded in the background, after
+ * which it becomes a {@code .cached} file. Reads on this node are served from the local copy either
+ * way. Only copies that are durable remotely are evicted, by age and then least recently used when
+ * the tier is over its size. Pending files survive a restart and are uploaded again on startup.
+ * <p>
+ * With write-back, a consumer on another node can see the reference before the upload finished;
+ * only enable it where producers and consumers share a node. Streamed uploads never pass through
+ * the tier, since their bytes are not held in memory to be written locally.
+ */
+@Slf4j
+@Component
+public class ClaimCheckLocalTier {
+
+    @Autowired
+    private ApplicationContext context;
+
+    @Autowired
+    private AzureBlobClientProvider azureBlobClientProvider;
+
+    @Autowired
+    private ClaimCheckCircuitBreaker circuitBreaker;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private static final String TIER_ENABLED = "${events-payload.tier.enabled:false}";
+    private static final String TIER_DIRECTORY = "${events-payload.tier.directory:${java.io.tmpdir}/claimcheck-tier}";
+    private static final String TIER_MAX_BYTES = "${events-payload.tier.max-bytes:1073741824}";
+    private static final String TIER_MAX_AGE = "${events-payload.tier.max-age-ms:600000}";
+    private static final String TIER_WRITE_BACK = "${events-payload.tier.write-back:false}";
+    private static final String TIER_UPLOAD_THREADS = "${events-payload.tier.upload-threads:4}";
+    private static final String TIER_RETRY_BACKOFF = "${events-payload.tier.retry-backoff-ms:1000}";
+    private static final String TIER_MAX_RETRY_BACKOFF = "${events-payload.tier.max-retry-backoff-ms:60000}";
+    private static final String TIER_EVICTION_INTERVAL = "${events-payload.tier.eviction-interval-ms:10000}";
+    private static final String PENDING_SUFFIX = ".pending";
+    private static final String CACHED_SUFFIX = ".cached";
+    private static final String TMP_SUFFIX = ".tmp";
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong totalBytes = new AtomicLong();
+
+    private boolean enabled;
+    private boolean writeBack;
+    private Path directory;
+    private long maxBytes;
+    private long maxAgeMillis;
+    private long retryBackoffMillis;
+    private long maxRetryBackoffMillis;
+    private ScheduledExecutorService uploadExecutor;
+    private ScheduledExecutorService evictionScheduler;
+    private Counter hits;
+    private Counter misses;
+    private Counter uploadFailures;
+
+    @PostConstruct
+    public void init() throws IOException {
+        var environment = context.getEnvironment();
+        enabled = Boolean.parseBoolean(environment.resolvePlaceholders(TIER_ENABLED));
+        if (!enabled) {
+            return;
+        }
+        directory = Paths.get(environment.resolvePlaceholders(TIER_DIRECTORY));
+        maxBytes = Long.parseLong(environment.resolvePlaceholders(TIER_MAX_BYTES));
+        maxAgeMillis = Long.parseLong(environment.resolvePlaceholders(TIER_MAX_AGE));
+        writeBack = Boolean.parseBoolean(environment.resolvePlaceholders(TIER_WRITE_BACK));
+        retryBackoffMillis = Long.parseLong(environment.resolvePlaceholders(TIER_RETRY_BACKOFF));
+        maxRetryBackoffMillis = Long.parseLong(environment.resolvePlaceholders(TIER_MAX_RETRY_BACKOFF));
+        int uploadThreads = Integer.parseInt(environment.resolvePlaceholders(TIER_UPLOAD_THREADS));
+        uploadExecutor = Executors.newScheduledThreadPool(uploadThreads, new DaemonThreadFactory("claimcheck-tier-upload"));
+        hits = Counter.builder("claimcheck.tier.reads").tag("result", "hit").description("Claim-check reads served by the local tier").register(meterRegistry);
+        misses = Counter.builder("claimcheck.tier.reads").tag("result", "miss").description("Claim-check reads served by the local tier").register(meterRegistry);
+        uploadFailures = Counter.builder("claimcheck.tier.upload.failures").description("Failed background uploads from the local tier").register(meterRegistry);
+        Gauge.builder("claimcheck.tier.bytes", totalBytes, AtomicLong::get).baseUnit("bytes").description("Bytes held by the local tier").register(meterRegistry);
+        Gauge.builder("claimcheck.tier.pending", entries, tier -> tier.values().stream().filter(entry -> !entry.durable).count()).description("Local tier payloads not yet uploaded").register(meterRegistry);
+        Files.createDirectories(directory);
+        recover();
+        long evictionInterval = Long.parseLong(environment.resolvePlaceholders(TIER_EVICTION_INTERVAL));
+        evictionScheduler = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("claimcheck-tier-eviction"));
+        evictionScheduler.scheduleWithFixedDelay(() -> evict(0), evictionInterval, evictionInterval, TimeUnit.MILLISECONDS);
+        log.info("Claim-check local tier enabled in {}, write-back: {}, max bytes: {}", directory, writeBack, maxBytes);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (Objects.nonNull(evictionScheduler)) {
+            evictionScheduler.shutdownNow();
+        }
+        if (Objects.nonNull(uploadExecutor)) {
+            uploadExecutor.shutdownNow();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isWriteBack() {
+        return writeBack;
+    }
+
+    /**
+     * Stores the blob content locally; unless durable, it is uploaded in the background.
+     *
+     * @param durable whether the blob has already been uploaded
+     * @return false if the tier has no room even after eviction, in which case the caller must upload itself
+     */
+    public boolean store(URI blobUri, Map<String, String> metadata, byte[] bytes, int offset, int length, boolean durable) throws IOException {
+        String key = blobUri.toString();
+        if (totalBytes.get() + length > maxBytes && !evict(length)) {
+            log.warn("Claim-check local tier full, {} not stored locally", key);
+            return false;
+        }
+        var file = directory.resolve(URLEncoder.encode(key, StandardCharsets.UTF_8) + (durable ? CACHED_SUFFIX : PENDING_SUFFIX));
+        var tmp = file.resolveSibling(file.getFileName() + TMP_SUFFIX);
+        var header = new ByteArrayOutputStream();
+        try (var out = new DataOutputStream(header)) {
+            out.writeShort(metadata.size());
+            for (Map.Entry<String, String> item : metadata.entrySet()) {
+                out.writeUTF(item.getKey());
+                out.writeUTF(item.getValue());
+            }
+        }
+        long dataOffset = 4 + header.size();
+        try (var channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            var out = new DataOutputStream(Channels.newOutputStream(channel));
+            out.writeInt(header.size());
+            header.writeTo(out);
+            out.write(bytes, offset, length);
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory();
+        var entry = new Entry(key, file, Map.copyOf(metadata), dataOffset, length, durable);
+        var previous = entries.put(key, entry);
+        totalBytes.addAndGet(length - (Objects.isNull(previous) ? 0 : previous.length));
+        if (!durable) {
+            uploadExecutor.execute(() -> upload(entry, 1));
+        }
+        return true;
+    }
+
+    /**
+     * @return the locally held blob content and metadata, or null if this node has no copy
+     */
+    public LocalCopy open(URI blobUri) throws IOException {
+        var entry = entries.get(blobUri.toString());
+        if (Objects.isNull(entry)) {
+            misses.increment();
+            return null;
+        }
+        entry.lastAccess = System.currentTimeMillis();
+        try (var channel = FileChannel.open(entry.file, StandardOpenOption.READ)) {
+            var bytes = channel.map(FileChannel.MapMode.READ_ONLY, entry.dataOffset, entry.length);
+            hits.increment();
+            return new LocalCopy(entry.metadata, bytes);
+        } catch (NoSuchFileException e) {
+            misses.increment();
+            return null;
+        }
+    }
+
+    /**
+     * Drops the local copy; a pending upload is abandoned, and undone if it is already running.
+     */
+    public void remove(URI blobUri) {
+        var entry = entries.remove(blobUri.toString());
+        if (Objects.nonNull(entry)) {
+            deleteFile(entry);
+        }
+    }
+
+    /**
+     * Makes the rename of a file in the tier directory durable. Not every platform can open a
+     * directory for syncing, in which case the rename is left to the file system.
+     */
+    private void syncDirectory() {
+        try (var channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            log.debug("Could not sync local tier directory {}", directory, e);
+        }
+    }
+
+    private void upload(Entry entry, int attempt) {
+        if (entries.get(entry.key) != entry) {
+            return;
+        }
+        var permit = circuitBreaker.tryAcquirePermission();
+        if (Objects.isNull(permit)) {
+            retryLater(entry, attempt);
+            return;
+        }
+        CloudBlockBlob cloudBlockBlob = null;
+        boolean uploaded = false;
+        long start = System.nanoTime();
+        try (var channel = FileChannel.open(entry.file, StandardOpenOption.READ)) {
+            var blobUri = URI.create(entry.key);
+            cloudBlockBlob = azureBlobClientProvider.getContainer(blobUri).getBlockBlobReference(new CloudBlockBlob(blobUri).getName());
+            cloudBlockBlob.setMetadata(new HashMap<>(entry.metadata));
+            channel.position(entry.dataOffset);
+            cloudBlockBlob.upload(Channels.newInputStream(channel), entry.length);
+            uploaded = true;
+            permit.onSuccess(System.nanoTime() - start);
+            if (entries.get(entry.key) != entry) {
+                cloudBlockBlob.deleteIfExists();
+                return;
+            }
+            var cached = entry.file.resolveSibling(entry.file.getFileName().toString().replace(PENDING_SUFFIX, CACHED_SUFFIX));
+            Files.move(entry.file, cached, StandardCopyOption.ATOMIC_MOVE);
+            var durableEntry = new Entry(entry.key, cached, entry.metadata, entry.dataOffset, entry.length, true);
+            if (!entries.replace(entry.key, entry, durableEntry)) {
+                Files.deleteIfExists(cached);
+            }
+        } catch (NoSuchFileException e) {
+            log.info("Local tier payload {} removed before upload", entry.key);
+            if (uploaded) {
+                deleteUploaded(cloudBlockBlob, entry);
+            }
+        } catch (Exception e) {
+            permit.onError(System.nanoTime() - start);
+            uploadFailures.increment();
+            log.warn("Background upload of {} failed, attempt {}", entry.key, attempt, e);
+            retryLater(entry, attempt);
+        } finally {
+            permit.release();
+        }
+    }
+
+    /**
+     * Undoes the upload of a payload that was removed while it was being uploaded.
+     */
+    private void deleteUploaded(CloudBlockBlob cloudBlockBlob, Entry entry) {
+        try {
+            cloudBlockBlob.deleteIfExists();
+        } catch (StorageException e) {
+            log.warn("Exception while deleting uploaded blob of removed local tier payload {}", entry.key, e);
+        }
+    }
+
+    private void retryLater(Entry entry, int attempt) {
+        long delay = Math.min(maxRetryBackoffMillis, retryBackoffMillis << Math.min(attempt - 1, 16));
+        uploadExecutor.schedule(() -> upload(entry, attempt + 1), delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Evicts durable copies past max-age, then least recently read ones until the tier has room
+     * for the requested bytes.
+     *
+     * @return whether there is room for the requested bytes
+     */
+    private synchronized boolean evict(long requiredBytes) {
+        long cutoff = System.currentTimeMillis() - maxAgeMillis;
+        entries.values().stream()
+                .filter(entry -> entry.durable && entry.writtenAt < cutoff)
+                .forEach(this::evictEntry);
+        if (totalBytes.get() + requiredBytes <= maxBytes) {
+            return true;
+        }
+        var candidates = entries.values().stream()
+                .filter(entry -> entry.durable)
+                .sorted(Comparator.comparingLong(entry -> entry.lastAccess))
+                .collect(Collectors.toList());
+        for (Entry entry : candidates) {
+            if (totalBytes.get() + requiredBytes <= maxBytes) {
+                break;
+            }
+            evictEntry(entry);
+        }
+        return totalBytes.get() + requiredBytes <= maxBytes;
+    }
+
+    private void evictEntry(Entry entry) {
+        if (entries.remove(entry.key, entry)) {
+            deleteFile(entry);
+        }
+    }
+
+    private void deleteFile(Entry entry) {
+        totalBytes.addAndGet(-entry.length);
+        try {
+            Files.deleteIfExists(entry.file);
+        } catch (IOException e) {
+            log.warn("Exception while deleting local tier file {}", entry.file, e);
+        }
+    }
+
+    /**
+     * Re-indexes the files left by a previous run and queues pending ones for upload.
+     */
+    private void recover() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.collect(Collectors.toList())) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(TMP_SUFFIX)) {
+                    Files.delete(file);
+                    continue;
+                }
+                boolean durable = name.endsWith(CACHED_SUFFIX);
+                if (!durable && !name.endsWith(PENDING_SUFFIX)) {
+                    continue;
+                }
+                String key = URLDecoder.decode(name.substring(0, name.lastIndexOf('.')), StandardCharsets.UTF_8);
+                Map<String, String> metadata = new HashMap<>();
+                long dataOffset;
+                try (var in = new DataInputStream(Files.newInputStream(file))) {
+                    dataOffset = 4 + in.readInt();
+                    int count = in.readUnsignedShort();
+                    for (int i = 0; i < count; i++) {
+                        metadata.put(in.readUTF(), in.readUTF());
+                    }
+                }
+                long length = Files.size(file) - dataOffset;
+                var entry = new Entry(key, file, Map.copyOf(metadata), dataOffset, (int) length, durable);
+                entries.put(key, entry);
+                totalBytes.addAndGet(length);
+                if (!durable) {
+                    uploadExecutor.execute(() -> upload(entry, 1));
+                }
+            }
+        }
+        log.info("Claim-check local tier recovered {} payloads, {} bytes", entries.size(), totalBytes.get());
+    }
+
+    @Getter
+    public static final class LocalCopy {
+        private final Map<String, String> metadata;
+        private final ByteBuffer bytes;
+
+        private LocalCopy(Map<String, String> metadata, ByteBuffer bytes) {
+            this.metadata = metadata;
+            this.bytes = bytes;
+        }
+    }
+
+    private static final class Entry {
+        private final String key;
+        private final Path file;
+        private final Map<String, String> metadata;
+        private final long dataOffset;
+        private final int length;
+        private final boolean durable;
+        private final long writtenAt = System.currentTimeMillis();
+        private volatile long lastAccess = writtenAt;
+
+        private Entry(String key, Path file, Map<String, String> metadata, long dataOffset, int length, boolean durable) {
+            this.key = key;
+            this.file = file;
+            this.metadata = metadata;
+            this.dataOffset = dataOffset;
+            this.length = length;
+            this.durable = durable;
+        }
+    }
+}
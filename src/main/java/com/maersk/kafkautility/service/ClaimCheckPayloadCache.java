@@ -0,0 +1,258 @@
+package com.maersk.kafkautility.service;
+
+import com.maersk.kafkautility.utils.ByteBufferInputStream;
+import com.microsoft.azure.storage.StorageException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Byte-bounded LRU cache of downloaded claim-check blobs, keyed by blob URI. Entries hold the
+ * stored (encoded and compressed) bytes, optionally off-heap, and are decoded per read so
+ * callers never share a payload instance. Concurrent misses for the same blob share one download,
+ * also for blobs above the entry limit, which are handed to every waiting caller but not kept.
+ */
+@Slf4j
+@Component
+public class ClaimCheckPayloadCache {
+
+    @Autowired
+    private ApplicationContext context;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private static final String CACHE_ENABLED = "${events-payload.cache.enabled:false}";
+    private static final String CACHE_MAX_BYTES = "${events-payload.cache.max-bytes:67108864}";
+    private static final String CACHE_MAX_ENTRY_BYTES = "${events-payload.cache.max-entry-bytes:8388608}";
+    private static final String CACHE_TTL = "${events-payload.cache.ttl-ms:300000}";
+    private static final String CACHE_OFF_HEAP = "${events-payload.cache.off-heap:false}";
+
+    private final LinkedHashMap<String, CachedPayload> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private final Map<String, Load> loading = new ConcurrentHashMap<>();
+
+    private boolean enabled;
+    private long maxBytes;
+    private long maxEntryBytes;
+    private long ttlMillis;
+    private boolean offHeap;
+    private long currentBytes;
+
+    private Counter hits;
+    private Counter misses;
+    private Counter evictions;
+
+    @PostConstruct
+    public void init() {
+        var environment = context.getEnvironment();
+        enabled = Boolean.parseBoolean(environment.resolvePlaceholders(CACHE_ENABLED));
+        maxBytes = Long.parseLong(environment.resolvePlaceholders(CACHE_MAX_BYTES));
+        maxEntryBytes = Math.min(maxBytes, Long.parseLong(environment.resolvePlaceholders(CACHE_MAX_ENTRY_BYTES)));
+        ttlMillis = Long.parseLong(environment.resolvePlaceholders(CACHE_TTL));
+        offHeap = Boolean.parseBoolean(environment.resolvePlaceholders(CACHE_OFF_HEAP));
+        hits = Counter.builder("claimcheck.cache.hits").description("Claim-check reads served from the cache").register(meterRegistry);
+        misses = Counter.builder("claimcheck.cache.misses").description("Claim-check reads that went to storage").register(meterRegistry);
+        evictions = Counter.builder("claimcheck.cache.evictions").description("Claim-check cache entries evicted by size or age").register(meterRegistry);
+        Gauge.builder("claimcheck.cache.bytes", this, ClaimCheckPayloadCache::size).description("Bytes held by the claim-check cache").register(meterRegistry);
+        if (enabled) {
+            log.info("Claim-check cache enabled, max bytes: {}, max entry bytes: {}, ttl: {} ms, off-heap: {}", maxBytes, maxEntryBytes, ttlMillis, offHeap);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the cached blob or loads it, joining a download already in progress for the same key.
+     * Callers that join a download count as hits, since they do not go to storage themselves.
+     * A loader may return null for blobs that should not be cached; null is then returned as well.
+     * A load that was in progress when the key was invalidated is returned to its callers but not
+     * cached.
+     */
+    public CachedPayload get(String key, Loader loader) throws StorageException, IOException {
+        var cached = lookup(key);
+        if (Objects.nonNull(cached)) {
+            hits.increment();
+            return cached;
+        }
+        var load = new Load();
+        var inProgress = loading.putIfAbsent(key, load);
+        if (Objects.nonNull(inProgress)) {
+            hits.increment();
+            return await(inProgress.future);
+        }
+        misses.increment();
+        try {
+            var loaded = loader.load();
+            if (Objects.nonNull(loaded)) {
+                put(key, loaded, load);
+            }
+            load.future.complete(loaded);
+            return loaded;
+        } catch (StorageException | IOException | RuntimeException e) {
+            load.future.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, load);
+        }
+    }
+
+    public CachedPayload newEntry(byte[] bytes, int length, Map<String, String> metadata) {
+        ByteBuffer data;
+        if (offHeap && length <= maxEntryBytes) {
+            data = ByteBuffer.allocateDirect(length);
+            data.put(bytes, 0, length).flip();
+        } else {
+            data = ByteBuffer.wrap(bytes, 0, length).slice();
+        }
+        return new CachedPayload(data, metadata, System.currentTimeMillis());
+    }
+
+    public void invalidate(String key) {
+        synchronized (entries) {
+            var inProgress = loading.remove(key);
+            if (Objects.nonNull(inProgress)) {
+                inProgress.invalidated = true;
+            }
+            var removed = entries.remove(key);
+            if (Objects.nonNull(removed)) {
+                currentBytes -= removed.size();
+            }
+        }
+    }
+
+    public long size() {
+        synchronized (entries) {
+            return currentBytes;
+        }
+    }
+
+    private CachedPayload lookup(String key) {
+        if (!enabled) {
+            return null;
+        }
+        synchronized (entries) {
+            var cached = entries.get(key);
+            if (Objects.nonNull(cached) && isExpired(cached, System.currentTimeMillis())) {
+                entries.remove(key);
+                currentBytes -= cached.size();
+                evictions.increment();
+                return null;
+            }
+            return cached;
+        }
+    }
+
+    private void put(String key, CachedPayload payload, Load load) {
+        if (!enabled || payload.size() > maxEntryBytes) {
+            return;
+        }
+        synchronized (entries) {
+            if (load.invalidated) {
+                return;
+            }
+            var previous = entries.put(key, payload);
+            if (Objects.nonNull(previous)) {
+                currentBytes -= previous.size();
+            }
+            currentBytes += payload.size();
+            evict();
+        }
+    }
+
+    private void evict() {
+        long now = System.currentTimeMillis();
+        Iterator<CachedPayload> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            var eldest = iterator.next();
+            if (currentBytes <= maxBytes && !isExpired(eldest, now)) {
+                break;
+            }
+            iterator.remove();
+            currentBytes -= eldest.size();
+            evictions.increment();
+        }
+    }
+
+    private boolean isExpired(CachedPayload payload, long now) {
+        return ttlMillis > 0 && now - payload.loadedAt > ttlMillis;
+    }
+
+    private CachedPayload await(CompletableFuture<CachedPayload> future) throws StorageException, IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for claim-check download");
+        } catch (ExecutionException e) {
+            var cause = e.getCause();
+            if (cause instanceof StorageException) {
+                throw (StorageException) cause;
+            }
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Exception while loading claim-check payload", cause);
+        }
+    }
+
+    /**
+     * A download in progress; marked invalidated, under the entries lock, when its key is
+     * invalidated before it completes.
+     */
+    private static final class Load {
+        private final CompletableFuture<CachedPayload> future = new CompletableFuture<>();
+        private boolean invalidated;
+    }
+
+    @FunctionalInterface
+    public interface Loader {
+        CachedPayload load() throws StorageException, IOException;
+    }
+
+    public static final class CachedPayload {
+        private final ByteBuffer data;
+        private final Map<String, String> metadata;
+        private final long loadedAt;
+
+        private CachedPayload(ByteBuffer data, Map<String, String> metadata, long loadedAt) {
+            this.data = data;
+            this.metadata = Map.copyOf(metadata);
+            this.loadedAt = loadedAt;
+        }
+
+        public Map<String, String> getMetadata() {
+            return metadata;
+        }
+
+        public int size() {
+            return data.capacity();
+        }
+
+        public InputStream openStream() {
+            if (data.hasArray()) {
+                return new ByteArrayInputStream(data.array(), data.arrayOffset(), data.capacity());
+            }
+            return new ByteBufferInputStream(data.duplicate());
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.maersk.kafkautility.service;
+
+import com.maersk.kafkautility.utils.ClaimCheckMetadata;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.kafka.listener.adapter.RecordFilterStrategy;
+
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Record filter deciding on the {@link ClaimCheckMetadata} carried in the headers, so unwanted
+ * claim-check records are skipped without downloading their blob. Records without any metadata
+ * are kept. Use it with {@code factory.setRecordFilterStrategy(..)} or
+ * {@link ClaimCheckResolvingInterceptor#setRecordFilter}.
+ */
+public class ClaimCheckRecordFilter<T> implements RecordFilterStrategy<String, T> {
+
+    private final Predicate<ClaimCheckMetadata> accept;
+
+    public ClaimCheckRecordFilter(Predicate<ClaimCheckMetadata> accept)
+    {
+        this.accept = accept;
+    }
+
+    public static <T> ClaimCheckRecordFilter<T> acceptingTypes(String... payloadTypes)
+    {
+        Set<String> types = Set.of(payloadTypes);
+        return new ClaimCheckRecordFilter<>(metadata -> types.contains(metadata.getPayloadType()));
+    }
+
+    public static <T> ClaimCheckRecordFilter<T> acceptingTypes(Class<?>... payloadTypes)
+    {
+        String[] names = new String[payloadTypes.length];
+        for (int i = 0; i < payloadTypes.length; i++) {
+            names[i] = payloadTypes[i].getName();
+        }
+        return acceptingTypes(names);
+    }
+
+    public static <T> ClaimCheckRecordFilter<T> acceptingMaxSize(long maxEncodedSize)
+    {
+        return new ClaimCheckRecordFilter<>(metadata -> metadata.getEncodedSize() <= maxEncodedSize);
+    }
+
+    /**
+     * @return true if the record should be discarded
+     */
+    @Override
+    public boolean filter(ConsumerRecord<String, T> consumerRecord)
+    {
+        var metadata = ClaimCheckMetadata.from(consumerRecord.headers());
+        return Objects.nonNull(metadata) && !accept.test(metadata);
+    }
+}
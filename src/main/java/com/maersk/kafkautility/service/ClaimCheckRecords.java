@@ -0,0 +1,212 @@
+package com.maersk.kafkautility.service;
+
+import com.maersk.kafkautility.codec.EncodedPayloads;
+import com.maersk.kafkautility.codec.PayloadCodec;
+import com.maersk.kafkautility.codec.PayloadCodecSerializer;
+import com.maersk.kafkautility.codec.PayloadCodecs;
+import com.maersk.kafkautility.compression.PayloadCompressor;
+import com.maersk.kafkautility.utils.ClaimCheckMetadata;
+import com.maersk.kafkautility.utils.PayloadBuffer;
+import com.maersk.kafkautility.utils.PayloadHeaders;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.serialization.Serializer;
+import org.apache.kafka.common.utils.Utils;
+import org.springframework.kafka.core.ProducerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Encoding and claim-check record building shared by the {@link AzureBlobService} backends, so
+ * both put the same headers and metrics on the records they produce.
+ */
+@Slf4j
+public class ClaimCheckRecords<T> {
+
+    private final PayloadCodec payloadCodec;
+    private final PayloadCompressor payloadCompressor;
+    private final boolean keyByCorrelationId;
+    private final MeterRegistry meterRegistry;
+    private final DistributionSummary inlinePayloadBytes;
+    private boolean passThroughInline;
+    private Serializer<Object> valueSerializer;
+
+    /**
+     * @param keyByCorrelationId whether records without a key of their own are keyed by their
+     *                           correlation id, so all records of one aggregate land on the same
+     *                           partition in order
+     */
+    public ClaimCheckRecords(PayloadCodec payloadCodec, PayloadCompressor payloadCompressor, boolean keyByCorrelationId,
+                             ProducerFactory<?, ?> producerFactory, MeterRegistry meterRegistry) {
+        this.payloadCodec = payloadCodec;
+        this.payloadCompressor = payloadCompressor;
+        this.keyByCorrelationId = keyByCorrelationId;
+        this.meterRegistry = meterRegistry;
+        this.inlinePayloadBytes = payloadBytesSummary("inline");
+        resolveValueSerializer(producerFactory);
+    }
+
+    /**
+     * Inline payloads are encoded by the producer's value serializer, so its output, not the blob
+     * encoding, is what has to fit under the limit. A {@link PayloadCodecSerializer} with the same
+     * codec produces exactly the blob encoding, so those bytes are measured and handed to it through
+     * {@link EncodedPayloads}. Any other serializer sizes the payload itself, and without a producer
+     * factory the blob encoding is the best available estimate.
+     */
+    @SuppressWarnings("unchecked")
+    private void resolveValueSerializer(ProducerFactory<?, ?> producerFactory) {
+        if (Objects.isNull(producerFactory)) {
+            return;
+        }
+        Serializer<?> serializer = producerFactory.getValueSerializer();
+        if (Objects.isNull(serializer)) {
+            var configs = producerFactory.getConfigurationProperties();
+            var serializerClass = configs.get(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG);
+            if (Objects.isNull(serializerClass)) {
+                return;
+            }
+            try {
+                serializer = serializerClass instanceof Class
+                        ? Utils.newInstance((Class<Serializer<?>>) serializerClass)
+                        : Utils.newInstance(serializerClass.toString(), Serializer.class);
+            } catch (ClassNotFoundException e) {
+                throw new IllegalStateException("Value serializer " + serializerClass + " not found", e);
+            }
+            serializer.configure(configs, false);
+        }
+        passThroughInline = serializer instanceof PayloadCodecSerializer
+                && ((PayloadCodecSerializer<?>) serializer).getCodec().getName().equals(payloadCodec.getName());
+        if (!passThroughInline) {
+            valueSerializer = (Serializer<Object>) serializer;
+        }
+        log.info("Inline payloads sized with {}", passThroughInline ? "the payload codec" : serializer.getClass().getName());
+    }
+
+    /**
+     * @return whether inline payloads are sized by a value serializer other than the payload codec,
+     * see {@link #serializedSize(String, Object)}
+     */
+    public boolean hasForeignSerializer() {
+        return Objects.nonNull(valueSerializer);
+    }
+
+    /**
+     * Size of the record value the foreign value serializer produces for the payload, which is
+     * not encoded with the payload codec for that.
+     */
+    public long serializedSize(String topic, T payload) {
+        byte[] serialized = valueSerializer.serialize(topic, new RecordHeaders(), payload);
+        return Objects.isNull(serialized) ? 0 : serialized.length;
+    }
+
+    /**
+     * Encoded payload size for one placement: inline, offloaded or chunked.
+     */
+    public DistributionSummary payloadBytesSummary(String placement) {
+        return DistributionSummary.builder("claimcheck.payload.bytes")
+                .tag("placement", placement)
+                .baseUnit("bytes")
+                .description("Encoded size of produced payloads")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return a pooled buffer holding the encoded payload, to be released by the caller
+     */
+    public PayloadBuffer encode(T payload) throws IOException {
+        var buffer = PayloadBuffer.acquire();
+        try {
+            payloadCodec.encode(payload, buffer);
+        } catch (IOException | RuntimeException e) {
+            buffer.release();
+            throw e;
+        }
+        return buffer;
+    }
+
+    /**
+     * Encodes a spooled payload with the current codec; bytes spooled with the same codec are
+     * copied as they are.
+     */
+    public PayloadBuffer encode(SpooledPayload spooledPayload) throws IOException {
+        byte[] encoded = spooledPayload.getEncodedPayload();
+        var buffer = PayloadBuffer.acquire();
+        try {
+            if (payloadCodec.getName().equals(spooledPayload.getCodec())) {
+                buffer.write(encoded, 0, encoded.length);
+            } else {
+                var spooledCodec = PayloadCodecs.forName(spooledPayload.getCodec());
+                payloadCodec.encode(spooledCodec.decode(new ByteArrayInputStream(encoded), PayloadCodecs.resolveType(spooledPayload.getPayloadType())), buffer);
+            }
+        } catch (IOException | RuntimeException e) {
+            buffer.release();
+            throw e;
+        }
+        return buffer;
+    }
+
+    /**
+     * The codec and type of inline payloads are recorded by the value serializer, which sends the
+     * already encoded bytes when there are any.
+     */
+    public ProducerRecord<String, T> inlineRecord(String topic, T payload, PayloadBuffer encoded, long size, String correlationId) {
+        inlinePayloadBytes.record(size);
+        var headers = new RecordHeaders();
+        PayloadHeaders.add(headers, PayloadHeaders.IS_LARGE_PAYLOAD, "NO");
+        if (passThroughInline && Objects.nonNull(encoded)) {
+            EncodedPayloads.attach(headers, payload, Arrays.copyOf(encoded.array(), encoded.size()), payloadCodec.getName());
+        }
+        addCorrelationId(headers, correlationId);
+        return new ProducerRecord<>(topic, null, recordKey(correlationId), payload, headers);
+    }
+
+    public ProducerRecord<String, T> offloadedRecord(String topic, URI reference, String payloadType, long originalSize,
+                                                     String correlationId, byte[] contentHash) {
+        var headers = new RecordHeaders();
+        addCorrelationId(headers, correlationId);
+        return offloadedRecord(topic, null, headers, reference, payloadType, originalSize, contentHash);
+    }
+
+    /**
+     * Claim-check record carrying the given headers, for payloads published on behalf of an
+     * earlier record such as retried or spooled ones. The correlation id is taken from the headers,
+     * and keys the record when it has no key of its own.
+     */
+    @SuppressWarnings("unchecked")
+    public ProducerRecord<String, T> offloadedRecord(String topic, String key, Headers headers, URI reference, String payloadType,
+                                                     long originalSize, byte[] contentHash) {
+        String correlationId = PayloadHeaders.lastValue(headers, PayloadHeaders.CORRELATION_ID);
+        PayloadHeaders.add(headers, PayloadHeaders.IS_LARGE_PAYLOAD, "YES");
+        PayloadHeaders.add(headers, PayloadHeaders.PAYLOAD_TYPE, payloadType);
+        PayloadHeaders.add(headers, PayloadHeaders.PAYLOAD_CODEC, payloadCodec.getName());
+        PayloadHeaders.add(headers, PayloadHeaders.PAYLOAD_COMPRESSION, payloadCompressor.getName());
+        PayloadHeaders.add(headers, PayloadHeaders.PAYLOAD_ORIGINAL_SIZE, String.valueOf(originalSize));
+        newMetadata(payloadType, originalSize, correlationId, contentHash).addTo(headers);
+        return new ProducerRecord<>(topic, null, Objects.nonNull(key) ? key : recordKey(correlationId), (T) reference.toString(), headers);
+    }
+
+    public ClaimCheckMetadata newMetadata(String payloadType, long encodedSize, String correlationId, byte[] contentHash) {
+        return new ClaimCheckMetadata(payloadType, encodedSize, payloadCodec.getName(),
+                payloadCompressor.getName(), contentHash, System.currentTimeMillis(), correlationId);
+    }
+
+    private String recordKey(String correlationId) {
+        return keyByCorrelationId ? correlationId : null;
+    }
+
+    public static void addCorrelationId(Headers headers, String correlationId) {
+        if (Objects.nonNull(correlationId) && Objects.isNull(headers.lastHeader(PayloadHeaders.CORRELATION_ID))) {
+            PayloadHeaders.add(headers, PayloadHeaders.CORRELATION_ID, correlationId);
+        }
+    }
+}
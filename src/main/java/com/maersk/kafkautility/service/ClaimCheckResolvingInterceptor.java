@@ -0,0 +1,210 @@
+package com.maersk.kafkautility.service;
+
+import com.maersk.kafkautility.utils.DaemonThreadFactory;
+import com.maersk.kafkautility.utils.PayloadHeaders;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationContext;
+import org.springframework.kafka.KafkaException;
+import org.springframework.kafka.listener.BatchInterceptor;
+import org.springframework.kafka.listener.RecordInterceptor;
+import org.springframework.kafka.listener.adapter.RecordFilterStrategy;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Listener container interceptor that hands listeners resolved payloads instead of claim-check
+ * references. For a batch, every referenced blob is downloaded in parallel as soon as the batch
+ * is polled and the records are returned in offset order once all downloads finished; chunk
+ * fragments are fed to the {@link ChunkReassembler} and only the record completing a group is kept.
+ * The container still commits the offsets of the whole polled batch, which an interceptor cannot hold
+ * back, so a group cut short by a restart or rebalance fails the batch instead of vanishing silently.
+ * With a record filter set, records it discards are dropped on their metadata headers before any download.
+ * Register it with {@code factory.setBatchInterceptor(..)} or {@code factory.setRecordInterceptor(..)}.
+ */
+@Slf4j
+@Component
+public class ClaimCheckResolvingInterceptor<T> implements BatchInterceptor<String, T>, RecordInterceptor<String, T> {
+
+    @Autowired
+    private ApplicationContext context;
+
+    @Autowired
+    private AzureBlobService<T> azureBlobService;
+
+    @Autowired
+    private ChunkReassembler chunkReassembler;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private static final String PREFETCH_THREADS = "${events-payload.prefetch.threads:8}";
+    private static final String PREFETCH_TIMEOUT = "${events-payload.prefetch.timeout-ms:60000}";
+
+    private ExecutorService prefetchExecutor;
+    private long timeoutMillis;
+    private Counter resolved;
+    private RecordFilterStrategy<String, T> recordFilter;
+
+    @PostConstruct
+    public void init() {
+        var environment = context.getEnvironment();
+        int threads = Integer.parseInt(environment.resolvePlaceholders(PREFETCH_THREADS));
+        timeoutMillis = Long.parseLong(environment.resolvePlaceholders(PREFETCH_TIMEOUT));
+        prefetchExecutor = Executors.newFixedThreadPool(threads, new DaemonThreadFactory("claimcheck-prefetch"));
+        resolved = Counter.builder("claimcheck.prefetch.resolved").description("Claim-check references resolved by the listener interceptor").register(meterRegistry);
+    }
+
+    public void setRecordFilter(RecordFilterStrategy<String, T> recordFilter) {
+        this.recordFilter = recordFilter;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        prefetchExecutor.shutdownNow();
+    }
+
+    @Override
+    public ConsumerRecords<String, T> intercept(ConsumerRecords<String, T> records, Consumer<String, T> consumer) {
+        Map<String, CompletableFuture<T>> downloads = new HashMap<>();
+        boolean hasChunks = false;
+        boolean hasFiltered = false;
+        for (ConsumerRecord<String, T> consumerRecord : records) {
+            if (isFiltered(consumerRecord)) {
+                hasFiltered = true;
+            } else if (isClaimCheck(consumerRecord)) {
+                downloads.computeIfAbsent(String.valueOf(consumerRecord.value()), this::download);
+            } else if (ChunkReassembler.isChunk(consumerRecord.headers())) {
+                hasChunks = true;
+            }
+        }
+        if (downloads.isEmpty() && !hasChunks && !hasFiltered) {
+            return records;
+        }
+        awaitAll(downloads);
+        Map<TopicPartition, List<ConsumerRecord<String, T>>> resolvedRecords = new LinkedHashMap<>();
+        for (TopicPartition partition : records.partitions()) {
+            List<ConsumerRecord<String, T>> partitionRecords = new ArrayList<>();
+            for (ConsumerRecord<String, T> consumerRecord : records.records(partition)) {
+                if (isFiltered(consumerRecord)) {
+                    continue;
+                }
+                var resolvedRecord = isClaimCheck(consumerRecord)
+                        ? withValue(consumerRecord, downloads.get(String.valueOf(consumerRecord.value())).join())
+                        : resolveChunk(consumerRecord);
+                if (Objects.nonNull(resolvedRecord)) {
+                    partitionRecords.add(resolvedRecord);
+                }
+            }
+            resolvedRecords.put(partition, partitionRecords);
+        }
+        resolved.increment(downloads.size());
+        return new ConsumerRecords<>(resolvedRecords);
+    }
+
+    @Override
+    public ConsumerRecord<String, T> intercept(ConsumerRecord<String, T> consumerRecord, Consumer<String, T> consumer) {
+        if (isFiltered(consumerRecord)) {
+            return null;
+        }
+        if (isClaimCheck(consumerRecord)) {
+            var downloads = Map.of(String.valueOf(consumerRecord.value()), download(String.valueOf(consumerRecord.value())));
+            awaitAll(downloads);
+            resolved.increment();
+            return withValue(consumerRecord, downloads.values().iterator().next().join());
+        }
+        return resolveChunk(consumerRecord);
+    }
+
+    /**
+     * Only declared because spring-kafka 2.8 still makes it abstract; containers call
+     * {@link #intercept(ConsumerRecord, Consumer)}.
+     */
+    @Override
+    @Deprecated
+    public ConsumerRecord<String, T> intercept(ConsumerRecord<String, T> consumerRecord) {
+        return intercept(consumerRecord, null);
+    }
+
+    private boolean isFiltered(ConsumerRecord<String, T> consumerRecord) {
+        return Objects.nonNull(recordFilter) && recordFilter.filter(consumerRecord);
+    }
+
+    private static boolean isClaimCheck(ConsumerRecord<String, ?> consumerRecord) {
+        return "YES".equals(PayloadHeaders.lastValue(consumerRecord.headers(), PayloadHeaders.IS_LARGE_PAYLOAD));
+    }
+
+    private CompletableFuture<T> download(String blobReference) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                var payload = azureBlobService.readPayloadFromBlob(blobReference);
+                if (Objects.isNull(payload)) {
+                    throw new KafkaException("Claim-check payload could not be read: " + blobReference);
+                }
+                return payload;
+            } catch (KafkaException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new KafkaException("Exception while downloading claim-check payload " + blobReference, e);
+            }
+        }, prefetchExecutor);
+    }
+
+    private void awaitAll(Map<String, CompletableFuture<T>> downloads) {
+        try {
+            CompletableFuture.allOf(downloads.values().toArray(new CompletableFuture[0])).get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new KafkaException("Interrupted while resolving claim-check payloads", e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof KafkaException ? (KafkaException) e.getCause() : new KafkaException("Exception while resolving claim-check payloads", e.getCause());
+        } catch (TimeoutException e) {
+            downloads.values().forEach(download -> download.cancel(true));
+            throw new KafkaException("Timed out resolving " + downloads.size() + " claim-check payloads", e);
+        }
+    }
+
+    private ConsumerRecord<String, T> resolveChunk(ConsumerRecord<String, T> consumerRecord) {
+        if (!ChunkReassembler.isChunk(consumerRecord.headers())) {
+            return consumerRecord;
+        }
+        if (!(consumerRecord.value() instanceof byte[])) {
+            throw new KafkaException("Chunk record " + consumerRecord.topic() + "-" + consumerRecord.partition() + "@" + consumerRecord.offset()
+                    + " has a " + (Objects.isNull(consumerRecord.value()) ? "null" : consumerRecord.value().getClass().getName())
+                    + " value instead of the byte[] fragment, consume it with PayloadCodecDeserializer or ByteArrayDeserializer");
+        }
+        try {
+            var payload = chunkReassembler.accept(consumerRecord.headers(), (byte[]) consumerRecord.value());
+            return Objects.isNull(payload) ? null : withValue(consumerRecord, (T) payload);
+        } catch (Exception e) {
+            throw new KafkaException("Exception while reassembling chunked payload", e);
+        }
+    }
+
+    private static <T> ConsumerRecord<String, T> withValue(ConsumerRecord<String, T> consumerRecord, T value) {
+        return new ConsumerRecord<>(consumerRecord.topic(), consumerRecord.partition(), consumerRecord.offset(),
+                consumerRecord.timestamp(), consumerRecord.timestampType(), consumerRecord.serializedKeySize(),
+                consumerRecord.serializedValueSize(), consumerRecord.key(), value, consumerRecord.headers(),
+                consumerRecord.leaderEpoch());
+    }
+}
@@ -0,0 +1,66 @@
+package com.maersk.kafkautility.service;
+
+import com.maersk.kafkautility.utils.ClaimCheckMetadata;
+import org.apache.kafka.common.header.Headers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Predicate;
+
+/**
+ * Picks a route for a record from its {@link ClaimCheckMetadata} alone, e.g. a handler, an executor
+ * or a priority lane. Rules are evaluated in the order they were added and the first match wins;
+ * records without metadata or matching no rule get the default route.
+ */
+public class ClaimCheckRouter<R> {
+
+    private final List<Rule<R>> rules = new ArrayList<>();
+    private final R defaultRoute;
+
+    public ClaimCheckRouter(R defaultRoute)
+    {
+        this.defaultRoute = defaultRoute;
+    }
+
+    public ClaimCheckRouter<R> when(Predicate<ClaimCheckMetadata> condition, R route)
+    {
+        rules.add(new Rule<>(condition, route));
+        return this;
+    }
+
+    public ClaimCheckRouter<R> whenType(Class<?> payloadType, R route)
+    {
+        return when(metadata -> payloadType.getName().equals(metadata.getPayloadType()), route);
+    }
+
+    public ClaimCheckRouter<R> whenLargerThan(long encodedSize, R route)
+    {
+        return when(metadata -> metadata.getEncodedSize() > encodedSize, route);
+    }
+
+    public R route(Headers headers)
+    {
+        var metadata = ClaimCheckMetadata.from(headers);
+        if (Objects.isNull(metadata)) {
+            return defaultRoute;
+        }
+        for (Rule<R> rule : rules) {
+            if (rule.condition.test(metadata)) {
+                return rule.route;
+            }
+        }
+        return defaultRoute;
+    }
+
+    private static final class Rule<R> {
+        private final Predicate<ClaimCheckMetadata> condition;
+        private final R route;
+
+        private Rule(Predicate<ClaimCheckMetadata> condition, R route)
+        {
+            this.condition = condition;
+            this.route = route;
+        }
+    }
+}
@@ -0,0 +1,331 @@
+package com.maersk.kafkautility.service;
+
+import com.maersk.kafkautility.utils.ByteBufferInputStream;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only local spool for payloads that could not be offloaded while blob storage was
+ * unavailable. Entries go to fixed-size memory-mapped segment files as
+ * {@code [int length][int crc32][body]}, the length written last so a torn write is never read
+ * back. A mapped checkpoint file holds the read position, so entries survive a restart and are
+ * drained in the order they were spooled; a segment file is deleted once it has been read past.
+ */
+@Slf4j
+@Component
+public class ClaimCheckSpool {
+
+    @Autowired
+    private ApplicationContext context;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private static final String SPOOL_ENABLED = "${events-payload.spool.enabled:false}";
+    private static final String SPOOL_DIRECTORY = "${events-payload.spool.directory:${java.io.tmpdir}/claimcheck-spool}";
+    private static final String SPOOL_SEGMENT_BYTES = "${events-payload.spool.segment-bytes:67108864}";
+    private static final String SPOOL_MAX_BYTES = "${events-payload.spool.max-bytes:1073741824}";
+    private static final String SPOOL_FORCE_ON_APPEND = "${events-payload.spool.force-on-append:false}";
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".spool";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+    private static final int ENTRY_HEADER_BYTES = 8;
+
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+    private final Map<Long, CompletableFuture<Object>> published = new ConcurrentHashMap<>();
+
+    private boolean enabled;
+    private Path directory;
+    private int segmentBytes;
+    private long maxBytes;
+    private boolean forceOnAppend;
+    private FileChannel checkpointChannel;
+    private MappedByteBuffer checkpoint;
+    private long readSegment;
+    private int readPosition;
+    private int peekedLength;
+    private long pendingEntries;
+
+    @PostConstruct
+    public void init() throws IOException {
+        var environment = context.getEnvironment();
+        enabled = Boolean.parseBoolean(environment.resolvePlaceholders(SPOOL_ENABLED));
+        if (!enabled) {
+            return;
+        }
+        directory = Paths.get(environment.resolvePlaceholders(SPOOL_DIRECTORY));
+        segmentBytes = Integer.parseInt(environment.resolvePlaceholders(SPOOL_SEGMENT_BYTES));
+        maxBytes = Long.parseLong(environment.resolvePlaceholders(SPOOL_MAX_BYTES));
+        forceOnAppend = Boolean.parseBoolean(environment.resolvePlaceholders(SPOOL_FORCE_ON_APPEND));
+        Files.createDirectories(directory);
+        recover();
+        Gauge.builder("claimcheck.spool.pending", this, ClaimCheckSpool::getPendingEntries).description("Payloads waiting in the local spool").register(meterRegistry);
+        Gauge.builder("claimcheck.spool.segments", segments, TreeMap::size).description("Local spool segment files").register(meterRegistry);
+        log.info("Claim-check spool enabled in {}, {} entries pending", directory, pendingEntries);
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (!enabled) {
+            return;
+        }
+        for (Segment segment : segments.values()) {
+            segment.close();
+        }
+        segments.clear();
+        checkpoint.force();
+        try {
+            checkpointChannel.close();
+        } catch (IOException e) {
+            log.warn("Exception while closing spool checkpoint", e);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public synchronized long getPendingEntries() {
+        return pendingEntries;
+    }
+
+    /**
+     * Appends the payload; its id is assigned here and the template's id is ignored.
+     *
+     * @return completed by the drainer with the send result once the payload has been published
+     */
+    public CompletableFuture<Object> append(SpooledPayload payload) throws IOException {
+        var bytes = new ByteArrayOutputStream(payload.getEncodedPayload().length + 256);
+        try (var out = new DataOutputStream(bytes)) {
+            payload.writeTo(out);
+        }
+        byte[] body = bytes.toByteArray();
+        if (body.length > segmentBytes - ENTRY_HEADER_BYTES) {
+            throw new IOException("Payload of " + body.length + " bytes does not fit a spool segment of " + segmentBytes + " bytes");
+        }
+        var future = new CompletableFuture<Object>();
+        synchronized (this) {
+            var segment = segments.lastEntry().getValue();
+            if (segment.writePosition + ENTRY_HEADER_BYTES + body.length > segmentBytes) {
+                if ((long) (segments.size() + 1) * segmentBytes > maxBytes) {
+                    throw new IOException("Claim-check spool full at " + segments.size() + " segments");
+                }
+                segment.buffer.force();
+                segment = openSegment(segment.sequence + 1);
+            }
+            int position = segment.writePosition;
+            var crc = new CRC32();
+            crc.update(body);
+            segment.buffer.duplicate().position(position + ENTRY_HEADER_BYTES).put(body);
+            segment.buffer.putInt(position + 4, (int) crc.getValue());
+            segment.buffer.putInt(position, body.length);
+            if (forceOnAppend) {
+                segment.buffer.force();
+            }
+            segment.writePosition = position + ENTRY_HEADER_BYTES + body.length;
+            published.put(entryId(segment.sequence, position), future);
+            pendingEntries++;
+            notifyAll();
+        }
+        return future;
+    }
+
+    /**
+     * @return the oldest entry not yet acknowledged, or null if the spool is drained
+     */
+    public synchronized SpooledPayload peek() {
+        while (true) {
+            var segment = segments.get(readSegment);
+            int length = entryLength(segment, readPosition);
+            if (length > 0) {
+                var body = segment.buffer.duplicate().position(readPosition + ENTRY_HEADER_BYTES).limit(readPosition + ENTRY_HEADER_BYTES + length);
+                try (var in = new DataInputStream(new ByteBufferInputStream(body))) {
+                    peekedLength = length;
+                    return SpooledPayload.readFrom(entryId(readSegment, readPosition), in);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Corrupt spool entry at " + readSegment + ":" + readPosition, e);
+                }
+            }
+            if (readSegment == segments.lastKey()) {
+                return null;
+            }
+            segments.remove(readSegment).delete();
+            readSegment = segments.firstKey();
+            readPosition = 0;
+            writeCheckpoint();
+        }
+    }
+
+    /**
+     * Waits up to the timeout for an entry to be appended if the spool is drained.
+     */
+    public synchronized void awaitEntry(long timeoutMillis) throws InterruptedException {
+        if (pendingEntries == 0) {
+            wait(timeoutMillis);
+        }
+    }
+
+    /**
+     * Removes the entry returned by the last {@link #peek()} and completes its future, if the
+     * entry was spooled by this process.
+     */
+    public void acknowledge(SpooledPayload payload, Object result) {
+        advance(payload);
+        var future = published.remove(payload.getId());
+        if (Objects.nonNull(future)) {
+            future.complete(result);
+        }
+    }
+
+    public void reject(SpooledPayload payload, Throwable cause) {
+        advance(payload);
+        var future = published.remove(payload.getId());
+        if (Objects.nonNull(future)) {
+            future.completeExceptionally(cause);
+        }
+    }
+
+    private synchronized void advance(SpooledPayload payload) {
+        if (payload.getId() != entryId(readSegment, readPosition)) {
+            throw new IllegalStateException("Spool entry " + payload.getId() + " is not at the read position");
+        }
+        readPosition += ENTRY_HEADER_BYTES + peekedLength;
+        pendingEntries--;
+        writeCheckpoint();
+    }
+
+    private void writeCheckpoint() {
+        checkpoint.putLong(0, readSegment);
+        checkpoint.putInt(8, readPosition);
+        if (forceOnAppend) {
+            checkpoint.force();
+        }
+    }
+
+    private int entryLength(Segment segment, int position) {
+        if (position + ENTRY_HEADER_BYTES > segmentBytes) {
+            return 0;
+        }
+        int length = segment.buffer.getInt(position);
+        if (length <= 0 || position + ENTRY_HEADER_BYTES + length > segmentBytes) {
+            return 0;
+        }
+        var crc = new CRC32();
+        crc.update(segment.buffer.duplicate().position(position + ENTRY_HEADER_BYTES).limit(position + ENTRY_HEADER_BYTES + length));
+        return (int) crc.getValue() == segment.buffer.getInt(position + 4) ? length : 0;
+    }
+
+    private long entryId(long sequence, int position) {
+        return sequence * segmentBytes + position;
+    }
+
+    /**
+     * Maps existing segments, restores the read position from the checkpoint and finds the end
+     * of the last segment by scanning for the first missing or torn entry.
+     */
+    private void recover() throws IOException {
+        checkpointChannel = FileChannel.open(directory.resolve(CHECKPOINT_FILE), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        checkpoint = checkpointChannel.map(FileChannel.MapMode.READ_WRITE, 0, 16);
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                    .mapToLong(name -> Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())))
+                    .sorted()
+                    .forEach(sequence -> {
+                        try {
+                            openSegment(sequence);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+        }
+        if (segments.isEmpty()) {
+            openSegment(0);
+        }
+        readSegment = checkpoint.getLong(0);
+        readPosition = checkpoint.getInt(8);
+        if (!segments.containsKey(readSegment)) {
+            readSegment = segments.firstKey();
+            readPosition = 0;
+        }
+        var drained = segments.headMap(readSegment, false);
+        drained.values().forEach(Segment::delete);
+        drained.clear();
+        for (Segment segment : segments.tailMap(readSegment, true).values()) {
+            int position = segment.sequence == readSegment ? readPosition : 0;
+            int length;
+            while ((length = entryLength(segment, position)) > 0) {
+                position += ENTRY_HEADER_BYTES + length;
+                pendingEntries++;
+            }
+            segment.writePosition = position;
+        }
+        writeCheckpoint();
+    }
+
+    private Segment openSegment(long sequence) throws IOException {
+        var file = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, sequence, SEGMENT_SUFFIX));
+        var channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        var segment = new Segment(sequence, file, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes));
+        segments.put(sequence, segment);
+        return segment;
+    }
+
+    private static final class Segment {
+        private final long sequence;
+        private final Path file;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private int writePosition;
+
+        private Segment(long sequence, Path file, FileChannel channel, MappedByteBuffer buffer) {
+            this.sequence = sequence;
+            this.file = file;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        private void close() {
+            buffer.force();
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.warn("Exception while closing spool segment {}", file, e);
+            }
+        }
+
+        private void delete() {
+            close();
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                log.warn("Exception while deleting drained spool segment {}", file, e);
+            }
+        }
+    }
+}
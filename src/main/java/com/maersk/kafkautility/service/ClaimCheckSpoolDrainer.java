@@ -0,0 +1,130 @@
+package com.maersk.kafkautility.service;
+
+import com.maersk.kafkautility.exception.ClaimCheckUnavailableException;
+import com.maersk.kafkautility.utils.DaemonThreadFactory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Background thread that empties the {@link ClaimCheckSpool} once the circuit breaker lets storage
+ * calls through again: each entry is uploaded, its record published, and only then removed from
+ * the spool, so a crash in between publishes it again rather than losing it. Entries are drained
+ * strictly in order; a failing entry is retried with backoff and given up after max-attempts.
+ */
+@Slf4j
+@Component
+public class ClaimCheckSpoolDrainer<T> implements SmartLifecycle {
+
+    @Autowired
+    private ApplicationContext context;
+
+    @Autowired
+    private ClaimCheckSpool claimCheckSpool;
+
+    @Autowired
+    private AzureBlobService<T> azureBlobService;
+
+    @Autowired
+    private MessagePublishHandler<T> messagePublishHandler;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private static final String DRAIN_IDLE_WAIT = "${events-payload.spool.drain.idle-wait-ms:1000}";
+    private static final String DRAIN_BACKOFF = "${events-payload.spool.drain.backoff-ms:1000}";
+    private static final String DRAIN_MAX_BACKOFF = "${events-payload.spool.drain.max-backoff-ms:60000}";
+    private static final String DRAIN_MAX_ATTEMPTS = "${events-payload.spool.drain.max-attempts:20}";
+
+    private volatile boolean running;
+    private Thread drainThread;
+    private long idleWaitMillis;
+    private long backoffMillis;
+    private long maxBackoffMillis;
+    private int maxAttempts;
+    private Counter drained;
+    private Counter abandoned;
+
+    @Override
+    public synchronized void start() {
+        if (!claimCheckSpool.isEnabled()) {
+            return;
+        }
+        var environment = context.getEnvironment();
+        idleWaitMillis = Long.parseLong(environment.resolvePlaceholders(DRAIN_IDLE_WAIT));
+        backoffMillis = Long.parseLong(environment.resolvePlaceholders(DRAIN_BACKOFF));
+        maxBackoffMillis = Long.parseLong(environment.resolvePlaceholders(DRAIN_MAX_BACKOFF));
+        maxAttempts = Integer.parseInt(environment.resolvePlaceholders(DRAIN_MAX_ATTEMPTS));
+        drained = Counter.builder("claimcheck.spool.drained").description("Spooled payloads uploaded and published").register(meterRegistry);
+        abandoned = Counter.builder("claimcheck.spool.abandoned").description("Spooled payloads given up after max attempts").register(meterRegistry);
+        running = true;
+        drainThread = new DaemonThreadFactory("claimcheck-spool-drain").newThread(this::drain);
+        drainThread.start();
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        if (Objects.isNull(drainThread)) {
+            return;
+        }
+        drainThread.interrupt();
+        try {
+            drainThread.join(idleWaitMillis + 5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        drainThread = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void drain() {
+        int attempts = 0;
+        try {
+            while (running) {
+                var spooled = claimCheckSpool.peek();
+                if (Objects.isNull(spooled)) {
+                    claimCheckSpool.awaitEntry(idleWaitMillis);
+                    continue;
+                }
+                try {
+                    var producerRecord = azureBlobService.storeSpooledPayload(spooled);
+                    var result = messagePublishHandler.publishAsync(producerRecord).get();
+                    claimCheckSpool.acknowledge(spooled, result);
+                    drained.increment();
+                    attempts = 0;
+                } catch (InterruptedException e) {
+                    throw e;
+                } catch (ClaimCheckUnavailableException e) {
+                    Thread.sleep(backoffMillis);
+                } catch (Exception e) {
+                    attempts++;
+                    if (attempts >= maxAttempts) {
+                        log.error("Giving up spooled payload {} for topic {} after {} attempts", spooled.getId(), spooled.getTopic(), attempts, e);
+                        claimCheckSpool.reject(spooled, e instanceof ExecutionException ? e.getCause() : e);
+                        abandoned.increment();
+                        attempts = 0;
+                        continue;
+                    }
+                    log.warn("Draining spooled payload {} failed, attempt {} of {}", spooled.getId(), attempts, maxAttempts, e);
+                    Thread.sleep(Math.min(maxBackoffMillis, backoffMillis << Math.min(attempts - 1, 16)));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("Claim-check spool drainer stopped", e);
+        }
+    }
+}
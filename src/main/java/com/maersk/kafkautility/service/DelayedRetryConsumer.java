@@ -0,0 +1,322 @@
+package com.maersk.kafkautility.service;
+
+import com.maersk.kafkautility.utils.DaemonThreadFactory;
+import com.maersk.kafkautility.utils.PayloadHeaders;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Consumes the delayed retry tiers and republishes each record to its original topic once its
+ * retryDueAt header has passed. A partition whose head record is not due yet is paused and
+ * rewound rather than blocking the thread, so one poll loop per tier serves all its partitions.
+ * A worker whose consumer fails is restarted with a growing backoff, resuming from the committed
+ * offsets.
+ */
+@Slf4j
+@Component
+public class DelayedRetryConsumer<T> implements SmartLifecycle {
+
+    @Autowired
+    private ApplicationContext context;
+
+    @Autowired(required = false)
+    private ConsumerFactory<String, T> consumerFactory;
+
+    @Autowired
+    private MessagePublishHandler<T> messagePublishHandler;
+
+    @Autowired
+    private RetryTopicRouter retryTopicRouter;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private static final String RETRY_CONSUMER_ENABLED = "${kafka.retry.consumer.enabled:false}";
+    private static final String RETRY_CONSUMER_GROUP_ID = "${kafka.retry.consumer.group-id:kafka-utility-retry}";
+    private static final String RETRY_CONSUMER_POLL_TIMEOUT = "${kafka.retry.consumer.poll-timeout-ms:1000}";
+    private static final String RETRY_TARGET_TOPIC = "${kafka.retry.target-topic:}";
+    private static final String RETRY_CONSUMER_RESTART_BACKOFF = "${kafka.retry.consumer.restart-backoff-ms:1000}";
+    private static final String RETRY_CONSUMER_MAX_RESTART_BACKOFF = "${kafka.retry.consumer.max-restart-backoff-ms:60000}";
+
+    private final List<TierWorker> workers = new ArrayList<>();
+    private final Map<TopicPartition, Long> pausedPartitions = new ConcurrentHashMap<>();
+    private volatile boolean running;
+    private CountDownLatch stopped = new CountDownLatch(0);
+
+    private String groupId;
+    private long pollTimeoutMillis;
+    private String defaultTargetTopic;
+    private long restartBackoffMillis;
+    private long maxRestartBackoffMillis;
+    private Counter republished;
+    private Counter unroutable;
+    private Counter restarts;
+
+    @Override
+    public synchronized void start() {
+        var environment = context.getEnvironment();
+        if (!Boolean.parseBoolean(environment.resolvePlaceholders(RETRY_CONSUMER_ENABLED))) {
+            return;
+        }
+        if (Objects.isNull(consumerFactory)) {
+            log.warn("Delayed retry consumer enabled but no ConsumerFactory is available, retry tiers will not be drained");
+            return;
+        }
+        groupId = environment.resolvePlaceholders(RETRY_CONSUMER_GROUP_ID);
+        pollTimeoutMillis = Long.parseLong(environment.resolvePlaceholders(RETRY_CONSUMER_POLL_TIMEOUT));
+        defaultTargetTopic = environment.resolvePlaceholders(RETRY_TARGET_TOPIC);
+        restartBackoffMillis = Long.parseLong(environment.resolvePlaceholders(RETRY_CONSUMER_RESTART_BACKOFF));
+        maxRestartBackoffMillis = Long.parseLong(environment.resolvePlaceholders(RETRY_CONSUMER_MAX_RESTART_BACKOFF));
+        republished = Counter.builder("kafka.retry.republished").description("Retried records republished to their original topic").register(meterRegistry);
+        unroutable = Counter.builder("kafka.retry.unroutable").description("Retried records dropped for lack of a target topic").register(meterRegistry);
+        restarts = Counter.builder("kafka.retry.consumer.restarts").description("Delayed retry consumers restarted after a failure").register(meterRegistry);
+        Gauge.builder("kafka.retry.paused.partitions", pausedPartitions, Map::size).description("Retry partitions paused until their next record is due").register(meterRegistry);
+        running = true;
+        stopped = new CountDownLatch(1);
+        var threadFactory = new DaemonThreadFactory("kafka-retry");
+        for (RetryTopicRouter.RetryTier tier : retryTopicRouter.getTiers()) {
+            var worker = new TierWorker(tier);
+            workers.add(worker);
+            worker.thread = threadFactory.newThread(worker);
+            worker.thread.start();
+            log.info("Delayed retry consumer started for tier: {}", tier);
+        }
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        stopped.countDown();
+        for (TierWorker worker : workers) {
+            worker.wakeup();
+        }
+        for (TierWorker worker : workers) {
+            try {
+                worker.thread.join(pollTimeoutMillis + 5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        workers.clear();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private class TierWorker implements Runnable, ConsumerRebalanceListener {
+        private final RetryTopicRouter.RetryTier tier;
+        private final Map<TopicPartition, Long> pausedUntil = new HashMap<>();
+        private volatile Consumer<String, T> consumer;
+        private Thread thread;
+
+        private TierWorker(RetryTopicRouter.RetryTier tier) {
+            this.tier = tier;
+        }
+
+        @Override
+        public void run() {
+            long backoff = restartBackoffMillis;
+            while (running) {
+                if (consume()) {
+                    backoff = restartBackoffMillis;
+                }
+                if (!running) {
+                    break;
+                }
+                log.info("Restarting delayed retry consumer for tier {} in {} ms", tier, backoff);
+                restarts.increment();
+                try {
+                    if (stopped.await(backoff, TimeUnit.MILLISECONDS)) {
+                        break;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                backoff = Math.min(maxRestartBackoffMillis, backoff * 2);
+            }
+        }
+
+        /**
+         * Runs one consumer until the worker is stopped or the consumer fails.
+         *
+         * @return whether any records were polled before it ended, so the restart backoff resets
+         */
+        private boolean consume() {
+            var overrides = new Properties();
+            overrides.setProperty(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false");
+            overrides.setProperty(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+            boolean polled = false;
+            try (Consumer<String, T> retryConsumer = consumerFactory.createConsumer(groupId, null, "-" + tier.getTopic(), overrides)) {
+                consumer = retryConsumer;
+                retryConsumer.subscribe(List.of(tier.getTopic()), this);
+                while (running) {
+                    long now = System.currentTimeMillis();
+                    resumeDuePartitions(now);
+                    ConsumerRecords<String, T> records = retryConsumer.poll(Duration.ofMillis(nextPollTimeout(now)));
+                    if (!records.isEmpty()) {
+                        polled = true;
+                        process(records);
+                    }
+                }
+            } catch (WakeupException e) {
+                if (running) {
+                    log.error("Unexpected wakeup of delayed retry consumer for tier: {}", tier, e);
+                }
+            } catch (Exception e) {
+                log.error("Delayed retry consumer for tier {} failed", tier, e);
+            } finally {
+                consumer = null;
+                pausedPartitions.keySet().removeAll(pausedUntil.keySet());
+                pausedUntil.clear();
+            }
+            return polled;
+        }
+
+        private void wakeup() {
+            var current = consumer;
+            if (Objects.nonNull(current)) {
+                current.wakeup();
+            }
+        }
+
+        /**
+         * Records in a tier share one delay, so they become due in offset order and the first
+         * record that is not due yet marks where the partition has to wait. When a republish
+         * fails every partition goes back to the first record of this batch, paused or not, so
+         * nothing that was polled is skipped; pausing only decides when it is read again.
+         */
+        private void process(ConsumerRecords<String, T> records) {
+            long now = System.currentTimeMillis();
+            Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+            Map<TopicPartition, Long> firstOffsets = new HashMap<>();
+            List<CompletableFuture<?>> sends = new ArrayList<>();
+            for (TopicPartition partition : records.partitions()) {
+                for (ConsumerRecord<String, T> consumerRecord : records.records(partition)) {
+                    firstOffsets.putIfAbsent(partition, consumerRecord.offset());
+                    long dueAt = PayloadHeaders.lastLongValue(consumerRecord.headers(), PayloadHeaders.RETRY_DUE_AT, 0);
+                    if (dueAt > now) {
+                        pause(partition, consumerRecord.offset(), dueAt);
+                        break;
+                    }
+                    var producerRecord = toOriginalTopic(consumerRecord);
+                    if (Objects.nonNull(producerRecord)) {
+                        sends.add(messagePublishHandler.publishAsync(producerRecord).thenRun(republished::increment));
+                    }
+                    offsets.put(partition, new OffsetAndMetadata(consumerRecord.offset() + 1));
+                }
+            }
+            try {
+                CompletableFuture.allOf(sends.toArray(new CompletableFuture[0])).join();
+            } catch (Exception e) {
+                log.error("Republishing retried records from tier {} failed, rewinding", tier, e);
+                firstOffsets.forEach(consumer::seek);
+                return;
+            }
+            if (!offsets.isEmpty()) {
+                consumer.commitSync(offsets);
+            }
+        }
+
+        /**
+         * The value is republished as consumed, so its claim-check headers still apply. Only an
+         * inline value is serialized again, which records its codec and type anew.
+         */
+        private ProducerRecord<String, T> toOriginalTopic(ConsumerRecord<String, T> consumerRecord) {
+            String targetTopic = PayloadHeaders.lastValue(consumerRecord.headers(), PayloadHeaders.RETRY_ORIGINAL_TOPIC);
+            if (Objects.isNull(targetTopic)) {
+                targetTopic = defaultTargetTopic;
+            }
+            if (targetTopic.isEmpty()) {
+                unroutable.increment();
+                log.error("No original topic for retried record {}-{}@{}, dropping", consumerRecord.topic(), consumerRecord.partition(), consumerRecord.offset());
+                return null;
+            }
+            boolean reference = "YES".equals(PayloadHeaders.lastValue(consumerRecord.headers(), PayloadHeaders.IS_LARGE_PAYLOAD));
+            var headers = new RecordHeaders();
+            for (Header header : consumerRecord.headers()) {
+                if (PayloadHeaders.RETRY_DUE_AT.equals(header.key())) {
+                    continue;
+                }
+                if (!reference && (PayloadHeaders.PAYLOAD_CODEC.equals(header.key()) || PayloadHeaders.PAYLOAD_TYPE.equals(header.key()))) {
+                    continue;
+                }
+                headers.add(header);
+            }
+            return new ProducerRecord<>(targetTopic, null, consumerRecord.key(), consumerRecord.value(), headers);
+        }
+
+        private void pause(TopicPartition partition, long offset, long dueAt) {
+            consumer.pause(Set.of(partition));
+            consumer.seek(partition, offset);
+            pausedUntil.put(partition, dueAt);
+            pausedPartitions.put(partition, dueAt);
+        }
+
+        private void resumeDuePartitions(long now) {
+            var iterator = pausedUntil.entrySet().iterator();
+            while (iterator.hasNext()) {
+                var paused = iterator.next();
+                if (paused.getValue() <= now) {
+                    consumer.resume(Set.of(paused.getKey()));
+                    pausedPartitions.remove(paused.getKey());
+                    iterator.remove();
+                }
+            }
+        }
+
+        private long nextPollTimeout(long now) {
+            long timeout = pollTimeoutMillis;
+            for (long dueAt : pausedUntil.values()) {
+                timeout = Math.min(timeout, Math.max(0, dueAt - now));
+            }
+            return timeout;
+        }
+
+        @Override
+        public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+            pausedUntil.keySet().removeAll(partitions);
+            pausedPartitions.keySet().removeAll(partitions);
+        }
+
+        @Override
+        public void onPartitionsAssigned(Collection<TopicPartition> partitions) {
+            // newly assigned partitions start unpaused and are paused again on their first early record
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.maersk.kafkautility.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.AutoConfigureBefore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.kafka.DefaultKafkaProducerFactoryCustomizer;
+import org.springframework.boot.autoconfigure.kafka.KafkaAutoConfiguration;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.ProducerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Producer factory with throughput-oriented batching defaults, used in place of Spring Boot's
+ * when {@code kafka.producer.adaptive.enabled=true} and the application defines none itself.
+ * Anything set under {@code spring.kafka.producer.*} wins over these defaults; the
+ * {@link ProducerBatchingController} then moves linger.ms and batch.size with the load.
+ */
+@Slf4j
+@Configuration(proxyBeanMethods = false)
+@AutoConfigureBefore(KafkaAutoConfiguration.class)
+@ConditionalOnProperty(name = "kafka.producer.adaptive.enabled", havingValue = "true")
+@EnableConfigurationProperties(KafkaProperties.class)
+public class KafkaProducerFactoryConfiguration {
+
+    private static final Map<String, Object> THROUGHPUT_DEFAULTS = Map.of(
+            ProducerConfig.LINGER_MS_CONFIG, 20,
+            ProducerConfig.BATCH_SIZE_CONFIG, 131072,
+            ProducerConfig.COMPRESSION_TYPE_CONFIG, "lz4",
+            ProducerConfig.BUFFER_MEMORY_CONFIG, 67108864L);
+
+    @Bean
+    @ConditionalOnMissingBean(ProducerFactory.class)
+    public DefaultKafkaProducerFactory<?, ?> kafkaProducerFactory(KafkaProperties properties,
+                                                                 ObjectProvider<DefaultKafkaProducerFactoryCustomizer> customizers) {
+        Map<String, Object> configs = new HashMap<>(THROUGHPUT_DEFAULTS);
+        configs.putAll(properties.buildProducerProperties());
+        var factory = new DefaultKafkaProducerFactory<>(configs);
+        String transactionIdPrefix = properties.getProducer().getTransactionIdPrefix();
+        if (Objects.nonNull(transactionIdPrefix)) {
+            factory.setTransactionIdPrefix(transactionIdPrefix);
+        }
+        customizers.orderedStream().forEach(customizer -> customizer.customize(factory));
+        log.info("Adaptive producer factory created, linger.ms: {}, batch.size: {}, compression: {}",
+                configs.get(ProducerConfig.LINGER_MS_CONFIG), configs.get(ProducerConfig.BATCH_SIZE_CONFIG), configs.get(ProducerConfig.COMPRESSION_TYPE_CONFIG));
+        return factory;
+    }
+}
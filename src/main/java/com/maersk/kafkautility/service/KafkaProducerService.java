@@ -2,14 +2,22 @@ package com.maersk.kafkautility.service;
 
 import com.microsoft.azure.storage.StorageException;
 import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.kafka.support.SendResult;
 
 import java.io.IOException;
 import java.net.URISyntaxException;
 import java.security.InvalidKeyException;
+import java.util.concurrent.CompletableFuture;
 
 public interface KafkaProducerService <T> {
 
     ProducerRecord<String, String> getProducerRecord(T payload) throws URISyntaxException, IOException, InvalidKeyException, StorageException;
 
     ProducerRecord<String, T> readProducerRecord(T payload) throws URISyntaxException, IOException, InvalidKeyException, StorageException;
+
+    CompletableFuture<SendResult<String, T>> sendAsync(T payload);
+
+    CompletableFuture<SendResult<String, T>> sendAsync(String topic, T payload);
+
+    CompletableFuture<SendResult<String, T>> sendAsync(String topic, T payload, String correlationId);
 }
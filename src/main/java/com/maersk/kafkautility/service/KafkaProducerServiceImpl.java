@@ -1,27 +1,28 @@
 package com.maersk.kafkautility.service;
 
+import com.maersk.kafkautility.exception.ClaimCheckSpooledException;
 import com.maersk.kafkautility.utils.AzureUtil;
-import com.microsoft.azure.storage.CloudStorageAccount;
 import com.microsoft.azure.storage.StorageException;
-import com.microsoft.azure.storage.blob.CloudBlobClient;
 import com.microsoft.azure.storage.blob.CloudBlobContainer;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.producer.ProducerRecord;
-import org.openjdk.jol.vm.VM;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationContext;
+import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
-import java.io.Serializable;
 import java.net.URISyntaxException;
-import java.nio.charset.StandardCharsets;
 import java.security.InvalidKeyException;
-import java.util.UUID;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
 
 @Slf4j
 @Service
-public class KafkaProducerServiceImpl<T extends Serializable> implements KafkaProducerService<T> {
+public class KafkaProducerServiceImpl<T> implements KafkaProducerService<T> {
 
     @Autowired
     private ApplicationContext context;
@@ -29,14 +30,14 @@ public class KafkaProducerServiceImpl<T extends Serializable> implements KafkaPr
     @Autowired
     private AzureBlobService<T> azureBlobService;
 
+    @Autowired
+    private AzureBlobClientProvider azureBlobClientProvider;
+
+    @Autowired
+    private MessagePublishHandler<T> messagePublishHandler;
+
     private static final String PRODUCER_TOPIC_NAME = "${kafka.notification.topic}";
-    private static final String PAYLOAD_SIZE = "${events-payload.max-bytes}";
     private static final String PAYLOAD_FILE_NAME = "${events-payload.file-name}";
-    private static final String AZURE_STORAGE_ACCOUNT_NAME = "${azure.storage.account-name}";
-    private static final String AZURE_STORAGE_ACCOUNT_KEY = "${azure.storage.account-key}";
-    private static final String AZURE_STORAGE_CONTAINER_NAME = "${azure.storage.container-name}";
-    private static final String AZURE_STORAGE_ENDPOINT_SUFFIX = "${azure.storage.endpoint-suffix}";
-    private static final String CONNECTION_STRING = "DefaultEndpointsProtocol=https;AccountName=%s;AccountKey=%s;EndpointSuffix=%s";
 
     @Override
     public ProducerRecord<String, String> getProducerRecord(T payload) throws URISyntaxException, IOException, InvalidKeyException, StorageException {
@@ -56,20 +57,9 @@ public class KafkaProducerServiceImpl<T extends Serializable> implements KafkaPr
 
     @Override
     public ProducerRecord<String, T> readProducerRecord(T payload) throws URISyntaxException, IOException, InvalidKeyException, StorageException {
-        ProducerRecord<String, T> producerRecord = null;
         try {
             String producerTopic = context.getEnvironment().resolvePlaceholders(PRODUCER_TOPIC_NAME);
-            if (isLargePayload(payload)) {
-                log.info("Payload exceeds max configured size");
-                var containerDest = getCloudBlobContainer();
-                var blobUri = azureBlobService.writePayloadFileToBlob(payload, containerDest);
-                producerRecord = new ProducerRecord<>(producerTopic, (T) blobUri.toString());
-                producerRecord.headers().add("isLargePayload", "YES".getBytes(StandardCharsets.UTF_8));
-            } else {
-                producerRecord = new ProducerRecord<>(producerTopic, payload);
-                producerRecord.headers().add("isLargePayload", "NO".getBytes(StandardCharsets.UTF_8));
-            }
-            return producerRecord;
+            return azureBlobService.storePayloadToBlob(producerTopic, payload);
         }
         catch (Exception e)
         {
@@ -78,40 +68,56 @@ public class KafkaProducerServiceImpl<T extends Serializable> implements KafkaPr
         }
     }
 
-    private boolean isLargePayload(T payload)
-    {
-        var maxSize = context.getEnvironment().resolvePlaceholders(PAYLOAD_SIZE);
-        var payloadSize = VM.current().sizeOf(payload);
-        log.info("Payload size: {} bytes", payloadSize);
-        return payloadSize > Long.parseLong(maxSize);
+    @Override
+    public CompletableFuture<SendResult<String, T>> sendAsync(T payload) {
+        return sendAsync(context.getEnvironment().resolvePlaceholders(PRODUCER_TOPIC_NAME), payload);
     }
 
-    public CloudBlobContainer getCloudBlobContainer() throws StorageException, URISyntaxException, InvalidKeyException {
-        String containerName = context.getEnvironment().resolvePlaceholders(AZURE_STORAGE_CONTAINER_NAME);
-        log.info("containerName: {}", containerName);
-        CloudStorageAccount storageAccountDest = CloudStorageAccount.parse(getConnectionString());
-        CloudBlobClient blobClientDest = storageAccountDest.createCloudBlobClient();
-        CloudBlobContainer containerDest = blobClientDest.getContainerReference(containerName);
-        log.info("Container: {}", containerDest.getName());
-        return containerDest;
+    @Override
+    public CompletableFuture<SendResult<String, T>> sendAsync(String topic, T payload) {
+        return sendAsync(topic, payload, null);
     }
 
-    private String getConnectionString()
-    {
-        String storageAccountName = context.getEnvironment().resolvePlaceholders(AZURE_STORAGE_ACCOUNT_NAME);
-        String storageAccountKey = context.getEnvironment().resolvePlaceholders(AZURE_STORAGE_ACCOUNT_KEY);
-        String endpointSuffix = context.getEnvironment().resolvePlaceholders(AZURE_STORAGE_ENDPOINT_SUFFIX);
-        String connectionString = String.format(CONNECTION_STRING,storageAccountName,storageAccountKey,endpointSuffix);
-        log.info("Azure storage connection string: {}", connectionString);
-        return connectionString;
+    @Override
+    public CompletableFuture<SendResult<String, T>> sendAsync(String topic, T payload, String correlationId) {
+        return azureBlobService.storePayloadRecordsAsync(topic, payload, correlationId)
+                .<CompletableFuture<SendResult<String, T>>>handle((producerRecords, ex) -> Objects.isNull(ex) ? publishRecords(producerRecords) : whenSpooled(ex))
+                .thenCompose(Function.identity());
+    }
+
+    /**
+     * A payload spooled while blob storage is unavailable completes once the spool drainer has
+     * published it; any other failure is passed on.
+     */
+    private CompletableFuture<SendResult<String, T>> whenSpooled(Throwable ex) {
+        var cause = ex instanceof CompletionException && Objects.nonNull(ex.getCause()) ? ex.getCause() : ex;
+        if (cause instanceof ClaimCheckSpooledException) {
+            return ((ClaimCheckSpooledException) cause).getPublished().thenApply(result -> (SendResult<String, T>) result);
+        }
+        return CompletableFuture.failedFuture(cause);
+    }
+
+    /**
+     * Publishes a single record directly, or all fragments of a chunked payload, completing with
+     * the result of the last fragment once every fragment is acknowledged.
+     */
+    private CompletableFuture<SendResult<String, T>> publishRecords(List<ProducerRecord<String, T>> producerRecords) {
+        if (producerRecords.size() == 1) {
+            return messagePublishHandler.publishAsync(producerRecords.get(0));
+        }
+        return messagePublishHandler.publishAll(producerRecords)
+                .thenCompose(result -> result.isSuccess()
+                        ? CompletableFuture.completedFuture(result.getSucceeded().get(result.getSucceeded().size() - 1))
+                        : CompletableFuture.failedFuture(result.getFailed().get(0).getException()));
+    }
+
+    public CloudBlobContainer getCloudBlobContainer() throws StorageException, URISyntaxException, InvalidKeyException {
+        return azureBlobClientProvider.getContainer();
     }
 
     public String getPayloadFilename()
     {
-        String fileName = context.getEnvironment().resolvePlaceholders(PAYLOAD_FILE_NAME);
-        fileName = fileName.concat("_").concat(UUID.randomUUID().toString()).concat(".dat");
-        log.info("Payload file name: {}", fileName);
-        return fileName;
+        return AzureUtil.getPayloadFilename(context.getEnvironment().resolvePlaceholders(PAYLOAD_FILE_NAME));
     }
 
 }
@@ -0,0 +1,271 @@
+package com.maersk.kafkautility.service;
+
+import com.maersk.kafkautility.codec.PayloadCodec;
+import com.maersk.kafkautility.codec.PayloadCodecs;
+import com.maersk.kafkautility.compression.NoneCompressor;
+import com.maersk.kafkautility.compression.PayloadCompressor;
+import com.maersk.kafkautility.compression.PayloadCompressors;
+import com.maersk.kafkautility.utils.ByteBufferInputStream;
+import com.maersk.kafkautility.utils.PayloadBuffer;
+import com.maersk.kafkautility.utils.PayloadHeaders;
+import com.microsoft.azure.storage.blob.CloudBlobContainer;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Headers;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationContext;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * {@link AzureBlobService} backed by the {@link LocalClaimCheckStore} instead of Azure, selected
+ * with {@code events-payload.store=local}. References are {@code local:<id>}; records carry the
+ * same claim-check headers as with Azure, so consumers resolve them through the same contract.
+ * Chunking and streaming upload do not apply to a local append, and there is nothing to spool to:
+ * {@link #spoolPayload} appends and publishes right away.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "events-payload.store", havingValue = "local")
+public class LocalBlobServiceImpl<T> implements AzureBlobService<T> {
+
+    @Autowired
+    private ApplicationContext context;
+
+    @Autowired
+    private LocalClaimCheckStore localClaimCheckStore;
+
+    @Autowired
+    private ClaimCheckIoExecutor claimCheckIoExecutor;
+
+    @Autowired
+    private MessagePublishHandler<T> messagePublishHandler;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired(required = false)
+    private ProducerFactory<?, ?> producerFactory;
+
+    private static final String PAYLOAD_SIZE = "${events-payload.max-bytes:1000000}";
+    private static final String PAYLOAD_CODEC = "${events-payload.codec:java}";
+    private static final String PAYLOAD_COMPRESSION = "${events-payload.compression:none}";
+    private static final String KEY_BY_CORRELATION_ID = "${kafka.producer.key-by-correlation-id:false}";
+    private static final String REFERENCE_SCHEME = "local";
+
+    private long maxPayloadBytes;
+    private PayloadCodec payloadCodec;
+    private PayloadCompressor payloadCompressor;
+    private ClaimCheckRecords<T> records;
+    private DistributionSummary offloadedPayloadBytes;
+
+    @PostConstruct
+    public void init() {
+        var environment = context.getEnvironment();
+        maxPayloadBytes = Long.parseLong(environment.resolvePlaceholders(PAYLOAD_SIZE));
+        payloadCodec = PayloadCodecs.forName(environment.resolvePlaceholders(PAYLOAD_CODEC));
+        payloadCompressor = PayloadCompressors.forName(environment.resolvePlaceholders(PAYLOAD_COMPRESSION));
+        boolean keyByCorrelationId = Boolean.parseBoolean(environment.resolvePlaceholders(KEY_BY_CORRELATION_ID));
+        records = new ClaimCheckRecords<>(payloadCodec, payloadCompressor, keyByCorrelationId, producerFactory, meterRegistry);
+        offloadedPayloadBytes = records.payloadBytesSummary("offloaded");
+        log.info("Local claim-check backend, codec: {}, compression: {}", payloadCodec.getName(), payloadCompressor.getName());
+    }
+
+    @Override
+    public String writePayloadToBlob(T payload) throws IOException {
+        return writePayloadFileToBlob(payload, null).toString();
+    }
+
+    @Override
+    public ProducerRecord<String, T> storePayloadToBlob(String topic, T payload) throws IOException {
+        return storePayloadRecord(topic, payload, null);
+    }
+
+    @Override
+    public CompletableFuture<ProducerRecord<String, T>> storePayloadToBlobAsync(String topic, T payload) {
+        return claimCheckIoExecutor.submit(() -> storePayloadToBlob(topic, payload));
+    }
+
+    @Override
+    public List<ProducerRecord<String, T>> storePayloadRecords(String topic, T payload) throws IOException {
+        return List.of(storePayloadRecord(topic, payload, null));
+    }
+
+    @Override
+    public List<ProducerRecord<String, T>> storePayloadRecords(String topic, T payload, String correlationId) throws IOException {
+        return List.of(storePayloadRecord(topic, payload, correlationId));
+    }
+
+    @Override
+    public CompletableFuture<List<ProducerRecord<String, T>>> storePayloadRecordsAsync(String topic, T payload) {
+        return storePayloadRecordsAsync(topic, payload, null);
+    }
+
+    @Override
+    public CompletableFuture<List<ProducerRecord<String, T>>> storePayloadRecordsAsync(String topic, T payload, String correlationId) {
+        return claimCheckIoExecutor.submit(() -> storePayloadRecords(topic, payload, correlationId));
+    }
+
+    /**
+     * A foreign value serializer sizes inline payloads without encoding them, as on the Azure
+     * backend.
+     */
+    private ProducerRecord<String, T> storePayloadRecord(String topic, T payload, String correlationId) throws IOException {
+        if (records.hasForeignSerializer())
+        {
+            long serializedSize = records.serializedSize(topic, payload);
+            if (serializedSize <= maxPayloadBytes)
+            {
+                return records.inlineRecord(topic, payload, null, serializedSize, correlationId);
+            }
+        }
+        var buffer = records.encode(payload);
+        try {
+            if (!records.hasForeignSerializer() && buffer.size() <= maxPayloadBytes)
+            {
+                return records.inlineRecord(topic, payload, buffer, buffer.size(), correlationId);
+            }
+            log.info("Payload exceeds max configured size");
+            var reference = storeBytes(buffer, payload.getClass().getName());
+            return records.offloadedRecord(topic, reference, payload.getClass().getName(), buffer.size(), correlationId, null);
+        } finally {
+            buffer.release();
+        }
+    }
+
+    @Override
+    public ProducerRecord<String, T> offloadPayloadToBlob(String topic, Headers headers, T payload) throws IOException {
+        var buffer = records.encode(payload);
+        try {
+            var reference = storeBytes(buffer, payload.getClass().getName());
+            return records.offloadedRecord(topic, null, headers, reference, payload.getClass().getName(), buffer.size(), null);
+        } finally {
+            buffer.release();
+        }
+    }
+
+    /**
+     * Appends the payload to the local store and publishes its claim-check record with the given
+     * headers; a local append needs no storage to come back first.
+     */
+    @Override
+    public CompletableFuture<Object> spoolPayload(String topic, Headers headers, T payload) throws IOException {
+        var producerRecord = offloadPayloadToBlob(topic, headers, payload);
+        return messagePublishHandler.publishAsync(producerRecord).thenApply(Object.class::cast);
+    }
+
+    @Override
+    public ProducerRecord<String, T> storeSpooledPayload(SpooledPayload spooledPayload) throws IOException {
+        var buffer = records.encode(spooledPayload);
+        try {
+            var reference = storeBytes(buffer, spooledPayload.getPayloadType());
+            return records.offloadedRecord(spooledPayload.getTopic(), spooledPayload.getKey(), spooledPayload.getHeaders(),
+                    reference, spooledPayload.getPayloadType(), buffer.size(), null);
+        } finally {
+            buffer.release();
+        }
+    }
+
+    @Override
+    public T readPayloadFromBlob(String blobReference) {
+        var stored = localClaimCheckStore.read(parseId(blobReference));
+        if (Objects.isNull(stored)) {
+            log.warn("No payload in local store for {}", blobReference);
+            return null;
+        }
+        try (InputStream inputStream = decompressedStream(stored)) {
+            return (T) PayloadCodecs.forName(stored.getCodec()).decode(inputStream, PayloadCodecs.resolveType(stored.getPayloadType()));
+        } catch (IOException e) {
+            log.error("Exception while reading payload from local store", e);
+            return null;
+        }
+    }
+
+    /**
+     * Decompressing stream over the mapped payload bytes; nothing is copied onto the heap first.
+     */
+    @Override
+    public InputStream openPayloadStream(String blobReference) throws IOException {
+        var stored = localClaimCheckStore.read(parseId(blobReference));
+        if (Objects.isNull(stored)) {
+            throw new FileNotFoundException("No payload in local store for " + blobReference);
+        }
+        return decompressedStream(stored);
+    }
+
+    private static InputStream decompressedStream(LocalClaimCheckStore.StoredPayload stored) throws IOException {
+        return PayloadCompressors.forName(stored.getCompression()).decompress(new ByteBufferInputStream(stored.getPayload()));
+    }
+
+    @Override
+    public T getPayloadFromBlob(T payloadReference, String isLargePayload) {
+        if (isLargePayload.equals("NO"))
+        {
+            return payloadReference;
+        }
+        if (PayloadHeaders.CHUNKED.equals(isLargePayload))
+        {
+            throw new IllegalArgumentException("Chunked payloads are reassembled from their fragment records, feed them to ChunkReassembler");
+        }
+        return readPayloadFromBlob(payloadReference.toString());
+    }
+
+    @Override
+    public void deletePayloadFromBlob(String blobReference) {
+        boolean deleted = localClaimCheckStore.delete(parseId(blobReference));
+        log.info("Payload file deleted: {}", deleted);
+    }
+
+    /**
+     * The container is ignored, payloads always go to the local store.
+     */
+    @Override
+    public URI writePayloadFileToBlob(T payload, CloudBlobContainer containerDest) throws IOException {
+        var buffer = records.encode(payload);
+        try {
+            return storeBytes(buffer, payload.getClass().getName());
+        } finally {
+            buffer.release();
+        }
+    }
+
+    private URI storeBytes(PayloadBuffer buffer, String payloadType) throws IOException {
+        offloadedPayloadBytes.record(buffer.size());
+        long id;
+        if (NoneCompressor.NAME.equals(payloadCompressor.getName())) {
+            id = localClaimCheckStore.append(payloadCodec.getName(), payloadType, payloadCompressor.getName(), buffer.array(), 0, buffer.size());
+        } else {
+            var compressed = PayloadBuffer.acquire();
+            try {
+                try (OutputStream os = payloadCompressor.compress(compressed)) {
+                    os.write(buffer.array(), 0, buffer.size());
+                }
+                id = localClaimCheckStore.append(payloadCodec.getName(), payloadType, payloadCompressor.getName(), compressed.array(), 0, compressed.size());
+            } finally {
+                compressed.release();
+            }
+        }
+        return URI.create(REFERENCE_SCHEME + ":" + id);
+    }
+
+    private static long parseId(String blobReference) {
+        var reference = URI.create(blobReference);
+        if (!REFERENCE_SCHEME.equals(reference.getScheme())) {
+            throw new IllegalArgumentException("Not a local claim-check reference: " + blobReference);
+        }
+        return Long.parseLong(reference.getSchemeSpecificPart());
+    }
+}
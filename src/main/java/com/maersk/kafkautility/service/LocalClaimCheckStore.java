@@ -0,0 +1,503 @@
+package com.maersk.kafkautility.service;
+
+import com.maersk.kafkautility.utils.DaemonThreadFactory;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Local claim-check store: payloads are appended to rolling, memory-mapped segment files and
+ * addressed by a monotonically increasing id. Each segment covers a contiguous id range, so its
+ * index is just an {@code int[]} of entry offsets and a lookup is a floor search plus an array
+ * read. Reads return a read-only slice of the mapping and never copy the payload.
+ * <p>
+ * Entry layout: {@code [int length][int crc32][long id][long createdAt][int flags][body]}, the
+ * body holding the codec, type and compression names followed by the payload bytes. Deletes set
+ * a flag in place; a maintenance task drops segments past retention and rewrites sealed segments
+ * whose dead share exceeds the compaction threshold.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "events-payload.store", havingValue = "local")
+public class LocalClaimCheckStore {
+
+    @Autowired
+    private ApplicationContext context;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private static final String STORE_DIRECTORY = "${events-payload.local.directory:${java.io.tmpdir}/claimcheck-store}";
+    private static final String SEGMENT_BYTES = "${events-payload.local.segment-bytes:268435456}";
+    private static final String RETENTION = "${events-payload.local.retention-ms:604800000}";
+    private static final String COMPACTION_DEAD_RATIO = "${events-payload.local.compaction.min-dead-ratio:0.5}";
+    private static final String MAINTENANCE_INTERVAL = "${events-payload.local.maintenance-interval-ms:60000}";
+    private static final String FORCE_ON_APPEND = "${events-payload.local.force-on-append:false}";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String COMPACTING_SUFFIX = ".compacting";
+    private static final int HEADER_BYTES = 28;
+    private static final int FLAGS_OFFSET = 24;
+    private static final int FLAG_DELETED = 1;
+
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Path directory;
+    private int segmentBytes;
+    private long retentionMillis;
+    private double compactionDeadRatio;
+    private boolean forceOnAppend;
+    private long nextId;
+    private ScheduledExecutorService maintenanceScheduler;
+
+    @PostConstruct
+    public void init() throws IOException {
+        var environment = context.getEnvironment();
+        directory = Paths.get(environment.resolvePlaceholders(STORE_DIRECTORY));
+        segmentBytes = Integer.parseInt(environment.resolvePlaceholders(SEGMENT_BYTES));
+        retentionMillis = Long.parseLong(environment.resolvePlaceholders(RETENTION));
+        compactionDeadRatio = Double.parseDouble(environment.resolvePlaceholders(COMPACTION_DEAD_RATIO));
+        forceOnAppend = Boolean.parseBoolean(environment.resolvePlaceholders(FORCE_ON_APPEND));
+        Files.createDirectories(directory);
+        recover();
+        Gauge.builder("claimcheck.local.segments", this, store -> store.segmentCount()).description("Local claim-check store segment files").register(meterRegistry);
+        Gauge.builder("claimcheck.local.live.bytes", this, store -> store.liveBytes()).baseUnit("bytes").description("Bytes of live entries in the local claim-check store").register(meterRegistry);
+        long interval = Long.parseLong(environment.resolvePlaceholders(MAINTENANCE_INTERVAL));
+        if (interval > 0) {
+            maintenanceScheduler = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("claimcheck-local-maintenance"));
+            maintenanceScheduler.scheduleWithFixedDelay(this::maintain, interval, interval, TimeUnit.MILLISECONDS);
+        }
+        log.info("Local claim-check store in {}, {} segments, next id: {}", directory, segments.size(), nextId);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (Objects.nonNull(maintenanceScheduler)) {
+            maintenanceScheduler.shutdownNow();
+        }
+        lock.writeLock().lock();
+        try {
+            segments.values().forEach(Segment::close);
+            segments.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return the id the entry can be read back with
+     */
+    public long append(String codec, String payloadType, String compression, byte[] payload, int offset, int length) throws IOException {
+        byte[] codecName = codec.getBytes(StandardCharsets.UTF_8);
+        byte[] typeName = payloadType.getBytes(StandardCharsets.UTF_8);
+        byte[] compressionName = compression.getBytes(StandardCharsets.UTF_8);
+        int bodyLength = 6 + codecName.length + typeName.length + compressionName.length + length;
+        if (HEADER_BYTES + bodyLength > segmentBytes) {
+            throw new IOException("Payload of " + length + " bytes does not fit a local store segment of " + segmentBytes + " bytes");
+        }
+        lock.writeLock().lock();
+        try {
+            var segment = segments.lastEntry().getValue();
+            if (segment.writePosition + HEADER_BYTES + bodyLength > segmentBytes) {
+                segment.buffer.force();
+                segment = openSegment(nextId);
+            }
+            int position = segment.writePosition;
+            var body = segment.buffer.duplicate().position(position + HEADER_BYTES);
+            putName(body, codecName);
+            putName(body, typeName);
+            putName(body, compressionName);
+            body.put(payload, offset, length);
+            var crc = new CRC32();
+            crc.update(segment.buffer.duplicate().position(position + HEADER_BYTES).limit(position + HEADER_BYTES + bodyLength));
+            long id = nextId++;
+            long createdAt = System.currentTimeMillis();
+            segment.buffer.putInt(position + 4, (int) crc.getValue());
+            segment.buffer.putLong(position + 8, id);
+            segment.buffer.putLong(position + 16, createdAt);
+            segment.buffer.putInt(position + FLAGS_OFFSET, 0);
+            segment.buffer.putInt(position, bodyLength);
+            if (forceOnAppend) {
+                segment.buffer.force();
+            }
+            segment.writePosition = position + HEADER_BYTES + bodyLength;
+            segment.addEntry(id, position, HEADER_BYTES + bodyLength, createdAt);
+            return id;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return the stored entry, its payload a read-only view of the segment mapping, or null if the id is unknown or deleted
+     */
+    public StoredPayload read(long id) {
+        ByteBuffer entry;
+        lock.readLock().lock();
+        try {
+            var segment = segmentOf(id);
+            int position = Objects.isNull(segment) ? -1 : segment.offsetOf(id);
+            if (position < 0) {
+                return null;
+            }
+            entry = segment.buffer.asReadOnlyBuffer().position(position).limit(position + HEADER_BYTES + segment.buffer.getInt(position));
+        } finally {
+            lock.readLock().unlock();
+        }
+        long createdAt = entry.getLong(entry.position() + 16);
+        var body = entry.position(entry.position() + HEADER_BYTES).slice();
+        String codec = getName(body);
+        String payloadType = getName(body);
+        String compression = getName(body);
+        return new StoredPayload(id, codec, payloadType, compression, createdAt, body.slice());
+    }
+
+    /**
+     * Copies the payload bytes of an entry straight from the segment file to the channel. The
+     * read lock is held for the transfer, as compaction closes the channel of a replaced segment.
+     *
+     * @return the number of bytes transferred, or -1 if the id is unknown or deleted
+     */
+    public long transferTo(long id, WritableByteChannel target) throws IOException {
+        lock.readLock().lock();
+        try {
+            var segment = segmentOf(id);
+            int position = Objects.isNull(segment) ? -1 : segment.offsetOf(id);
+            if (position < 0) {
+                return -1;
+            }
+            long count = read(id).getPayload().remaining();
+            long start = position + HEADER_BYTES + segment.buffer.getInt(position) - count;
+            long transferred = 0;
+            while (transferred < count) {
+                transferred += segment.channel.transferTo(start + transferred, count - transferred, target);
+            }
+            return transferred;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean delete(long id) {
+        lock.writeLock().lock();
+        try {
+            var segment = segmentOf(id);
+            int position = Objects.isNull(segment) ? -1 : segment.offsetOf(id);
+            if (position < 0) {
+                return false;
+            }
+            segment.buffer.putInt(position + FLAGS_OFFSET, FLAG_DELETED);
+            segment.removeEntry(id, HEADER_BYTES + segment.buffer.getInt(position));
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Drops sealed segments whose newest entry is past retention and compacts sealed segments
+     * with enough dead entries. The active segment is never touched.
+     */
+    public void maintain() {
+        try {
+            long cutoff = System.currentTimeMillis() - retentionMillis;
+            for (Segment segment : sealedSegments()) {
+                if (segment.newestCreatedAt < cutoff || segment.liveCount == 0) {
+                    dropSegment(segment);
+                } else if (1 - (double) segment.liveBytes / segment.writePosition >= compactionDeadRatio) {
+                    compact(segment);
+                }
+            }
+        } catch (Exception e) {
+            log.error("Exception during local claim-check store maintenance", e);
+        }
+    }
+
+    private List<Segment> sealedSegments() {
+        lock.readLock().lock();
+        try {
+            return new ArrayList<>(segments.headMap(segments.lastKey(), false).values());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void dropSegment(Segment segment) throws IOException {
+        lock.writeLock().lock();
+        try {
+            segments.remove(segment.firstId, segment);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        segment.close();
+        Files.deleteIfExists(segment.file);
+        log.info("Local claim-check segment {} dropped, {} live entries", segment.file.getFileName(), segment.liveCount);
+    }
+
+    /**
+     * Copies the live entries of a sealed segment into a new file outside the lock, then swaps
+     * it in, carrying over deletes that happened meanwhile. The replacement keeps the segment's
+     * id range, so the index only changes offsets.
+     */
+    private void compact(Segment segment) throws IOException {
+        int[] snapshot;
+        lock.readLock().lock();
+        try {
+            snapshot = Arrays.copyOf(segment.offsets, segment.entryCount);
+        } finally {
+            lock.readLock().unlock();
+        }
+        var compactingFile = segment.file.resolveSibling(segment.file.getFileName() + COMPACTING_SUFFIX);
+        int[] newOffsets = new int[snapshot.length];
+        Arrays.fill(newOffsets, -1);
+        int written = 0;
+        try (var out = FileChannel.open(compactingFile, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            for (int i = 0; i < snapshot.length; i++) {
+                if (snapshot[i] < 0) {
+                    continue;
+                }
+                int entryBytes = HEADER_BYTES + segment.buffer.getInt(snapshot[i]);
+                var entry = segment.buffer.asReadOnlyBuffer().position(snapshot[i]).limit(snapshot[i] + entryBytes);
+                while (entry.hasRemaining()) {
+                    out.write(entry);
+                }
+                newOffsets[i] = written;
+                written += entryBytes;
+            }
+            out.force(true);
+        }
+        lock.writeLock().lock();
+        try {
+            Files.move(compactingFile, segment.file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            var compacted = mapSegment(segment.firstId, segment.file);
+            compacted.writePosition = written;
+            compacted.newestCreatedAt = segment.newestCreatedAt;
+            for (int i = 0; i < newOffsets.length; i++) {
+                if (newOffsets[i] < 0) {
+                    continue;
+                }
+                if (segment.offsets[i] < 0) {
+                    compacted.buffer.putInt(newOffsets[i] + FLAGS_OFFSET, FLAG_DELETED);
+                    newOffsets[i] = -1;
+                } else {
+                    compacted.liveCount++;
+                    compacted.liveBytes += HEADER_BYTES + compacted.buffer.getInt(newOffsets[i]);
+                }
+            }
+            compacted.offsets = newOffsets;
+            compacted.entryCount = newOffsets.length;
+            segments.put(segment.firstId, compacted);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        segment.channelClose();
+        log.info("Local claim-check segment {} compacted from {} to {} bytes", segment.file.getFileName(), segment.writePosition, written);
+    }
+
+    private Segment segmentOf(long id) {
+        Map.Entry<Long, Segment> entry = segments.floorEntry(id);
+        return Objects.isNull(entry) ? null : entry.getValue();
+    }
+
+    private int segmentCount() {
+        lock.readLock().lock();
+        try {
+            return segments.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private long liveBytes() {
+        lock.readLock().lock();
+        try {
+            return segments.values().stream().mapToLong(segment -> segment.liveBytes).sum();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Maps every segment and rebuilds its index by scanning entries up to the first missing or
+     * torn one. Leftovers of an interrupted compaction are discarded; the original is intact.
+     */
+    private void recover() throws IOException {
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing.sorted().collect(Collectors.toList());
+        }
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            if (name.endsWith(COMPACTING_SUFFIX)) {
+                Files.delete(file);
+            } else if (name.endsWith(SEGMENT_SUFFIX)) {
+                long firstId = Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+                var segment = mapSegment(firstId, file);
+                scan(segment);
+                segments.put(firstId, segment);
+                nextId = Math.max(nextId, firstId + segment.entryCount);
+            }
+        }
+        if (segments.isEmpty()) {
+            openSegment(0);
+        }
+    }
+
+    private void scan(Segment segment) {
+        int position = 0;
+        while (position + HEADER_BYTES <= segmentBytes) {
+            int bodyLength = segment.buffer.getInt(position);
+            if (bodyLength <= 0 || position + HEADER_BYTES + bodyLength > segmentBytes) {
+                break;
+            }
+            var crc = new CRC32();
+            crc.update(segment.buffer.duplicate().position(position + HEADER_BYTES).limit(position + HEADER_BYTES + bodyLength));
+            if ((int) crc.getValue() != segment.buffer.getInt(position + 4)) {
+                log.warn("Torn entry at {} in local claim-check segment {}, truncating", position, segment.file.getFileName());
+                break;
+            }
+            long id = segment.buffer.getLong(position + 8);
+            long createdAt = segment.buffer.getLong(position + 16);
+            segment.addEntry(id, position, HEADER_BYTES + bodyLength, createdAt);
+            if ((segment.buffer.getInt(position + FLAGS_OFFSET) & FLAG_DELETED) != 0) {
+                segment.removeEntry(id, HEADER_BYTES + bodyLength);
+            }
+            position += HEADER_BYTES + bodyLength;
+        }
+        segment.writePosition = position;
+    }
+
+    private Segment openSegment(long firstId) throws IOException {
+        var segment = mapSegment(firstId, directory.resolve(String.format("%020d%s", firstId, SEGMENT_SUFFIX)));
+        segments.put(firstId, segment);
+        return segment;
+    }
+
+    private Segment mapSegment(long firstId, Path file) throws IOException {
+        var channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        return new Segment(firstId, file, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes));
+    }
+
+    private static void putName(ByteBuffer buffer, byte[] name) {
+        buffer.putShort((short) name.length);
+        buffer.put(name);
+    }
+
+    private static String getName(ByteBuffer buffer) {
+        byte[] name = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(name);
+        return new String(name, StandardCharsets.UTF_8);
+    }
+
+    @Getter
+    public static final class StoredPayload {
+        private final long id;
+        private final String codec;
+        private final String payloadType;
+        private final String compression;
+        private final long createdAt;
+        private final ByteBuffer payload;
+
+        private StoredPayload(long id, String codec, String payloadType, String compression, long createdAt, ByteBuffer payload) {
+            this.id = id;
+            this.codec = codec;
+            this.payloadType = payloadType;
+            this.compression = compression;
+            this.createdAt = createdAt;
+            this.payload = payload;
+        }
+    }
+
+    private static final class Segment {
+        private final long firstId;
+        private final Path file;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private int[] offsets = new int[1024];
+        private int entryCount;
+        private int writePosition;
+        private int liveCount;
+        private long liveBytes;
+        private long newestCreatedAt;
+
+        private Segment(long firstId, Path file, FileChannel channel, MappedByteBuffer buffer) {
+            this.firstId = firstId;
+            this.file = file;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        private int offsetOf(long id) {
+            long index = id - firstId;
+            return index < entryCount ? offsets[(int) index] : -1;
+        }
+
+        private void addEntry(long id, int position, int entryBytes, long createdAt) {
+            int index = (int) (id - firstId);
+            if (index >= offsets.length) {
+                int previous = offsets.length;
+                offsets = Arrays.copyOf(offsets, Math.max(previous * 2, index + 1));
+            }
+            for (int gap = entryCount; gap < index; gap++) {
+                offsets[gap] = -1;
+            }
+            offsets[index] = position;
+            entryCount = Math.max(entryCount, index + 1);
+            liveCount++;
+            liveBytes += entryBytes;
+            newestCreatedAt = Math.max(newestCreatedAt, createdAt);
+        }
+
+        private void removeEntry(long id, int entryBytes) {
+            offsets[(int) (id - firstId)] = -1;
+            liveCount--;
+            liveBytes -= entryBytes;
+        }
+
+        private void close() {
+            buffer.force();
+            channelClose();
+        }
+
+        private void channelClose() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -1,40 +1,175 @@
 package com.maersk.kafkautility.service;
 
-import lombok.AllArgsConstructor;
+import com.maersk.kafkautility.exception.MessagePublishException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.NoArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.producer.ProducerRecord;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationContext;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Component;
-import org.springframework.util.concurrent.ListenableFuture;
-import org.springframework.util.concurrent.ListenableFutureCallback;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @Component
 @NoArgsConstructor
-@AllArgsConstructor
 public class MessagePublishHandler <T>{
 
     @Autowired
     private KafkaTemplate<String, T> kafkaTemplate;
 
+    @Autowired
+    private ApplicationContext context;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    private static final String MAX_IN_FLIGHT = "${kafka.publish.max-in-flight:1000}";
+    private static final String ACQUIRE_TIMEOUT = "${kafka.publish.acquire-timeout-ms:30000}";
+    private static final int DEFAULT_MAX_IN_FLIGHT = 1000;
+    private static final long DEFAULT_ACQUIRE_TIMEOUT_MS = 30000;
+
+    private Semaphore inFlight = new Semaphore(DEFAULT_MAX_IN_FLIGHT);
+    private long acquireTimeoutMillis = DEFAULT_ACQUIRE_TIMEOUT_MS;
+    private Timer publishSucceeded;
+    private Timer publishFailed;
+
+    public MessagePublishHandler(KafkaTemplate<String, T> kafkaTemplate)
+    {
+        this.kafkaTemplate = kafkaTemplate;
+    }
+
+    @PostConstruct
+    public void init()
+    {
+        inFlight = new Semaphore(Integer.parseInt(context.getEnvironment().resolvePlaceholders(MAX_IN_FLIGHT)));
+        acquireTimeoutMillis = Long.parseLong(context.getEnvironment().resolvePlaceholders(ACQUIRE_TIMEOUT));
+        if (Objects.nonNull(meterRegistry)) {
+            publishSucceeded = publishTimer("success");
+            publishFailed = publishTimer("failure");
+        }
+    }
+
+    private Timer publishTimer(String outcome)
+    {
+        return Timer.builder("kafka.publish.latency")
+                .tag("outcome", outcome)
+                .description("Time from send to broker acknowledgement")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
     public void publishOnTopic(ProducerRecord<String, T> producerRecord)
     {
         log.info("Inside publishOnTopic");
-        ListenableFuture<SendResult<String, T>> future = kafkaTemplate.send(producerRecord);
-        future.addCallback(new ListenableFutureCallback<>() {
-            @Override
-            public void onSuccess(SendResult<String, T> result) {
-                log.info("Sent message=[{}] with offset=[{}]", producerRecord.value(), result.getRecordMetadata().offset());
-            }
+        publishAsync(producerRecord);
+        log.info("Completed publishOnTopic");
+    }
+
+    public CompletableFuture<SendResult<String, T>> publishAsync(ProducerRecord<String, T> producerRecord)
+    {
+        return send(producerRecord)
+                .whenComplete((result, ex) -> {
+                    if (Objects.isNull(ex)) {
+                        log.info("Sent message=[{}] with offset=[{}]", producerRecord.value(), result.getRecordMetadata().offset());
+                    } else {
+                        log.error("Unable to send message=[{}] due to : {}", producerRecord.value(), ex);
+                    }
+                });
+    }
+
+    public CompletableFuture<BatchPublishResult<T>> publishAll(Collection<ProducerRecord<String, T>> producerRecords)
+    {
+        return publishAll(producerRecords, false);
+    }
 
-            @Override
-            public void onFailure(Throwable ex) {
-                log.error("Unable to send message=[{}] due to : {}", producerRecord.value(), ex);
+    /**
+     * Sends every record, waiting up to kafka.publish.acquire-timeout-ms for a free slot whenever
+     * kafka.publish.max-in-flight batch records are unacknowledged, and completes once all of them
+     * are acknowledged or failed; a record that gets no slot in time is failed. With flush set the
+     * producer buffer is flushed after the last send instead of waiting for linger.ms.
+     * Single-record publishes do not take slots and never wait on the cap.
+     */
+    public CompletableFuture<BatchPublishResult<T>> publishAll(Collection<ProducerRecord<String, T>> producerRecords, boolean flush)
+    {
+        log.info("Publishing batch of {} records", producerRecords.size());
+        List<ProducerRecord<String, T>> batch = new ArrayList<>(producerRecords);
+        List<CompletableFuture<SendResult<String, T>>> futures = new ArrayList<>(batch.size());
+        for (ProducerRecord<String, T> producerRecord : batch) {
+            futures.add(sendWithinCap(producerRecord));
+        }
+        if (flush) {
+            kafkaTemplate.flush();
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+                .handle((ignored, ex) -> {
+                    BatchPublishResult<T> result = new BatchPublishResult<>();
+                    for (int i = 0; i < batch.size(); i++) {
+                        var future = futures.get(i);
+                        if (future.isCompletedExceptionally()) {
+                            result.addFailure(batch.get(i), unwrap(future));
+                        } else {
+                            result.addSuccess(future.join());
+                        }
+                    }
+                    log.info("Batch published, succeeded: {}, failed: {}", result.getSucceeded().size(), result.getFailed().size());
+                    return result;
+                });
+    }
+
+    private CompletableFuture<SendResult<String, T>> sendWithinCap(ProducerRecord<String, T> producerRecord)
+    {
+        try {
+            if (!inFlight.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                return CompletableFuture.failedFuture(new MessagePublishException(
+                        "No in-flight slot available within " + acquireTimeoutMillis + " ms for topic " + producerRecord.topic()));
             }
-        });
-        log.info("Completed publishOnTopic");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(new MessagePublishException("Interrupted while waiting for an in-flight slot"));
+        }
+        return send(producerRecord).whenComplete((result, ex) -> inFlight.release());
+    }
+
+    private CompletableFuture<SendResult<String, T>> send(ProducerRecord<String, T> producerRecord)
+    {
+        long start = System.nanoTime();
+        try {
+            return kafkaTemplate.send(producerRecord).completable()
+                    .whenComplete((result, ex) -> recordLatency(Objects.isNull(ex) ? publishSucceeded : publishFailed, start));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private static void recordLatency(Timer timer, long start)
+    {
+        if (Objects.nonNull(timer)) {
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static Throwable unwrap(CompletableFuture<?> future)
+    {
+        try {
+            future.join();
+            return null;
+        } catch (CompletionException e) {
+            return Objects.isNull(e.getCause()) ? e : e.getCause();
+        } catch (RuntimeException e) {
+            return e;
+        }
     }
 }
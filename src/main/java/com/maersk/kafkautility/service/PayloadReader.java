@@ -1,11 +1,17 @@
 package com.maersk.kafkautility.service;
 
+import com.maersk.kafkautility.codec.PayloadCodecs;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
 import java.io.*;
 import java.nio.file.Paths;
 
+/**
+ * @deprecated Reads a single file per call; set {@code events-payload.store=local} to use the segmented
+ * {@link LocalClaimCheckStore} through {@link AzureBlobService} instead.
+ */
+@Deprecated
 @Slf4j
 @Component
 public class PayloadReader<T> {
@@ -13,13 +19,14 @@ public class PayloadReader<T> {
     public T readPayloadObject(String claimCheckKey)
     {
         Object obj = null;
-        try (FileInputStream fis = new FileInputStream(String.valueOf(Paths.get(claimCheckKey)));
-             ObjectInputStream ois = new ObjectInputStream(fis))
+        try (DataInputStream dis = new DataInputStream(new BufferedInputStream(new FileInputStream(String.valueOf(Paths.get(claimCheckKey))))))
         {
-            obj = ois.readObject();
+            var codec = PayloadCodecs.forName(dis.readUTF());
+            var type = PayloadCodecs.resolveType(dis.readUTF());
+            obj = codec.decode(dis, type);
             Class<?> clazz = obj.getClass();
             log.info("Payload class name : {}", clazz.getName());
-        } catch (IOException | ClassNotFoundException e) {
+        } catch (IOException e) {
             log.error("Exception in readPayloadObject ", e);
         }
         return (T) obj;
@@ -1,23 +1,46 @@
 package com.maersk.kafkautility.service;
 
+import com.maersk.kafkautility.codec.PayloadCodec;
+import com.maersk.kafkautility.codec.PayloadCodecs;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationContext;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
 import java.io.*;
 
+/**
+ * @deprecated Writes to a single fixed file; set {@code events-payload.store=local} to use the segmented
+ * {@link LocalClaimCheckStore} through {@link AzureBlobService} instead.
+ */
+@Deprecated
 @Slf4j
 @Component
 public class PayloadWriter<T> {
 
+    @Autowired
+    private ApplicationContext context;
+
+    private static final String PAYLOAD_CODEC = "${events-payload.codec:java}";
+
+    private PayloadCodec payloadCodec;
+
+    @PostConstruct
+    public void init() {
+        payloadCodec = PayloadCodecs.forName(context.getEnvironment().resolvePlaceholders(PAYLOAD_CODEC));
+    }
+
     public String writePayloadObject(T payload)
     {
         String outputFile = "C:\\Users\\BhavyaSingh\\Documents\\apmm-workspace\\payload.dat";
-        try (FileOutputStream fos = new FileOutputStream(outputFile);
-             ObjectOutputStream oos = new ObjectOutputStream(fos))
+        try (DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(outputFile))))
         {
             Class<?> clazz = payload.getClass();
             log.info("Payload class name : {}", clazz.getName());
-            oos.writeObject(payload);
+            dos.writeUTF(payloadCodec.getName());
+            dos.writeUTF(clazz.getName());
+            payloadCodec.encode(payload, dos);
             log.info("Payload successfully written in the file");
         } catch (IOException e) {
             log.error("Exception in writePayloadObject", e);
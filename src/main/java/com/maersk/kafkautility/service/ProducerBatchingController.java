@@ -0,0 +1,248 @@
+package com.maersk.kafkautility.service;
+
+import com.maersk.kafkautility.utils.DaemonThreadFactory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationContext;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Moves the producer between a latency profile (short linger, small batches) and a throughput
+ * profile (longer linger, batches sized to what actually fills) as the send rate changes. Rates
+ * between the two thresholds keep the current profile, and a change needs the new profile on
+ * consecutive samples and a minimum time since the last change, so the producer is not swapped
+ * back and forth. In the throughput profile linger.ms grows while request latency is above
+ * target, since fewer larger requests relieve the broker, and batch.size follows the observed
+ * batch fill; both stay within the configured bounds.
+ * <p>
+ * A change updates the factory configuration and resets it: the current producer is closed after
+ * its in-flight sends complete and the next send creates one with the new settings. Only
+ * non-transactional {@link DefaultKafkaProducerFactory} instances are adjusted.
+ */
+@Slf4j
+@Component
+public class ProducerBatchingController {
+
+    @Autowired
+    private ApplicationContext context;
+
+    @Autowired(required = false)
+    private ProducerFactory<?, ?> producerFactory;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private static final String ADAPTIVE_ENABLED = "${kafka.producer.adaptive.enabled:false}";
+    private static final String ADAPTIVE_INTERVAL = "${kafka.producer.adaptive.interval-ms:15000}";
+    private static final String ADAPTIVE_MIN_SWITCH_INTERVAL = "${kafka.producer.adaptive.min-switch-interval-ms:60000}";
+    private static final String ADAPTIVE_STABLE_SAMPLES = "${kafka.producer.adaptive.stable-samples:3}";
+    private static final String ADAPTIVE_LATENCY_RATE = "${kafka.producer.adaptive.latency-rate:200}";
+    private static final String ADAPTIVE_THROUGHPUT_RATE = "${kafka.producer.adaptive.throughput-rate:1000}";
+    private static final String ADAPTIVE_LATENCY_LINGER = "${kafka.producer.adaptive.latency-linger-ms:1}";
+    private static final String ADAPTIVE_THROUGHPUT_LINGER = "${kafka.producer.adaptive.throughput-linger-ms:20}";
+    private static final String ADAPTIVE_MAX_LINGER = "${kafka.producer.adaptive.max-linger-ms:100}";
+    private static final String ADAPTIVE_MIN_BATCH = "${kafka.producer.adaptive.min-batch-bytes:16384}";
+    private static final String ADAPTIVE_MAX_BATCH = "${kafka.producer.adaptive.max-batch-bytes:1048576}";
+    private static final String ADAPTIVE_TARGET_REQUEST_LATENCY = "${kafka.producer.adaptive.target-request-latency-ms:100}";
+    private static final String PRODUCER_METRICS_GROUP = "producer-metrics";
+
+    public enum Profile { LATENCY, THROUGHPUT }
+
+    private DefaultKafkaProducerFactory<?, ?> factory;
+    private ScheduledExecutorService scheduler;
+    private long minSwitchIntervalMillis;
+    private int stableSamples;
+    private double latencyRate;
+    private double throughputRate;
+    private int latencyLingerMs;
+    private int throughputLingerMs;
+    private int maxLingerMs;
+    private int minBatchBytes;
+    private int maxBatchBytes;
+    private double targetRequestLatencyMs;
+
+    private volatile Profile profile;
+    private volatile int lingerMs;
+    private volatile int batchBytes;
+    private Profile candidate;
+    private int candidateSamples;
+    private long lastChange;
+
+    @PostConstruct
+    public void init() {
+        var environment = context.getEnvironment();
+        if (!Boolean.parseBoolean(environment.resolvePlaceholders(ADAPTIVE_ENABLED))) {
+            return;
+        }
+        if (!(producerFactory instanceof DefaultKafkaProducerFactory) || producerFactory.transactionCapable()) {
+            log.warn("Adaptive producer batching needs a non-transactional DefaultKafkaProducerFactory, found {}", producerFactory);
+            return;
+        }
+        factory = (DefaultKafkaProducerFactory<?, ?>) producerFactory;
+        minSwitchIntervalMillis = Long.parseLong(environment.resolvePlaceholders(ADAPTIVE_MIN_SWITCH_INTERVAL));
+        stableSamples = Integer.parseInt(environment.resolvePlaceholders(ADAPTIVE_STABLE_SAMPLES));
+        latencyRate = Double.parseDouble(environment.resolvePlaceholders(ADAPTIVE_LATENCY_RATE));
+        throughputRate = Double.parseDouble(environment.resolvePlaceholders(ADAPTIVE_THROUGHPUT_RATE));
+        latencyLingerMs = Integer.parseInt(environment.resolvePlaceholders(ADAPTIVE_LATENCY_LINGER));
+        throughputLingerMs = Integer.parseInt(environment.resolvePlaceholders(ADAPTIVE_THROUGHPUT_LINGER));
+        maxLingerMs = Integer.parseInt(environment.resolvePlaceholders(ADAPTIVE_MAX_LINGER));
+        minBatchBytes = Integer.parseInt(environment.resolvePlaceholders(ADAPTIVE_MIN_BATCH));
+        maxBatchBytes = Integer.parseInt(environment.resolvePlaceholders(ADAPTIVE_MAX_BATCH));
+        targetRequestLatencyMs = Double.parseDouble(environment.resolvePlaceholders(ADAPTIVE_TARGET_REQUEST_LATENCY));
+
+        var configs = factory.getConfigurationProperties();
+        lingerMs = configValue(configs, ProducerConfig.LINGER_MS_CONFIG, 0);
+        batchBytes = configValue(configs, ProducerConfig.BATCH_SIZE_CONFIG, 16384);
+        profile = lingerMs > latencyLingerMs ? Profile.THROUGHPUT : Profile.LATENCY;
+        lastChange = System.currentTimeMillis();
+
+        Gauge.builder("kafka.producer.adaptive.profile", this, controller -> controller.profile.ordinal())
+                .description("Producer batching profile, 0 latency, 1 throughput")
+                .register(meterRegistry);
+        Gauge.builder("kafka.producer.adaptive.linger", this, controller -> controller.lingerMs)
+                .baseUnit("milliseconds")
+                .description("linger.ms currently applied to the producer")
+                .register(meterRegistry);
+        Gauge.builder("kafka.producer.adaptive.batch.size", this, controller -> controller.batchBytes)
+                .baseUnit("bytes")
+                .description("batch.size currently applied to the producer")
+                .register(meterRegistry);
+
+        long interval = Long.parseLong(environment.resolvePlaceholders(ADAPTIVE_INTERVAL));
+        scheduler = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("kafka-producer-batching"));
+        scheduler.scheduleWithFixedDelay(this::sample, interval, interval, TimeUnit.MILLISECONDS);
+        log.info("Adaptive producer batching enabled, profile: {}, linger.ms: {}, batch.size: {}", profile, lingerMs, batchBytes);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (Objects.nonNull(scheduler)) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    public Profile getProfile() {
+        return profile;
+    }
+
+    private void sample() {
+        try {
+            Map<MetricName, ? extends Metric> metrics;
+            try (var producer = factory.createProducer()) {
+                metrics = producer.metrics();
+            }
+            double sendRate = metricValue(metrics, "record-send-rate");
+            double requestLatency = metricValue(metrics, "request-latency-avg");
+            double batchSizeAvg = metricValue(metrics, "batch-size-avg");
+            adjust(sendRate, requestLatency, batchSizeAvg);
+        } catch (Exception e) {
+            log.error("Exception while sampling producer metrics", e);
+        }
+    }
+
+    /**
+     * Applies one sample of the producer metrics: moves to the profile the send rate has asked for
+     * over enough consecutive samples, or tunes linger.ms and batch.size within the throughput
+     * profile, and resets the factory when either changed.
+     */
+    void adjust(double sendRate, double requestLatency, double batchSizeAvg) {
+        Profile observed = sendRate >= throughputRate ? Profile.THROUGHPUT
+                : sendRate <= latencyRate ? Profile.LATENCY
+                : profile;
+        if (observed == candidate) {
+            candidateSamples++;
+        } else {
+            candidate = observed;
+            candidateSamples = 1;
+        }
+        Profile next = candidateSamples >= stableSamples ? candidate : profile;
+        int nextLinger;
+        int nextBatch;
+        String reason;
+        if (next == Profile.LATENCY) {
+            nextLinger = latencyLingerMs;
+            nextBatch = minBatchBytes;
+            reason = "send-rate";
+        } else if (profile == Profile.LATENCY) {
+            nextLinger = throughputLingerMs;
+            nextBatch = clamp(Math.max(batchBytes, minBatchBytes * 8), minBatchBytes, maxBatchBytes);
+            reason = "send-rate";
+        } else {
+            nextLinger = lingerMs;
+            nextBatch = batchBytes;
+            reason = null;
+            if (requestLatency > targetRequestLatencyMs && lingerMs < maxLingerMs) {
+                nextLinger = clamp(Math.max(1, lingerMs) * 2, throughputLingerMs, maxLingerMs);
+                reason = "request-latency";
+            } else if (requestLatency < targetRequestLatencyMs / 2 && lingerMs > throughputLingerMs) {
+                nextLinger = clamp(lingerMs / 2, throughputLingerMs, maxLingerMs);
+                reason = "request-latency";
+            }
+            if (batchSizeAvg >= batchBytes * 0.8 && batchBytes < maxBatchBytes) {
+                nextBatch = clamp(batchBytes * 2, minBatchBytes, maxBatchBytes);
+                reason = "batch-fill";
+            } else if (batchSizeAvg > 0 && batchSizeAvg < batchBytes * 0.25 && batchBytes > minBatchBytes) {
+                nextBatch = clamp(batchBytes / 2, minBatchBytes, maxBatchBytes);
+                reason = "batch-fill";
+            }
+        }
+        if (nextLinger == lingerMs && nextBatch == batchBytes) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (now - lastChange < minSwitchIntervalMillis) {
+            return;
+        }
+        log.info("Producer batching {} -> {} ({}), linger.ms {} -> {}, batch.size {} -> {}, send rate {}/s, request latency {} ms",
+                profile, next, reason, lingerMs, nextLinger, batchBytes, nextBatch, Math.round(sendRate), Math.round(requestLatency));
+        factory.updateConfigs(Map.of(ProducerConfig.LINGER_MS_CONFIG, nextLinger, ProducerConfig.BATCH_SIZE_CONFIG, nextBatch));
+        factory.reset();
+        Counter.builder("kafka.producer.adaptive.changes")
+                .tag("profile", next.name().toLowerCase())
+                .tag("reason", reason)
+                .description("Producer batching changes applied by the adaptive controller")
+                .register(meterRegistry)
+                .increment();
+        profile = next;
+        lingerMs = nextLinger;
+        batchBytes = nextBatch;
+        lastChange = now;
+    }
+
+    private static double metricValue(Map<MetricName, ? extends Metric> metrics, String name) {
+        for (Map.Entry<MetricName, ? extends Metric> metric : metrics.entrySet()) {
+            if (name.equals(metric.getKey().name()) && PRODUCER_METRICS_GROUP.equals(metric.getKey().group())) {
+                var value = metric.getValue().metricValue();
+                if (value instanceof Number && !Double.isNaN(((Number) value).doubleValue())) {
+                    return ((Number) value).doubleValue();
+                }
+            }
+        }
+        return 0;
+    }
+
+    private static int configValue(Map<String, Object> configs, String key, int defaultValue) {
+        var value = configs.get(key);
+        return Objects.isNull(value) ? defaultValue : Integer.parseInt(String.valueOf(value));
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(max, value));
+    }
+}
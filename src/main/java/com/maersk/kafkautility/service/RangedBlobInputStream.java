@@ -0,0 +1,144 @@
+package com.maersk.kafkautility.service;
+
+import com.microsoft.azure.storage.StorageException;
+import com.microsoft.azure.storage.blob.CloudBlockBlob;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Reads a blob as consecutive ranged GETs, keeping up to {@code maxInFlight} ranges
+ * downloading ahead of the reader, so large blobs are fetched over several connections while
+ * the consumer decodes from the front. The blob attributes must already be downloaded.
+ */
+public class RangedBlobInputStream extends InputStream {
+
+    private final RangeReader rangeReader;
+    private final long blobLength;
+    private final int rangeSize;
+    private final int maxInFlight;
+    private final Executor executor;
+    private final ArrayDeque<CompletableFuture<byte[]>> ranges = new ArrayDeque<>();
+
+    private long nextRangeOffset;
+    private byte[] current;
+    private int position;
+    private boolean closed;
+
+    public RangedBlobInputStream(CloudBlockBlob cloudBlockBlob, int rangeSize, int maxInFlight, Executor executor) {
+        this(cloudBlockBlob::downloadRangeToByteArray, cloudBlockBlob.getProperties().getLength(), rangeSize, maxInFlight, executor);
+    }
+
+    RangedBlobInputStream(RangeReader rangeReader, long blobLength, int rangeSize, int maxInFlight, Executor executor) {
+        this.rangeReader = rangeReader;
+        this.blobLength = blobLength;
+        this.rangeSize = rangeSize;
+        this.maxInFlight = maxInFlight;
+        this.executor = executor;
+        scheduleRanges();
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!ensureCurrent()) {
+            return -1;
+        }
+        return current[position++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (!ensureCurrent()) {
+            return -1;
+        }
+        int chunk = Math.min(length, current.length - position);
+        System.arraycopy(current, position, bytes, offset, chunk);
+        position += chunk;
+        return chunk;
+    }
+
+    @Override
+    public int available() {
+        return Objects.isNull(current) ? 0 : current.length - position;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        current = null;
+        ranges.forEach(range -> range.cancel(false));
+        ranges.clear();
+    }
+
+    private boolean ensureCurrent() throws IOException {
+        if (closed) {
+            throw new IOException("Stream already closed");
+        }
+        while (Objects.isNull(current) || position == current.length) {
+            var next = ranges.poll();
+            if (Objects.isNull(next)) {
+                return false;
+            }
+            current = awaitRange(next);
+            position = 0;
+            scheduleRanges();
+        }
+        return true;
+    }
+
+    private void scheduleRanges() {
+        while (ranges.size() < maxInFlight && nextRangeOffset < blobLength) {
+            long offset = nextRangeOffset;
+            int length = (int) Math.min(rangeSize, blobLength - offset);
+            nextRangeOffset += length;
+            ranges.add(CompletableFuture.supplyAsync(() -> downloadRange(offset, length), executor));
+        }
+    }
+
+    private byte[] downloadRange(long offset, int length) {
+        byte[] range = new byte[length];
+        try {
+            int read = 0;
+            while (read < length) {
+                int count = rangeReader.read(offset + read, (long) length - read, range, read);
+                if (count <= 0) {
+                    throw new IOException("Blob ended before the expected length");
+                }
+                read += count;
+            }
+        } catch (StorageException | IOException e) {
+            throw new CompletionException(e);
+        }
+        return range;
+    }
+
+    private byte[] awaitRange(CompletableFuture<byte[]> range) throws IOException {
+        try {
+            return range.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while downloading blob range");
+        } catch (ExecutionException e) {
+            close();
+            throw new IOException("Exception while downloading blob range", e.getCause());
+        }
+    }
+
+    /**
+     * Downloads up to {@code length} bytes at {@code offset} into the target and returns how many were read.
+     */
+    @FunctionalInterface
+    interface RangeReader {
+        int read(long offset, Long length, byte[] target, int targetOffset) throws StorageException, IOException;
+    }
+}
@@ -1,24 +1,24 @@
 package com.maersk.kafkautility.service;
 
+import com.maersk.kafkautility.utils.PayloadHeaders;
 import com.microsoft.azure.storage.StorageException;
 import lombok.NoArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Headers;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationContext;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Component;
 
-import java.io.Serializable;
 import java.net.URISyntaxException;
-import java.nio.charset.StandardCharsets;
 import java.security.InvalidKeyException;
 import java.util.Objects;
 
 @Slf4j
 @Component
 @NoArgsConstructor
-public class RetryService <T extends Serializable> {
+public class RetryService <T> {
 
     @Autowired
     private ApplicationContext context;
@@ -32,25 +32,62 @@ public class RetryService <T extends Serializable> {
     @Autowired
     private AzureBlobService<T> azureBlobService;
 
-    private static final String RETRY_TOPIC_PLACEHOLDER = "${kafka.retry.topic}";
+    @Autowired
+    private RetryTopicRouter retryTopicRouter;
+
+    @Autowired
+    private ClaimCheckBlobCleaner claimCheckBlobCleaner;
 
     public void sendMessageToRetryTopic(T message, T aggregateId) throws URISyntaxException, InvalidKeyException, StorageException {
+        sendMessageToRetryTopic(message, aggregateId, null, null);
+    }
+
+    /**
+     * Offloads the failed message and routes its claim-check record to the retry tier for the next
+     * attempt.
+     *
+     * @param originalTopic topic the retried message is republished to once due, may be null if the previous headers carry it
+     * @param previousHeaders headers of the failed record, used to count attempts, may be null for a first failure
+     */
+    public void sendMessageToRetryTopic(T message, T aggregateId, String originalTopic, Headers previousHeaders) throws URISyntaxException, InvalidKeyException, StorageException {
         String payloadReference = null;
         try {
-            var retryTopic = context.getEnvironment().resolvePlaceholders(RETRY_TOPIC_PLACEHOLDER);
-            payloadReference = azureBlobService.writePayloadToBlob(message);
-            log.info("retryTopic: {}", retryTopic);
-                log.info("message to publish: {}", message);
-                ProducerRecord<String, T> producerRecord = new ProducerRecord<>(retryTopic, (T)payloadReference);
-                var kafkaHeaders = producerRecord.headers();
-                if (Objects.nonNull(aggregateId)) {
-                    kafkaHeaders.add("X-DOCBROKER-Correlation-ID", aggregateId.toString().getBytes(StandardCharsets.UTF_8));
-                }
-                messagePublishHandler.publishOnTopic(producerRecord);
+            ProducerRecord<String, T> nextAttempt = retryTopicRouter.nextAttempt(null, originalTopic, previousHeaders);
+            var kafkaHeaders = nextAttempt.headers();
+            if (Objects.nonNull(aggregateId) && Objects.isNull(kafkaHeaders.lastHeader(PayloadHeaders.CORRELATION_ID))) {
+                PayloadHeaders.add(kafkaHeaders, PayloadHeaders.CORRELATION_ID, aggregateId.toString());
+            }
+            ProducerRecord<String, T> producerRecord = azureBlobService.offloadPayloadToBlob(nextAttempt.topic(), kafkaHeaders, message);
+            payloadReference = producerRecord.value().toString();
+            log.info("message to publish: {}", message);
+            messagePublishHandler.publishOnTopic(producerRecord);
         } catch (Exception ex)
         {
             log.error("Exception in retry advice ", ex);
-            azureBlobService.deletePayloadFromBlob(payloadReference);
+            if (Objects.isNull(payloadReference) && spoolRetry(message, aggregateId, originalTopic, previousHeaders)) {
+                return;
+            }
+            claimCheckBlobCleaner.scheduleDelete(payloadReference);
+        }
+    }
+
+    /**
+     * Parks a retry whose payload could not be offloaded in the local spool, to be routed to its
+     * retry tier once blob storage is available again.
+     */
+    private boolean spoolRetry(T message, T aggregateId, String originalTopic, Headers previousHeaders) {
+        try {
+            ProducerRecord<String, T> producerRecord = retryTopicRouter.nextAttempt(null, originalTopic, previousHeaders);
+            var kafkaHeaders = producerRecord.headers();
+            if (Objects.nonNull(aggregateId) && Objects.isNull(kafkaHeaders.lastHeader(PayloadHeaders.CORRELATION_ID))) {
+                PayloadHeaders.add(kafkaHeaders, PayloadHeaders.CORRELATION_ID, aggregateId.toString());
+            }
+            azureBlobService.spoolPayload(producerRecord.topic(), kafkaHeaders, message);
+            log.info("Retry payload spooled for topic {}", producerRecord.topic());
+            return true;
+        } catch (Exception ex) {
+            log.error("Exception while spooling retry payload", ex);
+            return false;
         }
     }
 }
@@ -0,0 +1,123 @@
+package com.maersk.kafkautility.service;
+
+import com.maersk.kafkautility.utils.PayloadHeaders;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Picks the retry topic for the next attempt of a failed message. Tiers are configured as
+ * {@code kafka.retry.tiers=10s:orders-retry-10s,1m:orders-retry-1m,10m:orders-retry-10m};
+ * attempts beyond the last tier go to {@code kafka.retry.dlq-topic}, or stay on the last tier
+ * when no DLQ is set. Without tiers every attempt goes to {@code kafka.retry.topic} undelayed.
+ */
+@Slf4j
+@Component
+public class RetryTopicRouter {
+
+    @Autowired
+    private ApplicationContext context;
+
+    private static final String RETRY_TOPIC_PLACEHOLDER = "${kafka.retry.topic}";
+    private static final String RETRY_TIERS = "${kafka.retry.tiers:}";
+    private static final String RETRY_DLQ_TOPIC = "${kafka.retry.dlq-topic:}";
+    private static final Set<String> RETRY_HEADERS = Set.of(PayloadHeaders.RETRY_ATTEMPT, PayloadHeaders.RETRY_DUE_AT, PayloadHeaders.RETRY_ORIGINAL_TOPIC);
+
+    private List<RetryTier> tiers;
+    private String dlqTopic;
+
+    @PostConstruct
+    public void init() {
+        var environment = context.getEnvironment();
+        List<RetryTier> configured = new ArrayList<>();
+        for (String tier : environment.resolvePlaceholders(RETRY_TIERS).split(",")) {
+            if (tier.isBlank()) {
+                continue;
+            }
+            int separator = tier.indexOf(':');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Retry tier must be <delay>:<topic>, got: " + tier);
+            }
+            configured.add(new RetryTier(DurationStyle.detectAndParse(tier.substring(0, separator).trim()), tier.substring(separator + 1).trim()));
+        }
+        if (configured.isEmpty()) {
+            configured.add(new RetryTier(Duration.ZERO, environment.resolvePlaceholders(RETRY_TOPIC_PLACEHOLDER)));
+        }
+        tiers = Collections.unmodifiableList(configured);
+        dlqTopic = environment.resolvePlaceholders(RETRY_DLQ_TOPIC);
+        log.info("Retry tiers: {}, DLQ topic: {}", tiers, dlqTopic);
+    }
+
+    public List<RetryTier> getTiers() {
+        return tiers;
+    }
+
+    public boolean isDelayed() {
+        return tiers.stream().anyMatch(tier -> !tier.getDelay().isZero());
+    }
+
+    /**
+     * Builds the record for the attempt after the one described by the previous headers, keeping
+     * other headers such as the correlation id. The failed record's claim-check headers describe
+     * its own value, not the one retried, so they are dropped and the caller sets those of the new
+     * value.
+     */
+    public <T> ProducerRecord<String, T> nextAttempt(T value, String originalTopic, Headers previousHeaders) {
+        int attempt = (int) PayloadHeaders.lastLongValue(previousHeaders, PayloadHeaders.RETRY_ATTEMPT, 0) + 1;
+        String targetTopic = Objects.nonNull(originalTopic) ? originalTopic : PayloadHeaders.lastValue(previousHeaders, PayloadHeaders.RETRY_ORIGINAL_TOPIC);
+        RetryTier tier;
+        ProducerRecord<String, T> producerRecord;
+        if (attempt > tiers.size() && !dlqTopic.isEmpty()) {
+            log.info("Retry attempts exhausted, sending to DLQ topic: {}", dlqTopic);
+            tier = null;
+            producerRecord = new ProducerRecord<>(dlqTopic, value);
+        } else {
+            tier = tiers.get(Math.min(attempt, tiers.size()) - 1);
+            producerRecord = new ProducerRecord<>(tier.getTopic(), value);
+        }
+        var headers = producerRecord.headers();
+        if (Objects.nonNull(previousHeaders)) {
+            for (Header header : previousHeaders) {
+                if (!RETRY_HEADERS.contains(header.key()) && !PayloadHeaders.VALUE_HEADERS.contains(header.key())) {
+                    headers.add(header);
+                }
+            }
+        }
+        PayloadHeaders.add(headers, PayloadHeaders.RETRY_ATTEMPT, String.valueOf(attempt));
+        if (Objects.nonNull(targetTopic)) {
+            PayloadHeaders.add(headers, PayloadHeaders.RETRY_ORIGINAL_TOPIC, targetTopic);
+        }
+        if (Objects.nonNull(tier)) {
+            PayloadHeaders.add(headers, PayloadHeaders.RETRY_DUE_AT, String.valueOf(System.currentTimeMillis() + tier.getDelay().toMillis()));
+        }
+        log.info("Retry attempt {} routed to topic: {}", attempt, producerRecord.topic());
+        return producerRecord;
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    public static class RetryTier {
+        private final Duration delay;
+        private final String topic;
+
+        @Override
+        public String toString() {
+            return delay + ":" + topic;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.maersk.kafkautility.service;
+
+import org.apache.kafka.clients.producer.Partitioner;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.Cluster;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.utils.Utils;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Partitioner for mixed inline and claim-check traffic, enabled with
+ * {@code spring.kafka.producer.properties.partitioner.class}. Keyed records go to the partition
+ * of their key exactly as with the default partitioner, so per-key ordering holds. Keyless
+ * records stick to one partition for {@code partitioner.size-aware.sticky-bytes} (batch.size by
+ * default), keeping batches full, and then move to the available partition that has received the
+ * fewest bytes, so a run of large inline payloads does not pile onto the same partitions. Bytes
+ * of keyed records are counted too, so keyless traffic fills in around hot keys.
+ */
+public class SizeAwarePartitioner implements Partitioner {
+
+    public static final String STICKY_BYTES_CONFIG = "partitioner.size-aware.sticky-bytes";
+    private static final int DEFAULT_STICKY_BYTES = 16384;
+
+    private final Map<String, TopicLoad> topicLoads = new ConcurrentHashMap<>();
+    private long stickyBytes = DEFAULT_STICKY_BYTES;
+
+    @Override
+    public void configure(Map<String, ?> configs) {
+        Object configured = configs.get(STICKY_BYTES_CONFIG);
+        if (Objects.isNull(configured)) {
+            configured = configs.get(ProducerConfig.BATCH_SIZE_CONFIG);
+        }
+        if (Objects.nonNull(configured)) {
+            stickyBytes = Long.parseLong(String.valueOf(configured));
+        }
+    }
+
+    @Override
+    public int partition(String topic, Object key, byte[] keyBytes, Object value, byte[] valueBytes, Cluster cluster) {
+        int numPartitions = cluster.partitionCountForTopic(topic);
+        int size = (Objects.isNull(keyBytes) ? 0 : keyBytes.length) + (Objects.isNull(valueBytes) ? 0 : valueBytes.length);
+        var load = topicLoads.computeIfAbsent(topic, ignored -> new TopicLoad());
+        if (Objects.nonNull(keyBytes)) {
+            int partition = Utils.toPositive(Utils.murmur2(keyBytes)) % numPartitions;
+            load.add(partition, numPartitions, size);
+            return partition;
+        }
+        return load.next(cluster.availablePartitionsForTopic(topic), numPartitions, size);
+    }
+
+    @Override
+    public void close() {
+        topicLoads.clear();
+    }
+
+    private final class TopicLoad {
+        private long[] bytes = new long[0];
+        private int current = -1;
+        private long stuckBytes;
+
+        private synchronized void add(int partition, int numPartitions, int size) {
+            grow(numPartitions);
+            bytes[partition] += size;
+        }
+
+        private synchronized int next(List<PartitionInfo> available, int numPartitions, int size) {
+            grow(numPartitions);
+            if (current < 0 || current >= numPartitions || stuckBytes >= stickyBytes
+                    || (available.size() < numPartitions && !isAvailable(available, current))) {
+                current = leastLoaded(available, numPartitions);
+                stuckBytes = 0;
+            }
+            bytes[current] += size;
+            stuckBytes += size;
+            return current;
+        }
+
+        /**
+         * Partitions added to the topic start level with the least loaded existing one.
+         */
+        private void grow(int numPartitions) {
+            if (bytes.length < numPartitions) {
+                long floor = Arrays.stream(bytes).min().orElse(0);
+                int previous = bytes.length;
+                bytes = Arrays.copyOf(bytes, numPartitions);
+                Arrays.fill(bytes, previous, numPartitions, floor);
+            }
+        }
+
+        /**
+         * Partitions that are unavailable are lifted to the least loaded available one, so they
+         * do not take all traffic for a while once they are back.
+         */
+        private int leastLoaded(List<PartitionInfo> available, int numPartitions) {
+            if (available.isEmpty()) {
+                return ThreadLocalRandom.current().nextInt(numPartitions);
+            }
+            int least = available.get(0).partition();
+            for (PartitionInfo partition : available) {
+                if (bytes[partition.partition()] < bytes[least]) {
+                    least = partition.partition();
+                }
+            }
+            for (int partition = 0; partition < numPartitions && available.size() < numPartitions; partition++) {
+                if (bytes[partition] < bytes[least] && !isAvailable(available, partition)) {
+                    bytes[partition] = bytes[least];
+                }
+            }
+            return least;
+        }
+
+        private boolean isAvailable(List<PartitionInfo> available, int partition) {
+            for (PartitionInfo info : available) {
+                if (info.partition() == partition) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.maersk.kafkautility.service;
+
+import com.maersk.kafkautility.compression.PayloadCompressor;
+import com.maersk.kafkautility.utils.PayloadBuffer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Objects;
+
+/**
+ * Keeps encoded bytes in memory until they pass the spill threshold, then streams the buffered
+ * prefix and everything after it through the compressor into a block upload, so large payloads
+ * are encoded straight into blob storage instead of being materialized first.
+ */
+public class SpillingPayloadStream extends OutputStream {
+
+    private final PayloadBuffer buffer;
+    private final long spillThreshold;
+    private final BlockBlobUploadStream uploadStream;
+    private final PayloadCompressor compressor;
+
+    private OutputStream target;
+    private long count;
+
+    public SpillingPayloadStream(PayloadBuffer buffer, long spillThreshold, BlockBlobUploadStream uploadStream, PayloadCompressor compressor) {
+        this.buffer = buffer;
+        this.spillThreshold = spillThreshold;
+        this.uploadStream = uploadStream;
+        this.compressor = compressor;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        count++;
+        if (Objects.isNull(target) && buffer.size() < spillThreshold) {
+            buffer.write(b);
+            return;
+        }
+        spill();
+        target.write(b);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        count += length;
+        if (Objects.isNull(target) && buffer.size() + (long) length <= spillThreshold) {
+            buffer.write(bytes, offset, length);
+            return;
+        }
+        spill();
+        target.write(bytes, offset, length);
+    }
+
+    public boolean isSpilled() {
+        return Objects.nonNull(target);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public PayloadBuffer getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * Completes the compressed stream and commits the blob. Only valid once spilled.
+     */
+    public void finish() throws IOException {
+        target.close();
+    }
+
+    public void abort() {
+        if (isSpilled()) {
+            uploadStream.abort();
+        }
+    }
+
+    private void spill() throws IOException {
+        if (Objects.nonNull(target)) {
+            return;
+        }
+        target = compressor.compress(uploadStream);
+        target.write(buffer.array(), 0, buffer.size());
+        buffer.reset();
+    }
+}
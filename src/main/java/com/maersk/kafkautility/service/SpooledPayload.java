@@ -0,0 +1,85 @@
+package com.maersk.kafkautility.service;
+
+import lombok.Getter;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Objects;
+
+/**
+ * A payload parked in the {@link ClaimCheckSpool}: the encoded (uncompressed) payload bytes, as
+ * {@link PayloadWriter} lays them out after the codec and type names, plus the topic, key and
+ * headers of the record to publish once it has been uploaded.
+ */
+@Getter
+public class SpooledPayload {
+
+    private final long id;
+    private final String topic;
+    private final String key;
+    private final Headers headers;
+    private final String codec;
+    private final String payloadType;
+    private final byte[] encodedPayload;
+
+    public SpooledPayload(long id, String topic, String key, Headers headers, String codec, String payloadType, byte[] encodedPayload)
+    {
+        this.id = id;
+        this.topic = topic;
+        this.key = key;
+        this.headers = headers;
+        this.codec = codec;
+        this.payloadType = payloadType;
+        this.encodedPayload = encodedPayload;
+    }
+
+    void writeTo(DataOutput out) throws IOException
+    {
+        out.writeUTF(codec);
+        out.writeUTF(payloadType);
+        out.writeUTF(topic);
+        out.writeBoolean(Objects.nonNull(key));
+        if (Objects.nonNull(key)) {
+            out.writeUTF(key);
+        }
+        Header[] headerArray = Objects.isNull(headers) ? new Header[0] : headers.toArray();
+        out.writeShort(headerArray.length);
+        for (Header header : headerArray) {
+            out.writeUTF(header.key());
+            byte[] value = header.value();
+            out.writeInt(Objects.isNull(value) ? -1 : value.length);
+            if (Objects.nonNull(value)) {
+                out.write(value);
+            }
+        }
+        out.writeInt(encodedPayload.length);
+        out.write(encodedPayload);
+    }
+
+    static SpooledPayload readFrom(long id, DataInput in) throws IOException
+    {
+        String codec = in.readUTF();
+        String payloadType = in.readUTF();
+        String topic = in.readUTF();
+        String key = in.readBoolean() ? in.readUTF() : null;
+        var headers = new RecordHeaders();
+        int headerCount = in.readUnsignedShort();
+        for (int i = 0; i < headerCount; i++) {
+            String headerKey = in.readUTF();
+            int length = in.readInt();
+            byte[] value = null;
+            if (length >= 0) {
+                value = new byte[length];
+                in.readFully(value);
+            }
+            headers.add(headerKey, value);
+        }
+        byte[] encodedPayload = new byte[in.readInt()];
+        in.readFully(encodedPayload);
+        return new SpooledPayload(id, topic, key, headers, codec, payloadType, encodedPayload);
+    }
+}
@@ -1,62 +1,77 @@
 package com.maersk.kafkautility.utils;
 
-import com.microsoft.azure.storage.CloudStorageAccount;
-import com.microsoft.azure.storage.StorageException;
-import com.microsoft.azure.storage.blob.CloudBlobClient;
-import com.microsoft.azure.storage.blob.CloudBlobContainer;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.context.ApplicationContext;
-import org.springframework.stereotype.Component;
 
-import java.net.URISyntaxException;
-import java.security.InvalidKeyException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.UUID;
 
 @Slf4j
-@Component
-public class AzureUtil {
+public final class AzureUtil {
 
     private AzureUtil()
     {
         //private constructor
     }
 
-    @Autowired
-    private static ApplicationContext context;
-
-    private static final String PAYLOAD_FILE_NAME = "${events-payload.file-name}";
-    private static final String AZURE_STORAGE_ACCOUNT_NAME = "${azure.storage.account-name}";
-    private static final String AZURE_STORAGE_ACCOUNT_KEY = "${azure.storage.account-key}";
-    private static final String AZURE_STORAGE_CONTAINER_NAME = "${azure.storage.container-name}";
-    private static final String AZURE_STORAGE_ENDPOINT_SUFFIX = "${azure.storage.endpoint-suffix}";
     private static final String CONNECTION_STRING = "DefaultEndpointsProtocol=https;AccountName=%s;AccountKey=%s;EndpointSuffix=%s";
 
-    public static CloudBlobContainer getCloudBlobContainer() throws StorageException, URISyntaxException, InvalidKeyException {
-        String containerName = context.getEnvironment().resolvePlaceholders(AZURE_STORAGE_CONTAINER_NAME);
-        log.info("containerName: {}", containerName);
-        CloudStorageAccount storageAccountDest = CloudStorageAccount.parse(getConnectionString());
-        CloudBlobClient blobClientDest = storageAccountDest.createCloudBlobClient();
-        CloudBlobContainer containerDest = blobClientDest.getContainerReference(containerName);
-        log.info("Container: {}", containerDest.getName());
-        return containerDest;
-    }
-
-    private static String getConnectionString()
+    public static String getConnectionString(String storageAccountName, String storageAccountKey, String endpointSuffix)
     {
-        String storageAccountName = context.getEnvironment().resolvePlaceholders(AZURE_STORAGE_ACCOUNT_NAME);
-        String storageAccountKey = context.getEnvironment().resolvePlaceholders(AZURE_STORAGE_ACCOUNT_KEY);
-        String endpointSuffix = context.getEnvironment().resolvePlaceholders(AZURE_STORAGE_ENDPOINT_SUFFIX);
-        String connectionString = String.format(CONNECTION_STRING,storageAccountName,storageAccountKey,endpointSuffix);
-        log.info("Azure storage connection string: {}", connectionString);
-        return connectionString;
+        return String.format(CONNECTION_STRING, storageAccountName, storageAccountKey, endpointSuffix);
     }
 
-    public static String getPayloadFilename()
+    public static String getPayloadFilename(String filePrefix)
     {
-        String fileName = context.getEnvironment().resolvePlaceholders(PAYLOAD_FILE_NAME);
-        fileName = fileName.concat("_").concat(UUID.randomUUID().toString()).concat(".dat");
+        String fileName = filePrefix.concat("_").concat(UUID.randomUUID().toString()).concat(".dat");
         log.info("Payload file name: {}", fileName);
         return fileName;
     }
+
+    public static String getContentAddressedFilename(String filePrefix, byte[] digest)
+    {
+        StringBuilder fileName = new StringBuilder(filePrefix.length() + digest.length * 2 + 16);
+        fileName.append(filePrefix).append("_sha256-");
+        for (byte b : digest) {
+            fileName.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return fileName.append(".dat").toString();
+    }
+
+    /**
+     * SHA-256 naming a content-addressed blob: the codec, compression and payload type the bytes
+     * are stored with, then the encoded bytes. Every field is prefixed with its length, so shifting
+     * characters between fields never yields the same digest input.
+     */
+    public static byte[] contentAddress(String codec, String compression, String payloadType, byte[] bytes, int offset, int length)
+    {
+        var digest = newSha256();
+        updateField(digest, codec);
+        updateField(digest, compression);
+        updateField(digest, payloadType);
+        updateField(digest, bytes, offset, length);
+        return digest.digest();
+    }
+
+    public static MessageDigest newSha256()
+    {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static void updateField(MessageDigest digest, String field)
+    {
+        byte[] bytes = field.getBytes(StandardCharsets.UTF_8);
+        updateField(digest, bytes, 0, bytes.length);
+    }
+
+    private static void updateField(MessageDigest digest, byte[] bytes, int offset, int length)
+    {
+        digest.update(new byte[] {(byte) (length >>> 24), (byte) (length >>> 16), (byte) (length >>> 8), (byte) length});
+        digest.update(bytes, offset, length);
+    }
 }
@@ -0,0 +1,113 @@
+package com.maersk.kafkautility.utils;
+
+import lombok.Getter;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Objects;
+
+/**
+ * What a record carries, readable from its headers without fetching or decoding the payload.
+ * Offloaded and chunked records get it as one compact binary header; for other records it is
+ * pieced together from the plain type, codec and size headers. The content hash is only set with
+ * {@code events-payload.metadata.content-hash} or content-addressed storage, and never for payloads
+ * spilled by the streaming upload, whose bytes are not buffered.
+ */
+@Getter
+public final class ClaimCheckMetadata {
+
+    private static final byte VERSION = 1;
+
+    private final String payloadType;
+    private final long encodedSize;
+    private final String codec;
+    private final String compression;
+    private final byte[] contentHash;
+    private final long createdAt;
+    private final String correlationId;
+
+    public ClaimCheckMetadata(String payloadType, long encodedSize, String codec, String compression, byte[] contentHash, long createdAt, String correlationId)
+    {
+        this.payloadType = payloadType;
+        this.encodedSize = encodedSize;
+        this.codec = codec;
+        this.compression = compression;
+        this.contentHash = contentHash;
+        this.createdAt = createdAt;
+        this.correlationId = correlationId;
+    }
+
+    /**
+     * @return the metadata of the record, or null if it has neither the metadata header nor a type header
+     */
+    public static ClaimCheckMetadata from(Headers headers)
+    {
+        Header header = Objects.isNull(headers) ? null : headers.lastHeader(PayloadHeaders.CLAIM_CHECK_METADATA);
+        if (Objects.nonNull(header) && Objects.nonNull(header.value())) {
+            return fromBytes(header.value());
+        }
+        String payloadType = PayloadHeaders.lastValue(headers, PayloadHeaders.PAYLOAD_TYPE);
+        if (Objects.isNull(payloadType)) {
+            return null;
+        }
+        return new ClaimCheckMetadata(payloadType,
+                PayloadHeaders.lastLongValue(headers, PayloadHeaders.PAYLOAD_ORIGINAL_SIZE, -1),
+                PayloadHeaders.lastValue(headers, PayloadHeaders.PAYLOAD_CODEC),
+                PayloadHeaders.lastValue(headers, PayloadHeaders.PAYLOAD_COMPRESSION),
+                null, -1, PayloadHeaders.lastValue(headers, PayloadHeaders.CORRELATION_ID));
+    }
+
+    public static ClaimCheckMetadata fromBytes(byte[] bytes)
+    {
+        try (var in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            byte version = in.readByte();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported claim-check metadata version: " + version);
+            }
+            String payloadType = in.readUTF();
+            long encodedSize = in.readLong();
+            String codec = in.readUTF();
+            String compression = in.readUTF();
+            byte[] contentHash = new byte[in.readUnsignedByte()];
+            in.readFully(contentHash);
+            long createdAt = in.readLong();
+            String correlationId = in.readUTF();
+            return new ClaimCheckMetadata(payloadType, encodedSize, codec, compression,
+                    contentHash.length == 0 ? null : contentHash, createdAt, correlationId.isEmpty() ? null : correlationId);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Malformed claim-check metadata header", e);
+        }
+    }
+
+    public byte[] toBytes()
+    {
+        var bytes = new ByteArrayOutputStream(64 + payloadType.length());
+        try (var out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION);
+            out.writeUTF(payloadType);
+            out.writeLong(encodedSize);
+            out.writeUTF(Objects.toString(codec, ""));
+            out.writeUTF(Objects.toString(compression, ""));
+            out.writeByte(Objects.isNull(contentHash) ? 0 : contentHash.length);
+            if (Objects.nonNull(contentHash)) {
+                out.write(contentHash);
+            }
+            out.writeLong(createdAt);
+            out.writeUTF(Objects.toString(correlationId, ""));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public void addTo(Headers headers)
+    {
+        headers.add(PayloadHeaders.CLAIM_CHECK_METADATA, toBytes());
+    }
+}
@@ -0,0 +1,51 @@
+package com.maersk.kafkautility.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayDeque;
+
+/**
+ * Per-thread growable buffer the payload is encoded into once, so the same bytes can be
+ * measured and uploaded without copying. A thread keeps a couple of buffers so one stage
+ * (e.g. compression) can write into a second buffer while the first is still in use.
+ * Buffers that grew past {@link #MAX_RETAINED_CAPACITY} are dropped on release so one huge
+ * payload does not pin memory on a pooled thread.
+ */
+public final class PayloadBuffer extends ByteArrayOutputStream {
+
+    private static final int INITIAL_CAPACITY = 8 * 1024;
+    private static final int MAX_RETAINED_CAPACITY = 4 * 1024 * 1024;
+    private static final int MAX_RETAINED_BUFFERS = 2;
+    private static final ThreadLocal<ArrayDeque<PayloadBuffer>> BUFFERS = ThreadLocal.withInitial(ArrayDeque::new);
+
+    private PayloadBuffer()
+    {
+        super(INITIAL_CAPACITY);
+    }
+
+    public static PayloadBuffer acquire()
+    {
+        PayloadBuffer buffer = BUFFERS.get().poll();
+        if (buffer == null) {
+            return new PayloadBuffer();
+        }
+        buffer.reset();
+        return buffer;
+    }
+
+    public byte[] array()
+    {
+        return buf;
+    }
+
+    public void release()
+    {
+        if (buf.length > MAX_RETAINED_CAPACITY) {
+            buf = new byte[INITIAL_CAPACITY];
+        }
+        count = 0;
+        ArrayDeque<PayloadBuffer> buffers = BUFFERS.get();
+        if (buffers.size() < MAX_RETAINED_BUFFERS) {
+            buffers.push(this);
+        }
+    }
+}
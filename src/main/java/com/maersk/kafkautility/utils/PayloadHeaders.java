@@ -0,0 +1,57 @@
+package com.maersk.kafkautility.utils;
+
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.Set;
+
+public final class PayloadHeaders {
+
+    public static final String IS_LARGE_PAYLOAD = "isLargePayload";
+    public static final String CORRELATION_ID = "X-DOCBROKER-Correlation-ID";
+    public static final String PAYLOAD_CODEC = "payloadCodec";
+    public static final String PAYLOAD_TYPE = "payloadType";
+    public static final String PAYLOAD_COMPRESSION = "payloadCompression";
+    public static final String PAYLOAD_ORIGINAL_SIZE = "payloadOriginalSize";
+    public static final String RETRY_ATTEMPT = "retryAttempt";
+    public static final String RETRY_DUE_AT = "retryDueAt";
+    public static final String RETRY_ORIGINAL_TOPIC = "retryOriginalTopic";
+    public static final String CHUNK_MESSAGE_ID = "chunkMessageId";
+    public static final String CHUNK_INDEX = "chunkIndex";
+    public static final String CHUNK_COUNT = "chunkCount";
+    public static final String CHUNKED = "CHUNKED";
+    public static final String CLAIM_CHECK_METADATA = "claimCheckMetadata";
+
+    /**
+     * Headers describing the record value, which are only valid alongside that value.
+     */
+    public static final Set<String> VALUE_HEADERS = Set.of(IS_LARGE_PAYLOAD, PAYLOAD_CODEC, PAYLOAD_TYPE,
+            PAYLOAD_COMPRESSION, PAYLOAD_ORIGINAL_SIZE, CHUNK_MESSAGE_ID, CHUNK_INDEX, CHUNK_COUNT, CLAIM_CHECK_METADATA);
+
+    private PayloadHeaders()
+    {
+        //private constructor
+    }
+
+    public static void add(Headers headers, String key, String value)
+    {
+        headers.add(key, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static String lastValue(Headers headers, String key)
+    {
+        if (Objects.isNull(headers)) {
+            return null;
+        }
+        Header header = headers.lastHeader(key);
+        return Objects.isNull(header) || Objects.isNull(header.value()) ? null : new String(header.value(), StandardCharsets.UTF_8);
+    }
+
+    public static long lastLongValue(Headers headers, String key, long defaultValue)
+    {
+        String value = lastValue(headers, key);
+        return Objects.isNull(value) ? defaultValue : Long.parseLong(value);
+    }
+}
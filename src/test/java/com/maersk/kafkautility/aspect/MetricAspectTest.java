@@ -0,0 +1,71 @@
+package com.maersk.kafkautility.aspect;
+
+import com.maersk.kafkautility.annotations.CounterMetric;
+import com.maersk.kafkautility.annotations.TimedMetric;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MetricAspectTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private Handler handler;
+
+    @BeforeEach
+    void setUp() {
+        var aspect = new MetricAspect();
+        ReflectionTestUtils.setField(aspect, "meterRegistry", meterRegistry);
+        var proxyFactory = new AspectJProxyFactory(new Handler());
+        proxyFactory.addAspect(aspect);
+        handler = proxyFactory.getProxy();
+    }
+
+    @Test
+    void countsInvocationsOnOneCachedCounter() {
+        handler.consume();
+        handler.consume();
+
+        var methodName = Handler.class.getName() + ".consume";
+        assertEquals(2, meterRegistry.get(methodName).tag("Method", methodName).counter().count());
+        assertEquals(1, meterRegistry.getMeters().size());
+    }
+
+    @Test
+    void timesSuccessfulAndFailedCalls() {
+        handler.timed(false);
+        assertThrows(IllegalStateException.class, () -> handler.timed(true));
+
+        var timer = meterRegistry.get("handler.latency").tag("class", Handler.class.getName()).tag("method", "timed").timer();
+        assertEquals(2, timer.count());
+    }
+
+    @Test
+    void defaultsTimerName() {
+        handler.timedWithDefaults();
+
+        assertEquals(1, meterRegistry.get("method.timed").tag("method", "timedWithDefaults").timer().count());
+    }
+
+    static class Handler {
+
+        @CounterMetric
+        public void consume() {
+        }
+
+        @TimedMetric("handler.latency")
+        public void timed(boolean fail) {
+            if (fail) {
+                throw new IllegalStateException("failed");
+            }
+        }
+
+        @TimedMetric(histogram = false)
+        public void timedWithDefaults() {
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.maersk.kafkautility.audit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RollingFileAuditSinkTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void rollsOnEncodedBytesNotCharacters() throws Exception {
+        var path = directory.resolve("audit.log");
+        var line = "æøå".repeat(10);
+        var sink = new RollingFileAuditSink(path, 50, 2);
+
+        sink.write(List.of(line));
+
+        assertFalse(Files.exists(path));
+        assertEquals(61, Files.size(directory.resolve("audit.log.1")));
+        sink.close();
+    }
+
+    @Test
+    void keepsAppendingBelowLimitAndDropsOldestRolledFile() throws Exception {
+        var path = directory.resolve("audit.log");
+        var sink = new RollingFileAuditSink(path, 10, 1);
+
+        sink.write(List.of("first"));
+        assertTrue(Files.exists(path));
+        sink.write(List.of("second"));
+        sink.write(List.of("third-line"));
+        sink.close();
+
+        assertFalse(Files.exists(path));
+        assertEquals(List.of("third-line"), Files.readAllLines(directory.resolve("audit.log.1"), StandardCharsets.UTF_8));
+        assertFalse(Files.exists(directory.resolve("audit.log.2")));
+    }
+
+    @Test
+    void resumesSizeOfExistingFile() throws Exception {
+        var path = directory.resolve("audit.log");
+        Files.writeString(path, "12345678\n");
+        var sink = new RollingFileAuditSink(path, 12, 1);
+
+        sink.write(List.of("ab"));
+        sink.close();
+
+        assertEquals(List.of("12345678", "ab"), Files.readAllLines(directory.resolve("audit.log.1"), StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,121 @@
+package com.maersk.kafkautility.codec;
+
+import com.maersk.kafkautility.codec.PayloadCodecsTest.Order;
+import com.maersk.kafkautility.utils.PayloadHeaders;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PayloadCodecSerdeTest {
+
+    private static final String TOPIC = "orders";
+
+    private final PayloadCodecSerializer<Object> serializer = new PayloadCodecSerializer<>();
+    private final PayloadCodecDeserializer<Object> deserializer = new PayloadCodecDeserializer<>();
+
+    @Test
+    void headersSelectCodecAndType() {
+        serializer.configure(Map.of(PayloadCodecSerializer.CODEC_CONFIG, "smile"), false);
+        var headers = new RecordHeaders();
+        var order = new Order("order-1", 3, "shipped");
+
+        byte[] bytes = serializer.serialize(TOPIC, headers, order);
+
+        assertEquals("smile", PayloadHeaders.lastValue(headers, PayloadHeaders.PAYLOAD_CODEC));
+        assertEquals(Order.class.getName(), PayloadHeaders.lastValue(headers, PayloadHeaders.PAYLOAD_TYPE));
+        assertEquals(order, deserializer.deserialize(TOPIC, headers, bytes));
+    }
+
+    @Test
+    void recordsWithoutHeadersUseConfiguredDefaults() {
+        serializer.configure(Map.of(PayloadCodecSerializer.CODEC_CONFIG, "json"), false);
+        deserializer.configure(Map.of(PayloadCodecDeserializer.CODEC_CONFIG, "json",
+                PayloadCodecDeserializer.TYPE_CONFIG, Order.class.getName()), false);
+        var order = new Order("order-1", 3, "shipped");
+
+        assertEquals(order, deserializer.deserialize(TOPIC, serializer.serialize(TOPIC, order)));
+        assertEquals(order, deserializer.deserialize(TOPIC, new RecordHeaders(), serializer.serialize(TOPIC, order)));
+    }
+
+    @Test
+    void referenceRecordsKeepPayloadHeadersAndDecodeAsString() {
+        var headers = new RecordHeaders();
+        PayloadHeaders.add(headers, PayloadHeaders.IS_LARGE_PAYLOAD, "YES");
+        PayloadHeaders.add(headers, PayloadHeaders.PAYLOAD_CODEC, "smile");
+        PayloadHeaders.add(headers, PayloadHeaders.PAYLOAD_TYPE, Order.class.getName());
+        String reference = "https://account.blob.core.windows.net/claims/order-1.dat";
+
+        byte[] bytes = serializer.serialize(TOPIC, headers, reference);
+
+        assertEquals(1, count(headers, PayloadHeaders.PAYLOAD_CODEC));
+        assertEquals(1, count(headers, PayloadHeaders.PAYLOAD_TYPE));
+        assertEquals(reference, deserializer.deserialize(TOPIC, headers, bytes));
+    }
+
+    @Test
+    void sendsAttachedBytesWithoutEncodingAgain() throws IOException {
+        var headers = new RecordHeaders();
+        var order = new Order("order-1", 3, "shipped");
+        byte[] encoded = PayloadCodecsTest.encode(serializer.getCodec(), order);
+        EncodedPayloads.attach(headers, order, encoded, serializer.getCodec().getName());
+
+        byte[] bytes = serializer.serialize(TOPIC, headers, order);
+
+        assertArrayEquals(encoded, bytes);
+        assertNull(headers.lastHeader(EncodedPayloads.HEADER));
+        assertEquals(1, count(headers, PayloadHeaders.PAYLOAD_TYPE));
+        assertEquals(order, deserializer.deserialize(TOPIC, headers, bytes));
+    }
+
+    @Test
+    void encodesAgainWhenAttachedBytesDoNotMatch() throws IOException {
+        var order = new Order("order-1", 3, "shipped");
+        var headers = new RecordHeaders();
+        EncodedPayloads.attach(headers, order, PayloadCodecsTest.encode(PayloadCodecs.forName("json"), order), "json");
+
+        byte[] bytes = serializer.serialize(TOPIC, headers, order);
+
+        assertNull(headers.lastHeader(EncodedPayloads.HEADER));
+        assertEquals(JavaSerializationCodec.NAME, PayloadHeaders.lastValue(headers, PayloadHeaders.PAYLOAD_CODEC));
+        assertEquals(order, deserializer.deserialize(TOPIC, headers, bytes));
+    }
+
+    @Test
+    void chunkFragmentsPassThroughAsRawBytes() {
+        var headers = new RecordHeaders();
+        PayloadHeaders.add(headers, PayloadHeaders.IS_LARGE_PAYLOAD, PayloadHeaders.CHUNKED);
+        PayloadHeaders.add(headers, PayloadHeaders.PAYLOAD_TYPE, Order.class.getName());
+        byte[] fragment = {1, 2, 3, (byte) 0xff};
+
+        byte[] bytes = serializer.serialize(TOPIC, headers, fragment);
+
+        assertArrayEquals(fragment, bytes);
+        assertNull(headers.lastHeader(PayloadHeaders.PAYLOAD_CODEC));
+        assertEquals(1, count(headers, PayloadHeaders.PAYLOAD_TYPE));
+        assertArrayEquals(fragment, (byte[]) deserializer.deserialize(TOPIC, headers, bytes));
+    }
+
+    @Test
+    void chunkRecordsMustCarryBytes() {
+        var headers = new RecordHeaders();
+        PayloadHeaders.add(headers, PayloadHeaders.IS_LARGE_PAYLOAD, PayloadHeaders.CHUNKED);
+
+        assertThrows(SerializationException.class, () -> serializer.serialize(TOPIC, headers, "not a fragment"));
+    }
+
+    private static int count(RecordHeaders headers, String key) {
+        int count = 0;
+        for (var ignored : headers.headers(key)) {
+            count++;
+        }
+        return count;
+    }
+}
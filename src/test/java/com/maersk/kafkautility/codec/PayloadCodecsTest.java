@@ -0,0 +1,89 @@
+package com.maersk.kafkautility.codec;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PayloadCodecsTest {
+
+    @ParameterizedTest
+    @ValueSource(strings = {"java", "json", "smile"})
+    void roundTripsTypedPayload(String name) throws IOException {
+        var codec = PayloadCodecs.forName(name);
+        var order = new Order("order-1", 3, "shipped");
+
+        assertEquals(order, decode(codec, encode(codec, order), Order.class));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"json", "smile"})
+    void jacksonCodecsDecodeUntypedPayloadsAsMaps(String name) throws IOException {
+        var codec = PayloadCodecs.forName(name);
+
+        var decoded = decode(codec, encode(codec, new Order("order-1", 3, "shipped")), null);
+
+        assertInstanceOf(Map.class, decoded);
+        assertEquals("order-1", ((Map<?, ?>) decoded).get("id"));
+    }
+
+    @Test
+    void smileIsSmallerThanJavaSerialization() throws IOException {
+        var order = new Order("order-1", 3, "shipped");
+
+        assertTrue(encode(PayloadCodecs.forName("smile"), order).length < encode(PayloadCodecs.forName("java"), order).length);
+    }
+
+    @Test
+    void defaultsToJavaSerialization() {
+        assertEquals(JavaSerializationCodec.NAME, PayloadCodecs.forName(null).getName());
+        assertEquals(JavaSerializationCodec.NAME, PayloadCodecs.forName("").getName());
+    }
+
+    @Test
+    void rejectsUnknownCodecAndType() {
+        assertThrows(IllegalArgumentException.class, () -> PayloadCodecs.forName("avro"));
+        assertThrows(IllegalArgumentException.class, () -> PayloadCodecs.resolveType("com.example.Missing"));
+    }
+
+    @Test
+    void resolvesTypeNames() {
+        assertEquals(Order.class, PayloadCodecs.resolveType(Order.class.getName()));
+        assertNull(PayloadCodecs.resolveType(null));
+    }
+
+    static byte[] encode(PayloadCodec codec, Object payload) throws IOException {
+        var out = new ByteArrayOutputStream();
+        codec.encode(payload, out);
+        return out.toByteArray();
+    }
+
+    static Object decode(PayloadCodec codec, byte[] bytes, Class<?> type) throws IOException {
+        return codec.decode(new ByteArrayInputStream(bytes), type);
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Order implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private String id;
+        private int lines;
+        private String status;
+    }
+}
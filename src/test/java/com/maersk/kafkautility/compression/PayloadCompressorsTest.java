@@ -0,0 +1,59 @@
+package com.maersk.kafkautility.compression;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PayloadCompressorsTest {
+
+    private static final byte[] PAYLOAD = "{\"status\":\"shipped\"}".repeat(500).getBytes(StandardCharsets.UTF_8);
+
+    @ParameterizedTest
+    @ValueSource(strings = {"none", "gzip", "deflate"})
+    void roundTrips(String name) throws IOException {
+        var compressor = PayloadCompressors.forName(name);
+
+        byte[] compressed = compress(compressor, PAYLOAD);
+
+        try (InputStream in = compressor.decompress(new ByteArrayInputStream(compressed))) {
+            assertArrayEquals(PAYLOAD, in.readAllBytes());
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"gzip", "deflate"})
+    void shrinksRepetitivePayloads(String name) throws IOException {
+        assertTrue(compress(PayloadCompressors.forName(name), PAYLOAD).length < PAYLOAD.length / 10);
+    }
+
+    @Test
+    void noneWritesBytesUnchanged() throws IOException {
+        assertArrayEquals(PAYLOAD, compress(PayloadCompressors.forName(NoneCompressor.NAME), PAYLOAD));
+    }
+
+    @Test
+    void defaultsToNoneAndRejectsUnknownNames() {
+        assertEquals(NoneCompressor.NAME, PayloadCompressors.forName(null).getName());
+        assertThrows(IllegalArgumentException.class, () -> PayloadCompressors.forName("lz4"));
+    }
+
+    private static byte[] compress(PayloadCompressor compressor, byte[] bytes) throws IOException {
+        var target = new ByteArrayOutputStream();
+        try (OutputStream out = compressor.compress(target)) {
+            out.write(bytes);
+        }
+        return target.toByteArray();
+    }
+}
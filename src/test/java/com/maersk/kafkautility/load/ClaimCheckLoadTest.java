@@ -0,0 +1,248 @@
+package com.maersk.kafkautility.load;
+
+import com.maersk.kafkautility.codec.PayloadCodecDeserializer;
+import com.maersk.kafkautility.codec.PayloadCodecSerializer;
+import com.maersk.kafkautility.codec.PayloadCodecs;
+import com.maersk.kafkautility.service.AzureBlobClientProvider;
+import com.maersk.kafkautility.service.KafkaProducerServiceImpl;
+import com.maersk.kafkautility.service.MessagePublishHandler;
+import com.maersk.kafkautility.support.InMemoryAzureBlobService;
+import com.maersk.kafkautility.support.SamplePayload;
+import com.maersk.kafkautility.utils.PayloadHeaders;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * End-to-end load run: producer threads send a weighted mix of payload sizes through
+ * KafkaProducerServiceImpl and MessagePublishHandler to an embedded broker, offloading large
+ * ones to the in-memory blob store, while a consumer resolves every record back to its payload.
+ * Reports throughput, end-to-end latency percentiles and GC activity. Excluded from the default
+ * build; run with {@code mvn -Pload test} and tune with -Dload.* system properties:
+ * messages, producers, size-mix (bytes:weight,...), codec, max-payload-bytes, blob-latency-ms.
+ */
+@Slf4j
+@Tag("load")
+@SpringJUnitConfig(ClaimCheckLoadTest.LoadConfiguration.class)
+@EmbeddedKafka(partitions = 6, topics = ClaimCheckLoadTest.LOAD_TOPIC,
+        brokerProperties = {"message.max.bytes=4194304", "replica.fetch.max.bytes=4194304"})
+@TestPropertySource(properties = {
+        "kafka.notification.topic=" + ClaimCheckLoadTest.LOAD_TOPIC,
+        "events-payload.file-name=load",
+        "azure.storage.account-name=loadtest",
+        "azure.storage.account-key=bG9hZHRlc3Q=",
+        "azure.storage.container-name=loadtest",
+        "azure.storage.endpoint-suffix=core.windows.net"})
+class ClaimCheckLoadTest {
+
+    static final String LOAD_TOPIC = "load-events";
+    private static final int MAX_MESSAGE_BYTES = 4 * 1024 * 1024;
+
+    private final int messages = Integer.getInteger("load.messages", 20000);
+    private final int producers = Integer.getInteger("load.producers", 4);
+    private final String sizeMix = System.getProperty("load.size-mix", "1024:70,65536:25,2097152:5");
+
+    @Autowired
+    private KafkaProducerServiceImpl<SamplePayload> kafkaProducerService;
+
+    @Autowired
+    private InMemoryAzureBlobService<SamplePayload> blobService;
+
+    @Autowired
+    private EmbeddedKafkaBroker embeddedKafka;
+
+    @Test
+    void sustainedMixedPayloadLoad() throws Exception {
+        var templates = payloadTemplates();
+        long[] latencies = new long[messages];
+        var received = new AtomicInteger();
+        var payloadBytes = new AtomicLong();
+        var consumerDone = new CompletableFuture<Void>();
+        var consumerThread = new Thread(() -> consume(latencies, received, consumerDone), "load-consumer");
+        consumerThread.start();
+
+        var gcBefore = gcSnapshot();
+        long start = System.nanoTime();
+        ExecutorService producerPool = Executors.newFixedThreadPool(producers);
+        var sent = new AtomicInteger();
+        List<CompletableFuture<?>> sends = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int producerIndex = p;
+            sends.add(CompletableFuture.runAsync(() -> produce(templates, producerIndex, sent, payloadBytes), producerPool));
+        }
+        CompletableFuture.allOf(sends.toArray(new CompletableFuture[0])).get(10, TimeUnit.MINUTES);
+        consumerDone.get(10, TimeUnit.MINUTES);
+        long elapsed = System.nanoTime() - start;
+        var gcAfter = gcSnapshot();
+        producerPool.shutdown();
+
+        report(latencies, elapsed, payloadBytes.get(), gcAfter[0] - gcBefore[0], gcAfter[1] - gcBefore[1]);
+        assertEquals(messages, received.get());
+    }
+
+    private void produce(List<SizeTemplate> templates, int producerIndex, AtomicInteger sent, AtomicLong payloadBytes) {
+        var random = new Random(producerIndex);
+        int totalWeight = templates.stream().mapToInt(template -> template.weight).sum();
+        List<CompletableFuture<?>> inFlight = new ArrayList<>();
+        int id;
+        while ((id = sent.getAndIncrement()) < messages) {
+            var template = pick(templates, random.nextInt(totalWeight));
+            var payload = new SamplePayload(String.valueOf(id), template.payload.getEventType(), System.nanoTime(), template.payload.getBody());
+            payloadBytes.addAndGet(template.payload.getBody().length());
+            inFlight.add(kafkaProducerService.sendAsync(LOAD_TOPIC, payload));
+            if (inFlight.size() >= 256) {
+                CompletableFuture.allOf(inFlight.toArray(new CompletableFuture[0])).join();
+                inFlight.clear();
+            }
+        }
+        CompletableFuture.allOf(inFlight.toArray(new CompletableFuture[0])).join();
+    }
+
+    private void consume(long[] latencies, AtomicInteger received, CompletableFuture<Void> done) {
+        Map<String, Object> props = KafkaTestUtils.consumerProps("load-consumer", "false", embeddedKafka);
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        props.put(ConsumerConfig.MAX_PARTITION_FETCH_BYTES_CONFIG, MAX_MESSAGE_BYTES);
+        try (Consumer<String, Object> consumer = new DefaultKafkaConsumerFactory<String, Object>(props,
+                new StringDeserializer(), new PayloadCodecDeserializer<>()).createConsumer()) {
+            embeddedKafka.consumeFromAnEmbeddedTopic(consumer, LOAD_TOPIC);
+            while (received.get() < messages) {
+                for (ConsumerRecord<String, Object> consumerRecord : consumer.poll(Duration.ofMillis(500))) {
+                    SamplePayload payload;
+                    if ("YES".equals(PayloadHeaders.lastValue(consumerRecord.headers(), PayloadHeaders.IS_LARGE_PAYLOAD))) {
+                        payload = blobService.readPayloadFromBlob(consumerRecord.value().toString());
+                        blobService.deletePayloadFromBlob(consumerRecord.value().toString());
+                    } else {
+                        payload = (SamplePayload) consumerRecord.value();
+                    }
+                    int index = received.getAndIncrement();
+                    if (index < latencies.length) {
+                        latencies[index] = System.nanoTime() - payload.getCreatedAt();
+                    }
+                }
+            }
+            done.complete(null);
+        } catch (Exception e) {
+            done.completeExceptionally(e);
+        }
+    }
+
+    private List<SizeTemplate> payloadTemplates() {
+        List<SizeTemplate> templates = new ArrayList<>();
+        for (String entry : sizeMix.split(",")) {
+            var parts = entry.trim().split(":");
+            templates.add(new SizeTemplate(SamplePayload.ofSize(Integer.parseInt(parts[0]), templates.size()), Integer.parseInt(parts[1])));
+        }
+        return templates;
+    }
+
+    private static SizeTemplate pick(List<SizeTemplate> templates, int draw) {
+        for (SizeTemplate template : templates) {
+            draw -= template.weight;
+            if (draw < 0) {
+                return template;
+            }
+        }
+        return templates.get(templates.size() - 1);
+    }
+
+    private void report(long[] latencies, long elapsedNanos, long payloadBytes, long gcCount, long gcMillis) {
+        Arrays.sort(latencies);
+        double seconds = elapsedNanos / 1e9;
+        log.info("Load run: {} messages, {} producers, size mix {}", messages, producers, sizeMix);
+        log.info("Throughput: {} msgs/s, {} MB/s", String.format("%.0f", messages / seconds), String.format("%.2f", payloadBytes / seconds / (1024 * 1024)));
+        log.info("End-to-end latency: p50 {} ms, p99 {} ms, p999 {} ms, max {} ms",
+                millis(percentile(latencies, 0.50)), millis(percentile(latencies, 0.99)),
+                millis(percentile(latencies, 0.999)), millis(latencies[latencies.length - 1]));
+        log.info("GC: {} collections, {} ms; blobs left in store: {}", gcCount, gcMillis, blobService.getBlobCount());
+    }
+
+    private static long percentile(long[] sorted, double quantile) {
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(quantile * sorted.length) - 1)];
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.2f", nanos / 1e6);
+    }
+
+    private static long[] gcSnapshot() {
+        long count = 0;
+        long time = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+            time += Math.max(0, gc.getCollectionTime());
+        }
+        return new long[]{count, time};
+    }
+
+    private static final class SizeTemplate {
+        private final SamplePayload payload;
+        private final int weight;
+
+        private SizeTemplate(SamplePayload payload, int weight) {
+            this.payload = payload;
+            this.weight = weight;
+        }
+    }
+
+    @Configuration
+    @Import({KafkaProducerServiceImpl.class, MessagePublishHandler.class, AzureBlobClientProvider.class})
+    static class LoadConfiguration {
+
+        @Bean
+        public SimpleMeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        public InMemoryAzureBlobService<SamplePayload> azureBlobService() {
+            return new InMemoryAzureBlobService<>(System.getProperty("load.codec", "java"),
+                    Long.getLong("load.max-payload-bytes", 1_000_000),
+                    TimeUnit.MILLISECONDS.toNanos(Long.getLong("load.blob-latency-ms", 0)));
+        }
+
+        @Bean
+        public KafkaTemplate<String, SamplePayload> kafkaTemplate(EmbeddedKafkaBroker embeddedKafka) {
+            Map<String, Object> props = KafkaTestUtils.producerProps(embeddedKafka);
+            props.put(ProducerConfig.MAX_REQUEST_SIZE_CONFIG, MAX_MESSAGE_BYTES);
+            props.put(ProducerConfig.LINGER_MS_CONFIG, 5);
+            var codec = PayloadCodecs.forName(System.getProperty("load.codec", "java"));
+            return new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(props, new StringSerializer(), new PayloadCodecSerializer<>(codec)));
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.maersk.kafkautility.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AuditServiceTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void writesEventsAsJsonLines() throws Exception {
+        var auditService = newAuditService();
+
+        assertTrue(auditService.logEvent("OrderListener", "onOrder", "order \"42\""));
+        auditService.shutdown();
+
+        var line = readSingleLine();
+        assertEquals("OrderListener", line.get("class"));
+        assertEquals("onOrder", line.get("method"));
+        assertEquals("order \"42\"", line.get("payload"));
+    }
+
+    @Test
+    void writesUnrenderablePayloadAsJson() throws Exception {
+        var auditService = newAuditService();
+        var payload = new Object() {
+            @Override
+            public String toString() {
+                throw new IllegalStateException("not printable");
+            }
+        };
+
+        auditService.logEvent("OrderListener", "onOrder", payload);
+        auditService.shutdown();
+
+        var line = readSingleLine();
+        assertEquals("<unrenderable>", line.get("payload"));
+        assertEquals("onOrder", line.get("method"));
+    }
+
+    private AuditService newAuditService() {
+        var environment = new MockEnvironment()
+                .withProperty("audit.file.enabled", "true")
+                .withProperty("audit.file.path", directory.resolve("audit.log").toString())
+                .withProperty("audit.flush-interval-ms", "10");
+        var context = new GenericApplicationContext();
+        context.setEnvironment(environment);
+        var auditService = new AuditService();
+        ReflectionTestUtils.setField(auditService, "context", context);
+        ReflectionTestUtils.setField(auditService, "meterRegistry", new SimpleMeterRegistry());
+        auditService.init();
+        return auditService;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> readSingleLine() throws Exception {
+        var lines = Files.readAllLines(directory.resolve("audit.log"), StandardCharsets.UTF_8);
+        assertEquals(1, lines.size());
+        return objectMapper.readValue(lines.get(0), Map.class);
+    }
+}
@@ -0,0 +1,71 @@
+package com.maersk.kafkautility.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.net.URI;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AzureBlobClientProviderTest {
+
+    private static final String KEY = Base64.getEncoder().encodeToString("secret".getBytes());
+
+    @Test
+    void resolvesReferencesToTheirShard() throws Exception {
+        var provider = newProvider(shardedEnvironment());
+
+        var container = provider.getContainer(URI.create("https://accountb.blob.core.windows.net/payloads-b/payload-1"));
+
+        assertEquals("payloads-b", container.getName());
+        assertEquals(URI.create("https://accountb.blob.core.windows.net/payloads-b"), container.getUri());
+    }
+
+    @Test
+    void resolvesReferencesToUnshardedContainer() throws Exception {
+        var provider = newProvider(shardedEnvironment());
+
+        var container = provider.getContainer(URI.create("https://legacy.blob.core.windows.net/payloads/payload-1"));
+
+        assertEquals(URI.create("https://legacy.blob.core.windows.net/payloads"), container.getUri());
+        assertEquals(3, provider.getContainers().size());
+    }
+
+    @Test
+    void rejectsReferencesOutsideAllShards() {
+        var provider = newProvider(shardedEnvironment());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> provider.getContainer(URI.create("https://other.blob.core.windows.net/payloads/payload-1")));
+        assertThrows(IllegalArgumentException.class,
+                () -> provider.getContainer(URI.create("https://accountb.blob.core.windows.net/payloads/payload-1")));
+    }
+
+    private static MockEnvironment shardedEnvironment() {
+        return new MockEnvironment()
+                .withProperty("azure.storage.account-name", "legacy")
+                .withProperty("azure.storage.account-key", KEY)
+                .withProperty("azure.storage.container-name", "payloads")
+                .withProperty("azure.storage.endpoint-suffix", "core.windows.net")
+                .withProperty("azure.storage.shards", "a,b")
+                .withProperty("azure.storage.shard.a.account-name", "accounta")
+                .withProperty("azure.storage.shard.a.container-name", "payloads-a")
+                .withProperty("azure.storage.shard.b.account-name", "accountb")
+                .withProperty("azure.storage.shard.b.container-name", "payloads-b");
+    }
+
+    private static AzureBlobClientProvider newProvider(MockEnvironment environment) {
+        var context = new GenericApplicationContext();
+        context.setEnvironment(environment);
+        var provider = new AzureBlobClientProvider();
+        ReflectionTestUtils.setField(provider, "context", context);
+        ReflectionTestUtils.setField(provider, "meterRegistry", new SimpleMeterRegistry());
+        provider.init();
+        return provider;
+    }
+}
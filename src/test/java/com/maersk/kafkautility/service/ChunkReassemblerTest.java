@@ -0,0 +1,153 @@
+package com.maersk.kafkautility.service;
+
+import com.maersk.kafkautility.codec.JavaSerializationCodec;
+import com.maersk.kafkautility.codec.PayloadCodecs;
+import com.maersk.kafkautility.compression.NoneCompressor;
+import com.maersk.kafkautility.support.SamplePayload;
+import com.maersk.kafkautility.utils.PayloadBuffer;
+import com.maersk.kafkautility.utils.PayloadHeaders;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ChunkReassemblerTest {
+
+    private static final SamplePayload PAYLOAD = SamplePayload.ofSize(4000, 7);
+
+    @Test
+    void reassemblesFragmentsArrivingOutOfOrder() throws IOException {
+        var reassembler = reassembler(new MockEnvironment());
+        byte[][] fragments = split(encode(PAYLOAD), 3);
+
+        assertNull(reassembler.accept(headers("m1", 0, 3), fragments[0]));
+        assertNull(reassembler.accept(headers("m1", 2, 3), fragments[2]));
+        assertEquals(PAYLOAD, reassembler.accept(headers("m1", 1, 3), fragments[1]));
+        assertEquals(0, reassembler.getBufferedBytes());
+    }
+
+    @Test
+    void ignoresDuplicateFragments() throws IOException {
+        var reassembler = reassembler(new MockEnvironment());
+        byte[][] fragments = split(encode(PAYLOAD), 2);
+
+        assertNull(reassembler.accept(headers("m1", 0, 2), fragments[0]));
+        assertNull(reassembler.accept(headers("m1", 0, 2), fragments[0]));
+        assertEquals(fragments[0].length, reassembler.getBufferedBytes());
+        assertEquals(PAYLOAD, reassembler.accept(headers("m1", 1, 2), fragments[1]));
+    }
+
+    @Test
+    void rejectsInvalidHeaders() {
+        var reassembler = reassembler(new MockEnvironment());
+
+        assertThrows(IOException.class, () -> reassembler.accept(headers("m1", 3, 3), new byte[1]));
+        assertThrows(IOException.class, () -> reassembler.accept(headers(null, 0, 3), new byte[1]));
+    }
+
+    @Test
+    void rejectsFragmentWithDifferentCount() throws IOException {
+        var reassembler = reassembler(new MockEnvironment());
+
+        assertNull(reassembler.accept(headers("m1", 0, 2), new byte[10]));
+
+        assertThrows(IOException.class, () -> reassembler.accept(headers("m1", 3, 5), new byte[10]));
+        assertThrows(IOException.class, () -> reassembler.accept(headers("m1", 0, 1), new byte[10]));
+        assertEquals(10, reassembler.getBufferedBytes());
+    }
+
+    @Test
+    void reportsGroupMissingLeadingFragmentsOnce() throws IOException {
+        var reassembler = reassembler(new MockEnvironment());
+
+        assertThrows(IOException.class, () -> reassembler.accept(headers("m1", 1, 3), new byte[10]));
+        assertNull(reassembler.accept(headers("m1", 1, 3), new byte[10]));
+        assertNull(reassembler.accept(headers("m1", 2, 3), new byte[10]));
+        assertEquals(0, reassembler.getBufferedBytes());
+    }
+
+    @Test
+    void discardsLateFragmentsOfEvictedGroup() throws IOException {
+        var reassembler = reassembler(new MockEnvironment().withProperty("events-payload.chunking.reassembly.max-bytes", "150"));
+        reassembler.accept(headers("m1", 0, 2), new byte[100]);
+        reassembler.accept(headers("m2", 0, 2), new byte[100]);
+
+        assertNull(reassembler.accept(headers("m1", 1, 2), new byte[100]));
+        assertEquals(100, reassembler.getBufferedBytes());
+    }
+
+    @Test
+    void evictsOldestGroupBeyondMaxBytes() throws IOException {
+        var reassembler = reassembler(new MockEnvironment().withProperty("events-payload.chunking.reassembly.max-bytes", "150"));
+
+        reassembler.accept(headers("m1", 0, 2), new byte[100]);
+        reassembler.accept(headers("m2", 0, 2), new byte[100]);
+
+        assertEquals(100, reassembler.getBufferedBytes());
+    }
+
+    @Test
+    void expiresIncompleteGroups() throws Exception {
+        var reassembler = reassembler(new MockEnvironment().withProperty("events-payload.chunking.reassembly.timeout-ms", "0"));
+        reassembler.accept(headers("m1", 0, 2), new byte[100]);
+
+        Thread.sleep(5);
+        reassembler.expire();
+
+        assertEquals(0, reassembler.getBufferedBytes());
+    }
+
+    private static ChunkReassembler reassembler(MockEnvironment environment) {
+        var context = new GenericApplicationContext();
+        context.setEnvironment(environment);
+        var reassembler = new ChunkReassembler();
+        ReflectionTestUtils.setField(reassembler, "context", context);
+        ReflectionTestUtils.setField(reassembler, "meterRegistry", new SimpleMeterRegistry());
+        reassembler.init();
+        return reassembler;
+    }
+
+    private static Headers headers(String messageId, int index, int count) {
+        var headers = new RecordHeaders();
+        PayloadHeaders.add(headers, PayloadHeaders.IS_LARGE_PAYLOAD, PayloadHeaders.CHUNKED);
+        if (Objects.nonNull(messageId)) {
+            PayloadHeaders.add(headers, PayloadHeaders.CHUNK_MESSAGE_ID, messageId);
+        }
+        PayloadHeaders.add(headers, PayloadHeaders.CHUNK_INDEX, String.valueOf(index));
+        PayloadHeaders.add(headers, PayloadHeaders.CHUNK_COUNT, String.valueOf(count));
+        PayloadHeaders.add(headers, PayloadHeaders.PAYLOAD_TYPE, SamplePayload.class.getName());
+        PayloadHeaders.add(headers, PayloadHeaders.PAYLOAD_CODEC, JavaSerializationCodec.NAME);
+        PayloadHeaders.add(headers, PayloadHeaders.PAYLOAD_COMPRESSION, NoneCompressor.NAME);
+        return headers;
+    }
+
+    private static byte[] encode(SamplePayload payload) throws IOException {
+        var buffer = PayloadBuffer.acquire();
+        try {
+            PayloadCodecs.forName(JavaSerializationCodec.NAME).encode(payload, buffer);
+            return Arrays.copyOf(buffer.array(), buffer.size());
+        } finally {
+            buffer.release();
+        }
+    }
+
+    private static byte[][] split(byte[] bytes, int count) {
+        int size = (bytes.length + count - 1) / count;
+        byte[][] fragments = new byte[count][];
+        for (int i = 0; i < count; i++) {
+            fragments[i] = Arrays.copyOfRange(bytes, i * size, Math.min(bytes.length, (i + 1) * size));
+        }
+        return fragments;
+    }
+}
@@ -0,0 +1,141 @@
+package com.maersk.kafkautility.service;
+
+import com.microsoft.azure.storage.StorageException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.net.HttpURLConnection;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class ClaimCheckBlobCleanerTest {
+
+    private static final String BLOB = "https://account.blob.core.windows.net/payloads/orders_1.dat";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AzureBlobService<?> azureBlobService = mock(AzureBlobService.class);
+    private final ClaimCheckBlobCleaner cleaner = new ClaimCheckBlobCleaner();
+
+    @BeforeEach
+    void setUp() {
+        var environment = new MockEnvironment()
+                .withProperty("events-payload.cleanup.queue-capacity", "2")
+                .withProperty("events-payload.cleanup.batch-interval-ms", "20")
+                .withProperty("events-payload.cleanup.max-concurrent-batches", "1")
+                .withProperty("events-payload.cleanup.max-attempts", "3")
+                .withProperty("events-payload.cleanup.retry-backoff-ms", "10")
+                .withProperty("events-payload.file-name", "orders");
+        var context = new GenericApplicationContext();
+        context.setEnvironment(environment);
+        ReflectionTestUtils.setField(cleaner, "context", context);
+        ReflectionTestUtils.setField(cleaner, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(cleaner, "azureBlobService", azureBlobService);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        cleaner.shutdown();
+    }
+
+    @Test
+    void deletesQueuedReferences() throws Exception {
+        cleaner.init();
+
+        assertTrue(cleaner.scheduleDelete(BLOB));
+        assertTrue(cleaner.scheduleDelete(null));
+
+        verify(azureBlobService, timeout(5000)).deletePayloadFromBlob(BLOB);
+        awaitCount("claimcheck.cleanup.deleted", 1);
+    }
+
+    @Test
+    void retriesTransientFailures() throws Exception {
+        doThrow(storageException(HttpURLConnection.HTTP_UNAVAILABLE))
+                .doNothing()
+                .when(azureBlobService).deletePayloadFromBlob(BLOB);
+        cleaner.init();
+
+        cleaner.scheduleDelete(BLOB);
+
+        verify(azureBlobService, timeout(5000).times(2)).deletePayloadFromBlob(BLOB);
+        awaitCount("claimcheck.cleanup.deleted", 1);
+        assertEquals(1, meterRegistry.get("claimcheck.cleanup.retried").counter().count());
+    }
+
+    @Test
+    void givesUpOnPermanentFailures() throws Exception {
+        doThrow(storageException(HttpURLConnection.HTTP_FORBIDDEN)).when(azureBlobService).deletePayloadFromBlob(BLOB);
+        cleaner.init();
+
+        cleaner.scheduleDelete(BLOB);
+
+        awaitCount("claimcheck.cleanup.failed", 1);
+        verify(azureBlobService, times(1)).deletePayloadFromBlob(BLOB);
+        assertEquals(0, meterRegistry.get("claimcheck.cleanup.retried").counter().count());
+    }
+
+    @Test
+    void ignoresBlobsAlreadyGone() throws Exception {
+        doThrow(storageException(HttpURLConnection.HTTP_NOT_FOUND)).when(azureBlobService).deletePayloadFromBlob(BLOB);
+        cleaner.init();
+
+        cleaner.scheduleDelete(BLOB);
+
+        verify(azureBlobService, timeout(5000)).deletePayloadFromBlob(BLOB);
+        Thread.sleep(50);
+        assertEquals(0, meterRegistry.get("claimcheck.cleanup.failed").counter().count());
+        assertEquals(0, meterRegistry.get("claimcheck.cleanup.retried").counter().count());
+    }
+
+    @Test
+    void rejectsDeletesBeyondQueueCapacity() throws Exception {
+        var deleting = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            deleting.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(azureBlobService).deletePayloadFromBlob(BLOB);
+        cleaner.init();
+        cleaner.scheduleDelete(BLOB);
+        assertTrue(deleting.await(5, TimeUnit.SECONDS));
+        cleaner.scheduleDelete(BLOB + "-2");
+        long deadline = System.currentTimeMillis() + 5000;
+        while (cleaner.getQueuedCount() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertTrue(cleaner.scheduleDelete(BLOB + "-3"));
+        assertTrue(cleaner.scheduleDelete(BLOB + "-4"));
+        assertFalse(cleaner.scheduleDelete(BLOB + "-5"));
+        assertEquals(1, meterRegistry.get("claimcheck.cleanup.dropped").counter().count());
+        release.countDown();
+    }
+
+    private void awaitCount(String counter, double expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (meterRegistry.get(counter).counter().count() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, meterRegistry.get(counter).counter().count());
+    }
+
+    private static StorageException storageException(int status) {
+        return new StorageException("Error", "status " + status, status, null, null);
+    }
+}
@@ -0,0 +1,163 @@
+package com.maersk.kafkautility.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ClaimCheckCircuitBreakerTest {
+
+    private static final long OPEN_DURATION_MS = 60000;
+    private static final long FAST = 1000;
+    private static final long SLOW = 5_000_000_000L;
+
+    private final ClaimCheckCircuitBreaker circuitBreaker = new ClaimCheckCircuitBreaker();
+
+    @BeforeEach
+    void setUp() {
+        var environment = new MockEnvironment()
+                .withProperty("events-payload.circuit-breaker.enabled", "true")
+                .withProperty("events-payload.circuit-breaker.window-size", "4")
+                .withProperty("events-payload.circuit-breaker.minimum-calls", "4")
+                .withProperty("events-payload.circuit-breaker.failure-rate-threshold", "50")
+                .withProperty("events-payload.circuit-breaker.slow-call-rate-threshold", "75")
+                .withProperty("events-payload.circuit-breaker.open-duration-ms", String.valueOf(OPEN_DURATION_MS))
+                .withProperty("events-payload.circuit-breaker.half-open-calls", "2");
+        var context = new GenericApplicationContext();
+        context.setEnvironment(environment);
+        ReflectionTestUtils.setField(circuitBreaker, "context", context);
+        ReflectionTestUtils.setField(circuitBreaker, "meterRegistry", new SimpleMeterRegistry());
+        circuitBreaker.init();
+    }
+
+    @Test
+    void opensOnceFailureRateIsReached() {
+        circuitBreaker.tryAcquirePermission().onSuccess(FAST);
+        circuitBreaker.tryAcquirePermission().onError(FAST);
+        circuitBreaker.tryAcquirePermission().onSuccess(FAST);
+        assertEquals(ClaimCheckCircuitBreaker.State.CLOSED, circuitBreaker.getState());
+
+        circuitBreaker.tryAcquirePermission().onError(FAST);
+
+        assertEquals(ClaimCheckCircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertNull(circuitBreaker.tryAcquirePermission());
+    }
+
+    @Test
+    void opensOnceSlowCallRateIsReached() {
+        circuitBreaker.tryAcquirePermission().onSuccess(FAST);
+        for (int i = 0; i < 3; i++) {
+            circuitBreaker.tryAcquirePermission().onSuccess(SLOW);
+        }
+
+        assertEquals(ClaimCheckCircuitBreaker.State.OPEN, circuitBreaker.getState());
+    }
+
+    @Test
+    void outcomeIsCountedOncePerPermit() {
+        var permit = circuitBreaker.tryAcquirePermission();
+        for (int i = 0; i < 4; i++) {
+            permit.onError(FAST);
+        }
+        permit.release();
+
+        assertEquals(ClaimCheckCircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    void closesWhenAllProbesSucceed() {
+        open();
+        elapse("openedAt");
+
+        var first = circuitBreaker.tryAcquirePermission();
+        var second = circuitBreaker.tryAcquirePermission();
+        assertEquals(ClaimCheckCircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+        assertNull(circuitBreaker.tryAcquirePermission());
+
+        first.onSuccess(FAST);
+        second.onSuccess(FAST);
+
+        assertEquals(ClaimCheckCircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertNotNull(circuitBreaker.tryAcquirePermission());
+    }
+
+    @Test
+    void reopensOnFailedOrSlowProbe() {
+        open();
+        elapse("openedAt");
+        circuitBreaker.tryAcquirePermission().onError(FAST);
+        assertEquals(ClaimCheckCircuitBreaker.State.OPEN, circuitBreaker.getState());
+
+        elapse("openedAt");
+        circuitBreaker.tryAcquirePermission().onSuccess(SLOW);
+        assertEquals(ClaimCheckCircuitBreaker.State.OPEN, circuitBreaker.getState());
+    }
+
+    @Test
+    void releasedProbeFreesItsSlot() {
+        open();
+        elapse("openedAt");
+        circuitBreaker.tryAcquirePermission().release();
+        var first = circuitBreaker.tryAcquirePermission();
+        var second = circuitBreaker.tryAcquirePermission();
+
+        assertNotNull(first);
+        assertNotNull(second);
+        first.onSuccess(FAST);
+        second.onSuccess(FAST);
+        assertEquals(ClaimCheckCircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    void reopensWhenProbesDoNotReportBack() {
+        open();
+        elapse("openedAt");
+        var lost = circuitBreaker.tryAcquirePermission();
+        circuitBreaker.tryAcquirePermission().onSuccess(FAST);
+        elapse("halfOpenedAt");
+
+        assertNull(circuitBreaker.tryAcquirePermission());
+        assertEquals(ClaimCheckCircuitBreaker.State.OPEN, circuitBreaker.getState());
+
+        elapse("openedAt");
+        var probe = circuitBreaker.tryAcquirePermission();
+        lost.onSuccess(FAST);
+        assertEquals(ClaimCheckCircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+        probe.onSuccess(FAST);
+        circuitBreaker.tryAcquirePermission().onSuccess(FAST);
+        assertEquals(ClaimCheckCircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    void ignoresOutcomesOfPermitsIssuedBeforeOpening() {
+        var late = circuitBreaker.tryAcquirePermission();
+        open();
+        elapse("openedAt");
+        var probe = circuitBreaker.tryAcquirePermission();
+
+        late.onError(FAST);
+
+        assertEquals(ClaimCheckCircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+        probe.onSuccess(FAST);
+        circuitBreaker.tryAcquirePermission().onSuccess(FAST);
+        assertEquals(ClaimCheckCircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    private void open() {
+        for (int i = 0; i < 4; i++) {
+            circuitBreaker.tryAcquirePermission().onError(FAST);
+        }
+        assertEquals(ClaimCheckCircuitBreaker.State.OPEN, circuitBreaker.getState());
+    }
+
+    private void elapse(String since) {
+        long at = (long) ReflectionTestUtils.getField(circuitBreaker, since);
+        ReflectionTestUtils.setField(circuitBreaker, since, at - OPEN_DURATION_MS);
+    }
+}
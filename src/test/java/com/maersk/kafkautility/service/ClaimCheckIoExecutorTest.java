@@ -0,0 +1,75 @@
+package com.maersk.kafkautility.service;
+
+import com.maersk.kafkautility.exception.MessagePublishException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ClaimCheckIoExecutorTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ClaimCheckIoExecutor executor = new ClaimCheckIoExecutor();
+
+    @BeforeEach
+    void setUp() {
+        var environment = new MockEnvironment()
+                .withProperty("events-payload.async.threads", "2")
+                .withProperty("events-payload.async.max-in-flight", "2")
+                .withProperty("events-payload.async.acquire-timeout-ms", "50");
+        var context = new GenericApplicationContext();
+        context.setEnvironment(environment);
+        ReflectionTestUtils.setField(executor, "context", context);
+        ReflectionTestUtils.setField(executor, "meterRegistry", meterRegistry);
+        executor.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void completesWithTaskResult() throws Exception {
+        assertEquals("done", executor.submit(() -> "done").get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void failsWithCheckedExceptionOfTask() {
+        var future = executor.submit(() -> {
+            throw new IOException("upload failed");
+        });
+
+        var thrown = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IOException.class, thrown.getCause());
+    }
+
+    @Test
+    void rejectsBeyondMaxInFlightAndRecoversOnCompletion() throws Exception {
+        var release = new CountDownLatch(1);
+        var first = executor.submit(() -> release.await(5, TimeUnit.SECONDS));
+        var second = executor.submit(() -> release.await(5, TimeUnit.SECONDS));
+        assertEquals(2, meterRegistry.get("claimcheck.async.in-flight").gauge().value());
+
+        var rejected = executor.submit(() -> "too many");
+
+        var thrown = assertThrows(ExecutionException.class, () -> rejected.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(MessagePublishException.class, thrown.getCause());
+        release.countDown();
+        first.get(5, TimeUnit.SECONDS);
+        second.get(5, TimeUnit.SECONDS);
+        assertEquals("accepted", executor.submit(() -> "accepted").get(5, TimeUnit.SECONDS));
+    }
+}
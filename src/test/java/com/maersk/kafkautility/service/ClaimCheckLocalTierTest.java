@@ -0,0 +1,138 @@
+package com.maersk.kafkautility.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ClaimCheckLocalTierTest {
+
+    private static final URI CONTAINER = URI.create("https://account.blob.core.windows.net/payloads/");
+    private static final Map<String, String> METADATA = Map.of("payloadcodec", "java");
+
+    @TempDir
+    Path directory;
+
+    private final List<ClaimCheckLocalTier> tiers = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        tiers.forEach(ClaimCheckLocalTier::shutdown);
+    }
+
+    @Test
+    void servesWriteThroughCopiesByDefault() throws IOException {
+        var tier = newTier(1024);
+
+        assertFalse(tier.isWriteBack());
+        assertTrue(tier.store(blob("a"), METADATA, bytes("payload"), 0, 7, true));
+
+        var copy = tier.open(blob("a"));
+        assertNotNull(copy);
+        assertEquals(METADATA, copy.getMetadata());
+        assertEquals("payload", text(copy.getBytes()));
+        assertEquals(List.of("https%3A%2F%2Faccount.blob.core.windows.net%2Fpayloads%2Fa.cached"), files());
+    }
+
+    @Test
+    void removeDropsLocalCopy() throws IOException {
+        var tier = newTier(1024);
+        tier.store(blob("a"), METADATA, bytes("payload"), 0, 7, true);
+
+        tier.remove(blob("a"));
+
+        assertNull(tier.open(blob("a")));
+        assertEquals(List.of(), files());
+    }
+
+    @Test
+    void evictsLeastRecentlyReadCopyWhenFull() throws IOException, InterruptedException {
+        var tier = newTier(10);
+        tier.store(blob("a"), METADATA, bytes("aaaaaa"), 0, 6, true);
+        tier.store(blob("b"), METADATA, bytes("bbbb"), 0, 4, true);
+        Thread.sleep(5);
+        tier.open(blob("a"));
+
+        assertTrue(tier.store(blob("c"), METADATA, bytes("cccc"), 0, 4, true));
+
+        assertNull(tier.open(blob("b")));
+        assertEquals("aaaaaa", text(tier.open(blob("a")).getBytes()));
+        assertEquals("cccc", text(tier.open(blob("c")).getBytes()));
+    }
+
+    @Test
+    void refusesPayloadThatDoesNotFit() throws IOException {
+        var tier = newTier(4);
+
+        assertFalse(tier.store(blob("a"), METADATA, bytes("payload"), 0, 7, true));
+        assertNull(tier.open(blob("a")));
+    }
+
+    @Test
+    void recoversCopiesAfterRestart() throws IOException {
+        newTier(1024).store(blob("a"), METADATA, bytes("payload"), 0, 7, true);
+
+        var restarted = newTier(1024);
+
+        var copy = restarted.open(blob("a"));
+        assertNotNull(copy);
+        assertEquals(METADATA, copy.getMetadata());
+        assertEquals("payload", text(copy.getBytes()));
+    }
+
+    private ClaimCheckLocalTier newTier(long maxBytes) throws IOException {
+        var environment = new MockEnvironment()
+                .withProperty("events-payload.tier.enabled", "true")
+                .withProperty("events-payload.tier.directory", directory.toString())
+                .withProperty("events-payload.tier.max-bytes", String.valueOf(maxBytes));
+        var context = new GenericApplicationContext();
+        context.setEnvironment(environment);
+        var tier = new ClaimCheckLocalTier();
+        ReflectionTestUtils.setField(tier, "context", context);
+        ReflectionTestUtils.setField(tier, "meterRegistry", new SimpleMeterRegistry());
+        tier.init();
+        tiers.add(tier);
+        return tier;
+    }
+
+    private List<String> files() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString()).sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static URI blob(String name) {
+        return CONTAINER.resolve(name);
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String text(ByteBuffer buffer) {
+        var bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,172 @@
+package com.maersk.kafkautility.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ClaimCheckPayloadCacheTest {
+
+    private static final String KEY = "https://account.blob.core.windows.net/claims/a.dat";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void servesRepeatedReadsFromCache() throws Exception {
+        var cache = newCache(false, 1024, 256);
+
+        var first = cache.get(KEY, () -> load(cache, "payload"));
+        var second = cache.get(KEY, () -> load(cache, "other"));
+
+        assertSame(first, second);
+        assertEquals(1, loads.get());
+        assertEquals("payload", text(second));
+        assertEquals(7, cache.size());
+        assertEquals(1, count("claimcheck.cache.hits"));
+        assertEquals(1, count("claimcheck.cache.misses"));
+    }
+
+    @Test
+    void offHeapEntriesReadBack() throws Exception {
+        var cache = newCache(true, 1024, 256);
+
+        cache.get(KEY, () -> load(cache, "payload"));
+
+        assertEquals("payload", text(cache.get(KEY, () -> load(cache, "other"))));
+    }
+
+    @Test
+    void concurrentReadersShareOneDownloadAndCountAsHits() throws Exception {
+        var cache = newCache(false, 1024, 4);
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        ClaimCheckPayloadCache.Loader slow = () -> {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new InterruptedIOException();
+            }
+            return load(cache, "larger than the entry limit");
+        };
+
+        Future<ClaimCheckPayloadCache.CachedPayload> owner = executor.submit(() -> cache.get(KEY, slow));
+        started.await(5, TimeUnit.SECONDS);
+        Future<ClaimCheckPayloadCache.CachedPayload> waiter = executor.submit(() -> cache.get(KEY, slow));
+        while (count("claimcheck.cache.hits") < 1) {
+            Thread.onSpinWait();
+        }
+        release.countDown();
+
+        assertSame(owner.get(5, TimeUnit.SECONDS), waiter.get(5, TimeUnit.SECONDS));
+        assertEquals(1, loads.get());
+        assertEquals(1, count("claimcheck.cache.misses"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void oversizedBlobsAreReturnedButNotKept() throws Exception {
+        var cache = newCache(false, 1024, 4);
+
+        assertEquals("oversized", text(cache.get(KEY, () -> load(cache, "oversized"))));
+        cache.get(KEY, () -> load(cache, "oversized"));
+
+        assertEquals(2, loads.get());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedPastMaxBytes() throws Exception {
+        var cache = newCache(false, 10, 10);
+        cache.get("a", () -> load(cache, "aaaa"));
+        cache.get("b", () -> load(cache, "bbbb"));
+        cache.get("a", () -> load(cache, "aaaa"));
+
+        cache.get("c", () -> load(cache, "cccc"));
+
+        assertEquals(8, cache.size());
+        assertEquals(1, count("claimcheck.cache.evictions"));
+        cache.get("a", () -> load(cache, "aaaa"));
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void invalidateDuringLoadKeepsStaleBlobOut() throws Exception {
+        var cache = newCache(false, 1024, 256);
+
+        var loaded = cache.get(KEY, () -> {
+            cache.invalidate(KEY);
+            return load(cache, "stale");
+        });
+
+        assertEquals("stale", text(loaded));
+        assertEquals(0, cache.size());
+        assertEquals("fresh", text(cache.get(KEY, () -> load(cache, "fresh"))));
+    }
+
+    @Test
+    void failedLoadIsNotCached() throws Exception {
+        var cache = newCache(false, 1024, 256);
+
+        assertThrows(IOException.class, () -> cache.get(KEY, () -> {
+            throw new IOException("unavailable");
+        }));
+
+        assertEquals("payload", text(cache.get(KEY, () -> load(cache, "payload"))));
+    }
+
+    private ClaimCheckPayloadCache newCache(boolean offHeap, long maxBytes, long maxEntryBytes) {
+        var environment = new MockEnvironment()
+                .withProperty("events-payload.cache.enabled", "true")
+                .withProperty("events-payload.cache.max-bytes", String.valueOf(maxBytes))
+                .withProperty("events-payload.cache.max-entry-bytes", String.valueOf(maxEntryBytes))
+                .withProperty("events-payload.cache.off-heap", String.valueOf(offHeap));
+        var context = new GenericApplicationContext();
+        context.setEnvironment(environment);
+        var cache = new ClaimCheckPayloadCache();
+        ReflectionTestUtils.setField(cache, "context", context);
+        ReflectionTestUtils.setField(cache, "meterRegistry", meterRegistry);
+        cache.init();
+        return cache;
+    }
+
+    private ClaimCheckPayloadCache.CachedPayload load(ClaimCheckPayloadCache cache, String payload) {
+        loads.incrementAndGet();
+        byte[] bytes = payload.getBytes(StandardCharsets.UTF_8);
+        return cache.newEntry(bytes, bytes.length, Map.of("payloadcodec", "java"));
+    }
+
+    private static String text(ClaimCheckPayloadCache.CachedPayload payload) throws IOException {
+        try (var in = payload.openStream()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private double count(String name) {
+        return meterRegistry.get(name).counter().count();
+    }
+}
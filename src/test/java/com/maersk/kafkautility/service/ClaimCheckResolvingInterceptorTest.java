@@ -0,0 +1,282 @@
+package com.maersk.kafkautility.service;
+
+import com.maersk.kafkautility.codec.JavaSerializationCodec;
+import com.maersk.kafkautility.codec.PayloadCodecs;
+import com.maersk.kafkautility.compression.NoneCompressor;
+import com.maersk.kafkautility.support.InMemoryAzureBlobService;
+import com.maersk.kafkautility.support.SamplePayload;
+import com.maersk.kafkautility.utils.PayloadBuffer;
+import com.maersk.kafkautility.utils.PayloadHeaders;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.record.TimestampType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.kafka.KafkaException;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ClaimCheckResolvingInterceptorTest {
+
+    private static final String TOPIC = "orders";
+    private static final TopicPartition PARTITION_0 = new TopicPartition(TOPIC, 0);
+    private static final TopicPartition PARTITION_1 = new TopicPartition(TOPIC, 1);
+    private static final SamplePayload SMALL = SamplePayload.ofSize(10, 1);
+    private static final SamplePayload LARGE = SamplePayload.ofSize(4000, 2);
+    private static final SamplePayload OTHER_LARGE = SamplePayload.ofSize(4000, 3);
+
+    private final AtomicInteger reads = new AtomicInteger();
+    private ClaimCheckResolvingInterceptor<Object> interceptor;
+
+    @AfterEach
+    void tearDown() {
+        if (interceptor != null) {
+            interceptor.shutdown();
+        }
+    }
+
+    @Test
+    void resolvesReferencesKeepingOffsetOrderPerPartition() throws Exception {
+        var blobService = blobService(0);
+        interceptor = interceptor(new MockEnvironment(), blobService);
+        var records = records(Map.of(
+                PARTITION_0, List.of(inline(SMALL), reference(blobService, LARGE), inline(OTHER_LARGE)),
+                PARTITION_1, List.of(reference(blobService, OTHER_LARGE))));
+
+        var resolved = interceptor.intercept(records, null);
+
+        assertEquals(List.of(SMALL, LARGE, OTHER_LARGE), values(resolved.records(PARTITION_0)));
+        assertEquals(List.of(0L, 1L, 2L), offsets(resolved.records(PARTITION_0)));
+        assertEquals(List.of(OTHER_LARGE), values(resolved.records(PARTITION_1)));
+    }
+
+    @Test
+    void downloadsRepeatedReferenceOnce() throws Exception {
+        var blobService = blobService(0);
+        interceptor = interceptor(new MockEnvironment(), blobService);
+        var reference = reference(blobService, LARGE);
+        var records = records(Map.of(PARTITION_0, List.of(reference, inline(SMALL), reference)));
+
+        var resolved = interceptor.intercept(records, null);
+
+        assertEquals(List.of(LARGE, SMALL, LARGE), values(resolved.records(PARTITION_0)));
+        assertEquals(1, reads.get());
+    }
+
+    @Test
+    void returnsBatchWithoutClaimChecksUnchanged() {
+        interceptor = interceptor(new MockEnvironment(), blobService(0));
+        var records = records(Map.of(PARTITION_0, List.of(inline(SMALL))));
+
+        assertSame(records, interceptor.intercept(records, null));
+    }
+
+    @Test
+    void dropsFilteredRecordsBeforeDownloading() throws Exception {
+        var blobService = blobService(0);
+        interceptor = interceptor(new MockEnvironment(), blobService);
+        interceptor.setRecordFilter(ClaimCheckRecordFilter.acceptingMaxSize(1000));
+        var records = records(Map.of(PARTITION_0, List.of(reference(blobService, LARGE), inline(SMALL), reference(blobService, OTHER_LARGE))));
+
+        var resolved = interceptor.intercept(records, null);
+
+        assertEquals(List.of(SMALL), values(resolved.records(PARTITION_0)));
+        assertEquals(0, reads.get());
+    }
+
+    @Test
+    void filtersSingleRecord() throws Exception {
+        var blobService = blobService(0);
+        interceptor = interceptor(new MockEnvironment(), blobService);
+        interceptor.setRecordFilter(ClaimCheckRecordFilter.acceptingTypes(String.class));
+
+        assertNull(interceptor.intercept(reference(blobService, LARGE), null));
+        assertEquals(0, reads.get());
+    }
+
+    @Test
+    void keepsOnlyTheRecordCompletingAChunkGroup() throws Exception {
+        interceptor = interceptor(new MockEnvironment(), blobService(0));
+        byte[][] fragments = split(encode(LARGE), 3);
+        var records = records(Map.of(PARTITION_0, List.of(
+                chunk("m1", 0, fragments), chunk("m1", 1, fragments), inline(SMALL), chunk("m1", 2, fragments))));
+
+        var resolved = interceptor.intercept(records, null);
+
+        assertEquals(List.of(SMALL, LARGE), values(resolved.records(PARTITION_0)));
+        assertEquals(List.of(2L, 3L), offsets(resolved.records(PARTITION_0)));
+    }
+
+    @Test
+    void failsBatchOnceForChunkGroupMissingLeadingFragments() throws Exception {
+        interceptor = interceptor(new MockEnvironment(), blobService(0));
+        byte[][] fragments = split(encode(LARGE), 3);
+        var records = records(Map.of(PARTITION_0, List.of(chunk("m1", 1, fragments), inline(SMALL))));
+
+        assertThrows(KafkaException.class, () -> interceptor.intercept(records, null));
+        assertEquals(List.of(SMALL), values(interceptor.intercept(records, null).records(PARTITION_0)));
+    }
+
+    @Test
+    void rejectsChunkRecordWithoutByteArrayValue() {
+        interceptor = interceptor(new MockEnvironment(), blobService(0));
+        var record = consumerRecord(chunkHeaders("m1", 0, 2), "not a fragment");
+        var records = records(Map.of(PARTITION_0, List.of(record)));
+
+        var exception = assertThrows(KafkaException.class, () -> interceptor.intercept(records, null));
+        assertTrue(exception.getMessage().contains("byte[]"));
+    }
+
+    @Test
+    void failsBatchWhenBlobCannotBeRead() {
+        interceptor = interceptor(new MockEnvironment(), blobService(0));
+        var headers = new RecordHeaders();
+        PayloadHeaders.add(headers, PayloadHeaders.IS_LARGE_PAYLOAD, "YES");
+        var records = records(Map.of(PARTITION_0, List.of(consumerRecord(headers, "memory://claimcheck/missing"))));
+
+        assertThrows(KafkaException.class, () -> interceptor.intercept(records, null));
+    }
+
+    @Test
+    void failsBatchWhenDownloadsTimeOut() throws Exception {
+        var blobService = blobService(TimeUnit.MILLISECONDS.toNanos(500));
+        interceptor = interceptor(new MockEnvironment().withProperty("events-payload.prefetch.timeout-ms", "50"), blobService);
+        var records = records(Map.of(PARTITION_0, List.of(reference(blobService, LARGE))));
+
+        var exception = assertThrows(KafkaException.class, () -> interceptor.intercept(records, null));
+        assertTrue(exception.getMessage().startsWith("Timed out"));
+    }
+
+    @Test
+    void resolvesSingleRecord() throws Exception {
+        var blobService = blobService(0);
+        interceptor = interceptor(new MockEnvironment(), blobService);
+        var reference = reference(blobService, LARGE);
+
+        assertEquals(LARGE, interceptor.intercept(reference, null).value());
+    }
+
+    private InMemoryAzureBlobService<Object> blobService(long latencyNanos) {
+        return new InMemoryAzureBlobService<>(JavaSerializationCodec.NAME, 1000, latencyNanos) {
+            @Override
+            public Object readPayloadFromBlob(String blobReference) {
+                reads.incrementAndGet();
+                return super.readPayloadFromBlob(blobReference);
+            }
+        };
+    }
+
+    private static ClaimCheckResolvingInterceptor<Object> interceptor(MockEnvironment environment, InMemoryAzureBlobService<Object> blobService) {
+        var context = new GenericApplicationContext();
+        context.setEnvironment(environment);
+        var meterRegistry = new SimpleMeterRegistry();
+        var chunkReassembler = new ChunkReassembler();
+        ReflectionTestUtils.setField(chunkReassembler, "context", context);
+        ReflectionTestUtils.setField(chunkReassembler, "meterRegistry", meterRegistry);
+        chunkReassembler.init();
+        var interceptor = new ClaimCheckResolvingInterceptor<Object>();
+        ReflectionTestUtils.setField(interceptor, "context", context);
+        ReflectionTestUtils.setField(interceptor, "azureBlobService", blobService);
+        ReflectionTestUtils.setField(interceptor, "chunkReassembler", chunkReassembler);
+        ReflectionTestUtils.setField(interceptor, "meterRegistry", meterRegistry);
+        interceptor.init();
+        return interceptor;
+    }
+
+    private static ConsumerRecords<String, Object> records(Map<TopicPartition, List<ConsumerRecord<String, Object>>> recordsByPartition) {
+        Map<TopicPartition, List<ConsumerRecord<String, Object>>> records = new LinkedHashMap<>();
+        recordsByPartition.forEach((partition, partitionRecords) -> {
+            List<ConsumerRecord<String, Object>> positioned = new ArrayList<>();
+            for (int offset = 0; offset < partitionRecords.size(); offset++) {
+                var consumerRecord = partitionRecords.get(offset);
+                positioned.add(new ConsumerRecord<>(TOPIC, partition.partition(), offset, 0L, TimestampType.CREATE_TIME, -1, -1,
+                        consumerRecord.key(), consumerRecord.value(), consumerRecord.headers(), Optional.empty()));
+            }
+            records.put(partition, positioned);
+        });
+        return new ConsumerRecords<>(records);
+    }
+
+    private static ConsumerRecord<String, Object> inline(SamplePayload payload) {
+        var headers = new RecordHeaders();
+        PayloadHeaders.add(headers, PayloadHeaders.IS_LARGE_PAYLOAD, "NO");
+        return consumerRecord(headers, payload);
+    }
+
+    private static ConsumerRecord<String, Object> reference(InMemoryAzureBlobService<Object> blobService, SamplePayload payload) throws IOException {
+        var producerRecord = blobService.offloadPayloadToBlob(TOPIC, new RecordHeaders(), payload);
+        return consumerRecord(producerRecord.headers(), producerRecord.value());
+    }
+
+    private static ConsumerRecord<String, Object> chunk(String messageId, int index, byte[][] fragments) {
+        return consumerRecord(chunkHeaders(messageId, index, fragments.length), fragments[index]);
+    }
+
+    private static ConsumerRecord<String, Object> consumerRecord(Headers headers, Object value) {
+        return new ConsumerRecord<>(TOPIC, 0, 0L, 0L, TimestampType.CREATE_TIME, -1, -1, null, value, headers, Optional.empty());
+    }
+
+    private static Headers chunkHeaders(String messageId, int index, int count) {
+        var headers = new RecordHeaders();
+        PayloadHeaders.add(headers, PayloadHeaders.IS_LARGE_PAYLOAD, PayloadHeaders.CHUNKED);
+        PayloadHeaders.add(headers, PayloadHeaders.CHUNK_MESSAGE_ID, messageId);
+        PayloadHeaders.add(headers, PayloadHeaders.CHUNK_INDEX, String.valueOf(index));
+        PayloadHeaders.add(headers, PayloadHeaders.CHUNK_COUNT, String.valueOf(count));
+        PayloadHeaders.add(headers, PayloadHeaders.PAYLOAD_TYPE, SamplePayload.class.getName());
+        PayloadHeaders.add(headers, PayloadHeaders.PAYLOAD_CODEC, JavaSerializationCodec.NAME);
+        PayloadHeaders.add(headers, PayloadHeaders.PAYLOAD_COMPRESSION, NoneCompressor.NAME);
+        return headers;
+    }
+
+    private static List<Object> values(List<ConsumerRecord<String, Object>> records) {
+        List<Object> values = new ArrayList<>();
+        records.forEach(consumerRecord -> values.add(consumerRecord.value()));
+        return values;
+    }
+
+    private static List<Long> offsets(List<ConsumerRecord<String, Object>> records) {
+        List<Long> offsets = new ArrayList<>();
+        records.forEach(consumerRecord -> offsets.add(consumerRecord.offset()));
+        return offsets;
+    }
+
+    private static byte[] encode(SamplePayload payload) throws IOException {
+        var buffer = PayloadBuffer.acquire();
+        try {
+            PayloadCodecs.forName(JavaSerializationCodec.NAME).encode(payload, buffer);
+            return Arrays.copyOf(buffer.array(), buffer.size());
+        } finally {
+            buffer.release();
+        }
+    }
+
+    private static byte[][] split(byte[] bytes, int count) {
+        int size = (bytes.length + count - 1) / count;
+        byte[][] fragments = new byte[count][];
+        for (int i = 0; i < count; i++) {
+            fragments[i] = Arrays.copyOfRange(bytes, i * size, Math.min(bytes.length, (i + 1) * size));
+        }
+        return fragments;
+    }
+}
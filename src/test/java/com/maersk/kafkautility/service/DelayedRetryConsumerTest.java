@@ -0,0 +1,114 @@
+package com.maersk.kafkautility.service;
+
+import com.maersk.kafkautility.utils.PayloadHeaders;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class DelayedRetryConsumerTest {
+
+    private static final String TIER_TOPIC = "orders-retry-30s";
+    private static final TopicPartition PARTITION = new TopicPartition(TIER_TOPIC, 0);
+
+    private final MockConsumer<String, String> mockConsumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+    private final MockConsumer<String, String> restartedConsumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+    private final MessagePublishHandler<String> messagePublishHandler = mock(MessagePublishHandler.class);
+    private final DelayedRetryConsumer<String> delayedRetryConsumer = new DelayedRetryConsumer<>();
+
+    @BeforeEach
+    void setUp() {
+        var environment = new MockEnvironment()
+                .withProperty("kafka.retry.consumer.enabled", "true")
+                .withProperty("kafka.retry.consumer.poll-timeout-ms", "20")
+                .withProperty("kafka.retry.consumer.restart-backoff-ms", "20");
+        var context = new GenericApplicationContext();
+        context.setEnvironment(environment);
+        ConsumerFactory<String, String> consumerFactory = mock(ConsumerFactory.class);
+        when(consumerFactory.createConsumer(anyString(), isNull(), anyString(), any(Properties.class))).thenReturn(mockConsumer, restartedConsumer);
+        var retryTopicRouter = mock(RetryTopicRouter.class);
+        when(retryTopicRouter.getTiers()).thenReturn(List.of(new RetryTopicRouter.RetryTier(Duration.ofSeconds(30), TIER_TOPIC)));
+        ReflectionTestUtils.setField(delayedRetryConsumer, "context", context);
+        ReflectionTestUtils.setField(delayedRetryConsumer, "consumerFactory", consumerFactory);
+        ReflectionTestUtils.setField(delayedRetryConsumer, "messagePublishHandler", messagePublishHandler);
+        ReflectionTestUtils.setField(delayedRetryConsumer, "retryTopicRouter", retryTopicRouter);
+        ReflectionTestUtils.setField(delayedRetryConsumer, "meterRegistry", new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        delayedRetryConsumer.stop();
+    }
+
+    @Test
+    void failedRepublishRewindsPausedPartitionToFirstPolledRecord() throws Exception {
+        when(messagePublishHandler.publishAsync(any(ProducerRecord.class)))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker unavailable")));
+        long now = System.currentTimeMillis();
+        mockConsumer.schedulePollTask(() -> {
+            mockConsumer.rebalance(List.of(PARTITION));
+            mockConsumer.updateBeginningOffsets(Map.of(PARTITION, 0L));
+            mockConsumer.addRecord(retryRecord(0, now - 1000));
+            mockConsumer.addRecord(retryRecord(1, now + 60000));
+        });
+        var afterRewind = new CompletableFuture<Long>();
+        var pausedAfterRewind = new CompletableFuture<Set<TopicPartition>>();
+        mockConsumer.schedulePollTask(() -> {
+            pausedAfterRewind.complete(mockConsumer.paused());
+            afterRewind.complete(mockConsumer.position(PARTITION));
+        });
+
+        delayedRetryConsumer.start();
+
+        assertEquals(0L, afterRewind.get(5, TimeUnit.SECONDS));
+        assertEquals(Set.of(PARTITION), pausedAfterRewind.get(5, TimeUnit.SECONDS));
+        assertEquals(Map.of(), mockConsumer.committed(Set.of(PARTITION)));
+    }
+
+    @Test
+    void workerSurvivesConsumerFailure() throws Exception {
+        when(messagePublishHandler.publishAsync(any(ProducerRecord.class)))
+                .thenReturn(CompletableFuture.completedFuture(null));
+        mockConsumer.schedulePollTask(() -> {
+            throw new IllegalStateException("poll failed");
+        });
+        var pollAfterRestart = new CompletableFuture<Boolean>();
+        restartedConsumer.schedulePollTask(() -> pollAfterRestart.complete(true));
+
+        delayedRetryConsumer.start();
+
+        assertEquals(true, pollAfterRestart.get(5, TimeUnit.SECONDS));
+        assertEquals(true, mockConsumer.closed());
+    }
+
+    private static ConsumerRecord<String, String> retryRecord(long offset, long dueAt) {
+        var consumerRecord = new ConsumerRecord<>(TIER_TOPIC, 0, offset, "order-" + offset, "payload-" + offset);
+        PayloadHeaders.add(consumerRecord.headers(), PayloadHeaders.RETRY_DUE_AT, String.valueOf(dueAt));
+        PayloadHeaders.add(consumerRecord.headers(), PayloadHeaders.RETRY_ORIGINAL_TOPIC, "orders");
+        return consumerRecord;
+    }
+}
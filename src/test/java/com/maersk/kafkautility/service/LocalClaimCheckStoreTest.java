@@ -0,0 +1,173 @@
+package com.maersk.kafkautility.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LocalClaimCheckStoreTest {
+
+    private static final int SEGMENT_BYTES = 256;
+
+    @TempDir
+    Path directory;
+
+    private final List<LocalClaimCheckStore> stores = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        stores.forEach(LocalClaimCheckStore::shutdown);
+    }
+
+    @Test
+    void readsBackAppendedEntries() throws IOException {
+        var store = newStore();
+
+        long first = append(store, "first");
+        long second = append(store, "second");
+
+        assertEquals(first + 1, second);
+        var stored = store.read(second);
+        assertEquals("java", stored.getCodec());
+        assertEquals(String.class.getName(), stored.getPayloadType());
+        assertEquals("none", stored.getCompression());
+        assertEquals("second", text(stored.getPayload()));
+        assertTrue(stored.getPayload().isReadOnly());
+        var transferred = new ByteArrayOutputStream();
+        assertEquals(5, store.transferTo(first, Channels.newChannel(transferred)));
+        assertEquals("first", transferred.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void rollsToNewSegmentWhenFull() throws IOException {
+        var store = newStore();
+
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            ids.add(append(store, "payload-" + i));
+        }
+
+        assertTrue(segmentFiles() > 1);
+        for (int i = 0; i < ids.size(); i++) {
+            assertEquals("payload-" + i, text(store.read(ids.get(i)).getPayload()));
+        }
+    }
+
+    @Test
+    void rejectsPayloadLargerThanSegment() {
+        var store = newStore();
+
+        assertThrows(IOException.class, () -> append(store, "x".repeat(SEGMENT_BYTES)));
+    }
+
+    @Test
+    void deletedEntriesAreGone() throws IOException {
+        var store = newStore();
+        long id = append(store, "payload");
+
+        assertTrue(store.delete(id));
+
+        assertNull(store.read(id));
+        assertEquals(-1, store.transferTo(id, Channels.newChannel(new ByteArrayOutputStream())));
+        assertFalse(store.delete(id));
+    }
+
+    @Test
+    void recoversEntriesAndDeletesAfterRestart() throws IOException {
+        var store = newStore();
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            ids.add(append(store, "payload-" + i));
+        }
+        store.delete(ids.get(3));
+        store.shutdown();
+        stores.remove(store);
+
+        var recovered = newStore();
+
+        assertNull(recovered.read(ids.get(3)));
+        assertEquals("payload-9", text(recovered.read(ids.get(9)).getPayload()));
+        assertEquals(ids.get(9) + 1, append(recovered, "next"));
+    }
+
+    @Test
+    void compactionKeepsLiveEntries() throws IOException {
+        var store = newStore();
+        List<Long> ids = new ArrayList<>();
+        while (segmentFiles() < 2) {
+            ids.add(append(store, "payload-" + ids.size()));
+        }
+        long lastOfFirstSegment = ids.get(ids.size() - 2);
+        for (long id = ids.get(0); id < lastOfFirstSegment; id++) {
+            store.delete(id);
+        }
+
+        store.maintain();
+
+        assertNull(store.read(ids.get(0)));
+        assertEquals("payload-" + (ids.size() - 2), text(store.read(lastOfFirstSegment).getPayload()));
+        store.shutdown();
+        stores.remove(store);
+        var recovered = newStore();
+        assertNull(recovered.read(ids.get(0)));
+        assertEquals("payload-" + (ids.size() - 2), text(recovered.read(lastOfFirstSegment).getPayload()));
+        assertEquals("payload-" + (ids.size() - 1), text(recovered.read(ids.get(ids.size() - 1)).getPayload()));
+    }
+
+    private LocalClaimCheckStore newStore() {
+        var environment = new MockEnvironment()
+                .withProperty("events-payload.local.directory", directory.toString())
+                .withProperty("events-payload.local.segment-bytes", String.valueOf(SEGMENT_BYTES))
+                .withProperty("events-payload.local.compaction.min-dead-ratio", "0.5")
+                .withProperty("events-payload.local.maintenance-interval-ms", "0");
+        var context = new GenericApplicationContext();
+        context.setEnvironment(environment);
+        var store = new LocalClaimCheckStore();
+        ReflectionTestUtils.setField(store, "context", context);
+        ReflectionTestUtils.setField(store, "meterRegistry", new SimpleMeterRegistry());
+        try {
+            store.init();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        stores.add(store);
+        return store;
+    }
+
+    private static long append(LocalClaimCheckStore store, String payload) throws IOException {
+        byte[] bytes = payload.getBytes(StandardCharsets.UTF_8);
+        return store.append("java", String.class.getName(), "none", bytes, 0, bytes.length);
+    }
+
+    private static String text(ByteBuffer payload) {
+        byte[] bytes = new byte[payload.remaining()];
+        payload.duplicate().get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private long segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.toString().endsWith(".seg")).count();
+        }
+    }
+}
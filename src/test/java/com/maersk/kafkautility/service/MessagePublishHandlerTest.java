@@ -0,0 +1,101 @@
+package com.maersk.kafkautility.service;
+
+import com.maersk.kafkautility.exception.MessagePublishException;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MessagePublishHandlerTest {
+
+    @SuppressWarnings("unchecked")
+    private final KafkaTemplate<String, String> kafkaTemplate = mock(KafkaTemplate.class);
+    private final List<SettableListenableFuture<SendResult<String, String>>> pending = new ArrayList<>();
+    private MessagePublishHandler<String> handler;
+
+    @BeforeEach
+    void setUp() {
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenAnswer(invocation -> {
+            var future = new SettableListenableFuture<SendResult<String, String>>();
+            pending.add(future);
+            return future;
+        });
+        var environment = new MockEnvironment()
+                .withProperty("kafka.publish.max-in-flight", "1")
+                .withProperty("kafka.publish.acquire-timeout-ms", "50");
+        var context = new GenericApplicationContext();
+        context.setEnvironment(environment);
+        handler = new MessagePublishHandler<>(kafkaTemplate);
+        ReflectionTestUtils.setField(handler, "context", context);
+        handler.init();
+    }
+
+    @Test
+    void publishAllFailsRecordsThatGetNoSlotInTime() throws Exception {
+        var first = new ProducerRecord<String, String>("orders", "k1", "v1");
+        var second = new ProducerRecord<String, String>("orders", "k2", "v2");
+
+        var batch = handler.publishAll(List.of(first, second), true);
+        acknowledge(0, first);
+        var result = batch.get(5, TimeUnit.SECONDS);
+
+        assertEquals(1, result.getSucceeded().size());
+        assertEquals(1, result.getFailed().size());
+        assertSame(second, result.getFailed().get(0).getProducerRecord());
+        assertInstanceOf(MessagePublishException.class, result.getFailed().get(0).getException());
+        verify(kafkaTemplate).flush();
+    }
+
+    @Test
+    void publishAllReleasesSlotsOnAcknowledgement() throws Exception {
+        var first = new ProducerRecord<String, String>("orders", "k1", "v1");
+        var firstBatch = handler.publishAll(List.of(first));
+        acknowledge(0, first);
+        assertTrue(firstBatch.get(5, TimeUnit.SECONDS).isSuccess());
+
+        var second = new ProducerRecord<String, String>("orders", "k2", "v2");
+        var batch = handler.publishAll(List.of(second));
+        acknowledge(1, second);
+
+        assertTrue(batch.get(5, TimeUnit.SECONDS).isSuccess());
+    }
+
+    @Test
+    void publishOnTopicDoesNotWaitForBatchSlots() {
+        handler.publishAll(List.of(new ProducerRecord<>("orders", "k1", "v1")));
+
+        long start = System.nanoTime();
+        handler.publishOnTopic(new ProducerRecord<>("orders", "k2", "v2"));
+        var async = handler.publishAsync(new ProducerRecord<>("orders", "k3", "v3"));
+
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 50);
+        assertEquals(3, pending.size());
+        assertFalse(async.isDone());
+    }
+
+    private void acknowledge(int index, ProducerRecord<String, String> producerRecord) {
+        var metadata = new RecordMetadata(new TopicPartition(producerRecord.topic(), 0), 0, index, 0L, 0, 0);
+        pending.get(index).set(new SendResult<>(producerRecord, metadata));
+    }
+}
@@ -0,0 +1,92 @@
+package com.maersk.kafkautility.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ProducerBatchingControllerTest {
+
+    private DefaultKafkaProducerFactory<String, String> factory;
+    private ProducerBatchingController controller;
+
+    @BeforeEach
+    void setUp() {
+        factory = new DefaultKafkaProducerFactory<>(Map.of(
+                ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, "localhost:9092",
+                ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class,
+                ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class));
+        var environment = new MockEnvironment()
+                .withProperty("kafka.producer.adaptive.enabled", "true")
+                .withProperty("kafka.producer.adaptive.interval-ms", "3600000")
+                .withProperty("kafka.producer.adaptive.min-switch-interval-ms", "0")
+                .withProperty("kafka.producer.adaptive.stable-samples", "2");
+        var context = new GenericApplicationContext();
+        context.setEnvironment(environment);
+        controller = new ProducerBatchingController();
+        ReflectionTestUtils.setField(controller, "context", context);
+        ReflectionTestUtils.setField(controller, "producerFactory", factory);
+        ReflectionTestUtils.setField(controller, "meterRegistry", new SimpleMeterRegistry());
+        controller.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        controller.shutdown();
+    }
+
+    @Test
+    void switchesProfileOnlyAfterStableSamples() {
+        assertEquals(ProducerBatchingController.Profile.LATENCY, controller.getProfile());
+
+        controller.adjust(5000, 10, 0);
+        assertEquals(ProducerBatchingController.Profile.LATENCY, controller.getProfile());
+
+        controller.adjust(5000, 10, 0);
+        assertEquals(ProducerBatchingController.Profile.THROUGHPUT, controller.getProfile());
+        assertBatching(20, 131072);
+
+        controller.adjust(500, 10, 0);
+        controller.adjust(100, 10, 0);
+        assertEquals(ProducerBatchingController.Profile.THROUGHPUT, controller.getProfile());
+
+        controller.adjust(100, 10, 0);
+        assertEquals(ProducerBatchingController.Profile.LATENCY, controller.getProfile());
+        assertBatching(1, 16384);
+    }
+
+    @Test
+    void keepsThroughputTuningWithinBounds() {
+        controller.adjust(5000, 10, 0);
+        controller.adjust(5000, 10, 0);
+
+        controller.adjust(5000, 500, 131072);
+        assertBatching(40, 262144);
+        controller.adjust(5000, 500, 262144);
+        controller.adjust(5000, 500, 524288);
+        controller.adjust(5000, 500, 1048576);
+        assertBatching(100, 1048576);
+        controller.adjust(5000, 500, 1048576);
+        assertBatching(100, 1048576);
+
+        controller.adjust(5000, 10, 1000);
+        assertBatching(50, 524288);
+        assertEquals(ProducerBatchingController.Profile.THROUGHPUT, controller.getProfile());
+    }
+
+    private void assertBatching(int lingerMs, int batchBytes) {
+        var configs = factory.getConfigurationProperties();
+        assertEquals(lingerMs, configs.get(ProducerConfig.LINGER_MS_CONFIG));
+        assertEquals(batchBytes, configs.get(ProducerConfig.BATCH_SIZE_CONFIG));
+    }
+}
@@ -0,0 +1,107 @@
+package com.maersk.kafkautility.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RangedBlobInputStreamTest {
+
+    private static final int RANGE_SIZE = 10;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+    private final List<Long> requestedOffsets = Collections.synchronizedList(new ArrayList<>());
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void readsBlobInOrderAcrossRanges() throws IOException {
+        byte[] blob = bytes(95);
+
+        try (var stream = new RangedBlobInputStream(reader(blob, Integer.MAX_VALUE), blob.length, RANGE_SIZE, 3, executor)) {
+            assertArrayEquals(blob, stream.readAllBytes());
+        }
+        assertEquals(10, requestedOffsets.size());
+    }
+
+    @Test
+    void completesShortRangeReads() throws IOException {
+        byte[] blob = bytes(45);
+
+        try (var stream = new RangedBlobInputStream(reader(blob, 3), blob.length, RANGE_SIZE, 2, executor)) {
+            assertEquals(blob[0], (byte) stream.read());
+            assertArrayEquals(Arrays.copyOfRange(blob, 1, blob.length), stream.readAllBytes());
+        }
+    }
+
+    @Test
+    void keepsAtMostMaxInFlightRangesAhead() throws IOException {
+        byte[] blob = bytes(100);
+
+        try (var stream = new RangedBlobInputStream(reader(blob, Integer.MAX_VALUE), blob.length, RANGE_SIZE, 2, executor)) {
+            assertTrue(requestedOffsets.size() <= 2);
+            stream.read(new byte[RANGE_SIZE]);
+            assertTrue(requestedOffsets.size() <= 3);
+        }
+    }
+
+    @Test
+    void emptyBlobIsEmptyStream() throws IOException {
+        try (var stream = new RangedBlobInputStream(reader(new byte[0], 1), 0, RANGE_SIZE, 2, executor)) {
+            assertEquals(-1, stream.read());
+        }
+    }
+
+    @Test
+    void failedRangeFailsTheRead() {
+        RangedBlobInputStream.RangeReader failing = (offset, length, target, targetOffset) -> {
+            throw new IOException("connection reset");
+        };
+        var stream = new RangedBlobInputStream(failing, 30, RANGE_SIZE, 2, executor);
+
+        assertThrows(IOException.class, stream::read);
+        assertThrows(IOException.class, stream::read);
+    }
+
+    @Test
+    void truncatedBlobFailsTheRead() {
+        byte[] blob = bytes(15);
+        var stream = new RangedBlobInputStream(reader(blob, Integer.MAX_VALUE), 30, RANGE_SIZE, 2, executor);
+
+        assertThrows(IOException.class, stream::readAllBytes);
+    }
+
+    private RangedBlobInputStream.RangeReader reader(byte[] blob, int maxChunk) {
+        return (offset, length, target, targetOffset) -> {
+            requestedOffsets.add(offset);
+            if (offset >= blob.length) {
+                return -1;
+            }
+            int count = (int) Math.min(Math.min(length, maxChunk), blob.length - offset);
+            System.arraycopy(blob, (int) offset, target, targetOffset, count);
+            return count;
+        };
+    }
+
+    private static byte[] bytes(int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) i;
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,179 @@
+package com.maersk.kafkautility.service;
+
+import com.maersk.kafkautility.aspect.RetryAspect;
+import com.maersk.kafkautility.utils.PayloadHeaders;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.aspectj.lang.JoinPoint;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RetryRoundTripTest {
+
+    private static final String ORIGINAL_TOPIC = "orders";
+    private static final String TIER_TOPIC = "orders-retry";
+    private static final String PAYLOAD = "{\"orderId\":42}";
+
+    private final MessagePublishHandler<String> messagePublishHandler = mock(MessagePublishHandler.class);
+    private final AzureBlobService<String> azureBlobService = mock(AzureBlobService.class);
+    private final Map<String, String> blobs = new ConcurrentHashMap<>();
+    private final MockConsumer<String, String> mockConsumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+    private final RetryTopicRouter retryTopicRouter = new RetryTopicRouter();
+    private final RetryService<String> retryService = new RetryService<>();
+    private final RetryAspect<String> retryAspect = new RetryAspect<>();
+    private final DelayedRetryConsumer<String> delayedRetryConsumer = new DelayedRetryConsumer<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        var environment = new MockEnvironment()
+                .withProperty("kafka.retry.tiers", "0s:" + TIER_TOPIC)
+                .withProperty("kafka.retry.consumer.enabled", "true")
+                .withProperty("kafka.retry.consumer.poll-timeout-ms", "20");
+        var context = new GenericApplicationContext();
+        context.setEnvironment(environment);
+        ReflectionTestUtils.setField(retryTopicRouter, "context", context);
+        retryTopicRouter.init();
+
+        when(azureBlobService.offloadPayloadToBlob(anyString(), any(Headers.class), anyString())).thenAnswer(invocation -> {
+            String reference = "memory://claimcheck/" + blobs.size();
+            blobs.put(reference, invocation.getArgument(2));
+            ProducerRecord<String, String> producerRecord = new ProducerRecord<>(invocation.<String>getArgument(0), null, (String) null, reference, invocation.<Headers>getArgument(1));
+            PayloadHeaders.add(producerRecord.headers(), PayloadHeaders.IS_LARGE_PAYLOAD, "YES");
+            PayloadHeaders.add(producerRecord.headers(), PayloadHeaders.PAYLOAD_TYPE, String.class.getName());
+            return producerRecord;
+        });
+        when(azureBlobService.getPayloadFromBlob(anyString(), anyString())).thenAnswer(invocation ->
+                "YES".equals(invocation.getArgument(1)) ? blobs.get(invocation.<String>getArgument(0)) : invocation.getArgument(0));
+        ReflectionTestUtils.setField(retryService, "context", context);
+        ReflectionTestUtils.setField(retryService, "messagePublishHandler", messagePublishHandler);
+        ReflectionTestUtils.setField(retryService, "azureBlobService", azureBlobService);
+        ReflectionTestUtils.setField(retryService, "retryTopicRouter", retryTopicRouter);
+
+        ReflectionTestUtils.setField(retryAspect, "context", context);
+        ReflectionTestUtils.setField(retryAspect, "messagePublishHandler", messagePublishHandler);
+        ReflectionTestUtils.setField(retryAspect, "retryTopicRouter", retryTopicRouter);
+
+        ConsumerFactory<String, String> consumerFactory = mock(ConsumerFactory.class);
+        when(consumerFactory.createConsumer(anyString(), isNull(), anyString(), any(Properties.class))).thenReturn(mockConsumer);
+        ReflectionTestUtils.setField(delayedRetryConsumer, "context", context);
+        ReflectionTestUtils.setField(delayedRetryConsumer, "consumerFactory", consumerFactory);
+        ReflectionTestUtils.setField(delayedRetryConsumer, "messagePublishHandler", messagePublishHandler);
+        ReflectionTestUtils.setField(delayedRetryConsumer, "retryTopicRouter", retryTopicRouter);
+        ReflectionTestUtils.setField(delayedRetryConsumer, "meterRegistry", new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        delayedRetryConsumer.stop();
+    }
+
+    @Test
+    void inlineFailureIsOffloadedRetriedAndResolvedOnOriginalTopic() throws Exception {
+        var failed = inlineRecord();
+
+        retryService.sendMessageToRetryTopic(PAYLOAD, "order-42", ORIGINAL_TOPIC, failed.headers());
+
+        var retryRecord = publishedOnTopic();
+        assertEquals(TIER_TOPIC, retryRecord.topic());
+        assertEquals(List.of("YES"), values(retryRecord.headers(), PayloadHeaders.IS_LARGE_PAYLOAD));
+        assertEquals(List.of(), values(retryRecord.headers(), PayloadHeaders.PAYLOAD_CODEC));
+        assertEquals(List.of("order-42"), values(retryRecord.headers(), PayloadHeaders.CORRELATION_ID));
+
+        var republished = republish(retryRecord);
+
+        assertEquals(ORIGINAL_TOPIC, republished.topic());
+        assertEquals(List.of("YES"), values(republished.headers(), PayloadHeaders.IS_LARGE_PAYLOAD));
+        assertEquals("1", PayloadHeaders.lastValue(republished.headers(), PayloadHeaders.RETRY_ATTEMPT));
+        assertEquals(PAYLOAD, azureBlobService.getPayloadFromBlob(republished.value(),
+                PayloadHeaders.lastValue(republished.headers(), PayloadHeaders.IS_LARGE_PAYLOAD)));
+    }
+
+    @Test
+    void aspectRetriesResolvedClaimCheckAsInlineValue() {
+        var failed = new ConsumerRecord<>(ORIGINAL_TOPIC, 0, 7, "order-42", "memory://claimcheck/stale");
+        PayloadHeaders.add(failed.headers(), PayloadHeaders.IS_LARGE_PAYLOAD, "YES");
+        PayloadHeaders.add(failed.headers(), PayloadHeaders.PAYLOAD_ORIGINAL_SIZE, "4096");
+        var joinPoint = mock(JoinPoint.class);
+        when(joinPoint.getArgs()).thenReturn(new Object[] {PAYLOAD, "order-42", failed});
+
+        retryAspect.retryAdvice(joinPoint);
+
+        var retryRecord = publishedOnTopic();
+        assertEquals(PAYLOAD, retryRecord.value());
+        assertEquals(List.of("NO"), values(retryRecord.headers(), PayloadHeaders.IS_LARGE_PAYLOAD));
+        assertNull(retryRecord.headers().lastHeader(PayloadHeaders.PAYLOAD_ORIGINAL_SIZE));
+        assertEquals(ORIGINAL_TOPIC, PayloadHeaders.lastValue(retryRecord.headers(), PayloadHeaders.RETRY_ORIGINAL_TOPIC));
+    }
+
+    private static ConsumerRecord<String, String> inlineRecord() {
+        var consumerRecord = new ConsumerRecord<>(ORIGINAL_TOPIC, 0, 7, "order-42", PAYLOAD);
+        PayloadHeaders.add(consumerRecord.headers(), PayloadHeaders.IS_LARGE_PAYLOAD, "NO");
+        PayloadHeaders.add(consumerRecord.headers(), PayloadHeaders.PAYLOAD_CODEC, "json");
+        PayloadHeaders.add(consumerRecord.headers(), PayloadHeaders.PAYLOAD_TYPE, String.class.getName());
+        return consumerRecord;
+    }
+
+    @SuppressWarnings("unchecked")
+    private ProducerRecord<String, String> publishedOnTopic() {
+        ArgumentCaptor<ProducerRecord<String, String>> captor = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(messagePublishHandler).publishOnTopic(captor.capture());
+        return captor.getValue();
+    }
+
+    private ProducerRecord<String, String> republish(ProducerRecord<String, String> retryRecord) throws Exception {
+        var republished = new CompletableFuture<ProducerRecord<String, String>>();
+        when(messagePublishHandler.publishAsync(any(ProducerRecord.class))).thenAnswer(invocation -> {
+            republished.complete(invocation.getArgument(0));
+            return CompletableFuture.completedFuture(null);
+        });
+        var partition = new TopicPartition(TIER_TOPIC, 0);
+        mockConsumer.schedulePollTask(() -> {
+            mockConsumer.rebalance(List.of(partition));
+            mockConsumer.updateBeginningOffsets(Map.of(partition, 0L));
+            mockConsumer.addRecord(new ConsumerRecord<>(TIER_TOPIC, 0, 0, 0L, null, 0, 0,
+                    retryRecord.key(), retryRecord.value(), retryRecord.headers(), Optional.empty()));
+        });
+
+        delayedRetryConsumer.start();
+
+        return republished.get(5, TimeUnit.SECONDS);
+    }
+
+    private static List<String> values(Headers headers, String key) {
+        return StreamSupport.stream(headers.headers(key).spliterator(), false)
+                .map(Header::value)
+                .map(String::new)
+                .collect(Collectors.toList());
+    }
+}
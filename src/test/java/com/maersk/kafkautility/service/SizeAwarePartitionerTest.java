@@ -0,0 +1,127 @@
+package com.maersk.kafkautility.service;
+
+import org.apache.kafka.clients.producer.internals.DefaultPartitioner;
+import org.apache.kafka.common.Cluster;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.PartitionInfo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SizeAwarePartitionerTest {
+
+    private static final String TOPIC = "events";
+    private static final Node NODE = new Node(0, "localhost", 9092);
+
+    private final SizeAwarePartitioner partitioner = new SizeAwarePartitioner();
+
+    @BeforeEach
+    void setUp() {
+        partitioner.configure(Map.of(SizeAwarePartitioner.STICKY_BYTES_CONFIG, "100"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        partitioner.close();
+    }
+
+    @Test
+    void keyedRecordsGoWhereTheDefaultPartitionerPutsThem() {
+        var cluster = cluster(6, Set.of());
+        var defaultPartitioner = new DefaultPartitioner();
+        for (int i = 0; i < 50; i++) {
+            byte[] key = ("aggregate-" + i).getBytes(StandardCharsets.UTF_8);
+            int expected = defaultPartitioner.partition(TOPIC, null, key, null, new byte[10], cluster);
+
+            assertEquals(expected, partitioner.partition(TOPIC, null, key, null, new byte[10], cluster));
+            partitioner.partition(TOPIC, null, null, null, new byte[500], cluster);
+            assertEquals(expected, partitioner.partition(TOPIC, null, key, null, new byte[1000], cluster));
+        }
+    }
+
+    @Test
+    void keylessRecordsBalanceBytesAcrossPartitions() {
+        var cluster = cluster(3, Set.of());
+        byte[] hotKey = key(cluster, 0);
+        partitioner.partition(TOPIC, null, hotKey, null, new byte[400 - hotKey.length], cluster);
+
+        long[] bytes = new long[3];
+        for (int i = 0; i < 40; i++) {
+            byte[] value = new byte[i % 2 == 0 ? 50 : 150];
+            bytes[partitioner.partition(TOPIC, null, null, null, value, cluster)] += value.length;
+        }
+
+        long[] total = {bytes[0] + 400, bytes[1], bytes[2]};
+        assertTrue(bytes[0] < bytes[1] && bytes[0] < bytes[2]);
+        assertTrue(Arrays.stream(total).max().getAsLong() - Arrays.stream(total).min().getAsLong() <= 250);
+    }
+
+    @Test
+    void keylessRecordsStickUntilStickyBytesAreReached() {
+        var cluster = cluster(3, Set.of());
+
+        int first = partitioner.partition(TOPIC, null, null, null, new byte[40], cluster);
+        assertEquals(first, partitioner.partition(TOPIC, null, null, null, new byte[40], cluster));
+        assertEquals(first, partitioner.partition(TOPIC, null, null, null, new byte[40], cluster));
+        assertNotEquals(first, partitioner.partition(TOPIC, null, null, null, new byte[40], cluster));
+    }
+
+    @Test
+    void unavailablePartitionIsLevelledWhenItComesBack() {
+        var degraded = cluster(3, Set.of(2));
+        for (int i = 0; i < 20; i++) {
+            assertNotEquals(2, partitioner.partition(TOPIC, null, null, null, new byte[100], degraded));
+        }
+
+        assertEquals(Set.of(0, 1, 2), nextPartitions(cluster(3, Set.of()), 3));
+    }
+
+    @Test
+    void addedPartitionIsLevelledWithExistingOnes() {
+        var before = cluster(2, Set.of());
+        for (int i = 0; i < 20; i++) {
+            partitioner.partition(TOPIC, null, null, null, new byte[100], before);
+        }
+
+        assertEquals(Set.of(0, 1, 2), nextPartitions(cluster(3, Set.of()), 3));
+    }
+
+    private Set<Integer> nextPartitions(Cluster cluster, int records) {
+        Set<Integer> partitions = new HashSet<>();
+        for (int i = 0; i < records; i++) {
+            partitions.add(partitioner.partition(TOPIC, null, null, null, new byte[100], cluster));
+        }
+        return partitions;
+    }
+
+    private static byte[] key(Cluster cluster, int partition) {
+        var defaultPartitioner = new DefaultPartitioner();
+        for (int i = 0; ; i++) {
+            byte[] key = ("aggregate-" + i).getBytes(StandardCharsets.UTF_8);
+            if (defaultPartitioner.partition(TOPIC, null, key, null, null, cluster) == partition) {
+                return key;
+            }
+        }
+    }
+
+    private static Cluster cluster(int partitions, Set<Integer> unavailable) {
+        List<PartitionInfo> infos = new ArrayList<>();
+        for (int partition = 0; partition < partitions; partition++) {
+            Node leader = unavailable.contains(partition) ? null : NODE;
+            infos.add(new PartitionInfo(TOPIC, partition, leader, new Node[] {NODE}, new Node[] {NODE}));
+        }
+        return new Cluster("cluster", List.of(NODE), infos, Set.of(), Set.of());
+    }
+}
@@ -0,0 +1,198 @@
+package com.maersk.kafkautility.support;
+
+import com.maersk.kafkautility.codec.PayloadCodec;
+import com.maersk.kafkautility.codec.PayloadCodecs;
+import com.maersk.kafkautility.service.AzureBlobService;
+import com.maersk.kafkautility.service.SpooledPayload;
+import com.maersk.kafkautility.utils.PayloadBuffer;
+import com.maersk.kafkautility.utils.PayloadHeaders;
+import com.microsoft.azure.storage.blob.CloudBlobContainer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Memory-backed stand-in for the Azure claim-check store. It follows the same inline/offload
+ * decision and headers as AzureBlobServiceImpl, so producers and consumers can be exercised
+ * without a storage account; an optional per-call latency simulates the storage round trip.
+ */
+public class InMemoryAzureBlobService<T> implements AzureBlobService<T> {
+
+    private static final String URI_PREFIX = "memory://claimcheck/";
+
+    private final Map<String, byte[]> blobs = new ConcurrentHashMap<>();
+    private final PayloadCodec payloadCodec;
+    private final long maxPayloadBytes;
+    private final long latencyNanos;
+
+    public InMemoryAzureBlobService(String codecName, long maxPayloadBytes, long latencyNanos) {
+        this.payloadCodec = PayloadCodecs.forName(codecName);
+        this.maxPayloadBytes = maxPayloadBytes;
+        this.latencyNanos = latencyNanos;
+    }
+
+    public int getBlobCount() {
+        return blobs.size();
+    }
+
+    public long getStoredBytes() {
+        return blobs.values().stream().mapToLong(bytes -> bytes.length).sum();
+    }
+
+    @Override
+    public String writePayloadToBlob(T payload) throws IOException {
+        return writePayloadFileToBlob(payload, null).toString();
+    }
+
+    @Override
+    public ProducerRecord<String, T> storePayloadToBlob(String topic, T payload) throws IOException {
+        var buffer = PayloadBuffer.acquire();
+        try {
+            payloadCodec.encode(payload, buffer);
+            if (buffer.size() <= maxPayloadBytes) {
+                ProducerRecord<String, T> producerRecord = new ProducerRecord<>(topic, payload);
+                PayloadHeaders.add(producerRecord.headers(), PayloadHeaders.IS_LARGE_PAYLOAD, "NO");
+                return producerRecord;
+            }
+            return offloadedRecord(topic, new RecordHeaders(), payload, buffer);
+        } finally {
+            buffer.release();
+        }
+    }
+
+    @Override
+    public ProducerRecord<String, T> offloadPayloadToBlob(String topic, Headers headers, T payload) throws IOException {
+        var buffer = PayloadBuffer.acquire();
+        try {
+            payloadCodec.encode(payload, buffer);
+            return offloadedRecord(topic, headers, payload, buffer);
+        } finally {
+            buffer.release();
+        }
+    }
+
+    private ProducerRecord<String, T> offloadedRecord(String topic, Headers headers, T payload, PayloadBuffer buffer) {
+        var blobUri = store(Arrays.copyOf(buffer.array(), buffer.size()));
+        PayloadHeaders.add(headers, PayloadHeaders.IS_LARGE_PAYLOAD, "YES");
+        PayloadHeaders.add(headers, PayloadHeaders.PAYLOAD_TYPE, payload.getClass().getName());
+        PayloadHeaders.add(headers, PayloadHeaders.PAYLOAD_CODEC, payloadCodec.getName());
+        PayloadHeaders.add(headers, PayloadHeaders.PAYLOAD_ORIGINAL_SIZE, String.valueOf(buffer.size()));
+        return new ProducerRecord<>(topic, null, (String) null, (T) blobUri, headers);
+    }
+
+    @Override
+    public CompletableFuture<ProducerRecord<String, T>> storePayloadToBlobAsync(String topic, T payload) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return storePayloadToBlob(topic, payload);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    @Override
+    public List<ProducerRecord<String, T>> storePayloadRecords(String topic, T payload) throws IOException {
+        return List.of(storePayloadToBlob(topic, payload));
+    }
+
+    @Override
+    public List<ProducerRecord<String, T>> storePayloadRecords(String topic, T payload, String correlationId) throws IOException {
+        var producerRecord = storePayloadToBlob(topic, payload);
+        if (Objects.nonNull(correlationId)) {
+            PayloadHeaders.add(producerRecord.headers(), PayloadHeaders.CORRELATION_ID, correlationId);
+        }
+        return List.of(producerRecord);
+    }
+
+    @Override
+    public CompletableFuture<List<ProducerRecord<String, T>>> storePayloadRecordsAsync(String topic, T payload) {
+        return storePayloadToBlobAsync(topic, payload).thenApply(List::of);
+    }
+
+    @Override
+    public CompletableFuture<List<ProducerRecord<String, T>>> storePayloadRecordsAsync(String topic, T payload, String correlationId) {
+        try {
+            return CompletableFuture.completedFuture(storePayloadRecords(topic, payload, correlationId));
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Object> spoolPayload(String topic, Headers headers, T payload) {
+        throw new UnsupportedOperationException("The in-memory store is always available");
+    }
+
+    @Override
+    public ProducerRecord<String, T> storeSpooledPayload(SpooledPayload spooledPayload) {
+        throw new UnsupportedOperationException("The in-memory store is always available");
+    }
+
+    @Override
+    public T readPayloadFromBlob(String blobReference) {
+        try (InputStream inputStream = openPayloadStream(blobReference)) {
+            return (T) payloadCodec.decode(inputStream, SamplePayload.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public InputStream openPayloadStream(String blobReference) throws IOException {
+        simulateLatency();
+        var bytes = blobs.get(blobReference);
+        if (Objects.isNull(bytes)) {
+            throw new IOException("No such blob: " + blobReference);
+        }
+        return new ByteArrayInputStream(bytes);
+    }
+
+    @Override
+    public T getPayloadFromBlob(T payloadReference, String isLargePayload) {
+        return "YES".equals(isLargePayload) ? readPayloadFromBlob(payloadReference.toString()) : payloadReference;
+    }
+
+    @Override
+    public void deletePayloadFromBlob(String blobReference) {
+        blobs.remove(blobReference);
+    }
+
+    @Override
+    public URI writePayloadFileToBlob(T payload, CloudBlobContainer containerDest) throws IOException {
+        var buffer = PayloadBuffer.acquire();
+        try {
+            payloadCodec.encode(payload, buffer);
+            return URI.create(store(Arrays.copyOf(buffer.array(), buffer.size())));
+        } finally {
+            buffer.release();
+        }
+    }
+
+    private String store(byte[] bytes) {
+        simulateLatency();
+        var blobUri = URI_PREFIX + UUID.randomUUID();
+        blobs.put(blobUri, bytes);
+        return blobUri;
+    }
+
+    private void simulateLatency() {
+        if (latencyNanos > 0) {
+            LockSupport.parkNanos(latencyNanos);
+        }
+    }
+}
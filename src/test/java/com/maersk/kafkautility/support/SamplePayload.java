@@ -0,0 +1,36 @@
+package com.maersk.kafkautility.support;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.Random;
+
+/**
+ * Event-shaped payload used by the benchmarks and the load harness, encodable by every codec.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SamplePayload implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private String id;
+    private String eventType;
+    private long createdAt;
+    private String body;
+
+    /**
+     * Builds a payload whose body is roughly the given number of bytes of printable text.
+     */
+    public static SamplePayload ofSize(int bodyBytes, long seed) {
+        var random = new Random(seed);
+        var body = new char[bodyBytes];
+        for (int i = 0; i < bodyBytes; i++) {
+            body[i] = (char) ('a' + random.nextInt(26));
+        }
+        return new SamplePayload(Long.toHexString(seed), "shipment.updated", seed, new String(body));
+    }
+}
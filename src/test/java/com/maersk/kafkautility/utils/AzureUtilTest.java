@@ -0,0 +1,61 @@
+package com.maersk.kafkautility.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AzureUtilTest {
+
+    private static final byte[] PAYLOAD = "{\"id\":42}".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    void sameContentGetsSameAddress() {
+        byte[] padded = new byte[PAYLOAD.length + 4];
+        System.arraycopy(PAYLOAD, 0, padded, 2, PAYLOAD.length);
+
+        assertArrayEquals(address("json", "none", "com.example.Order", PAYLOAD),
+                AzureUtil.contentAddress("json", "none", "com.example.Order", padded, 2, PAYLOAD.length));
+    }
+
+    @Test
+    void payloadTypeIsPartOfTheAddress() {
+        assertFalse(Arrays.equals(address("json", "none", "com.example.Order", PAYLOAD),
+                address("json", "none", "com.example.Invoice", PAYLOAD)));
+    }
+
+    @Test
+    void codecAndCompressionArePartOfTheAddress() {
+        byte[] reference = address("json", "none", "com.example.Order", PAYLOAD);
+
+        assertFalse(Arrays.equals(reference, address("smile", "none", "com.example.Order", PAYLOAD)));
+        assertFalse(Arrays.equals(reference, address("json", "gzip", "com.example.Order", PAYLOAD)));
+    }
+
+    @Test
+    void fieldBoundariesAreNotAmbiguous() {
+        assertFalse(Arrays.equals(address("jsonn", "one", "com.example.Order", PAYLOAD),
+                address("json", "none", "com.example.Order", PAYLOAD)));
+        assertFalse(Arrays.equals(address("json", "none", "com.example.Order", "x".getBytes(StandardCharsets.UTF_8)),
+                address("json", "none", "com.example.Orderx", new byte[0])));
+    }
+
+    @Test
+    void filenameCarriesPrefixAndHexDigest() {
+        byte[] address = address("json", "none", "com.example.Order", PAYLOAD);
+
+        String name = AzureUtil.getContentAddressedFilename("orders", address);
+
+        assertTrue(name.matches("orders_sha256-[0-9a-f]{64}\\.dat"), name);
+        assertEquals(name, AzureUtil.getContentAddressedFilename("orders", address("json", "none", "com.example.Order", PAYLOAD)));
+    }
+
+    private static byte[] address(String codec, String compression, String payloadType, byte[] bytes) {
+        return AzureUtil.contentAddress(codec, compression, payloadType, bytes, 0, bytes.length);
+    }
+}
@@ -0,0 +1,51 @@
+package com.maersk.kafkautility.utils;
+
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ClaimCheckMetadataTest {
+
+    @Test
+    void roundTripsThroughTheHeader() {
+        var headers = new RecordHeaders();
+        byte[] hash = AzureUtil.newSha256().digest(new byte[]{1, 2, 3});
+        new ClaimCheckMetadata("com.example.Order", 4096, "json", "gzip", hash, 1700000000000L, "corr-1").addTo(headers);
+
+        var metadata = ClaimCheckMetadata.from(headers);
+
+        assertEquals("com.example.Order", metadata.getPayloadType());
+        assertEquals(4096, metadata.getEncodedSize());
+        assertEquals("json", metadata.getCodec());
+        assertEquals("gzip", metadata.getCompression());
+        assertArrayEquals(hash, metadata.getContentHash());
+        assertEquals(1700000000000L, metadata.getCreatedAt());
+        assertEquals("corr-1", metadata.getCorrelationId());
+    }
+
+    @Test
+    void keepsAbsentHashAndCorrelationIdAbsent() {
+        var metadata = ClaimCheckMetadata.fromBytes(new ClaimCheckMetadata("com.example.Order", 10, "java", "none", null, 1L, null).toBytes());
+
+        assertNull(metadata.getContentHash());
+        assertNull(metadata.getCorrelationId());
+    }
+
+    @Test
+    void fallsBackToPlainHeaders() {
+        var headers = new RecordHeaders();
+        PayloadHeaders.add(headers, PayloadHeaders.PAYLOAD_TYPE, "com.example.Order");
+        PayloadHeaders.add(headers, PayloadHeaders.PAYLOAD_ORIGINAL_SIZE, "512");
+        PayloadHeaders.add(headers, PayloadHeaders.PAYLOAD_CODEC, "smile");
+
+        var metadata = ClaimCheckMetadata.from(headers);
+
+        assertEquals("com.example.Order", metadata.getPayloadType());
+        assertEquals(512, metadata.getEncodedSize());
+        assertEquals("smile", metadata.getCodec());
+        assertNull(ClaimCheckMetadata.from(new RecordHeaders()));
+    }
+}
@@ -0,0 +1,45 @@
+package com.maersk.kafkautility.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class PayloadBufferTest {
+
+    @Test
+    void releasedBufferIsReusedEmpty() {
+        var buffer = PayloadBuffer.acquire();
+        buffer.write(new byte[]{1, 2, 3}, 0, 3);
+        buffer.release();
+
+        var reused = PayloadBuffer.acquire();
+
+        assertSame(buffer, reused);
+        assertEquals(0, reused.size());
+        reused.release();
+    }
+
+    @Test
+    void nestedAcquireGetsSecondBuffer() {
+        var first = PayloadBuffer.acquire();
+        var second = PayloadBuffer.acquire();
+
+        assertNotSame(first, second);
+        second.release();
+        first.release();
+    }
+
+    @Test
+    void oversizedBufferIsShrunkOnRelease() {
+        var buffer = PayloadBuffer.acquire();
+        buffer.write(new byte[8 * 1024 * 1024], 0, 8 * 1024 * 1024);
+        buffer.release();
+
+        var reused = PayloadBuffer.acquire();
+
+        assertEquals(8 * 1024, reused.array().length);
+        reused.release();
+    }
+}